@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import org.jivesoftware.openfire.StreamID;
+import org.jivesoftware.openfire.session.Session;
+import org.jivesoftware.util.JiveGlobals;
+import org.xmpp.packet.JID;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Sets up an instance of the plugin outside of Openfire, for benchmarking.
+ */
+final class BenchmarkSupport
+{
+    /**
+     * Marks the setup of Openfire as completed. Without this, Openfire ignores all changes of system properties (and
+     * every benchmark would measure the default configuration). There is no database: properties are retained in memory
+     * only, and attempts to store them fail immediately, rather than being retried.
+     */
+    private static final String SETUP_CONFIGURATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<jive>\n"
+        + "    <setup>true</setup>\n"
+        + "    <database>\n"
+        + "        <maxRetries>0</maxRetries>\n"
+        + "        <retryDelay>0</retryDelay>\n"
+        + "    </database>\n"
+        + "</jive>\n";
+
+    private final PrintStream originalStdOut = System.out;
+    private final Path home;
+    private final DebuggerPlugin plugin;
+
+    BenchmarkSupport(final DebuggerMode mode) throws IOException
+    {
+        // Capture files are written to the logs directory of the Openfire home directory.
+        home = Files.createTempDirectory("xmldebugger-benchmark");
+        Files.createDirectories(home.resolve("logs"));
+        Files.createDirectories(home.resolve("conf"));
+        Files.writeString(home.resolve("conf").resolve("openfire.xml"), SETUP_CONFIGURATION);
+        JiveGlobals.setHomePath(home);
+
+        // Measure the cost of producing output, not the cost of the console that displays it.
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        plugin = new DebuggerPlugin();
+        mode.apply(plugin);
+        mode.verify(plugin);
+        plugin.getLogWriter().start();
+    }
+
+    DebuggerPlugin getPlugin()
+    {
+        return plugin;
+    }
+
+    void shutdown() throws IOException
+    {
+        final AsyncLogWriter writer = plugin.getLogWriter();
+        writer.shutdown();
+        System.setOut(originalStdOut);
+        System.out.printf("%nLog writer: %d entries written, %d entries dropped.%n", writer.getWrittenCount(), writer.getDroppedCount());
+        try (final Stream<Path> paths = Files.walk(home)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Creates a session of which the methods that are used by the plugin return fixed values. All other methods return
+     * a neutral value (null, false or zero), so that code that uses more of the session does not break the benchmarks.
+     *
+     * @param streamID the stream ID of the session.
+     * @param hostAddress the remote address of the session.
+     * @param address the JID of the session.
+     * @return a session.
+     */
+    static Session session(final StreamID streamID, final String hostAddress, final JID address)
+    {
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[] { Session.class }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getStreamID": return streamID;
+                case "getHostAddress": return hostAddress;
+                case "getAddress": return address;
+                case "equals": return proxy == args[0];
+                case "hashCode": return System.identityHashCode(proxy);
+                case "toString": return "benchmark session";
+                default: return neutralValue(method.getReturnType());
+            }
+        });
+    }
+
+    private static Object neutralValue(final Class<?> type)
+    {
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        }
+        return Array.get(Array.newInstance(type, 1), 0); // The default value of the primitive type (false, zero).
+    }
+
+    /**
+     * Generates a message stanza with a body that pads it to (approximately) the requested size.
+     *
+     * @param size the size of the stanza in bytes.
+     * @return a stanza.
+     */
+    static String stanza(final int size)
+    {
+        final String head = "<message xmlns='jabber:client' to='juliet@example.com/balcony' from='romeo@example.net/orchard' type='chat' id='ktx72v49'><body>";
+        final String tail = "</body><active xmlns='http://jabber.org/protocol/chatstates'/></message>";
+        final StringBuilder sb = new StringBuilder(size).append(head);
+        final String text = "Art thou not Romeo, and a Montague? ";
+        while (sb.length() + tail.length() < size) {
+            sb.append(text, 0, Math.min(text.length(), size - tail.length() - sb.length()));
+        }
+        return sb.append(tail).toString();
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+/**
+ * The configurations of the plugin of which the overhead is benchmarked.
+ */
+public enum DebuggerMode
+{
+    /**
+     * The debugger is disabled for the port type. Handlers remain in the pipeline.
+     */
+    DISABLED,
+
+    /**
+     * Traffic is logged to STDOUT (which is redirected to a stream that discards everything).
+     */
+    STDOUT,
+
+    /**
+     * Traffic is logged to STDOUT as JSON lines.
+     */
+    STDOUT_JSON,
+
+    /**
+     * Traffic is logged to the log file (which depends on the logging configuration on the class path).
+     */
+    FILE,
+
+    /**
+     * Traffic is logged to memory-mapped capture files.
+     */
+    CAPTURE_FILE,
+
+    /**
+     * Traffic is logged to compressed capture files.
+     */
+    COMPRESSED_CAPTURE_FILE,
+
+    /**
+     * Traffic is retained in memory only, for viewing in the admin console.
+     */
+    RECENT_TRAFFIC,
+
+    /**
+     * Traffic is reassembled into stanzas, and logged to STDOUT.
+     */
+    STANZA_FRAMING,
+
+    /**
+     * Traffic is logged to STDOUT, but the connection does not match the capture filter.
+     */
+    FILTERED_OUT;
+
+    /**
+     * Applies this mode to the configuration of the plugin.
+     *
+     * @param plugin the plugin to configure.
+     */
+    void apply(final DebuggerPlugin plugin)
+    {
+        plugin.getPortFilters().forEach(factory -> factory.setEnabled(this != DISABLED));
+        DebuggerPlugin.loggingToStdOutProperty.setValue(logsToStdOut());
+        DebuggerPlugin.stdOutLayoutProperty.setValue(stdOutLayout());
+        DebuggerPlugin.loggingToFileProperty.setValue(this == FILE);
+        DebuggerPlugin.fileLayoutProperty.setValue(LogLayout.TEXT);
+        DebuggerPlugin.loggingToCaptureFileProperty.setValue(logsToCaptureFile());
+        CompressedCaptureSink.enabledProperty.setValue(this == COMPRESSED_CAPTURE_FILE);
+        RecentTraffic.enabledProperty.setValue(this == RECENT_TRAFFIC);
+        StanzaFramer.enabledProperty.setValue(this == STANZA_FRAMING);
+        CaptureFilter.addressesProperty.setValue(filteredAddresses());
+    }
+
+    /**
+     * Verifies that the configuration of the plugin is that of this mode, so that a benchmark does not silently measure
+     * a different configuration (for example when changes of system properties are not retained).
+     *
+     * @param plugin the plugin of which to verify the configuration.
+     * @throws IllegalStateException if the configuration differs from this mode.
+     */
+    void verify(final DebuggerPlugin plugin)
+    {
+        plugin.getPortFilters().forEach(factory -> require("enabled of " + factory, this != DISABLED, factory.isEnabled()));
+        require(DebuggerPlugin.loggingToStdOutProperty.getKey(), logsToStdOut(), DebuggerPlugin.loggingToStdOutProperty.getValue());
+        require(DebuggerPlugin.stdOutLayoutProperty.getKey(), stdOutLayout(), DebuggerPlugin.stdOutLayoutProperty.getValue());
+        require(DebuggerPlugin.loggingToFileProperty.getKey(), this == FILE, DebuggerPlugin.loggingToFileProperty.getValue());
+        require(DebuggerPlugin.fileLayoutProperty.getKey(), LogLayout.TEXT, DebuggerPlugin.fileLayoutProperty.getValue());
+        require(DebuggerPlugin.loggingToCaptureFileProperty.getKey(), logsToCaptureFile(), DebuggerPlugin.loggingToCaptureFileProperty.getValue());
+        require(CompressedCaptureSink.enabledProperty.getKey(), this == COMPRESSED_CAPTURE_FILE, CompressedCaptureSink.enabledProperty.getValue());
+        require(RecentTraffic.enabledProperty.getKey(), this == RECENT_TRAFFIC, RecentTraffic.enabledProperty.getValue());
+        require(StanzaFramer.enabledProperty.getKey(), this == STANZA_FRAMING, StanzaFramer.enabledProperty.getValue());
+        require(CaptureFilter.addressesProperty.getKey(), filteredAddresses(), CaptureFilter.addressesProperty.getValue());
+    }
+
+    private static void require(final String setting, final Object expected, final Object actual)
+    {
+        if (!expected.equals(actual)) {
+            throw new IllegalStateException("Unable to configure the benchmark: " + setting + " is " + actual + " instead of " + expected);
+        }
+    }
+
+    private boolean logsToStdOut()
+    {
+        return this == STDOUT || this == STDOUT_JSON || this == STANZA_FRAMING || this == FILTERED_OUT;
+    }
+
+    private LogLayout stdOutLayout()
+    {
+        return this == STDOUT_JSON ? LogLayout.JSON : LogLayout.TEXT;
+    }
+
+    private boolean logsToCaptureFile()
+    {
+        return this == CAPTURE_FILE || this == COMPRESSED_CAPTURE_FILE;
+    }
+
+    private String filteredAddresses()
+    {
+        return this == FILTERED_OUT ? "192.0.2.0/24" : "";
+    }
+}
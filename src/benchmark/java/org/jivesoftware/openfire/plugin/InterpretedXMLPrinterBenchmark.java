@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import org.jivesoftware.openfire.session.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xmpp.packet.JID;
+import org.xmpp.packet.Message;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of {@link InterpretedXMLPrinter#interceptPacket} on the threads that process stanzas.
+ *
+ * The interceptor is invoked directly, rather than through Openfire's InterceptorManager, with a session of which only
+ * the methods that are used by the interceptor return meaningful values.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InterpretedXMLPrinterBenchmark
+{
+    @Param({"DISABLED", "STDOUT", "STDOUT_JSON", "FILE", "CAPTURE_FILE", "COMPRESSED_CAPTURE_FILE"})
+    public DebuggerMode mode;
+
+    @Param({"200", "2000", "32000"})
+    public int bodySize;
+
+    private BenchmarkSupport support;
+    private InterpretedXMLPrinter printer;
+    private Session session;
+    private Message message;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        support = new BenchmarkSupport(mode);
+        printer = support.getPlugin().getInterpretedPrinter();
+
+        session = BenchmarkSupport.session(() -> "4mr7p5g6vs", "192.0.2.17", new JID("romeo@example.net/orchard"));
+
+        message = new Message();
+        message.setTo("juliet@example.com/balcony");
+        message.setFrom("romeo@example.net/orchard");
+        message.setID("ktx72v49");
+        message.setBody("x".repeat(bodySize));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        support.shutdown();
+    }
+
+    /**
+     * Invokes the interceptor as Openfire would for a received stanza. In the DISABLED mode, this measures the cost of an
+     * interceptor that is registered while no output is enabled.
+     */
+    @Benchmark
+    public void intercept()
+    {
+        printer.interceptPacket(message, session, true, false);
+    }
+}
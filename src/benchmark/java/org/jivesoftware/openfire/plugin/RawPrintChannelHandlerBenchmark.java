@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of {@link RawPrintChannelHandler} on the threads that perform network I/O, by passing stanzas
+ * in both directions through a Netty pipeline that contains the handler.
+ *
+ * Only the work on the calling thread is measured: entries are written by the log writer thread in the background.
+ * When that thread cannot keep up, entries are dropped, which is reported when the benchmark ends.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RawPrintChannelHandlerBenchmark
+{
+    @Param({"DISABLED", "STDOUT", "STDOUT_JSON", "FILE", "CAPTURE_FILE", "COMPRESSED_CAPTURE_FILE", "RECENT_TRAFFIC", "STANZA_FRAMING", "FILTERED_OUT"})
+    public DebuggerMode mode;
+
+    @Param({"200", "2000", "32000"})
+    public int stanzaSize;
+
+    private BenchmarkSupport support;
+    private EmbeddedChannel channel;
+    private ByteBuf stanza;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        support = new BenchmarkSupport(mode);
+        channel = new EmbeddedChannel(support.getPlugin().getDefaultPortFilter().generateHandler());
+        stanza = Unpooled.directBuffer(stanzaSize).writeBytes(BenchmarkSupport.stanza(stanzaSize).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        channel.finishAndReleaseAll();
+        stanza.release();
+        support.shutdown();
+    }
+
+    @Benchmark
+    public void receive()
+    {
+        channel.writeInbound(stanza.retainedDuplicate());
+        ReferenceCountUtil.release(channel.readInbound());
+    }
+
+    @Benchmark
+    public void send()
+    {
+        channel.writeOutbound(stanza.retainedDuplicate());
+        ReferenceCountUtil.release(channel.readOutbound());
+    }
+}
@@ -0,0 +1,497 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import org.jivesoftware.util.SystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes log entries to STDOUT, the log file and/or capture files on a dedicated thread, and publishes them to
+ * {@link LiveTraffic} subscribers.
+ *
+ * Entries are handed over by the threads that observe traffic (typically Netty event loops) through a bounded queue.
+ * A single drainer thread takes entries from that queue in batches, so that the (synchronized) writes to STDOUT and
+ * the log file never block network I/O. When the queue is full, the configured {@link OverflowPolicy} is applied.
+ *
+ * Each output is written independently: an entry that cannot be written to one output (for example because it cannot be
+ * rendered) is still written to the others, and is counted as dropped rather than as written. An entry that cannot be
+ * masked is not written to any output.
+ */
+public class AsyncLogWriter
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncLogWriter.class);
+
+    /**
+     * Logger used to write entries to the xmldebugger.log file. This uses the plugin class as its name, so that the
+     * layout of the log file is unaffected by entries now being written from this class.
+     */
+    private static final Logger FILE_LOGGER = LoggerFactory.getLogger(DebuggerPlugin.class);
+
+    /**
+     * Logger used to write entries in the JSON layout to the xmldebugger.json.log file, which (unlike xmldebugger.log)
+     * does not prefix the lines with a timestamp and log level.
+     */
+    private static final Logger JSON_FILE_LOGGER = LoggerFactory.getLogger("xmldebugger.json");
+
+    /**
+     * Time for which the drainer thread sleeps when there is nothing to write.
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    /**
+     * Time for which a thread sleeps between attempts to add an entry to a full queue, when the overflow policy is
+     * {@link OverflowPolicy#BLOCK}.
+     */
+    private static final long BLOCKED_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    public static final SystemProperty<Integer> queueCapacityProperty = SystemProperty.Builder.ofType(Integer.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "queue.capacity")
+        .setDefaultValue(65536)
+        .setMinValue(16)
+        .setDynamic(false)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .build();
+    public static final SystemProperty<OverflowPolicy> overflowPolicyProperty = SystemProperty.Builder.ofType(OverflowPolicy.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "queue.overflowPolicy")
+        .setDefaultValue(OverflowPolicy.DROP_NEWEST)
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .build();
+    public static final SystemProperty<Duration> blockTimeoutProperty = SystemProperty.Builder.ofType(Duration.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "queue.blockTimeout")
+        .setDefaultValue(Duration.ofMillis(50))
+        .setChronoUnit(ChronoUnit.MILLIS)
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .build();
+    public static final SystemProperty<Integer> batchSizeProperty = SystemProperty.Builder.ofType(Integer.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "queue.batchSize")
+        .setDefaultValue(512)
+        .setMinValue(1)
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .build();
+
+    private final BoundedRingBuffer<CaptureEntry> queue;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder writeNanos = new LongAdder();
+    private final StringBuilder stdOutBuffer = new StringBuilder(8192);
+    private final StringBuilder lineBuffer = new StringBuilder(1024);
+    private final StringBuilder jsonBuffer = new StringBuilder(1024);
+    private final TextLayout textLayout = new TextLayout();
+    private final JsonLayout jsonLayout = new JsonLayout();
+    private final BitSet failed = new BitSet(); // Positions in the current batch of entries that could not be written to every output.
+    private CaptureSink captureFileSink; // Only accessed by the drainer thread.
+    private volatile boolean running;
+    private Thread drainer;
+
+    public AsyncLogWriter()
+    {
+        this(queueCapacityProperty.getValue());
+    }
+
+    AsyncLogWriter(final int queueCapacity)
+    {
+        this.queue = new BoundedRingBuffer<>(queueCapacity);
+    }
+
+    /**
+     * Starts the thread that writes queued entries.
+     */
+    synchronized void start()
+    {
+        if (drainer != null) {
+            return;
+        }
+        running = true;
+        drainer = new Thread(this::drain, "xmldebugger-log-writer");
+        drainer.setDaemon(true);
+        drainer.start();
+        LOGGER.debug("Started log writer with a queue capacity of {}", queue.capacity());
+    }
+
+    /**
+     * Stops the thread that writes queued entries, after it has written all entries that are queued.
+     */
+    synchronized void shutdown()
+    {
+        if (drainer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drainer = null;
+        LOGGER.debug("Stopped log writer. Entries written: {}, entries dropped: {}", written.sum(), dropped.sum());
+    }
+
+    /**
+     * Queues an entry to be written. This method does not wait for the entry to be written.
+     *
+     * When the queue is full, the configured {@link OverflowPolicy} is applied. Only under the {@link OverflowPolicy#BLOCK}
+     * policy will the calling thread be made to wait (at most for the configured timeout).
+     *
+     * Ownership of the entry is transferred to this writer: it is released after it has been written, or when it is
+     * dropped.
+     *
+     * @param entry the entry to write.
+     * @return true if the entry was queued, false if it was dropped.
+     */
+    boolean submit(final CaptureEntry entry)
+    {
+        return queue.offer(entry) || submit(entry, overflowPolicyProperty.getValue(), blockTimeoutProperty.getValue());
+    }
+
+    /**
+     * Queues an entry to be written, applying an overflow policy when the queue is full.
+     *
+     * @param entry the entry to write.
+     * @param policy the overflow policy.
+     * @param blockTimeout the maximum time to wait for room in the queue, under the {@link OverflowPolicy#BLOCK} policy.
+     * @return true if the entry was queued, false if it was dropped.
+     */
+    boolean submit(final CaptureEntry entry, final OverflowPolicy policy, final Duration blockTimeout)
+    {
+        if (queue.offer(entry)) {
+            return true;
+        }
+
+        switch (policy) {
+            case DROP_OLDEST:
+                while (!queue.offer(entry)) {
+                    final CaptureEntry oldest = queue.poll();
+                    if (oldest != null) {
+                        drop(oldest);
+                    }
+                }
+                return true;
+
+            case BLOCK:
+                if (running) {
+                    final long deadline = System.nanoTime() + blockTimeout.toNanos();
+                    do {
+                        LockSupport.parkNanos(BLOCKED_PARK_NANOS);
+                        if (queue.offer(entry)) {
+                            return true;
+                        }
+                    } while (running && System.nanoTime() - deadline < 0);
+                }
+                drop(entry);
+                return false;
+
+            case DROP_NEWEST:
+            default:
+                drop(entry);
+                return false;
+        }
+    }
+
+    private void drop(final CaptureEntry entry)
+    {
+        if (entry.getContent() != null && entry.getConnection() != null) {
+            // The redactor does not see this entry: it cannot tell if what follows is inside a sensitive element.
+            entry.getConnection().markRedactionGap("RECV".equals(entry.getType()));
+        }
+        countDropped(entry);
+        entry.release();
+    }
+
+    private void countDropped(final CaptureEntry entry)
+    {
+        final LoggingStatistics statistics = entry.getStatistics();
+        if (statistics != null) {
+            statistics.dropped();
+        }
+        dropped.increment();
+    }
+
+    private void drain()
+    {
+        final List<CaptureEntry> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            if (queue.drainTo(batch, batchSizeProperty.getValue()) == 0) {
+                flushCaptureFileSink(); // The sink decides whether buffered entries are written yet.
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            try {
+                final long start = System.nanoTime();
+                redact(batch);
+                write(batch);
+                writeNanos.add(System.nanoTime() - start);
+                count(batch);
+            } catch (final Throwable t) {
+                // Not expected, as every output handles its own failures.
+                LOGGER.warn("Unable to write a batch of {} log entries.", batch.size(), t);
+                batch.forEach(this::countDropped);
+            } finally {
+                for (final CaptureEntry entry : batch) {
+                    entry.release();
+                }
+                batch.clear();
+                failed.clear();
+            }
+        }
+        closeCaptureFileSink();
+    }
+
+    /**
+     * Updates the statistics of the sources of entries that were written, or that could not be written to every output.
+     */
+    private void count(final List<CaptureEntry> batch)
+    {
+        final long now = System.currentTimeMillis();
+        for (int i = 0; i < batch.size(); i++) {
+            final CaptureEntry entry = batch.get(i);
+            if (failed.get(i)) {
+                countDropped(entry);
+                continue;
+            }
+            written.increment();
+            final LoggingStatistics statistics = entry.getStatistics();
+            if (statistics != null) {
+                statistics.logged(entry.getPayloadSize(), now - entry.getTimestamp());
+            }
+        }
+    }
+
+    /**
+     * Masks sensitive data before the entries reach any of the outputs. An entry that cannot be masked is dropped, as it
+     * could otherwise reveal that data.
+     */
+    private void redact(final List<CaptureEntry> batch)
+    {
+        final Redactor redactor = Redactor.current();
+        if (redactor == null) {
+            return;
+        }
+        for (final Iterator<CaptureEntry> iterator = batch.iterator(); iterator.hasNext(); ) {
+            final CaptureEntry entry = iterator.next();
+            try {
+                redactor.redact(entry);
+            } catch (final RuntimeException e) {
+                LOGGER.warn("Unable to mask a log entry of connection {}. The entry is dropped.", entry.getConnection() != null ? entry.getConnection().getConnectionId() : null, e);
+                iterator.remove();
+                drop(entry);
+            }
+        }
+    }
+
+    /**
+     * Writes entries to all outputs, each of which is isolated from failures of the others.
+     */
+    private void write(final List<CaptureEntry> batch)
+    {
+        try {
+            writeText(batch);
+        } catch (final RuntimeException e) {
+            LOGGER.warn("Unable to write a batch of {} log entries to STDOUT or the log file.", batch.size(), e);
+            failed.set(0, batch.size());
+        }
+
+        final DebuggerPlugin plugin = DebuggerPlugin.getInstance();
+        if (plugin != null) {
+            try {
+                plugin.getLiveTraffic().publish(batch, textLayout, lineBuffer, failed);
+            } catch (final RuntimeException e) {
+                LOGGER.warn("Unable to publish a batch of {} log entries to live traffic subscribers.", batch.size(), e);
+                failed.set(0, batch.size());
+            }
+        }
+
+        try {
+            writeCaptureFile(batch);
+        } catch (final Exception e) {
+            LOGGER.warn("Unable to write a batch of {} log entries to the capture file.", batch.size(), e);
+            failed.set(0, batch.size());
+        }
+    }
+
+    private void writeCaptureFile(final List<CaptureEntry> batch) throws Exception
+    {
+        if (DebuggerPlugin.loggingToCaptureFileProperty.getValue()) {
+            final boolean compressed = CompressedCaptureSink.enabledProperty.getValue();
+            if (captureFileSink != null && (captureFileSink instanceof CompressedCaptureSink) != compressed) {
+                closeCaptureFileSink();
+            }
+            if (captureFileSink == null) {
+                captureFileSink = compressed
+                    ? new CompressedCaptureSink(MappedCaptureSink.defaultDirectory())
+                    : new MappedCaptureSink(MappedCaptureSink.defaultDirectory());
+            }
+            try {
+                captureFileSink.write(batch);
+            } catch (final Exception e) {
+                closeCaptureFileSink(); // Start with a fresh file on the next attempt.
+                throw e;
+            }
+        } else {
+            closeCaptureFileSink();
+        }
+    }
+
+    private void flushCaptureFileSink()
+    {
+        if (captureFileSink != null) {
+            try {
+                captureFileSink.flush();
+            } catch (final Exception e) {
+                LOGGER.warn("Unable to flush the capture file.", e);
+                closeCaptureFileSink(); // Start with a fresh file on the next attempt.
+            }
+        }
+    }
+
+    private void closeCaptureFileSink()
+    {
+        if (captureFileSink != null) {
+            captureFileSink.close();
+            captureFileSink = null;
+        }
+    }
+
+    private void writeText(final List<CaptureEntry> batch)
+    {
+        final LogLayout stdOutLayout = DebuggerPlugin.loggingToStdOutProperty.getValue() ? DebuggerPlugin.stdOutLayoutProperty.getValue() : null;
+        final LogLayout fileLayout = DebuggerPlugin.loggingToFileProperty.getValue() ? DebuggerPlugin.fileLayoutProperty.getValue() : null;
+        if (stdOutLayout == null && fileLayout == null) {
+            return;
+        }
+        final boolean text = stdOutLayout == LogLayout.TEXT || fileLayout == LogLayout.TEXT;
+        final boolean json = stdOutLayout == LogLayout.JSON || fileLayout == LogLayout.JSON;
+
+        // Payloads are decoded here, on the writer thread, rather than on the thread that captured them. Each entry is
+        // rendered once per layout that is in use. An entry that cannot be rendered is skipped.
+        stdOutBuffer.setLength(0);
+        RuntimeException renderFailure = null;
+        for (int i = 0; i < batch.size(); i++) {
+            final CaptureEntry entry = batch.get(i);
+            try {
+                if (text) {
+                    lineBuffer.setLength(0);
+                    textLayout.format(entry, lineBuffer);
+                }
+                if (json) {
+                    jsonBuffer.setLength(0);
+                    jsonLayout.format(entry, jsonBuffer);
+                }
+            } catch (final RuntimeException e) {
+                failed.set(i);
+                renderFailure = e;
+                continue;
+            }
+            if (stdOutLayout != null) {
+                stdOutBuffer.append(stdOutLayout == LogLayout.JSON ? jsonBuffer : lineBuffer).append(System.lineSeparator());
+            }
+            if (fileLayout == LogLayout.TEXT) {
+                FILE_LOGGER.info(lineBuffer.toString());
+            } else if (fileLayout == LogLayout.JSON) {
+                JSON_FILE_LOGGER.info(jsonBuffer.toString());
+            }
+        }
+        if (stdOutLayout != null) {
+            System.out.print(stdOutBuffer);
+            System.out.flush();
+        }
+        if (renderFailure != null) {
+            LOGGER.warn("Unable to render {} of {} log entries. These were not written to STDOUT or the log file.", failed.cardinality(), batch.size(), renderFailure);
+        }
+
+        // Don't hold on to the memory used by an exceptionally large batch.
+        if (stdOutBuffer.capacity() > 1024 * 1024) {
+            stdOutBuffer.setLength(0);
+            stdOutBuffer.trimToSize();
+        }
+        if (lineBuffer.capacity() > 1024 * 1024) {
+            lineBuffer.setLength(0);
+            lineBuffer.trimToSize();
+        }
+        if (jsonBuffer.capacity() > 1024 * 1024) {
+            jsonBuffer.setLength(0);
+            jsonBuffer.trimToSize();
+        }
+        textLayout.trim();
+        jsonLayout.trim();
+    }
+
+    /**
+     * Returns the amount of entries that were discarded because the queue was full, or that could not be written to
+     * every output.
+     *
+     * @return a count of dropped entries.
+     */
+    public long getDroppedCount()
+    {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the amount of entries that were written.
+     *
+     * @return a count of written entries.
+     */
+    public long getWrittenCount()
+    {
+        return written.sum();
+    }
+
+    /**
+     * Returns the average time spent writing an entry to all outputs.
+     *
+     * @return a duration in microseconds, or 0 if no entries were written.
+     */
+    public double getAverageWriteMicros()
+    {
+        final long count = written.sum();
+        return count == 0 ? 0 : writeNanos.sum() / 1000.0 / count;
+    }
+
+    /**
+     * Returns an estimate of the amount of entries that are waiting to be written.
+     *
+     * @return the approximate queue depth.
+     */
+    public int getQueueSize()
+    {
+        return queue.size();
+    }
+
+    /**
+     * Returns the maximum amount of entries that can wait to be written.
+     *
+     * @return the queue capacity.
+     */
+    public int getQueueCapacity()
+    {
+        return queue.capacity();
+    }
+}
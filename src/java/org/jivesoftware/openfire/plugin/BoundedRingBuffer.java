@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded, lock-free queue that is backed by a ring buffer of which the capacity is a power of two.
+ *
+ * Every slot carries a sequence number that tells producers and consumers whether the slot can be written or read,
+ * which allows many Netty event loop threads to add entries concurrently without taking a lock. Although the
+ * log writer is the only regular consumer, producers may also remove entries (to implement a 'drop oldest' overflow
+ * policy), so both ends of the queue are safe for concurrent use.
+ *
+ * @param <E> the type of the elements in this queue.
+ */
+class BoundedRingBuffer<E>
+{
+    private final int mask;
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong enqueuePosition = new AtomicLong();
+    private final AtomicLong dequeuePosition = new AtomicLong();
+
+    /**
+     * Creates a new queue.
+     *
+     * @param requestedCapacity the minimum amount of elements that the queue can hold. Rounded up to a power of two.
+     */
+    BoundedRingBuffer(final int requestedCapacity)
+    {
+        if (requestedCapacity < 2) {
+            throw new IllegalArgumentException("Capacity must be at least 2, but was: " + requestedCapacity);
+        }
+        final int capacity = Integer.highestOneBit(requestedCapacity - 1) << 1;
+        this.mask = capacity - 1;
+        this.elements = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds an element to the queue, if there is room.
+     *
+     * @param element the element to add (cannot be null).
+     * @return true if the element was added, false if the queue was full.
+     */
+    boolean offer(final E element)
+    {
+        long position = enqueuePosition.get();
+        while (true) {
+            final int index = (int) (position & mask);
+            final long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (enqueuePosition.compareAndSet(position, position + 1)) {
+                    elements[index] = element;
+                    sequences.set(index, position + 1); // publishes the element to consumers.
+                    return true;
+                }
+                position = enqueuePosition.get();
+            } else if (difference < 0) {
+                return false; // full
+            } else {
+                position = enqueuePosition.get(); // another producer claimed this slot.
+            }
+        }
+    }
+
+    /**
+     * Removes and returns the oldest element in the queue.
+     *
+     * @return the oldest element, or null when the queue is empty.
+     */
+    @SuppressWarnings("unchecked")
+    E poll()
+    {
+        long position = dequeuePosition.get();
+        while (true) {
+            final int index = (int) (position & mask);
+            final long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (dequeuePosition.compareAndSet(position, position + 1)) {
+                    final E element = (E) elements[index];
+                    elements[index] = null;
+                    sequences.set(index, position + mask + 1); // frees the slot for producers.
+                    return element;
+                }
+                position = dequeuePosition.get();
+            } else if (difference < 0) {
+                return null; // empty
+            } else {
+                position = dequeuePosition.get(); // another consumer took this slot.
+            }
+        }
+    }
+
+    /**
+     * Removes up to a maximum amount of elements from the queue, adding them to the provided collection.
+     *
+     * @param target the collection to which elements are added.
+     * @param maxElements the maximum amount of elements to transfer.
+     * @return the amount of elements that were transferred.
+     */
+    int drainTo(final Collection<? super E> target, final int maxElements)
+    {
+        int count = 0;
+        while (count < maxElements) {
+            final E element = poll();
+            if (element == null) {
+                break;
+            }
+            target.add(element);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns an estimate of the amount of elements in the queue.
+     *
+     * @return the approximate queue size.
+     */
+    int size()
+    {
+        final long size = enqueuePosition.get() - dequeuePosition.get();
+        return (int) Math.max(0, Math.min(size, mask + 1));
+    }
+
+    boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    int capacity()
+    {
+        return mask + 1;
+    }
+}
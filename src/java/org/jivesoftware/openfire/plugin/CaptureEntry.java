@@ -0,0 +1,350 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.Recycler;
+import org.jivesoftware.openfire.session.Session;
+import org.xmpp.packet.Packet;
+
+/**
+ * A single entry that is queued to be written by the {@link AsyncLogWriter}.
+ *
+ * An entry either describes an event on a connection that is observed by a {@link RawPrintChannelHandler} (in which
+ * case the header is rendered by the log writer from the timestamp, connection information and message type), a packet
+ * that is observed by the {@link InterpretedXMLPrinter} (in which case the header is rendered from the session), or it
+ * carries a preformatted header.
+ *
+ * The payload of an entry is either raw bytes (as captured from a Netty buffer), text, or a packet. Raw bytes are not
+ * decoded, and packets are not serialized, until the entry is written, which happens on the log writer thread rather
+ * than on the thread that captured the traffic. Instances are pooled: every entry that is obtained through one of the factory methods must eventually be
+ * passed to {@link #release()}, which releases the captured bytes and returns the instance to the pool.
+ */
+final class CaptureEntry
+{
+    private static final Recycler<CaptureEntry> RECYCLER = new Recycler<CaptureEntry>()
+    {
+        @Override
+        protected CaptureEntry newObject(final Handle<CaptureEntry> handle)
+        {
+            return new CaptureEntry(handle);
+        }
+    };
+
+    private final Recycler.Handle<CaptureEntry> handle;
+    private String header;
+    private long timestamp;
+    private ConnectionInfo connection;
+    private String type;
+    private ByteBuf content;
+    private CharSequence text;
+    private Packet packet;
+    private Session session;
+    private boolean incoming;
+    private long sequence;
+    private LoggingStatistics statistics;
+    private int renderedPacketLength;
+
+    private CaptureEntry(final Recycler.Handle<CaptureEntry> handle)
+    {
+        this.handle = handle;
+    }
+
+    /**
+     * Obtains an entry that has a textual payload (or no payload at all).
+     *
+     * @param header the text that precedes the payload.
+     * @param text the payload (can be null).
+     * @return an entry.
+     */
+    static CaptureEntry ofText(final String header, final CharSequence text)
+    {
+        final CaptureEntry entry = RECYCLER.get();
+        entry.header = header;
+        entry.timestamp = System.currentTimeMillis();
+        entry.text = text;
+        return entry;
+    }
+
+    /**
+     * Obtains an entry for an event on a connection, that has no payload.
+     *
+     * @param connection the connection on which the event occurred.
+     * @param timestamp the time (in milliseconds since the epoch) at which the event occurred.
+     * @param type the type of the event (eg: "OPEN").
+     * @return an entry.
+     */
+    static CaptureEntry ofEvent(final ConnectionInfo connection, final long timestamp, final String type)
+    {
+        final CaptureEntry entry = RECYCLER.get();
+        entry.connection = connection;
+        entry.timestamp = timestamp;
+        entry.type = type;
+        return entry;
+    }
+
+    /**
+     * Obtains an entry for data on a connection, that has raw bytes as its payload. The entry takes ownership of the
+     * buffer: it is released when the entry is released.
+     *
+     * @param connection the connection on which the data was sent or received.
+     * @param timestamp the time (in milliseconds since the epoch) at which the data was observed.
+     * @param type the type of the event (eg: "RECV").
+     * @param content the payload (cannot be null).
+     * @return an entry.
+     */
+    static CaptureEntry ofBytes(final ConnectionInfo connection, final long timestamp, final String type, final ByteBuf content)
+    {
+        final CaptureEntry entry = ofEvent(connection, timestamp, type);
+        entry.content = content;
+        return entry;
+    }
+
+    /**
+     * Obtains an entry for data on a connection, that has text as its payload.
+     *
+     * @param connection the connection on which the data was sent or received.
+     * @param timestamp the time (in milliseconds since the epoch) at which the data was observed.
+     * @param type the type of the event (eg: "RECV").
+     * @param text the payload (cannot be null).
+     * @return an entry.
+     */
+    static CaptureEntry ofText(final ConnectionInfo connection, final long timestamp, final String type, final CharSequence text)
+    {
+        final CaptureEntry entry = ofEvent(connection, timestamp, type);
+        entry.text = text;
+        return entry;
+    }
+
+    /**
+     * Sets the position of this entry in the sequence of entries of its connection.
+     *
+     * @param sequence the sequence number (see {@link ConnectionInfo#nextSequence()}).
+     * @return this entry.
+     */
+    CaptureEntry sequence(final long sequence)
+    {
+        this.sequence = sequence;
+        return this;
+    }
+
+    /**
+     * Sets the statistics of the source of this entry, which are updated when the entry is written or dropped.
+     *
+     * @param statistics the statistics of the source of this entry.
+     * @return this entry.
+     */
+    CaptureEntry statistics(final LoggingStatistics statistics)
+    {
+        this.statistics = statistics;
+        return this;
+    }
+
+    /**
+     * Obtains an entry for a packet that is intercepted on a session, associating it with the network connection of that
+     * session when that is known. The entry takes ownership of the packet: it must not be modified after this method is
+     * invoked (typically, a copy of the intercepted packet is passed).
+     *
+     * @param connection the connection that carries the session (can be null).
+     * @param session the session on which the packet was intercepted.
+     * @param timestamp the time (in milliseconds since the epoch) at which the packet was intercepted.
+     * @param incoming true if the packet was received, false if it is being sent.
+     * @param packet the payload (cannot be null).
+     * @return an entry.
+     */
+    static CaptureEntry ofPacket(final ConnectionInfo connection, final Session session, final long timestamp, final boolean incoming, final Packet packet)
+    {
+        final CaptureEntry entry = RECYCLER.get();
+        entry.session = session;
+        entry.timestamp = timestamp;
+        entry.incoming = incoming;
+        entry.type = incoming ? "RECV" : "SENT";
+        entry.packet = packet;
+        if (connection != null) {
+            entry.connection = connection;
+            entry.sequence = connection.nextSequence();
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the preformatted header of this entry.
+     *
+     * @return the header, or null if the header is to be rendered from the connection, timestamp and type.
+     */
+    String getHeader()
+    {
+        return header;
+    }
+
+    long getTimestamp()
+    {
+        return timestamp;
+    }
+
+    /**
+     * Returns the connection on which the event described by this entry occurred.
+     *
+     * @return connection information, or null for entries that have a preformatted header, and for intercepted packets
+     * of which the connection is not known.
+     */
+    ConnectionInfo getConnection()
+    {
+        return connection;
+    }
+
+    String getType()
+    {
+        return type;
+    }
+
+    /**
+     * Returns the raw bytes of the payload.
+     *
+     * @return the payload bytes, or null if this entry has a textual payload or no payload.
+     */
+    ByteBuf getContent()
+    {
+        return content;
+    }
+
+    /**
+     * Replaces the raw bytes of the payload, releasing the bytes that are replaced.
+     *
+     * @param content the new payload (cannot be null).
+     */
+    void setContent(final ByteBuf content)
+    {
+        if (this.content != null) {
+            this.content.release();
+        }
+        this.content = content;
+    }
+
+    /**
+     * Returns the textual payload.
+     *
+     * @return the payload text, or null if this entry has a raw payload or no payload.
+     */
+    CharSequence getText()
+    {
+        return text;
+    }
+
+    void setText(final CharSequence text)
+    {
+        this.text = text;
+    }
+
+    /**
+     * Returns the intercepted packet that is the payload of this entry.
+     *
+     * @return the packet, or null if this entry has a raw payload, a textual payload or no payload.
+     */
+    Packet getPacket()
+    {
+        return packet;
+    }
+
+    /**
+     * Returns the session on which the packet of this entry was intercepted.
+     *
+     * @return the session, or null if this entry does not describe an intercepted packet.
+     */
+    Session getSession()
+    {
+        return session;
+    }
+
+    /**
+     * Returns the position of this entry in the sequence of entries of its connection.
+     *
+     * @return the sequence number, or 0 if the entry has no sequence number.
+     */
+    long getSequence()
+    {
+        return sequence;
+    }
+
+    boolean isIncoming()
+    {
+        return incoming;
+    }
+
+    /**
+     * Returns the statistics of the source of this entry.
+     *
+     * @return statistics, or null if the source of this entry does not keep statistics.
+     */
+    LoggingStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    /**
+     * Records the length of the serialized packet of this entry, when it is rendered.
+     *
+     * @param length the amount of characters of the serialized packet.
+     */
+    void setRenderedPacketLength(final int length)
+    {
+        this.renderedPacketLength = length;
+    }
+
+    /**
+     * Returns the size of the payload: the amount of raw bytes, or the amount of characters of text or of the serialized
+     * packet. As packets are serialized when they are rendered, the size of a packet that was not rendered is 0.
+     *
+     * @return the size of the payload.
+     */
+    int getPayloadSize()
+    {
+        if (content != null) {
+            return content.readableBytes();
+        }
+        if (text != null) {
+            return text.length();
+        }
+        return packet != null ? renderedPacketLength : 0;
+    }
+
+    boolean hasPayload()
+    {
+        return content != null || text != null || packet != null;
+    }
+
+    /**
+     * Releases the captured bytes (if any) and returns this instance to the pool. The instance must not be used after
+     * this method has been invoked.
+     */
+    void release()
+    {
+        if (content != null) {
+            content.release();
+            content = null;
+        }
+        header = null;
+        connection = null;
+        type = null;
+        text = null;
+        packet = null;
+        session = null;
+        sequence = 0;
+        statistics = null;
+        renderedPacketLength = 0;
+        handle.recycle(this);
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Describes the binary format of the files that are written by {@link MappedCaptureSink}.
+ *
+ * A capture file (a 'segment') starts with a header, followed by a sequence of records. Segments are preallocated,
+ * and therefore typically end in a region of zero bytes: a record length of zero marks the end of the data.
+ *
+ * <pre>
+ * segment header:
+ *   int    magic           0x58444243 ("XDBC")
+ *   short  version
+ *   short  flags           (reserved, zero)
+ *   long   creation time   (milliseconds since the epoch)
+ *
+ * record:
+ *   int    length          amount of bytes in the record that follow this field (zero marks the end of the data)
+ *   long   timestamp       milliseconds since the epoch
+ *   long   connection id   zero for entries that are not associated with a network connection
+ *   long   sequence        position in the entries of the connection, zero if unknown (since version 2)
+ *   byte[4] type           ASCII (eg: "RECV", "SENT", "OPEN", "CLSD", "TEXT")
+ *   byte   port type length, followed by that many bytes of ASCII (eg: "C2S-STARTTLS")
+ *   short  address length, followed by that many bytes of UTF-8 (eg: "/203.0.113.7:52312")
+ *   byte[] payload         all remaining bytes of the record (the raw traffic)
+ * </pre>
+ *
+ * All numbers are big-endian.
+ *
+ * Compressed capture files (written by {@link CompressedCaptureSink}) contain the same records, grouped in blocks that
+ * are compressed independently, so that a block can be decompressed without reading any of the blocks before it:
+ *
+ * <pre>
+ * compressed segment header:
+ *   int    magic           0x5844425A ("XDBZ")
+ *   short  version         (of the records in the blocks)
+ *   short  flags           (reserved, zero)
+ *   long   creation time   (milliseconds since the epoch)
+ *   int    dictionary id   Adler-32 checksum of the preset dictionary (see {@link XmppDictionary})
+ *
+ * block:
+ *   int    compressed length   amount of compressed bytes that follow the block header
+ *   int    uncompressed length amount of bytes of the records in the block
+ *   int    record count
+ *   long   first timestamp     timestamp of the first record in the block
+ *   long   last timestamp      timestamp of the last record in the block
+ *   byte[] compressed records  zlib (Deflate) stream, using the preset dictionary
+ * </pre>
+ *
+ * The timestamps in block headers allow a reader to skip blocks that are outside of a time range without decompressing
+ * them. A block that is incomplete (because the file was not closed properly) marks the end of the data.
+ */
+final class CaptureFileFormat
+{
+    static final int MAGIC = 0x58444243;
+    static final short VERSION = 2;
+    static final int SEGMENT_HEADER_SIZE = 4 + 2 + 2 + 8;
+
+    static final int COMPRESSED_MAGIC = 0x5844425A;
+    static final int COMPRESSED_SEGMENT_HEADER_SIZE = SEGMENT_HEADER_SIZE + 4;
+    static final int BLOCK_HEADER_SIZE = 4 + 4 + 4 + 8 + 8;
+
+    /**
+     * Type of records that have a preformatted textual payload, such as intercepted packets.
+     */
+    static final String TEXT_TYPE = "TEXT";
+
+    private static final int TYPE_SIZE = 4;
+
+    /**
+     * Size of the fixed-length part of a record, excluding the length field itself.
+     */
+    private static final int FIXED_RECORD_SIZE = 8 + 8 + 8 + TYPE_SIZE + 1 + 2;
+
+    /**
+     * Size of the fixed-length part of a record in version 1 of the format, which has no sequence number.
+     */
+    private static final int FIXED_RECORD_SIZE_V1 = 8 + 8 + TYPE_SIZE + 1 + 2;
+
+    private CaptureFileFormat() {}
+
+    /**
+     * A record as read from a capture file.
+     */
+    static final class Record
+    {
+        final long timestamp;
+        final long connectionId;
+        final long sequence;
+        final String type;
+        final String portType;
+        final String remoteAddress;
+        final byte[] payload;
+
+        Record(final long timestamp, final long connectionId, final long sequence, final String type, final String portType, final String remoteAddress, final byte[] payload)
+        {
+            this.timestamp = timestamp;
+            this.connectionId = connectionId;
+            this.sequence = sequence;
+            this.type = type;
+            this.portType = portType;
+            this.remoteAddress = remoteAddress;
+            this.payload = payload;
+        }
+    }
+
+    static void writeSegmentHeader(final ByteBuffer target, final long creationTime)
+    {
+        target.putInt(MAGIC);
+        target.putShort(VERSION);
+        target.putShort((short) 0);
+        target.putLong(creationTime);
+    }
+
+    static void writeCompressedSegmentHeader(final ByteBuffer target, final long creationTime, final int dictionaryId)
+    {
+        target.putInt(COMPRESSED_MAGIC);
+        target.putShort(VERSION);
+        target.putShort((short) 0);
+        target.putLong(creationTime);
+        target.putInt(dictionaryId);
+    }
+
+    /**
+     * Checks if the data at the current position of the buffer is the start of a compressed segment, without
+     * advancing.
+     *
+     * @param source the buffer to inspect.
+     * @return true if the data starts with the magic number of compressed segments.
+     */
+    static boolean isCompressedSegment(final ByteBuffer source)
+    {
+        return source.remaining() >= 4 && source.getInt(source.position()) == COMPRESSED_MAGIC;
+    }
+
+    /**
+     * Verifies the compressed segment header at the current position of the buffer, and advances past it.
+     *
+     * @param source the buffer to read from.
+     * @param dictionaryId the identifier of the dictionary that is available to decompress blocks.
+     * @return the version of the format of the records in the segment.
+     * @throws IllegalArgumentException if the data is not the start of a compressed capture segment of a supported
+     * version, or if it was compressed with a different dictionary.
+     */
+    static short readCompressedSegmentHeader(final ByteBuffer source, final int dictionaryId)
+    {
+        if (source.remaining() < COMPRESSED_SEGMENT_HEADER_SIZE || source.getInt() != COMPRESSED_MAGIC) {
+            throw new IllegalArgumentException("Not an XML Debugger compressed capture file.");
+        }
+        final short version = source.getShort();
+        if (version < 1 || version > VERSION) {
+            throw new IllegalArgumentException("Unsupported capture file version: " + version);
+        }
+        source.getShort(); // flags
+        source.getLong(); // creation time
+        if (source.getInt() != dictionaryId) {
+            throw new IllegalArgumentException("The capture file was compressed with an unknown dictionary.");
+        }
+        return version;
+    }
+
+    static void writeBlockHeader(final ByteBuffer target, final int compressedLength, final int uncompressedLength, final int recordCount, final long firstTimestamp, final long lastTimestamp)
+    {
+        target.putInt(compressedLength);
+        target.putInt(uncompressedLength);
+        target.putInt(recordCount);
+        target.putLong(firstTimestamp);
+        target.putLong(lastTimestamp);
+    }
+
+    /**
+     * Verifies the segment header at the current position of the buffer, and advances past it.
+     *
+     * @param source the buffer to read from.
+     * @return the version of the format of the segment.
+     * @throws IllegalArgumentException if the data is not the start of a capture segment of a supported version.
+     */
+    static short readSegmentHeader(final ByteBuffer source)
+    {
+        if (source.remaining() < SEGMENT_HEADER_SIZE || source.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not an XML Debugger capture file.");
+        }
+        final short version = source.getShort();
+        if (version < 1 || version > VERSION) {
+            throw new IllegalArgumentException("Unsupported capture file version: " + version);
+        }
+        source.getShort(); // flags
+        source.getLong(); // creation time
+        return version;
+    }
+
+    /**
+     * Calculates the total size of a record, including its length field.
+     *
+     * @param portType the encoded port type.
+     * @param remoteAddress the encoded remote address.
+     * @param payloadLength the amount of payload bytes.
+     * @return the size of the record in bytes.
+     */
+    static int recordSize(final byte[] portType, final byte[] remoteAddress, final int payloadLength)
+    {
+        return 4 + FIXED_RECORD_SIZE + portType.length + remoteAddress.length + payloadLength;
+    }
+
+    /**
+     * Writes all parts of a record up to (but excluding) the payload. The caller must write exactly the specified amount
+     * of payload bytes directly after invoking this method.
+     */
+    static void writeRecordHeader(final ByteBuffer target, final long timestamp, final long connectionId, final long sequence, final String type, final byte[] portType, final byte[] remoteAddress, final int payloadLength)
+    {
+        target.putInt(recordSize(portType, remoteAddress, payloadLength) - 4);
+        target.putLong(timestamp);
+        target.putLong(connectionId);
+        target.putLong(sequence);
+        for (int i = 0; i < TYPE_SIZE; i++) {
+            target.put(i < type.length() ? (byte) type.charAt(i) : (byte) ' ');
+        }
+        target.put((byte) portType.length);
+        target.put(portType);
+        target.putShort((short) remoteAddress.length);
+        target.put(remoteAddress);
+    }
+
+    static byte[] encodePortType(final String portType)
+    {
+        final byte[] result = portType.getBytes(StandardCharsets.US_ASCII);
+        return result.length <= 255 ? result : Arrays.copyOf(result, 255);
+    }
+
+    static byte[] encodeAddress(final String address)
+    {
+        final byte[] result = address.getBytes(StandardCharsets.UTF_8);
+        return result.length <= Short.MAX_VALUE ? result : Arrays.copyOf(result, Short.MAX_VALUE);
+    }
+
+    /**
+     * Reads the record at the current position of the buffer, and advances past it.
+     *
+     * @param source the buffer to read from.
+     * @param version the version of the format of the segment (as returned by {@link #readSegmentHeader(ByteBuffer)}).
+     * @return the record, or null when the end of the data has been reached.
+     * @throws IllegalArgumentException if the data is corrupt.
+     */
+    static Record readRecord(final ByteBuffer source, final short version)
+    {
+        if (source.remaining() < 4) {
+            return null;
+        }
+        final int start = source.position();
+        final int length = source.getInt();
+        if (length == 0) {
+            return null;
+        }
+        if (length < (version == 1 ? FIXED_RECORD_SIZE_V1 : FIXED_RECORD_SIZE) || length > source.remaining()) {
+            throw new IllegalArgumentException("Corrupt or truncated record (length " + length + ") at position " + start);
+        }
+        final int end = source.position() + length;
+        final long timestamp = source.getLong();
+        final long connectionId = source.getLong();
+        final long sequence = version == 1 ? 0 : source.getLong();
+        final byte[] type = new byte[TYPE_SIZE];
+        source.get(type);
+        final byte[] portType = new byte[source.get() & 0xFF];
+        requireWithinRecord(source, end, portType.length + 2, start, length);
+        source.get(portType);
+        final byte[] address = new byte[source.getShort() & 0xFFFF];
+        requireWithinRecord(source, end, address.length, start, length);
+        source.get(address);
+        final byte[] payload = new byte[end - source.position()];
+        source.get(payload);
+        return new Record(timestamp, connectionId, sequence, new String(type, StandardCharsets.US_ASCII).trim(),
+            new String(portType, StandardCharsets.US_ASCII), new String(address, StandardCharsets.UTF_8), payload);
+    }
+
+    /**
+     * Verifies that a field of a record does not extend beyond the end of the record (which has been verified to be
+     * within the buffer), so that a torn record is reported as corrupt, rather than read beyond the end of the buffer.
+     */
+    private static void requireWithinRecord(final ByteBuffer source, final int end, final int size, final int start, final int length)
+    {
+        if (size > end - source.position()) {
+            throw new IllegalArgumentException("Corrupt or truncated record (length " + length + ") at position " + start);
+        }
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import io.netty.buffer.Unpooled;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Command-line tool that reads capture files written by {@link MappedCaptureSink} or {@link CompressedCaptureSink},
+ * optionally filters their records, and prints them in the text or JSON layout that is used for STDOUT and the log file,
+ * or as a compact dump.
+ *
+ * The tool uses Netty, which is not part of the plugin jar. Use the Openfire libraries on the class path, for example:
+ *
+ * <pre>
+ * java -cp "plugins/xmldebugger/lib/*:lib/*" org.jivesoftware.openfire.plugin.CaptureFileReader --type RECV logs/
+ * </pre>
+ */
+public class CaptureFileReader
+{
+    private enum Format { TEXT, JSON, DUMP }
+
+    private Format format = Format.TEXT;
+    private final Set<Long> connectionIds = new HashSet<>();
+    private final Set<String> types = new HashSet<>();
+    private final Set<String> portTypes = new HashSet<>();
+    private Instant since;
+    private Instant until;
+    private final List<Path> files = new ArrayList<>();
+
+    private final TextLayout textLayout = new TextLayout();
+    private final JsonLayout jsonLayout = new JsonLayout();
+    private final StringBuilder line = new StringBuilder();
+    private final Map<Long, ConnectionInfo> connections = new HashMap<>();
+
+    public static void main(final String[] args) throws IOException
+    {
+        final CaptureFileReader reader = new CaptureFileReader();
+        try {
+            reader.parseArguments(args);
+        } catch (final IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            printUsage(System.err);
+            System.exit(1);
+            return;
+        }
+        reader.run(System.out);
+    }
+
+    private static void printUsage(final PrintStream out)
+    {
+        out.println("Usage: CaptureFileReader [options] <file or directory>...");
+        out.println("Options:");
+        out.println("  --format text|json|dump Output in the text layout of the log file (default), in the JSON layout, or one summary line per record.");
+        out.println("  --connection <id>       Only output records of this connection. Can be repeated.");
+        out.println("  --type <type>           Only output records of this type (eg: RECV, SENT, OPEN, CLSD, TEXT). Can be repeated.");
+        out.println("  --port <port type>      Only output records of this port type (eg: C2S-STARTTLS). Can be repeated.");
+        out.println("  --since <instant>       Only output records at or after this time (eg: 2026-05-13T09:00:00Z).");
+        out.println("  --until <instant>       Only output records before this time.");
+    }
+
+    void parseArguments(final String[] args)
+    {
+        for (int i = 0; i < args.length; i++) {
+            final String arg = args[i];
+            if (!arg.startsWith("--")) {
+                files.add(Paths.get(arg));
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for option " + arg);
+            }
+            final String value = args[++i];
+            try {
+                switch (arg) {
+                    case "--format":
+                        format = Format.valueOf(value.toUpperCase());
+                        break;
+                    case "--connection":
+                        connectionIds.add(Long.parseLong(value));
+                        break;
+                    case "--type":
+                        types.add(value.toUpperCase());
+                        break;
+                    case "--port":
+                        portTypes.add(value.toUpperCase());
+                        break;
+                    case "--since":
+                        since = Instant.parse(value);
+                        break;
+                    case "--until":
+                        until = Instant.parse(value);
+                        break;
+                    default:
+                        throw new IllegalStateException("Unrecognized option: " + arg);
+                }
+            } catch (final IllegalStateException e) {
+                throw new IllegalArgumentException(e.getMessage());
+            } catch (final RuntimeException e) {
+                throw new IllegalArgumentException("Invalid value '" + value + "' for option " + arg);
+            }
+        }
+        if (files.isEmpty()) {
+            throw new IllegalArgumentException("No capture files specified.");
+        }
+    }
+
+    void run(final PrintStream out) throws IOException
+    {
+        read(record -> {
+            out.println(render(record));
+            return true;
+        }, (path, e) -> System.err.println(path + ": " + e.getMessage()));
+        out.flush();
+    }
+
+    /**
+     * Receives the records that match the filters, in the order in which they appear in the files.
+     */
+    interface RecordConsumer
+    {
+        /**
+         * @param record a record.
+         * @return false to stop reading.
+         */
+        boolean accept(CaptureFileFormat.Record record);
+    }
+
+    /**
+     * Reads the records of the configured files that match the filters.
+     *
+     * @param consumer receives the records.
+     * @param invalidFileHandler is notified of files that are not (valid) capture files. Reading continues with the
+     *                           next file.
+     * @throws IOException if a file cannot be read.
+     */
+    void read(final RecordConsumer consumer, final BiConsumer<Path, IllegalArgumentException> invalidFileHandler) throws IOException
+    {
+        for (final Path path : expand(files)) {
+            try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                final boolean proceed;
+                if (CaptureFileFormat.isCompressedSegment(buffer)) {
+                    proceed = readCompressed(buffer, consumer);
+                } else {
+                    proceed = readRecords(buffer, CaptureFileFormat.readSegmentHeader(buffer), consumer);
+                }
+                if (!proceed) {
+                    return;
+                }
+            } catch (final IllegalArgumentException e) {
+                invalidFileHandler.accept(path, e);
+            }
+        }
+    }
+
+    private boolean readRecords(final ByteBuffer buffer, final short version, final RecordConsumer consumer)
+    {
+        CaptureFileFormat.Record record;
+        while ((record = CaptureFileFormat.readRecord(buffer, version)) != null) {
+            if (matches(record) && !consumer.accept(record)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the blocks of a compressed capture file. Blocks that contain only records outside of the requested time
+     * range are skipped without being decompressed.
+     */
+    private boolean readCompressed(final ByteBuffer buffer, final RecordConsumer consumer)
+    {
+        final short version = CaptureFileFormat.readCompressedSegmentHeader(buffer, XmppDictionary.ID);
+        final Inflater inflater = new Inflater();
+        try {
+            while (buffer.remaining() >= CaptureFileFormat.BLOCK_HEADER_SIZE) {
+                final int compressedLength = buffer.getInt();
+                final int uncompressedLength = buffer.getInt();
+                buffer.getInt(); // record count
+                final long firstTimestamp = buffer.getLong();
+                final long lastTimestamp = buffer.getLong();
+                if (compressedLength <= 0 || uncompressedLength < 0 || compressedLength > buffer.remaining()) {
+                    break; // An incomplete block, at the end of a file that was not closed properly.
+                }
+                final int next = buffer.position() + compressedLength;
+                if ((since != null && lastTimestamp < since.toEpochMilli()) || (until != null && firstTimestamp >= until.toEpochMilli())) {
+                    buffer.position(next);
+                    continue;
+                }
+
+                final byte[] input = new byte[compressedLength];
+                buffer.get(input);
+                final byte[] records = new byte[uncompressedLength];
+                inflater.reset();
+                inflater.setInput(input);
+                try {
+                    int length = inflater.inflate(records);
+                    if (inflater.needsDictionary()) {
+                        inflater.setDictionary(XmppDictionary.BYTES);
+                        length += inflater.inflate(records, length, records.length - length);
+                    }
+                    if (length != uncompressedLength) {
+                        throw new IllegalArgumentException("Corrupt block at position " + (next - compressedLength - CaptureFileFormat.BLOCK_HEADER_SIZE));
+                    }
+                } catch (final DataFormatException e) {
+                    throw new IllegalArgumentException("Corrupt block at position " + (next - compressedLength - CaptureFileFormat.BLOCK_HEADER_SIZE) + ": " + e.getMessage());
+                }
+                if (!readRecords(ByteBuffer.wrap(records), version, consumer)) {
+                    return false;
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+        return true;
+    }
+
+    /**
+     * Replaces directories by the capture files that they contain, in chronological order.
+     */
+    private static List<Path> expand(final List<Path> paths) throws IOException
+    {
+        final List<Path> result = new ArrayList<>();
+        for (final Path path : paths) {
+            if (Files.isDirectory(path)) {
+                final List<Path> segments = new ArrayList<>();
+                try (final DirectoryStream<Path> stream = Files.newDirectoryStream(path, MappedCaptureSink.FILE_PREFIX + "*{" + MappedCaptureSink.FILE_SUFFIX + "," + CompressedCaptureSink.FILE_SUFFIX + "}")) {
+                    stream.forEach(segments::add);
+                }
+                Collections.sort(segments);
+                result.addAll(segments);
+            } else {
+                result.add(path);
+            }
+        }
+        return result;
+    }
+
+    private boolean matches(final CaptureFileFormat.Record record)
+    {
+        if (!connectionIds.isEmpty() && !connectionIds.contains(record.connectionId)) {
+            return false;
+        }
+        if (!types.isEmpty() && !types.contains(record.type)) {
+            return false;
+        }
+        if (!portTypes.isEmpty() && !portTypes.contains(record.portType.toUpperCase())) {
+            return false;
+        }
+        if (since != null && record.timestamp < since.toEpochMilli()) {
+            return false;
+        }
+        return until == null || record.timestamp < until.toEpochMilli();
+    }
+
+    private String render(final CaptureFileFormat.Record record)
+    {
+        line.setLength(0);
+        if (format == Format.DUMP) {
+            textLayout.appendTimestamp(record.timestamp, line);
+            line.append(" #").append(record.connectionId);
+            if (record.sequence > 0) {
+                line.append(':').append(record.sequence);
+            }
+            line.append(' ').append(record.type)
+                .append(' ').append(record.portType.isEmpty() ? "-" : record.portType)
+                .append(' ').append(record.remoteAddress.isEmpty() ? "-" : record.remoteAddress)
+                .append(' ').append(record.payload.length).append(" bytes");
+            return line.toString();
+        }
+
+        final boolean isText = CaptureFileFormat.TEXT_TYPE.equals(record.type);
+        if (isText && format == Format.TEXT) {
+            return new String(record.payload, StandardCharsets.UTF_8);
+        }
+        // Text records (such as intercepted packets) were rendered in the text layout when they were captured. In the JSON
+        // layout, that text becomes the payload.
+        final ConnectionInfo connection = isText && record.connectionId == 0 ? null : connections.computeIfAbsent(record.connectionId,
+            id -> new ConnectionInfo(id, record.portType, record.remoteAddress, RawPrintChannelHandlerFactory.FILTER_NAME));
+        final boolean isEvent = record.payload.length == 0 && ("OPEN".equals(record.type) || "CLSD".equals(record.type));
+        final CaptureEntry entry;
+        if (isText) {
+            entry = CaptureEntry.ofText(connection, record.timestamp, record.type, new String(record.payload, StandardCharsets.UTF_8));
+        } else if (isEvent) {
+            entry = CaptureEntry.ofEvent(connection, record.timestamp, record.type);
+        } else {
+            entry = CaptureEntry.ofBytes(connection, record.timestamp, record.type, Unpooled.wrappedBuffer(record.payload));
+        }
+        entry.sequence(record.sequence);
+        try {
+            if (format == Format.JSON) {
+                jsonLayout.format(entry, line);
+            } else {
+                textLayout.format(entry, line);
+            }
+        } finally {
+            entry.release();
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import org.jivesoftware.util.SystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xmpp.packet.JID;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Determines which connections are captured, based on their connection type, remote address, stream ID and the JID
+ * that is bound to them.
+ *
+ * The filter is compiled from configuration into structures that are cheap to evaluate (a CIDR trie for addresses and
+ * hash sets for everything else), and is evaluated only when something becomes known about a connection: when the
+ * connection is established, when a stream ID is observed, and when a resource is bound. The outcome is stored in the
+ * {@link ConnectionInfo}, so that the cost per frame of a connection that does not match is a single field read.
+ *
+ * All configured criteria must be met for a connection to match. A criterion for which no values are configured is
+ * always met. Criteria that depend on the stream ID or bound JID are typically met only after the first few frames of a
+ * connection have been exchanged: these frames are not captured.
+ */
+final class CaptureFilter
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(CaptureFilter.class);
+
+    /**
+     * Outcome of an evaluation: the connection is captured.
+     */
+    static final int MATCH = 0;
+
+    /**
+     * Outcome of an evaluation: the connection is not captured.
+     */
+    static final int NO_MATCH = 1;
+
+    /**
+     * Outcome of an evaluation: not enough is known about the connection yet. It is not captured for now.
+     */
+    static final int PENDING = 2;
+
+    public static final SystemProperty<String> connectionTypesProperty = filterProperty("filter.connectionTypes");
+    public static final SystemProperty<String> addressesProperty = filterProperty("filter.addresses");
+    public static final SystemProperty<String> jidsProperty = filterProperty("filter.jids");
+    public static final SystemProperty<String> streamIdsProperty = filterProperty("filter.streamIds");
+
+    private static SystemProperty<String> filterProperty(final String key)
+    {
+        return SystemProperty.Builder.ofType(String.class)
+            .setKey(DebuggerPlugin.PROPERTY_PREFIX + key)
+            .setDefaultValue("")
+            .setDynamic(true)
+            .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+            .addListener(value -> {
+                final DebuggerPlugin plugin = DebuggerPlugin.getInstance();
+                if (plugin != null) {
+                    plugin.getConnectionRegistry().setFilter(fromProperties());
+                }
+            })
+            .build();
+    }
+
+    private final Set<String> connectionTypes;
+    private final CidrMatcher addresses;
+    private final Set<String> jids;
+    private final Set<String> streamIds;
+
+    private CaptureFilter(final Set<String> connectionTypes, final CidrMatcher addresses, final Set<String> jids, final Set<String> streamIds)
+    {
+        this.connectionTypes = connectionTypes;
+        this.addresses = addresses;
+        this.jids = jids;
+        this.streamIds = streamIds;
+    }
+
+    /**
+     * Compiles a filter from the current values of the filter properties. Invalid values are logged and ignored.
+     *
+     * @return a filter.
+     */
+    static CaptureFilter fromProperties()
+    {
+        return compile(connectionTypesProperty.getValue(), addressesProperty.getValue(), jidsProperty.getValue(), streamIdsProperty.getValue());
+    }
+
+    /**
+     * Compiles a filter from values in the format of the filter properties. Invalid addresses are logged and ignored.
+     *
+     * @param connectionTypes the value of {@link #connectionTypesProperty}.
+     * @param addressValues the value of {@link #addressesProperty}.
+     * @param jids the value of {@link #jidsProperty}.
+     * @param streamIds the value of {@link #streamIdsProperty}.
+     * @return a filter.
+     */
+    static CaptureFilter compile(final String connectionTypes, final String addressValues, final String jids, final String streamIds)
+    {
+        final CidrMatcher addresses = new CidrMatcher();
+        for (final String cidr : split(addressValues)) {
+            try {
+                addresses.add(cidr);
+            } catch (final IllegalArgumentException e) {
+                LOGGER.warn("Ignoring invalid address in property {}: {}", addressesProperty.getKey(), e.getMessage());
+            }
+        }
+        return new CaptureFilter(
+            split(connectionTypes).stream().map(value -> value.toUpperCase(Locale.ROOT)).collect(Collectors.toSet()),
+            addresses,
+            split(jids).stream().map(value -> value.toLowerCase(Locale.ROOT)).collect(Collectors.toSet()),
+            new HashSet<>(split(streamIds)));
+    }
+
+    /**
+     * Splits a property value on commas and whitespace.
+     */
+    static List<String> split(final String value)
+    {
+        if (value == null || value.isBlank()) {
+            return Collections.emptyList();
+        }
+        return Arrays.stream(value.split("[,\\s]+")).filter(part -> !part.isEmpty()).collect(Collectors.toList());
+    }
+
+    /**
+     * Checks if this filter captures every connection.
+     *
+     * @return true if no criteria are configured.
+     */
+    boolean isEmpty()
+    {
+        return connectionTypes.isEmpty() && addresses.isEmpty() && jids.isEmpty() && streamIds.isEmpty();
+    }
+
+    /**
+     * Checks if the outcome of this filter can depend on the stream IDs that are used on a connection.
+     *
+     * @return true if stream IDs need to be observed.
+     */
+    boolean needsStreamIds()
+    {
+        return !streamIds.isEmpty() || !jids.isEmpty(); // The JID is obtained through the stream ID of its session.
+    }
+
+    /**
+     * Evaluates the filter for a connection, based on what is currently known about it.
+     *
+     * @param connection the connection to evaluate.
+     * @return {@link #MATCH}, {@link #NO_MATCH} or {@link #PENDING}.
+     */
+    int evaluate(final ConnectionInfo connection)
+    {
+        if (!connectionTypes.isEmpty() && !connectionTypes.contains(connection.getPortType().toUpperCase(Locale.ROOT))) {
+            return NO_MATCH;
+        }
+        if (!addresses.isEmpty()) {
+            final InetAddress address = connection.getRemoteInetAddress();
+            if (address == null || !addresses.matches(address)) {
+                return NO_MATCH;
+            }
+        }
+
+        final JID boundJid = connection.getBoundJid();
+        if (!jids.isEmpty()) {
+            if (boundJid == null) {
+                return PENDING;
+            }
+            if (!jids.contains(boundJid.toBareJID().toLowerCase(Locale.ROOT)) && !jids.contains(boundJid.getDomain().toLowerCase(Locale.ROOT))) {
+                return NO_MATCH;
+            }
+        }
+        if (!streamIds.isEmpty() && connection.getStreamIds().stream().noneMatch(streamIds::contains)) {
+            // After resource binding, the final stream ID of a client connection is known.
+            return boundJid == null ? PENDING : NO_MATCH;
+        }
+        return MATCH;
+    }
+}
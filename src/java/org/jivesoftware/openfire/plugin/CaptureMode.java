@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+/**
+ * Determines how the raw bytes of a network frame are captured before they are handed over to the log writer.
+ */
+public enum CaptureMode
+{
+    /**
+     * A retained slice of the original buffer is captured. No bytes are copied, but the memory of the original buffer
+     * cannot be reused by Netty until the entry has been written.
+     */
+    SLICE,
+
+    /**
+     * The bytes are copied into a buffer obtained from the channel's (pooled) allocator. This costs a copy, but releases
+     * the original buffer back to Netty immediately.
+     */
+    COPY
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import io.netty.buffer.ByteBuf;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes entries as records of the {@link CaptureFileFormat}. Shared by the sinks that write capture files.
+ *
+ * An entry is first {@link #prepare(CaptureEntry) prepared}, after which the size of its record is known, and it can be
+ * {@link #write(ByteBuffer, int) written}. Instances are not thread-safe.
+ */
+final class CaptureRecordEncoder
+{
+    private static final byte[] EMPTY = new byte[0];
+
+    private final StringBuilder textBuffer = new StringBuilder();
+    private final TextLayout textLayout = new TextLayout();
+
+    // The prepared entry.
+    private long timestamp;
+    private long connectionId;
+    private long sequence;
+    private String type;
+    private byte[] portType;
+    private byte[] address;
+    private ByteBuf content;
+    private byte[] text;
+
+    /**
+     * Prepares an entry to be written. Raw traffic and events are stored as they are. Preformatted entries and
+     * intercepted packets are stored as rendered text.
+     *
+     * @param entry the entry to encode.
+     */
+    void prepare(final CaptureEntry entry)
+    {
+        final ConnectionInfo connection = entry.getConnection();
+        timestamp = entry.getTimestamp();
+        sequence = entry.getSequence();
+        if (connection != null && entry.getPacket() == null) {
+            connectionId = connection.getConnectionId();
+            type = entry.getType();
+            portType = CaptureFileFormat.encodePortType(connection.getPortType());
+            address = CaptureFileFormat.encodeAddress(connection.getRemoteAddress());
+            content = entry.getContent();
+            text = entry.getText() != null ? entry.getText().toString().getBytes(StandardCharsets.UTF_8) : null;
+        } else {
+            connectionId = connection != null ? connection.getConnectionId() : 0;
+            type = CaptureFileFormat.TEXT_TYPE;
+            portType = connection != null ? CaptureFileFormat.encodePortType(connection.getPortType()) : EMPTY;
+            address = connection != null ? CaptureFileFormat.encodeAddress(connection.getRemoteAddress()) : EMPTY;
+            content = null;
+            textBuffer.setLength(0);
+            textLayout.format(entry, textBuffer);
+            text = textBuffer.toString().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Returns the size of the payload of the prepared entry.
+     *
+     * @return a size in bytes.
+     */
+    int getPayloadLength()
+    {
+        return content != null ? content.readableBytes() : (text != null ? text.length : 0);
+    }
+
+    /**
+     * Returns the size of the record of the prepared entry, when its payload is truncated to a specific length.
+     *
+     * @param payloadLength the amount of payload bytes to write.
+     * @return the size of the record, including its length field.
+     */
+    int getRecordSize(final int payloadLength)
+    {
+        return CaptureFileFormat.recordSize(portType, address, payloadLength);
+    }
+
+    String getType()
+    {
+        return type;
+    }
+
+    /**
+     * Writes the record of the prepared entry, releasing references to the entry.
+     *
+     * @param target the buffer to write to, which must have room for {@link #getRecordSize(int)} bytes.
+     * @param payloadLength the amount of payload bytes to write (at most {@link #getPayloadLength()}).
+     */
+    void write(final ByteBuffer target, final int payloadLength)
+    {
+        CaptureFileFormat.writeRecordHeader(target, timestamp, connectionId, sequence, type, portType, address, payloadLength);
+        if (content != null) {
+            final int limit = target.limit();
+            target.limit(target.position() + payloadLength);
+            content.getBytes(content.readerIndex(), target);
+            target.limit(limit);
+        } else if (text != null) {
+            target.put(text, 0, payloadLength);
+        }
+        content = null;
+        text = null;
+    }
+
+    void trim()
+    {
+        if (textBuffer.capacity() > 1024 * 1024) {
+            textBuffer.setLength(0);
+            textBuffer.trimToSize();
+        }
+        textLayout.trim();
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import org.jivesoftware.util.SystemProperty;
+import org.jivesoftware.util.TaskEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A capture session bounds the amount of traffic that is logged, by a deadline, a byte budget and/or an entry budget.
+ * When any of these is exceeded, the session ends: the debuggers of all connection types and the interpreted XML
+ * printer are disabled, and the raw XML handlers are removed from the pipelines of all live channels. This prevents a
+ * debugger that was forgotten about from filling up the disk.
+ *
+ * Entries are counted as they are queued to be logged, with two atomic counters that are only updated while a session
+ * is active. The payload size of interpreted packets is not known until they are serialized by the log writer: these
+ * count towards the entry budget only.
+ *
+ * The limits of an active session are persisted, so that a session that was active when Openfire was restarted is
+ * resumed (with its counters reset) or, when its deadline has passed, ended.
+ */
+public class CaptureSession
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(CaptureSession.class);
+
+    public static final SystemProperty<Boolean> activeProperty = SystemProperty.Builder.ofType(Boolean.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "captureSession.active")
+        .setDefaultValue(Boolean.FALSE)
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .build();
+    public static final SystemProperty<Long> deadlineProperty = SystemProperty.Builder.ofType(Long.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "captureSession.deadline")
+        .setDefaultValue(0L)
+        .setMinValue(0L)
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .build();
+    public static final SystemProperty<Long> maxBytesProperty = SystemProperty.Builder.ofType(Long.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "captureSession.maxBytes")
+        .setDefaultValue(0L)
+        .setMinValue(0L)
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .build();
+    public static final SystemProperty<Long> maxEntriesProperty = SystemProperty.Builder.ofType(Long.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "captureSession.maxEntries")
+        .setDefaultValue(0L)
+        .setMinValue(0L)
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .build();
+
+    private final DebuggerPlugin plugin;
+
+    // Read for every entry that is logged. Limits of zero are unlimited.
+    private volatile boolean active;
+    private volatile long deadline;
+    private volatile long maxBytes;
+    private volatile long maxEntries;
+
+    private final AtomicLong entries = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicBoolean ending = new AtomicBoolean();
+    // Identifies the session that is armed, so that an end that was scheduled for one session cannot end the next one.
+    private volatile long generation;
+    private TimerTask deadlineTask;
+    private volatile String endReason;
+
+    CaptureSession(final DebuggerPlugin plugin)
+    {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Resumes a session that was active when the plugin was last unloaded.
+     */
+    void restore()
+    {
+        if (activeProperty.getValue()) {
+            arm(deadlineProperty.getValue(), maxBytesProperty.getValue(), maxEntriesProperty.getValue());
+            LOGGER.info("Resumed capture session: {}", describeLimits());
+        }
+    }
+
+    /**
+     * Starts a session, replacing any session that is active. This does not enable any debugger.
+     *
+     * @param duration the duration of the session (null or zero for no deadline).
+     * @param maxBytes the maximum amount of payload bytes to log (zero or less for no limit).
+     * @param maxEntries the maximum amount of entries to log (zero or less for no limit).
+     */
+    public synchronized void start(final Duration duration, final long maxBytes, final long maxEntries)
+    {
+        final long deadline = duration == null || duration.isZero() || duration.isNegative() ? 0 : System.currentTimeMillis() + duration.toMillis();
+        deadlineProperty.setValue(deadline);
+        maxBytesProperty.setValue(Math.max(0, maxBytes));
+        maxEntriesProperty.setValue(Math.max(0, maxEntries));
+        activeProperty.setValue(true);
+        arm(deadline, Math.max(0, maxBytes), Math.max(0, maxEntries));
+        LOGGER.info("Started capture session: {}", describeLimits());
+    }
+
+    private synchronized void arm(final long deadline, final long maxBytes, final long maxEntries)
+    {
+        cancelDeadlineTask();
+        this.deadline = deadline;
+        this.maxBytes = maxBytes;
+        this.maxEntries = maxEntries;
+        entries.set(0);
+        bytes.set(0);
+        endReason = null;
+        ending.set(false);
+        final long session = ++generation;
+        active = true;
+
+        if (deadline > 0) {
+            // Ends the session on time, also when no traffic is logged.
+            deadlineTask = new TimerTask() {
+                @Override
+                public void run() {
+                    end("its deadline has passed", session);
+                }
+            };
+            TaskEngine.getInstance().schedule(deadlineTask, Duration.ofMillis(Math.max(0, deadline - System.currentTimeMillis())));
+        }
+    }
+
+    /**
+     * Counts an entry that is about to be queued to be logged. Ends the session when one of its limits is exceeded. The
+     * entry that exceeds a limit is itself still logged.
+     *
+     * @param payloadSize the size of the payload of the entry.
+     * @param now the current time.
+     */
+    void count(final int payloadSize, final long now)
+    {
+        if (!active) {
+            return;
+        }
+        final long session = generation;
+        final long entryCount = entries.incrementAndGet();
+        final long byteCount = payloadSize > 0 ? bytes.addAndGet(payloadSize) : bytes.get();
+        final long entryLimit = maxEntries;
+        final long byteLimit = maxBytes;
+        final long deadline = this.deadline;
+        if (entryLimit > 0 && entryCount >= entryLimit) {
+            endAsync("its entry budget of " + entryLimit + " entries has been used", session);
+        } else if (byteLimit > 0 && byteCount >= byteLimit) {
+            endAsync("its byte budget of " + byteLimit + " bytes has been used", session);
+        } else if (deadline > 0 && now >= deadline) {
+            endAsync("its deadline has passed", session);
+        }
+    }
+
+    /**
+     * Ends the session on another thread, as this is invoked on threads that observe traffic, while disabling the
+     * debuggers involves persisting properties and modifying channel pipelines.
+     */
+    private void endAsync(final String reason, final long session)
+    {
+        if (ending.compareAndSet(false, true)) {
+            TaskEngine.getInstance().submit(() -> end(reason, session));
+        }
+    }
+
+    /**
+     * Ends a session that was armed earlier, unless another session was started since.
+     *
+     * @param reason why the session ended.
+     * @param session the generation of the session to end.
+     */
+    private synchronized void end(final String reason, final long session)
+    {
+        if (session != generation) {
+            LOGGER.debug("Ignoring the end of a previous capture session, as {}.", reason);
+            return;
+        }
+        end(reason);
+    }
+
+    /**
+     * Ends the session, disabling all debuggers. Does nothing if no session is active.
+     *
+     * @param reason why the session ended (eg: "it was stopped by an administrator").
+     */
+    public synchronized void end(final String reason)
+    {
+        if (!active) {
+            return;
+        }
+        active = false;
+        cancelDeadlineTask();
+        activeProperty.setValue(false);
+        endReason = reason;
+
+        for (final RawPrintChannelHandlerFactory factory : plugin.getPortFilters()) {
+            factory.setEnabled(false);
+            factory.removeLiveHandlers();
+        }
+        plugin.getInterpretedPrinter().setEnabled(false);
+        LOGGER.info("Capture session ended, as {}. Logged {} entries ({} bytes). All debuggers have been disabled.", reason, entries.get(), bytes.get());
+    }
+
+    /**
+     * Stops tracking the session when the plugin is unloaded, without ending it.
+     */
+    synchronized void shutdown()
+    {
+        cancelDeadlineTask();
+        active = false;
+    }
+
+    private void cancelDeadlineTask()
+    {
+        if (deadlineTask != null) {
+            TaskEngine.getInstance().cancelScheduledTask(deadlineTask);
+            deadlineTask = null;
+        }
+    }
+
+    private String describeLimits()
+    {
+        return "deadline: " + (deadline > 0 ? new Date(deadline) : "none")
+            + ", byte budget: " + (maxBytes > 0 ? maxBytes : "none")
+            + ", entry budget: " + (maxEntries > 0 ? maxEntries : "none");
+    }
+
+    public boolean isActive()
+    {
+        return active;
+    }
+
+    /**
+     * Returns the deadline of the active session.
+     *
+     * @return the deadline, or null if there is no active session or it has no deadline.
+     */
+    public Date getDeadline()
+    {
+        return active && deadline > 0 ? new Date(deadline) : null;
+    }
+
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    public long getMaxEntries()
+    {
+        return maxEntries;
+    }
+
+    public long getEntryCount()
+    {
+        return entries.get();
+    }
+
+    public long getByteCount()
+    {
+        return bytes.get();
+    }
+
+    /**
+     * Returns why the most recent session ended.
+     *
+     * @return a reason, or null if a session is active or no session ended since the plugin was loaded.
+     */
+    public String getEndReason()
+    {
+        return endReason;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import java.util.List;
+
+/**
+ * A destination for captured entries, to which the {@link AsyncLogWriter} writes batches of entries.
+ *
+ * Implementations are invoked only from the log writer thread, and therefore need not be thread-safe. Entries remain
+ * owned by the writer: implementations must not release them, nor retain references to them after returning.
+ */
+interface CaptureSink
+{
+    /**
+     * Writes a batch of entries.
+     *
+     * @param batch the entries to write, in the order in which they were captured.
+     * @throws Exception if the entries could not be written.
+     */
+    void write(List<CaptureEntry> batch) throws Exception;
+
+    /**
+     * Writes entries that were buffered by this sink, when they should no longer be held back. Invoked repeatedly while
+     * the log writer has no more entries to write. All buffered entries are written when the sink is closed.
+     *
+     * @throws Exception if the entries could not be written.
+     */
+    default void flush() throws Exception {}
+
+    /**
+     * Releases all resources held by this sink. The sink will not be used after this method has been invoked.
+     */
+    void close();
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Matches IP addresses against a set of CIDR ranges (eg: "192.0.2.0/24", "2001:db8::/32", or a single address).
+ *
+ * Ranges are stored in a binary trie (one for IPv4 and one for IPv6) that is walked bit by bit, so that a lookup costs
+ * at most 32 or 128 steps, regardless of the amount of configured ranges. Instances are immutable after construction
+ * has completed, and can therefore be shared between threads.
+ */
+final class CidrMatcher
+{
+    private static final class Node
+    {
+        private final Node[] children = new Node[2];
+        private boolean terminal;
+    }
+
+    private final Node ipv4Root = new Node();
+    private final Node ipv6Root = new Node();
+    private int size;
+
+    /**
+     * Adds a range.
+     *
+     * @param cidr a range in CIDR notation, or a single address.
+     * @throws IllegalArgumentException if the value is not a valid IP address literal or CIDR range.
+     */
+    void add(final String cidr)
+    {
+        final String value = cidr.trim();
+        final int slash = value.indexOf('/');
+        final String addressPart = slash < 0 ? value : value.substring(0, slash);
+        final byte[] address = parseLiteral(addressPart);
+        final int maxPrefix = address.length * 8;
+        final int prefixLength;
+        try {
+            prefixLength = slash < 0 ? maxPrefix : Integer.parseInt(value.substring(slash + 1));
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid prefix length in: " + cidr);
+        }
+        if (prefixLength < 0 || prefixLength > maxPrefix) {
+            throw new IllegalArgumentException("Invalid prefix length in: " + cidr);
+        }
+
+        Node node = address.length == 4 ? ipv4Root : ipv6Root;
+        for (int bit = 0; bit < prefixLength && !node.terminal; bit++) {
+            final int branch = bitAt(address, bit);
+            if (node.children[branch] == null) {
+                node.children[branch] = new Node();
+            }
+            node = node.children[branch];
+        }
+        node.terminal = true;
+        size++;
+    }
+
+    /**
+     * Checks if an address is in any of the ranges.
+     *
+     * @param address the address to check.
+     * @return true if the address is in a range, otherwise false.
+     */
+    boolean matches(final InetAddress address)
+    {
+        final byte[] bytes = address.getAddress();
+        Node node = bytes.length == 4 ? ipv4Root : ipv6Root;
+        for (int bit = 0; node != null; bit++) {
+            if (node.terminal) {
+                return true;
+            }
+            if (bit == bytes.length * 8) {
+                return false;
+            }
+            node = node.children[bitAt(bytes, bit)];
+        }
+        return false;
+    }
+
+    boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    private static int bitAt(final byte[] address, final int bit)
+    {
+        return (address[bit >> 3] >> (7 - (bit & 7))) & 1;
+    }
+
+    /**
+     * Parses an IP address literal, without ever resolving a host name.
+     */
+    private static byte[] parseLiteral(final String literal)
+    {
+        final boolean valid = literal.indexOf(':') >= 0
+            ? literal.chars().allMatch(c -> Character.digit(c, 16) >= 0 || c == '.' || c == ':')
+            : literal.indexOf('.') >= 0 && literal.chars().allMatch(c -> (c >= '0' && c <= '9') || c == '.');
+        if (!valid) {
+            throw new IllegalArgumentException("Not an IP address: " + literal);
+        }
+        try {
+            return InetAddress.getByName(literal).getAddress();
+        } catch (final UnknownHostException e) {
+            throw new IllegalArgumentException("Not an IP address: " + literal);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import org.jivesoftware.util.SystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Writes captured entries to compressed capture files (see {@link CaptureFileFormat}).
+ *
+ * Records are collected in a block buffer. When the block is full, when its oldest record has been buffered for the
+ * configured flush interval, or when the file is rotated or closed, the block is compressed with Deflate, primed with a preset dictionary of common XMPP text (see
+ * {@link XmppDictionary}), and appended to the current file. As every block is compressed independently, a file can be
+ * read partially, and blocks outside of a time range can be skipped without decompressing them.
+ *
+ * Compression happens on the log writer thread, never on the threads that observe traffic. Files are rotated and
+ * retained like the files of the {@link MappedCaptureSink}: their size and amount are limited by the same properties.
+ */
+class CompressedCaptureSink implements CaptureSink
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompressedCaptureSink.class);
+
+    static final String FILE_SUFFIX = ".capz";
+
+    public static final SystemProperty<Boolean> enabledProperty = SystemProperty.Builder.ofType(Boolean.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "captureFile.compressed")
+        .setDefaultValue(Boolean.FALSE)
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .build();
+    public static final SystemProperty<Integer> blockSizeProperty = SystemProperty.Builder.ofType(Integer.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "captureFile.blockSizeKB")
+        .setDefaultValue(256)
+        .setMinValue(4)
+        .setMaxValue(16 * 1024)
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .build();
+    public static final SystemProperty<Integer> compressionLevelProperty = SystemProperty.Builder.ofType(Integer.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "captureFile.compressionLevel")
+        .setDefaultValue(Deflater.BEST_SPEED)
+        .setMinValue(Deflater.BEST_SPEED)
+        .setMaxValue(Deflater.BEST_COMPRESSION)
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .build();
+    public static final SystemProperty<Duration> flushIntervalProperty = SystemProperty.Builder.ofType(Duration.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "captureFile.flushInterval")
+        .setDefaultValue(Duration.ofSeconds(1))
+        .setChronoUnit(ChronoUnit.MILLIS)
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .build();
+
+    private final Path directory;
+    private final CaptureRecordEncoder encoder = new CaptureRecordEncoder();
+    private final Deflater deflater = new Deflater();
+    private ByteBuffer block;
+    private int recordCount;
+    private long firstTimestamp;
+    private long lastTimestamp;
+    private long blockStartNanos;
+    private byte[] compressed = new byte[64 * 1024];
+    private FileChannel channel;
+    private long segmentSize;
+
+    CompressedCaptureSink(final Path directory)
+    {
+        this.directory = directory;
+        this.block = ByteBuffer.allocate(blockSizeProperty.getValue() * 1024);
+    }
+
+    @Override
+    public void write(final List<CaptureEntry> batch) throws IOException
+    {
+        for (final CaptureEntry entry : batch) {
+            encoder.prepare(entry);
+            int payloadLength = encoder.getPayloadLength();
+            int recordSize = encoder.getRecordSize(payloadLength);
+            if (block.remaining() < recordSize) {
+                writeBlock();
+                if (block.remaining() < recordSize) {
+                    // Larger than an entire block: truncate the payload.
+                    payloadLength -= recordSize - block.remaining();
+                    recordSize = block.remaining();
+                    LOGGER.debug("Truncated a record of type {} to {} payload bytes, to fit in a compressed block.", encoder.getType(), payloadLength);
+                }
+            }
+            encoder.write(block, payloadLength);
+            if (recordCount++ == 0) {
+                firstTimestamp = entry.getTimestamp();
+                blockStartNanos = System.nanoTime();
+            }
+            lastTimestamp = entry.getTimestamp();
+        }
+        encoder.trim();
+    }
+
+    /**
+     * Compresses and writes the records that were collected, if the oldest of them has been buffered for the flush
+     * interval. Writing a block every time the log writer runs out of entries would produce many small blocks, each
+     * with its own header and compression overhead, under moderate traffic.
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        if (recordCount > 0 && System.nanoTime() - blockStartNanos >= flushIntervalProperty.getValue().toNanos()) {
+            writeBlock();
+        }
+    }
+
+    private void writeBlock() throws IOException
+    {
+        if (recordCount == 0) {
+            applyBlockSize();
+            return;
+        }
+        deflater.reset();
+        deflater.setLevel(compressionLevelProperty.getValue());
+        deflater.setDictionary(XmppDictionary.BYTES);
+        deflater.setInput(block.array(), 0, block.position());
+        deflater.finish();
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {
+                final byte[] grown = new byte[compressed.length * 2];
+                System.arraycopy(compressed, 0, grown, 0, compressedLength);
+                compressed = grown;
+            }
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+
+        final long maxSegmentSize = (long) MappedCaptureSink.segmentSizeProperty.getValue() * 1024 * 1024;
+        if (channel == null || segmentSize + CaptureFileFormat.BLOCK_HEADER_SIZE + compressedLength > maxSegmentSize) {
+            rotate();
+        }
+        final ByteBuffer header = ByteBuffer.allocate(CaptureFileFormat.BLOCK_HEADER_SIZE);
+        CaptureFileFormat.writeBlockHeader(header, compressedLength, block.position(), recordCount, firstTimestamp, lastTimestamp);
+        header.flip();
+        writeFully(header);
+        writeFully(ByteBuffer.wrap(compressed, 0, compressedLength));
+        segmentSize += CaptureFileFormat.BLOCK_HEADER_SIZE + compressedLength;
+
+        block.clear();
+        recordCount = 0;
+        if (compressed.length > 1024 * 1024) {
+            compressed = new byte[64 * 1024];
+        }
+        applyBlockSize();
+    }
+
+    /**
+     * Reallocates the (empty) block buffer when the configured block size has changed, so that a change takes effect
+     * from the next block.
+     */
+    private void applyBlockSize()
+    {
+        final int blockSize = blockSizeProperty.getValue() * 1024;
+        if (block.capacity() != blockSize) {
+            block = ByteBuffer.allocate(blockSize);
+        }
+    }
+
+    private void writeFully(final ByteBuffer source) throws IOException
+    {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    private void rotate() throws IOException
+    {
+        closeSegment();
+
+        Files.createDirectories(directory);
+        final long now = System.currentTimeMillis();
+        final Path path = MappedCaptureSink.createSegmentFile(directory, now, FILE_SUFFIX);
+        channel = FileChannel.open(path, StandardOpenOption.WRITE);
+        final ByteBuffer header = ByteBuffer.allocate(CaptureFileFormat.COMPRESSED_SEGMENT_HEADER_SIZE);
+        CaptureFileFormat.writeCompressedSegmentHeader(header, now, XmppDictionary.ID);
+        header.flip();
+        writeFully(header);
+        segmentSize = CaptureFileFormat.COMPRESSED_SEGMENT_HEADER_SIZE;
+        LOGGER.debug("Started compressed capture segment {}", path);
+
+        MappedCaptureSink.deleteOldSegments(directory, FILE_SUFFIX);
+    }
+
+    private void closeSegment()
+    {
+        if (channel != null) {
+            try {
+                channel.force(false);
+                channel.close();
+            } catch (final IOException e) {
+                LOGGER.debug("Unable to close compressed capture segment file.", e);
+            }
+            channel = null;
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        try {
+            writeBlock();
+        } catch (final IOException e) {
+            LOGGER.warn("Unable to write the last block of {} records to a compressed capture file.", recordCount, e);
+        }
+        closeSegment();
+        deflater.end();
+    }
+}
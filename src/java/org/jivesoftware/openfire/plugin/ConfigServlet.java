@@ -16,6 +16,7 @@
 package org.jivesoftware.openfire.plugin;
 
 import java.io.IOException;
+import java.time.Duration;
 
 import org.jivesoftware.admin.FlashMessageTag;
 import org.jivesoftware.util.ParamUtils;
@@ -45,8 +46,36 @@ public class ConfigServlet extends HttpServlet {
         request.setAttribute("cm", plugin.getMultiplexerPortFilter().isEnabled());
         request.setAttribute("interpreted", plugin.getInterpretedPrinter().isEnabled());
         request.setAttribute("logWhitespace", DebuggerPlugin.logWhitespaceProperty.getValue());
+        request.setAttribute("removeHandlersWhenDisabled", RawPrintChannelHandlerFactory.removeHandlersWhenDisabledProperty.getValue());
+        request.setAttribute("framing", StanzaFramer.enabledProperty.getValue());
         request.setAttribute("loggingToStdOut", DebuggerPlugin.loggingToStdOutProperty.getValue());
         request.setAttribute("loggingToFile", DebuggerPlugin.loggingToFileProperty.getValue());
+        request.setAttribute("stdOutLayout", DebuggerPlugin.stdOutLayoutProperty.getValue());
+        request.setAttribute("fileLayout", DebuggerPlugin.fileLayoutProperty.getValue());
+        request.setAttribute("layouts", LogLayout.values());
+        request.setAttribute("loggingToCaptureFile", DebuggerPlugin.loggingToCaptureFileProperty.getValue());
+        request.setAttribute("captureFileCompressed", CompressedCaptureSink.enabledProperty.getValue());
+        request.setAttribute("overflowPolicy", AsyncLogWriter.overflowPolicyProperty.getValue());
+        request.setAttribute("overflowPolicies", OverflowPolicy.values());
+        request.setAttribute("queueSize", plugin.getLogWriter().getQueueSize());
+        request.setAttribute("queueCapacity", plugin.getLogWriter().getQueueCapacity());
+        request.setAttribute("writtenEntries", plugin.getLogWriter().getWrittenCount());
+        request.setAttribute("droppedEntries", plugin.getLogWriter().getDroppedCount());
+        request.setAttribute("sampleConnectionRatio", RawPrintChannelHandlerFactory.sampleConnectionRatioProperty.getValue());
+        request.setAttribute("maxFramesPerSecond", RawPrintChannelHandlerFactory.maxFramesPerSecondProperty.getValue());
+        request.setAttribute("maxFramesPerSecondPerConnection", RawPrintChannelHandlerFactory.maxFramesPerSecondPerConnectionProperty.getValue());
+        request.setAttribute("skippedConnections", plugin.getPortFilters().stream().mapToLong(RawPrintChannelHandlerFactory::getSkippedConnectionCount).sum());
+        request.setAttribute("skippedFrames", plugin.getPortFilters().stream().mapToLong(RawPrintChannelHandlerFactory::getSkippedFrameCount).sum());
+        request.setAttribute("filterConnectionTypes", CaptureFilter.connectionTypesProperty.getValue());
+        request.setAttribute("filterAddresses", CaptureFilter.addressesProperty.getValue());
+        request.setAttribute("filterJids", CaptureFilter.jidsProperty.getValue());
+        request.setAttribute("filterStreamIds", CaptureFilter.streamIdsProperty.getValue());
+        request.setAttribute("redactionEnabled", Redactor.enabledProperty.getValue());
+        request.setAttribute("redactionElements", Redactor.elementsProperty.getValue());
+        request.setAttribute("observedConnections", plugin.getConnectionRegistry().getConnections().size());
+        request.setAttribute("capturedConnections", plugin.getConnectionRegistry().getConnections().stream().filter(ConnectionInfo::isCaptured).count());
+
+        request.setAttribute("captureSession", plugin.getCaptureSession());
 
         request.getRequestDispatcher("debugger-configuration.jsp").forward(request, response);
     }
@@ -62,16 +91,105 @@ public class ConfigServlet extends HttpServlet {
             return;
         }
 
+        if (request.getParameter("startSession") != null) {
+            final long minutes = Math.max(0, ParamUtils.getLongParameter(request, "sessionMinutes", 0));
+            final long maxMB = Math.max(0, ParamUtils.getLongParameter(request, "sessionMaxMB", 0));
+            final long maxEntries = Math.max(0, ParamUtils.getLongParameter(request, "sessionMaxEntries", 0));
+            plugin.getCaptureSession().start(Duration.ofMinutes(minutes), maxMB * 1024 * 1024, maxEntries);
+            session.setAttribute(FlashMessageTag.SUCCESS_MESSAGE_KEY, "Capture session started");
+            response.sendRedirect(request.getRequestURI());
+            return;
+        }
+
+        if (request.getParameter("endSession") != null) {
+            plugin.getCaptureSession().end("it was ended by an administrator");
+            session.setAttribute(FlashMessageTag.SUCCESS_MESSAGE_KEY, "Capture session ended. All debuggers have been disabled.");
+            response.sendRedirect(request.getRequestURI());
+            return;
+        }
+
+        // Validate every value before saving any, so that an invalid value does not leave the settings half-updated.
+        final LogLayout stdOutLayout;
+        final LogLayout fileLayout;
+        try {
+            stdOutLayout = getEnumParameter(request, "stdOutLayout", LogLayout.class);
+            fileLayout = getEnumParameter(request, "fileLayout", LogLayout.class);
+        } catch (final IllegalArgumentException e) {
+            session.setAttribute(FlashMessageTag.ERROR_MESSAGE_KEY, "Unrecognized layout");
+            response.sendRedirect(request.getRequestURI());
+            return;
+        }
+        final OverflowPolicy overflowPolicy;
+        try {
+            overflowPolicy = getEnumParameter(request, "overflowPolicy", OverflowPolicy.class);
+        } catch (final IllegalArgumentException e) {
+            session.setAttribute(FlashMessageTag.ERROR_MESSAGE_KEY, "Unrecognized overflow policy: " + ParamUtils.getParameter(request, "overflowPolicy"));
+            response.sendRedirect(request.getRequestURI());
+            return;
+        }
+        final String filterAddresses = ParamUtils.getParameter(request, "filterAddresses", true);
+        if (filterAddresses != null) {
+            final CidrMatcher matcher = new CidrMatcher();
+            for (final String cidr : CaptureFilter.split(filterAddresses)) {
+                try {
+                    matcher.add(cidr);
+                } catch (final IllegalArgumentException e) {
+                    session.setAttribute(FlashMessageTag.ERROR_MESSAGE_KEY, "Invalid address filter: " + e.getMessage());
+                    response.sendRedirect(request.getRequestURI());
+                    return;
+                }
+            }
+        }
+
         plugin.getDefaultPortFilter().setEnabled(ParamUtils.getBooleanParameter(request, "c2s"));
         plugin.getOldPortFilter().setEnabled(ParamUtils.getBooleanParameter(request, "ssl"));
         plugin.getComponentPortFilter().setEnabled(ParamUtils.getBooleanParameter(request, "extcomp"));
         plugin.getMultiplexerPortFilter().setEnabled(ParamUtils.getBooleanParameter(request, "cm"));
         plugin.getInterpretedPrinter().setEnabled(ParamUtils.getBooleanParameter(request, "interpreted"));
         DebuggerPlugin.logWhitespaceProperty.setValue(ParamUtils.getBooleanParameter(request, "logWhitespace"));
+        RawPrintChannelHandlerFactory.removeHandlersWhenDisabledProperty.setValue(ParamUtils.getBooleanParameter(request, "removeHandlersWhenDisabled"));
+        StanzaFramer.enabledProperty.setValue(ParamUtils.getBooleanParameter(request, "framing"));
         DebuggerPlugin.loggingToStdOutProperty.setValue(ParamUtils.getBooleanParameter(request, "loggingToStdOut"));
         DebuggerPlugin.loggingToFileProperty.setValue(ParamUtils.getBooleanParameter(request, "loggingToFile"));
+        DebuggerPlugin.loggingToCaptureFileProperty.setValue(ParamUtils.getBooleanParameter(request, "loggingToCaptureFile"));
+        CompressedCaptureSink.enabledProperty.setValue(ParamUtils.getBooleanParameter(request, "captureFileCompressed"));
+        if (stdOutLayout != null) {
+            DebuggerPlugin.stdOutLayoutProperty.setValue(stdOutLayout);
+        }
+        if (fileLayout != null) {
+            DebuggerPlugin.fileLayoutProperty.setValue(fileLayout);
+        }
+        if (overflowPolicy != null) {
+            AsyncLogWriter.overflowPolicyProperty.setValue(overflowPolicy);
+        }
+
+        RawPrintChannelHandlerFactory.sampleConnectionRatioProperty.setValue(Math.max(1, ParamUtils.getIntParameter(request, "sampleConnectionRatio", 1)));
+        RawPrintChannelHandlerFactory.maxFramesPerSecondProperty.setValue(Math.max(0, ParamUtils.getIntParameter(request, "maxFramesPerSecond", 0)));
+        RawPrintChannelHandlerFactory.maxFramesPerSecondPerConnectionProperty.setValue(Math.max(0, ParamUtils.getIntParameter(request, "maxFramesPerSecondPerConnection", 0)));
+
+        CaptureFilter.connectionTypesProperty.setValue(String.join(", ", CaptureFilter.split(ParamUtils.getParameter(request, "filterConnectionTypes", true))));
+        CaptureFilter.addressesProperty.setValue(String.join(", ", CaptureFilter.split(filterAddresses)));
+        CaptureFilter.jidsProperty.setValue(String.join(", ", CaptureFilter.split(ParamUtils.getParameter(request, "filterJids", true))));
+        CaptureFilter.streamIdsProperty.setValue(String.join(", ", CaptureFilter.split(ParamUtils.getParameter(request, "filterStreamIds", true))));
+
+        Redactor.enabledProperty.setValue(ParamUtils.getBooleanParameter(request, "redactionEnabled"));
+        Redactor.elementsProperty.setValue(String.join(", ", CaptureFilter.split(ParamUtils.getParameter(request, "redactionElements", true))));
 
         session.setAttribute(FlashMessageTag.SUCCESS_MESSAGE_KEY, "Logging settings updated");
         response.sendRedirect(request.getRequestURI());
     }
+
+    /**
+     * Returns the value of a request parameter as a constant of an enum.
+     *
+     * @param request the request.
+     * @param name the name of the parameter.
+     * @param type the type of the enum.
+     * @return the constant, or null if the parameter is absent.
+     * @throws IllegalArgumentException if the value is not the name of a constant of the enum.
+     */
+    private static <E extends Enum<E>> E getEnumParameter(final HttpServletRequest request, final String name, final Class<E> type) {
+        final String value = ParamUtils.getParameter(request, name);
+        return value == null ? null : Enum.valueOf(type, value);
+    }
 }
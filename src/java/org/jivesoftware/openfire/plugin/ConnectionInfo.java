@@ -0,0 +1,389 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+import org.xmpp.packet.JID;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Information about a network connection that is observed by a {@link RawPrintChannelHandler}. Most of it does not
+ * change during the lifetime of that connection. The exceptions are what is learned about the XMPP session that is
+ * established over the connection (its stream IDs and bound JID) and the resulting decision of the {@link CaptureFilter}.
+ *
+ * An instance is stored as an attribute of the Netty channel, so that it is retained when the handler is removed from,
+ * and later added back to, the pipeline of the channel.
+ */
+final class ConnectionInfo
+{
+    /**
+     * The attribute under which instances are stored. Netty attribute keys are global, while this class is loaded by
+     * the plugin class loader. The name of the key is made unique per class loader, so that an instance created by a
+     * previously loaded version of the plugin is never mistaken for an instance of this version of the class.
+     */
+    private static final AttributeKey<ConnectionInfo> KEY = AttributeKey.valueOf("xmldebugger.connection." + System.identityHashCode(ConnectionInfo.class));
+
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);
+
+    private final long connectionId;
+    private final String portType;
+    private final String remoteAddress;
+    private final String contextName;
+    private final String headerStart;
+    private final String headerEnd;
+    private final InetAddress remoteInetAddress;
+
+    /**
+     * Stream IDs that were observed on this connection. A connection typically uses more than one, as a new stream is
+     * started after STARTTLS and after SASL authentication.
+     */
+    private final List<String> streamIds = new CopyOnWriteArrayList<>();
+    private volatile JID boundJid;
+
+    /**
+     * The outcome of the most recent evaluation of the capture filter (see {@link CaptureFilter#MATCH} and friends).
+     */
+    private volatile int captureState = CaptureFilter.PENDING;
+
+    /**
+     * The version of the capture filter that was used to determine {@link #captureState}, or -1 if it was not yet
+     * determined.
+     */
+    private volatile long filterVersion = -1;
+
+    /**
+     * The sequence number of the most recent entry that was logged for this connection. Raw and interpreted entries
+     * share this sequence, so that the order in which they were observed can be restored.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Tracks stanzas that were not parsed, while the {@link ParseFailureDetector} is active.
+     */
+    private volatile ParseTracker parseTracker;
+
+    /**
+     * Counts the traffic of this connection, while {@link TrafficMetrics} are enabled.
+     */
+    private volatile TrafficMetrics.ConnectionMetrics metrics;
+
+    /**
+     * The state of the {@link Redactor} for the traffic of each direction. Only accessed by the log writer thread.
+     */
+    private Redactor.State receivedRedactionState;
+    private Redactor.State sentRedactionState;
+
+    /**
+     * Set (by any thread) when traffic of a direction was not passed to the log writer, for example because the queue
+     * was full or a rate limit was exceeded. Cleared by the log writer, which then resynchronizes the {@link Redactor}.
+     */
+    private volatile boolean receivedRedactionGap;
+    private volatile boolean sentRedactionGap;
+
+    private ConnectionInfo(final String portType, final SocketAddress remoteAddress, final String contextName)
+    {
+        this(NEXT_ID.getAndIncrement(), portType, remoteAddress == null ? "???" : remoteAddress.toString(), contextName,
+            remoteAddress instanceof InetSocketAddress ? ((InetSocketAddress) remoteAddress).getAddress() : null);
+    }
+
+    /**
+     * Creates connection information from previously recorded values, for example when reading a capture file.
+     *
+     * @param connectionId the numeric identifier of the connection.
+     * @param portType the type of port on which the connection was established.
+     * @param remoteAddress the textual representation of the remote address.
+     * @param contextName the name of the handler context.
+     */
+    ConnectionInfo(final long connectionId, final String portType, final String remoteAddress, final String contextName)
+    {
+        this(connectionId, portType, remoteAddress, contextName, null);
+    }
+
+    private ConnectionInfo(final long connectionId, final String portType, final String remoteAddress, final String contextName, final InetAddress remoteInetAddress)
+    {
+        this.remoteInetAddress = remoteInetAddress;
+        this.connectionId = connectionId;
+        this.portType = portType;
+        this.remoteAddress = remoteAddress;
+        this.contextName = contextName;
+
+        // Equivalent to the "%s %-16s - " and " - (%11s)" parts of the format that was historically used.
+        this.headerStart = padRight(portType + " " + this.remoteAddress, portType.length() + 1 + 16) + " - ";
+        this.headerEnd = " - (" + padLeft(contextName, 11) + ")";
+    }
+
+    /**
+     * Returns the information for the channel of a handler context, creating it if it does not yet exist.
+     *
+     * @param ctx the handler context.
+     * @param portType the type of port on which the connection was established.
+     * @return connection information (never null).
+     */
+    static ConnectionInfo of(final ChannelHandlerContext ctx, final String portType)
+    {
+        final Channel channel = ctx.channel();
+        final Attribute<ConnectionInfo> attribute = channel.attr(KEY);
+        final ConnectionInfo existing = attribute.get();
+        if (existing != null) {
+            return existing;
+        }
+        final SocketAddress remoteAddress = channel.remoteAddress();
+        final ConnectionInfo created = new ConnectionInfo(portType, remoteAddress, ctx.name());
+        if (remoteAddress == null) {
+            return created; // Do not store this, as the address is likely to become available later.
+        }
+        final ConnectionInfo raced = attribute.setIfAbsent(created);
+        return raced != null ? raced : created;
+    }
+
+    private static String padRight(final String value, final int length)
+    {
+        final StringBuilder sb = new StringBuilder(Math.max(length, value.length())).append(value);
+        while (sb.length() < length) {
+            sb.append(' ');
+        }
+        return sb.toString();
+    }
+
+    private static String padLeft(final String value, final int length)
+    {
+        final StringBuilder sb = new StringBuilder(Math.max(length, value.length()));
+        for (int i = value.length(); i < length; i++) {
+            sb.append(' ');
+        }
+        return sb.append(value).toString();
+    }
+
+    /**
+     * Returns a compact identifier of this connection, which is unique for as long as the plugin is loaded.
+     *
+     * @return the connection identifier.
+     */
+    long getConnectionId()
+    {
+        return connectionId;
+    }
+
+    String getPortType()
+    {
+        return portType;
+    }
+
+    String getRemoteAddress()
+    {
+        return remoteAddress;
+    }
+
+    String getContextName()
+    {
+        return contextName;
+    }
+
+    /**
+     * Returns the precomputed text that follows the timestamp in an entry header: the port type and the padded remote
+     * address.
+     *
+     * @return the start of an entry header.
+     */
+    String getHeaderStart()
+    {
+        return headerStart;
+    }
+
+    /**
+     * Returns the precomputed text that follows the message type in an entry header: the padded context name.
+     *
+     * @return the end of an entry header.
+     */
+    String getHeaderEnd()
+    {
+        return headerEnd;
+    }
+
+    /**
+     * Returns the remote IP address of this connection.
+     *
+     * @return the remote address, or null if it is not known.
+     */
+    InetAddress getRemoteInetAddress()
+    {
+        return remoteInetAddress;
+    }
+
+    /**
+     * Returns the next number in the sequence of entries that are logged for this connection.
+     *
+     * @return a positive sequence number.
+     */
+    long nextSequence()
+    {
+        return sequence.incrementAndGet();
+    }
+
+    /**
+     * Records a stream ID that was observed on this connection.
+     *
+     * @param streamId the stream ID.
+     * @return true if the stream ID was not observed before.
+     */
+    boolean addStreamId(final String streamId)
+    {
+        return !streamIds.contains(streamId) && streamIds.add(streamId);
+    }
+
+    List<String> getStreamIds()
+    {
+        return Collections.unmodifiableList(streamIds);
+    }
+
+    /**
+     * Returns the stream ID that was most recently observed on this connection.
+     *
+     * @return a stream ID, or null if none was observed.
+     */
+    String getLatestStreamId()
+    {
+        final Object[] observed = streamIds.toArray();
+        return observed.length == 0 ? null : (String) observed[observed.length - 1];
+    }
+
+    /**
+     * Returns the full JID of the resource that was bound on this connection.
+     *
+     * @return a JID, or null if no resource has been bound (yet).
+     */
+    JID getBoundJid()
+    {
+        return boundJid;
+    }
+
+    void setBoundJid(final JID boundJid)
+    {
+        this.boundJid = boundJid;
+    }
+
+    /**
+     * Checks if traffic on this connection is to be captured, according to the filter that was most recently applied to
+     * it. This is evaluated for every frame, and therefore does no more than reading a field.
+     *
+     * @return true if the connection is to be captured.
+     */
+    boolean isCaptured()
+    {
+        return captureState == CaptureFilter.MATCH;
+    }
+
+    int getCaptureState()
+    {
+        return captureState;
+    }
+
+    long getFilterVersion()
+    {
+        return filterVersion;
+    }
+
+    /**
+     * Records the outcome of an evaluation of the capture filter.
+     *
+     * @param captureState the outcome.
+     * @param filterVersion the version of the filter that was evaluated.
+     */
+    void setCaptureState(final int captureState, final long filterVersion)
+    {
+        this.captureState = captureState;
+        this.filterVersion = filterVersion;
+    }
+
+    ParseTracker getParseTracker()
+    {
+        return parseTracker;
+    }
+
+    void setParseTracker(final ParseTracker parseTracker)
+    {
+        this.parseTracker = parseTracker;
+    }
+
+    TrafficMetrics.ConnectionMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    void setMetrics(final TrafficMetrics.ConnectionMetrics metrics)
+    {
+        this.metrics = metrics;
+    }
+
+    Redactor.State getRedactionState(final boolean received)
+    {
+        return received ? receivedRedactionState : sentRedactionState;
+    }
+
+    void setRedactionState(final boolean received, final Redactor.State state)
+    {
+        if (received) {
+            receivedRedactionState = state;
+        } else {
+            sentRedactionState = state;
+        }
+    }
+
+    /**
+     * Records that traffic of a direction was not scanned by the {@link Redactor}, so that sensitive data that follows
+     * it cannot be recognized reliably.
+     *
+     * @param received true for received traffic, false for sent traffic.
+     */
+    void markRedactionGap(final boolean received)
+    {
+        if (received) {
+            receivedRedactionGap = true;
+        } else {
+            sentRedactionGap = true;
+        }
+    }
+
+    /**
+     * Checks if traffic of a direction was not scanned since the previous invocation, and clears the mark.
+     *
+     * @param received true for received traffic, false for sent traffic.
+     * @return true if there was a gap in the traffic that was scanned.
+     */
+    boolean takeRedactionGap(final boolean received)
+    {
+        if (received) {
+            if (receivedRedactionGap) {
+                receivedRedactionGap = false;
+                return true;
+            }
+        } else if (sentRedactionGap) {
+            sentRedactionGap = false;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import org.jivesoftware.openfire.SessionManager;
+import org.jivesoftware.openfire.StreamID;
+import org.jivesoftware.openfire.component.ComponentEventListener;
+import org.jivesoftware.openfire.event.ServerSessionEventListener;
+import org.jivesoftware.openfire.event.SessionEventListener;
+import org.jivesoftware.openfire.session.ClientSession;
+import org.jivesoftware.openfire.session.ComponentSession;
+import org.jivesoftware.openfire.session.IncomingServerSession;
+import org.jivesoftware.openfire.session.OutgoingServerSession;
+import org.jivesoftware.openfire.session.Session;
+import org.xmpp.packet.IQ;
+import org.xmpp.packet.JID;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of the connections that are observed by {@link RawPrintChannelHandler} instances, and of what is learned
+ * about the XMPP sessions that are established over them. This is used to apply the {@link CaptureFilter}.
+ *
+ * Network connections and XMPP sessions are related through their stream ID: stream IDs are observed in the stream
+ * headers that are sent by the server, while sessions are reported through Openfire's session events (client and
+ * server sessions) and component events (external components).
+ */
+public class ConnectionRegistry implements SessionEventListener, ServerSessionEventListener, ComponentEventListener
+{
+    /**
+     * Maximum amount of bytes at the start of a frame that are inspected for a stream header.
+     */
+    private static final int SNIFF_LIMIT = 1024;
+
+    private static final byte[] STREAM_OPEN = "<stream:stream".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] WEBSOCKET_OPEN = "<open".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ID_ATTRIBUTE = " id=".getBytes(StandardCharsets.US_ASCII);
+
+    private final Map<Long, ConnectionInfo> connections = new ConcurrentHashMap<>();
+    private final Map<String, ConnectionInfo> connectionsByStreamId = new ConcurrentHashMap<>();
+
+    private volatile CaptureFilter filter = CaptureFilter.fromProperties();
+
+    /**
+     * Incremented whenever the filter is replaced, allowing handlers to detect that the state of a connection was
+     * determined by a stale filter.
+     */
+    private volatile long filterVersion;
+
+    /**
+     * Registers a connection, and evaluates the filter for it. The registration is removed when the channel is closed.
+     * Registering a connection that is already registered has no effect.
+     *
+     * @param channel the channel of the connection.
+     * @param connection information about the connection.
+     */
+    void register(final Channel channel, final ConnectionInfo connection)
+    {
+        final long connectionId = connection.getConnectionId();
+        if (connections.putIfAbsent(connectionId, connection) != null) {
+            return;
+        }
+        channel.closeFuture().addListener(future -> {
+            connections.remove(connectionId);
+            for (final String streamId : connection.getStreamIds()) {
+                connectionsByStreamId.remove(streamId, connection);
+            }
+        });
+        evaluate(connection);
+    }
+
+    /**
+     * Checks if traffic on a connection is to be captured. When the filter changed since it was last evaluated for this
+     * connection, it is evaluated again.
+     *
+     * @param connection the connection.
+     * @return true if traffic is to be captured.
+     */
+    boolean isCaptured(final ConnectionInfo connection)
+    {
+        if (connection.getFilterVersion() != filterVersion) {
+            evaluate(connection);
+        }
+        return connection.isCaptured();
+    }
+
+    /**
+     * Inspects a frame that is sent by the server for a stream header, to learn the stream IDs that are used on the
+     * connection. These associate the connection with its XMPP session. Frames are inspected only when their first
+     * bytes could start a stream header. Stream IDs are recorded for every connection, also those that currently do not
+     * match the filter, so that a later filter can still identify them. The filter is evaluated again only for
+     * connections of which the outcome was pending.
+     *
+     * @param connection the connection on which the frame is sent.
+     * @param content the bytes of the frame.
+     */
+    void inspectSent(final ConnectionInfo connection, final ByteBuf content)
+    {
+        if (!mayStartWithStreamHeader(content)) {
+            return;
+        }
+        final String streamId = findStreamId(content);
+        if (streamId != null && connection.addStreamId(streamId)) {
+            connectionsByStreamId.put(streamId, connection);
+            if (connection.getCaptureState() == CaptureFilter.PENDING) {
+                evaluate(connection);
+            }
+        }
+    }
+
+    /**
+     * Checks the first two bytes of a frame for the start of an XML declaration, a {@code <stream:stream>} element or
+     * an {@code <open>} element.
+     */
+    private static boolean mayStartWithStreamHeader(final ByteBuf content)
+    {
+        if (content.readableBytes() < 2 || content.getByte(content.readerIndex()) != '<') {
+            return false;
+        }
+        final byte second = content.getByte(content.readerIndex() + 1);
+        return second == '?' || second == 's' || second == 'o';
+    }
+
+    /**
+     * Replaces the filter, and evaluates it for all registered connections.
+     *
+     * @param filter the new filter.
+     */
+    void setFilter(final CaptureFilter filter)
+    {
+        this.filter = filter;
+        filterVersion++;
+        connections.values().forEach(this::evaluate);
+    }
+
+    CaptureFilter getFilter()
+    {
+        return filter;
+    }
+
+    /**
+     * Returns all registered connections.
+     *
+     * @return an unmodifiable view of all connections.
+     */
+    Collection<ConnectionInfo> getConnections()
+    {
+        return Collections.unmodifiableCollection(connections.values());
+    }
+
+    /**
+     * Returns the connection that carries a session.
+     *
+     * @param session the session.
+     * @return the connection, or null if none of the stream IDs of the session was observed on a registered connection.
+     */
+    ConnectionInfo getBySession(final Session session)
+    {
+        final StreamID streamId = session.getStreamID();
+        return streamId == null ? null : connectionsByStreamId.get(streamId.getID());
+    }
+
+    /**
+     * Returns the connection on which a stream ID was observed.
+     *
+     * @param streamId the stream ID.
+     * @return the connection, or null if the stream ID was not observed on any registered connection.
+     */
+    ConnectionInfo getByStreamId(final String streamId)
+    {
+        return connectionsByStreamId.get(streamId);
+    }
+
+    private void evaluate(final ConnectionInfo connection)
+    {
+        // Read the version before the filter, so that a concurrent update of the filter leads to a re-evaluation.
+        final long version = filterVersion;
+        connection.setCaptureState(filter.evaluate(connection), version);
+    }
+
+    /**
+     * Finds the value of the 'id' attribute of a stream header ({@code <stream:stream>}, or {@code <open>} for
+     * websockets) near the start of a frame, without decoding the frame.
+     *
+     * @param content the bytes of the frame.
+     * @return the stream ID, or null if the start of the frame does not contain a stream header that has an ID.
+     */
+    static String findStreamId(final ByteBuf content)
+    {
+        final int start = content.readerIndex();
+        final int end = start + Math.min(content.readableBytes(), SNIFF_LIMIT);
+        int header = indexOf(content, start, end, STREAM_OPEN);
+        if (header < 0) {
+            header = indexOf(content, start, end, WEBSOCKET_OPEN);
+        }
+        if (header < 0) {
+            return null;
+        }
+        final int tagEnd = content.indexOf(header, end, (byte) '>');
+        final int attribute = indexOf(content, header, tagEnd < 0 ? end : tagEnd, ID_ATTRIBUTE);
+        if (attribute < 0 || attribute + ID_ATTRIBUTE.length >= end) {
+            return null;
+        }
+        final int valueStart = attribute + ID_ATTRIBUTE.length + 1;
+        final byte quote = content.getByte(valueStart - 1);
+        if (quote != '\'' && quote != '"') {
+            return null;
+        }
+        final int valueEnd = content.indexOf(valueStart, end, quote);
+        if (valueEnd < 0) {
+            return null;
+        }
+        return content.toString(valueStart, valueEnd - valueStart, StandardCharsets.UTF_8);
+    }
+
+    private static int indexOf(final ByteBuf content, final int fromIndex, final int toIndex, final byte[] needle)
+    {
+        outer:
+        for (int i = fromIndex; i <= toIndex - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (content.getByte(i + j) != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private void sessionIdentified(final Session session, final JID address)
+    {
+        final StreamID streamId = session.getStreamID();
+        if (streamId == null || address == null) {
+            return;
+        }
+        final ConnectionInfo connection = connectionsByStreamId.get(streamId.getID());
+        if (connection != null) {
+            connection.setBoundJid(address);
+            evaluate(connection);
+        }
+    }
+
+    @Override
+    public void sessionCreated(final Session session)
+    {
+        if (session instanceof IncomingServerSession) {
+            // The address of an incoming server session is the local domain. The remote domain is the one it validated.
+            final Iterator<String> domains = ((IncomingServerSession) session).getValidatedDomains().iterator();
+            if (domains.hasNext()) {
+                sessionIdentified(session, new JID(null, domains.next(), null));
+            }
+        } else if (!(session instanceof ClientSession) && !(session instanceof OutgoingServerSession)) {
+            // Client sessions are created before a resource is bound. Their full JID is known only after resource
+            // binding. The stream IDs of outgoing server sessions are sent by the remote server, and are not observed.
+            sessionIdentified(session, session.getAddress());
+        }
+    }
+
+    @Override
+    public void sessionDestroyed(final Session session)
+    {
+    }
+
+    @Override
+    public void anonymousSessionCreated(final Session session)
+    {
+    }
+
+    @Override
+    public void anonymousSessionDestroyed(final Session session)
+    {
+    }
+
+    @Override
+    public void resourceBound(final Session session)
+    {
+        sessionIdentified(session, session.getAddress());
+    }
+
+    @Override
+    public void componentRegistered(final JID componentJID)
+    {
+        // Internal components have no session, and therefore no connection.
+        final ComponentSession session = SessionManager.getInstance().getComponentSession(componentJID.getDomain());
+        if (session != null) {
+            sessionIdentified(session, componentJID);
+        }
+    }
+
+    @Override
+    public void componentUnregistered(final JID componentJID)
+    {
+    }
+
+    @Override
+    public void componentInfoReceived(final IQ iq)
+    {
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Exposes the controls and statistics of a source of logged entries over JMX.
+ */
+class DebuggerControl implements DebuggerControlMXBean
+{
+    private final BooleanSupplier enabled;
+    private final Consumer<Boolean> enabler;
+    private final LoggingStatistics statistics;
+    private final AsyncLogWriter logWriter;
+
+    DebuggerControl(final BooleanSupplier enabled, final Consumer<Boolean> enabler, final LoggingStatistics statistics, final AsyncLogWriter logWriter)
+    {
+        this.enabled = enabled;
+        this.enabler = enabler;
+        this.statistics = statistics;
+        this.logWriter = logWriter;
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return enabled.getAsBoolean();
+    }
+
+    @Override
+    public void setEnabled(final boolean enabled)
+    {
+        enabler.accept(enabled);
+    }
+
+    @Override
+    public long getEntriesLogged()
+    {
+        return statistics.getLoggedCount();
+    }
+
+    @Override
+    public long getBytesLogged()
+    {
+        return statistics.getLoggedBytes();
+    }
+
+    @Override
+    public long getEntriesDropped()
+    {
+        return statistics.getDroppedCount();
+    }
+
+    @Override
+    public double getAverageLatencyMillis()
+    {
+        return statistics.getAverageLatencyMillis();
+    }
+
+    @Override
+    public int getSinkQueueSize()
+    {
+        return logWriter.getQueueSize();
+    }
+
+    @Override
+    public int getSinkQueueCapacity()
+    {
+        return logWriter.getQueueCapacity();
+    }
+
+    @Override
+    public double getAverageSinkWriteMicros()
+    {
+        return logWriter.getAverageWriteMicros();
+    }
+}
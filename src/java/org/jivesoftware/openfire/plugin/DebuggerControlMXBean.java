@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+/**
+ * Management interface of a source of logged entries: the raw XML handler of a connection type (registered as
+ * <tt>org.igniterealtime.openfire.plugin.xmldebugger:type=RawDebugger,name=C2S-STARTTLS</tt> and so on) or the
+ * interpreted XML printer (<tt>type=InterpretedDebugger</tt>).
+ *
+ * The statistics of the log writer, which are shared by all sources, are included so that monitoring can alert when
+ * the debugger itself becomes a bottleneck.
+ */
+public interface DebuggerControlMXBean
+{
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /**
+     * @return the amount of entries of this source that were written.
+     */
+    long getEntriesLogged();
+
+    /**
+     * @return the size of the payloads of the entries of this source that were written (raw bytes, or characters of
+     * interpreted XML).
+     */
+    long getBytesLogged();
+
+    /**
+     * @return the amount of entries of this source that were dropped because the queue of the log writer was full, or
+     * because they could not be written to every output.
+     */
+    long getEntriesDropped();
+
+    /**
+     * @return the average time (in milliseconds) between the observation of an entry of this source and it being written.
+     */
+    double getAverageLatencyMillis();
+
+    /**
+     * @return the amount of entries (of all sources) that are waiting to be written.
+     */
+    int getSinkQueueSize();
+
+    int getSinkQueueCapacity();
+
+    /**
+     * @return the average time (in microseconds) that the log writer spent writing an entry (of any source) to its outputs.
+     */
+    double getAverageSinkWriteMicros();
+}
@@ -20,12 +20,19 @@ import org.jivesoftware.openfire.XMPPServer;
 import org.jivesoftware.openfire.container.Plugin;
 import org.jivesoftware.openfire.container.PluginManager;
 import org.jivesoftware.openfire.container.PluginManagerListener;
+import org.jivesoftware.openfire.component.InternalComponentManager;
+import org.jivesoftware.openfire.event.ServerSessionEventDispatcher;
+import org.jivesoftware.openfire.event.SessionEventDispatcher;
 import org.jivesoftware.openfire.spi.*;
 import org.jivesoftware.util.SystemProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import java.io.File;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -43,6 +50,7 @@ public class DebuggerPlugin implements Plugin {
     private static final Logger LOGGER = LoggerFactory.getLogger(DebuggerPlugin.class);
 
     static final String PROPERTY_PREFIX = "plugin.xmldebugger.";
+    static final String JMX_DOMAIN = "org.igniterealtime.openfire.plugin.xmldebugger";
     private static DebuggerPlugin instance;
 
     private final RawPrintChannelHandlerFactory defaultPortFilter;
@@ -51,24 +59,72 @@ public class DebuggerPlugin implements Plugin {
     private final RawPrintChannelHandlerFactory componentPortFilter;
     private final RawPrintChannelHandlerFactory multiplexerPortFilter;
     private final InterpretedXMLPrinter interpretedPrinter;
+    private final AsyncLogWriter logWriter;
+    private final RecentTraffic recentTraffic;
+    private final ConnectionRegistry connectionRegistry;
+    private final ParseFailureDetector parseFailureDetector;
+    private final LiveTraffic liveTraffic;
+    private final TrafficMetrics trafficMetrics;
+    private final CaptureSession captureSession;
+    private final SessionIndex sessionIndex;
+    private final IqResponseCorrelator iqResponseCorrelator;
+    private final LoadGenerator loadGenerator;
+    private final TrafficReplay trafficReplay;
     public static final SystemProperty<Boolean> logWhitespaceProperty = SystemProperty.Builder.ofType(Boolean.class)
         .setKey(PROPERTY_PREFIX + "logWhitespace")
         .setDefaultValue(Boolean.FALSE)
         .setDynamic(true)
         .setPlugin(PLUGIN_NAME)
+        .addListener(value -> DebuggerPlugin.logWhitespace = value)
         .build();
     public static final SystemProperty<Boolean> loggingToStdOutProperty = SystemProperty.Builder.ofType(Boolean.class)
         .setKey(PROPERTY_PREFIX + "logToStdOut")
         .setDefaultValue(Boolean.TRUE)
         .setDynamic(true)
         .setPlugin(PLUGIN_NAME)
+        .addListener(value -> DebuggerPlugin.loggingToStdOut = value)
         .build();
     public static final SystemProperty<Boolean> loggingToFileProperty = SystemProperty.Builder.ofType(Boolean.class)
         .setKey(PROPERTY_PREFIX + "logToFile")
         .setDefaultValue(Boolean.FALSE)
         .setDynamic(true)
         .setPlugin(PLUGIN_NAME)
+        .addListener(value -> DebuggerPlugin.loggingToFile = value)
         .build();
+    public static final SystemProperty<LogLayout> stdOutLayoutProperty = SystemProperty.Builder.ofType(LogLayout.class)
+        .setKey(PROPERTY_PREFIX + "logToStdOut.layout")
+        .setDefaultValue(LogLayout.TEXT)
+        .setDynamic(true)
+        .setPlugin(PLUGIN_NAME)
+        .build();
+    public static final SystemProperty<LogLayout> fileLayoutProperty = SystemProperty.Builder.ofType(LogLayout.class)
+        .setKey(PROPERTY_PREFIX + "logToFile.layout")
+        .setDefaultValue(LogLayout.TEXT)
+        .setDynamic(true)
+        .setPlugin(PLUGIN_NAME)
+        .build();
+    public static final SystemProperty<Boolean> loggingToCaptureFileProperty = SystemProperty.Builder.ofType(Boolean.class)
+        .setKey(PROPERTY_PREFIX + "logToCaptureFile")
+        .setDefaultValue(Boolean.FALSE)
+        .setDynamic(true)
+        .setPlugin(PLUGIN_NAME)
+        .addListener(value -> DebuggerPlugin.loggingToCaptureFile = value)
+        .build();
+    public static final SystemProperty<CaptureMode> captureModeProperty = SystemProperty.Builder.ofType(CaptureMode.class)
+        .setKey(PROPERTY_PREFIX + "captureMode")
+        .setDefaultValue(CaptureMode.SLICE)
+        .setDynamic(true)
+        .setPlugin(PLUGIN_NAME)
+        .addListener(value -> DebuggerPlugin.captureMode = value)
+        .build();
+
+    // Read for every frame and packet. Kept in volatile fields that are updated by the listeners of their properties, so
+    // that reading them does not look up and parse the properties.
+    private static volatile boolean logWhitespace = logWhitespaceProperty.getValue();
+    private static volatile boolean loggingToStdOut = loggingToStdOutProperty.getValue();
+    private static volatile boolean loggingToFile = loggingToFileProperty.getValue();
+    private static volatile boolean loggingToCaptureFile = loggingToCaptureFileProperty.getValue();
+    private static volatile CaptureMode captureMode = captureModeProperty.getValue();
 
     public DebuggerPlugin() {
         defaultPortFilter = new RawPrintChannelHandlerFactory( "C2S-STARTTLS");
@@ -77,6 +133,17 @@ public class DebuggerPlugin implements Plugin {
         componentPortFilter = new RawPrintChannelHandlerFactory("ExComp-STARTTLS");
         multiplexerPortFilter = new RawPrintChannelHandlerFactory("CM-STARTTLS");
         interpretedPrinter = new InterpretedXMLPrinter();
+        logWriter = new AsyncLogWriter();
+        recentTraffic = new RecentTraffic();
+        connectionRegistry = new ConnectionRegistry();
+        parseFailureDetector = new ParseFailureDetector(this);
+        liveTraffic = new LiveTraffic();
+        trafficMetrics = new TrafficMetrics(connectionRegistry);
+        captureSession = new CaptureSession(this);
+        sessionIndex = new SessionIndex();
+        iqResponseCorrelator = new IqResponseCorrelator();
+        loadGenerator = new LoadGenerator(iqResponseCorrelator);
+        trafficReplay = new TrafficReplay(iqResponseCorrelator);
         setInstance(this);
     }
 
@@ -89,6 +156,18 @@ public class DebuggerPlugin implements Plugin {
     }
 
     public void initializePlugin(final PluginManager pluginManager, final File pluginDirectory) {
+        logWriter.start();
+        SessionEventDispatcher.addListener(connectionRegistry);
+        ServerSessionEventDispatcher.addListener(connectionRegistry);
+        InternalComponentManager.getInstance().addListener(connectionRegistry);
+        SessionEventDispatcher.addListener(sessionIndex);
+        ServerSessionEventDispatcher.addListener(sessionIndex);
+        sessionIndex.indexExisting();
+        registerMBean(trafficMetrics, "type=TrafficMetrics");
+        for (final RawPrintChannelHandlerFactory factory : getPortFilters()) {
+            registerMBean(new DebuggerControl(factory::isEnabled, factory::setEnabled, factory.getStatistics(), logWriter), "type=RawDebugger,name=" + factory.getPortType());
+        }
+        registerMBean(new DebuggerControl(interpretedPrinter::isEnabled, interpretedPrinter::setEnabled, interpretedPrinter.getStatistics(), logWriter), "type=InterpretedDebugger");
         pluginManager.addPluginManagerListener(new PluginManagerListener() {
             public void pluginsMonitored() {
                 // Stop listening for plugin events
@@ -99,6 +178,40 @@ public class DebuggerPlugin implements Plugin {
         });
     }
 
+    private final List<ObjectName> registeredMBeans = new ArrayList<>();
+
+    /**
+     * Registers a management bean with the platform MBean server. Failure to do so is logged, but otherwise ignored.
+     *
+     * @param mbean the bean to register.
+     * @param keyProperties the key properties of its name, in the domain of this plugin (eg: "type=TrafficMetrics").
+     */
+    private void registerMBean(final Object mbean, final String keyProperties) {
+        try {
+            final ObjectName name = new ObjectName(JMX_DOMAIN + ":" + keyProperties);
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name); // Left behind by an earlier instance of this plugin.
+            }
+            server.registerMBean(mbean, name);
+            registeredMBeans.add(name);
+        } catch (final JMException e) {
+            LOGGER.warn("Unable to register MBean {}", keyProperties, e);
+        }
+    }
+
+    private void unregisterMBeans() {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (final ObjectName name : registeredMBeans) {
+            try {
+                server.unregisterMBean(name);
+            } catch (final JMException e) {
+                LOGGER.debug("Unable to unregister MBean {}", name, e);
+            }
+        }
+        registeredMBeans.clear();
+    }
+
     private final List<ConnectionListener.SocketAcceptorEventListener> eventListeners = new ArrayList<>();
     private void addInterceptors() {
         ConnectionListener.SocketAcceptorEventListener listener;
@@ -119,6 +232,7 @@ public class DebuggerPlugin implements Plugin {
         if (listener != null) { eventListeners.add(listener); }
 
         interpretedPrinter.setEnabled(interpretedPrinter.isEnabled());
+        captureSession.restore();
 
         LOGGER.info("Plugin initialisation complete");
     }
@@ -160,14 +274,32 @@ public class DebuggerPlugin implements Plugin {
     }
 
     public void destroyPlugin() {
+        captureSession.shutdown();
         removeInterceptorAndListener(ConnectionType.SOCKET_C2S, false, defaultPortFilter, eventListeners);
         removeInterceptorAndListener(ConnectionType.SOCKET_C2S, true, oldPortFilter, eventListeners);
         removeInterceptorAndListener(ConnectionType.SOCKET_S2S, false, s2sPortFilter, eventListeners);
         removeInterceptorAndListener(ConnectionType.COMPONENT, false, componentPortFilter, eventListeners);
         removeInterceptorAndListener(ConnectionType.CONNECTION_MANAGER, false, multiplexerPortFilter, eventListeners);
         eventListeners.clear();
+        getPortFilters().forEach(RawPrintChannelHandlerFactory::shutdown);
+        SessionEventDispatcher.removeListener(connectionRegistry);
+        ServerSessionEventDispatcher.removeListener(connectionRegistry);
+        InternalComponentManager.getInstance().removeListener(connectionRegistry);
+        SessionEventDispatcher.removeListener(sessionIndex);
+        ServerSessionEventDispatcher.removeListener(sessionIndex);
+        sessionIndex.clear();
+        loadGenerator.shutdown();
+        trafficReplay.shutdown();
+        iqResponseCorrelator.shutdown();
+        unregisterMBeans();
         // Remove the packet interceptor that prints interpreted XML
         interpretedPrinter.shutdown();
+        liveTraffic.clear();
+        // Write whatever is still queued.
+        logWriter.shutdown();
+        recentTraffic.clear();
+        parseFailureDetector.clear();
+        trafficMetrics.reset();
 
         LOGGER.info("Plugin destruction complete");
     }
@@ -188,16 +320,124 @@ public class DebuggerPlugin implements Plugin {
         return multiplexerPortFilter;
     }
 
+    public RawPrintChannelHandlerFactory getS2sPortFilter() {
+        return s2sPortFilter;
+    }
+
+    /**
+     * Returns the factories of the raw XML handlers for all connection types.
+     *
+     * @return all raw XML handler factories.
+     */
+    public List<RawPrintChannelHandlerFactory> getPortFilters() {
+        return List.of(defaultPortFilter, oldPortFilter, s2sPortFilter, componentPortFilter, multiplexerPortFilter);
+    }
+
     public InterpretedXMLPrinter getInterpretedPrinter() {
         return interpretedPrinter;
     }
 
+    public AsyncLogWriter getLogWriter() {
+        return logWriter;
+    }
+
+    public RecentTraffic getRecentTraffic() {
+        return recentTraffic;
+    }
+
+    public ConnectionRegistry getConnectionRegistry() {
+        return connectionRegistry;
+    }
+
+    public SessionIndex getSessionIndex() {
+        return sessionIndex;
+    }
+
+    public IqResponseCorrelator getIqResponseCorrelator() {
+        return iqResponseCorrelator;
+    }
+
+    public LoadGenerator getLoadGenerator() {
+        return loadGenerator;
+    }
+
+    public TrafficReplay getTrafficReplay() {
+        return trafficReplay;
+    }
+
+    public ParseFailureDetector getParseFailureDetector() {
+        return parseFailureDetector;
+    }
+
+    public LiveTraffic getLiveTraffic() {
+        return liveTraffic;
+    }
+
+    public TrafficMetrics getTrafficMetrics() {
+        return trafficMetrics;
+    }
+
+    public CaptureSession getCaptureSession() {
+        return captureSession;
+    }
+
+    /**
+     * Checks if any output for logged messages is enabled. When this returns false, there is no need to capture traffic.
+     *
+     * @return true if messages are logged to STDOUT, the log file and/or capture files, or streamed to live traffic subscribers.
+     */
+    static boolean isLogging() {
+        if (loggingToStdOut || loggingToFile || loggingToCaptureFile) {
+            return true;
+        }
+        final DebuggerPlugin plugin = instance;
+        return plugin != null && plugin.liveTraffic.hasSubscribers();
+    }
+
+    /**
+     * Checks if empty frames are logged.
+     *
+     * @return true if empty frames are logged.
+     */
+    static boolean isLoggingWhitespace() {
+        return logWhitespace;
+    }
+
+    /**
+     * Returns how raw traffic is captured.
+     *
+     * @return the capture mode.
+     */
+    static CaptureMode getCaptureMode() {
+        return captureMode;
+    }
+
+    /**
+     * Queues a message to be logged to STDOUT and/or the log file, depending on configuration. The message is written
+     * asynchronously by the {@link AsyncLogWriter}, so that the calling thread (typically a Netty event loop) does not
+     * wait for the write.
+     *
+     * @param messageToLog the message to log.
+     */
     public static void log(final String messageToLog) {
-        if (loggingToStdOutProperty.getValue()) {
-            System.out.println(messageToLog);
+        if (isLogging()) {
+            log(CaptureEntry.ofText(messageToLog, null));
         }
-        if (loggingToFileProperty.getValue()) {
-            LOGGER.info(messageToLog);
+    }
+
+    /**
+     * Queues an entry to be logged. Ownership of the entry is transferred: the caller must not use it after invoking
+     * this method.
+     *
+     * @param entry the entry to log.
+     */
+    static void log(final CaptureEntry entry) {
+        final DebuggerPlugin plugin = getInstance();
+        if (plugin != null) {
+            plugin.captureSession.count(entry.getPayloadSize(), entry.getTimestamp());
+            plugin.logWriter.submit(entry);
+        } else {
+            entry.release();
         }
     }
 }
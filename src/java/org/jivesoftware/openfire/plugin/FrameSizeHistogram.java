@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent histogram of frame sizes, with buckets of exponentially increasing width: bucket <tt>n</tt> counts the
+ * sizes of which the highest set bit is bit <tt>n - 1</tt> (bucket 0 counts empty frames). Recording a value is a
+ * single, uncontended increment, at the expense of precision: percentiles are reported as the upper bound of the bucket
+ * that contains them, which is at most twice the actual value.
+ */
+public class FrameSizeHistogram
+{
+    private static final int BUCKETS = Integer.SIZE + 1;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public FrameSizeHistogram()
+    {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    void record(final int size)
+    {
+        counts[Integer.SIZE - Integer.numberOfLeadingZeros(size)].increment();
+        max.accumulate(size);
+    }
+
+    /**
+     * Returns an (over)estimate of a percentile of the recorded sizes.
+     *
+     * @param percentile the percentile (between 0 and 100).
+     * @return the upper bound of the bucket that contains the percentile, or 0 if nothing was recorded.
+     */
+    public long getPercentile(final double percentile)
+    {
+        final long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts[i].sum();
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(i == 0 ? 0 : (1L << i) - 1, getMax());
+            }
+        }
+        return getMax();
+    }
+
+    public long getMax()
+    {
+        return max.get();
+    }
+}
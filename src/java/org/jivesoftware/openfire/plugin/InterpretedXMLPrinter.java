@@ -16,8 +16,6 @@
 
 package org.jivesoftware.openfire.plugin;
 
-import java.net.UnknownHostException;
-
 import org.jivesoftware.openfire.interceptor.InterceptorManager;
 import org.jivesoftware.openfire.interceptor.PacketInterceptor;
 import org.jivesoftware.openfire.session.Session;
@@ -32,7 +30,12 @@ import org.xmpp.packet.Packet;
  * <p>
  * If you find in the logs an entry for raw XML, an entry that a session was closed and
  * never find the corresponding interpreted XML for the raw XML then there was an error
- * while parsing the XML that closed the session.
+ * while parsing the XML that closed the session. When the raw XML of the session is also
+ * debugged, both raw and interpreted entries are stamped with the numeric identifier of the
+ * connection and a sequence number (eg: <tt>#12:34</tt>), so that they can be joined.<p>
+ * <p>
+ * Packets are not serialized on the thread that routes them. A copy of each packet is queued instead, which is
+ * serialized by the log writer thread.
  *
  * @author Gaston Dombiak.
  */
@@ -46,19 +49,34 @@ public class InterpretedXMLPrinter implements PacketInterceptor {
         .setPlugin(DebuggerPlugin.PLUGIN_NAME)
         .addListener(this::enabled)
         .build();
-    private boolean enabled;
+    private volatile boolean enabled;
+    private final LoggingStatistics statistics = new LoggingStatistics();
 
     @Override
     public void interceptPacket(final Packet packet, final Session session, final boolean incoming, final boolean processed) {
-        if (session != null && !processed) {
-            String hostAddress;
-            try {
-                hostAddress = "/" + session.getHostAddress() + ":?????";
-            } catch (final UnknownHostException ignored) {
-                hostAddress = "";
+        // The parse failure detector relies on every parsed inbound packet being reported, regardless of logging.
+        final boolean tracked = incoming && ParseFailureDetector.isEnabled();
+        final boolean logging = DebuggerPlugin.isLogging();
+        if (session == null || processed || (!tracked && !logging)) {
+            return;
+        }
+        final DebuggerPlugin plugin = DebuggerPlugin.getInstance();
+        final ConnectionInfo connection = plugin != null ? plugin.getConnectionRegistry().getBySession(session) : null;
+        if (tracked && connection != null) {
+            plugin.getParseFailureDetector().interpreted(connection);
+        }
+        if (logging) {
+            // Packets of sessions of which the connection is unknown (for example, because the stream ID was not yet
+            // observed) cannot be evaluated by the filter, and are captured only while no filter is configured.
+            if (plugin != null) {
+                final ConnectionRegistry registry = plugin.getConnectionRegistry();
+                if (connection != null ? !registry.isCaptured(connection) : !registry.getFilter().isEmpty()) {
+                    return;
+                }
             }
-            // Pad this out so it aligns with the RawPrintChannelHandlerFactory output
-            DebuggerPlugin.log(String.format("INT %-16s - %s - (%11s): %s", hostAddress, incoming ? "RECV" : "SENT", session.getStreamID(), packet.toXML()));
+            // The packet can be modified after it has been intercepted, so a copy is logged. Serializing it, and looking
+            // up the address of the session, are left to the log writer.
+            DebuggerPlugin.log(CaptureEntry.ofPacket(connection, session, System.currentTimeMillis(), incoming, packet.createCopy()).statistics(statistics));
         }
     }
 
@@ -78,9 +96,23 @@ public class InterpretedXMLPrinter implements PacketInterceptor {
         } else {
             LOGGER.info("Interpreted XML logger disabled");
             shutdown();
+            // Without interception of packets, every tracked stanza would be reported as a parse failure.
+            final DebuggerPlugin plugin = DebuggerPlugin.getInstance();
+            if (plugin != null) {
+                plugin.getParseFailureDetector().stopTracking();
+            }
         }
     }
 
+    /**
+     * Returns the statistics of the packets that were logged.
+     *
+     * @return logging statistics.
+     */
+    LoggingStatistics getStatistics() {
+        return statistics;
+    }
+
     void shutdown() {
         InterceptorManager.getInstance().removeInterceptor(this);
     }
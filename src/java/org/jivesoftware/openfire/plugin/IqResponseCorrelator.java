@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import org.jivesoftware.openfire.interceptor.InterceptorManager;
+import org.jivesoftware.openfire.interceptor.PacketInterceptor;
+import org.jivesoftware.openfire.session.Session;
+import org.xmpp.packet.IQ;
+import org.xmpp.packet.JID;
+import org.xmpp.packet.Packet;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Correlates IQ responses with IQ requests that were sent by this plugin, such as those of the {@link StanzaSenderServlet}.
+ *
+ * A single packet interceptor serves all pending requests. It is registered with Openfire only while at least one
+ * request is pending, and costs every intercepted IQ response one hash lookup, regardless of the amount of pending
+ * requests. A pending request is keyed by its ID and by the address that is expected to respond (the address that the
+ * request was sent to). A request that is not answered within its timeout is evicted, completing its future with a
+ * {@link java.util.concurrent.TimeoutException}. A request that is cancelled by its sender is evicted immediately, unless
+ * other senders still await a response to a request with the same ID and recipient.
+ */
+public class IqResponseCorrelator implements PacketInterceptor
+{
+    private final Map<Key, PendingRequest> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Pending requests that were sent without a recipient, keyed by their ID only, as these can be answered by the server
+     * or on behalf of the account of the sender.
+     */
+    private final Map<String, PendingRequest> pendingWithoutRecipient = new ConcurrentHashMap<>();
+
+    private boolean registered; // Guarded by 'this'.
+
+    /**
+     * Starts waiting for the response to a request. This must be invoked before the request is sent.
+     *
+     * When another pending request has the same ID and recipient, both wait for the same response, until the timeout of
+     * the request that was registered first. Each caller receives a future of its own.
+     *
+     * @param request the request (must have an ID).
+     * @param timeout the maximum time to wait for the response.
+     * @return a future that is completed with the response, or exceptionally on timeout. Cancelling it (for example
+     * when the request could not be sent) stops the wait of this caller. The pending request is evicted immediately
+     * when no other caller awaits its response.
+     */
+    CompletableFuture<IQ> register(final IQ request, final Duration timeout)
+    {
+        final String id = Objects.requireNonNull(request.getID(), "The request must have an ID.");
+        final JID recipient = request.getTo();
+        CompletableFuture<IQ> waiter;
+        do {
+            final PendingRequest entry;
+            if (recipient == null) {
+                entry = pendingWithoutRecipient.compute(id, (key, existing) -> existing != null && !existing.source.isDone() ? existing
+                    : new PendingRequest(timeout, evicted -> pendingWithoutRecipient.remove(key, evicted)));
+            } else {
+                entry = pending.compute(new Key(id, recipient.toString()), (key, existing) -> existing != null && !existing.source.isDone() ? existing
+                    : new PendingRequest(timeout, evicted -> pending.remove(key, evicted)));
+            }
+            waiter = entry.addWaiter();
+        } while (waiter == null); // All earlier callers cancelled the request in the meantime.
+        updateRegistration();
+        return waiter;
+    }
+
+    /**
+     * Checks whether the wait for a response failed because no response was received within the timeout. Callbacks that
+     * are attached to the future of a request through a dependent stage receive the timeout wrapped in a
+     * {@link CompletionException}, which is unwrapped.
+     *
+     * @param failure the failure with which the wait (or a stage that depends on it) completed, possibly null.
+     * @return true if the failure is a timeout.
+     */
+    static boolean isTimeout(final Throwable failure)
+    {
+        return (failure instanceof CompletionException ? failure.getCause() : failure) instanceof TimeoutException;
+    }
+
+    /**
+     * Returns the amount of requests for which a response is awaited.
+     *
+     * @return a request count.
+     */
+    int getPendingCount()
+    {
+        return pending.size() + pendingWithoutRecipient.size();
+    }
+
+    /**
+     * Registers the interceptor when requests are pending, and removes it when none are.
+     */
+    private synchronized void updateRegistration()
+    {
+        final boolean required = !pending.isEmpty() || !pendingWithoutRecipient.isEmpty();
+        if (required != registered) {
+            if (required) {
+                InterceptorManager.getInstance().addInterceptor(this);
+            } else {
+                InterceptorManager.getInstance().removeInterceptor(this);
+            }
+            registered = required;
+        }
+    }
+
+    @Override
+    public void interceptPacket(final Packet packet, final Session session, final boolean incoming, final boolean processed)
+    {
+        if (processed || !(packet instanceof IQ) || !((IQ) packet).isResponse() || packet.getID() == null) {
+            return;
+        }
+        PendingRequest request = null;
+        if (!pending.isEmpty() && packet.getFrom() != null) {
+            request = pending.get(new Key(packet.getID(), packet.getFrom().toString()));
+        }
+        if (request == null && !pendingWithoutRecipient.isEmpty()) {
+            request = pendingWithoutRecipient.get(packet.getID());
+        }
+        if (request != null) {
+            request.source.complete(((IQ) packet).createCopy());
+        }
+    }
+
+    /**
+     * Stops waiting for all pending requests, and removes the interceptor.
+     */
+    void shutdown()
+    {
+        pending.values().forEach(request -> request.source.completeExceptionally(new CancellationException("The plugin is being unloaded.")));
+        pendingWithoutRecipient.values().forEach(request -> request.source.completeExceptionally(new CancellationException("The plugin is being unloaded.")));
+        pending.clear();
+        pendingWithoutRecipient.clear();
+        updateRegistration();
+    }
+
+    /**
+     * A request of which the response is awaited by one or more callers. The request is evicted when its future
+     * completes in any way: with a response, on timeout, or by being cancelled when its last caller stops waiting.
+     */
+    private final class PendingRequest
+    {
+        private final CompletableFuture<IQ> source = new CompletableFuture<>();
+        private int waiters; // Guarded by 'this'.
+
+        private PendingRequest(final Duration timeout, final Consumer<PendingRequest> eviction)
+        {
+            source.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).whenComplete((response, failure) -> {
+                eviction.accept(this);
+                updateRegistration();
+            });
+        }
+
+        /**
+         * Adds a caller that awaits the response.
+         *
+         * @return a future for the caller, or null if the request completed, for example because all earlier callers
+         * cancelled it.
+         */
+        private synchronized CompletableFuture<IQ> addWaiter()
+        {
+            if (source.isDone()) {
+                return null;
+            }
+            waiters++;
+            final CompletableFuture<IQ> waiter = new CompletableFuture<>();
+            source.whenComplete((response, failure) -> {
+                if (failure != null) {
+                    waiter.completeExceptionally(failure);
+                } else {
+                    waiter.complete(response);
+                }
+            });
+            waiter.whenComplete((response, failure) -> {
+                if (waiter.isCancelled() && !source.isDone()) {
+                    removeWaiter();
+                }
+            });
+            return waiter;
+        }
+
+        private synchronized void removeWaiter()
+        {
+            if (--waiters == 0) {
+                source.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Identifies a pending request by its ID and by the address from which the response is expected.
+     */
+    private static final class Key
+    {
+        private final String id;
+        private final String responder;
+
+        private Key(final String id, final String responder)
+        {
+            this.id = id;
+            this.responder = responder;
+        }
+
+        @Override
+        public boolean equals(final Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return id.equals(other.id) && responder.equals(other.responder);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * id.hashCode() + responder.hashCode();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import org.jivesoftware.openfire.session.Session;
+
+import java.net.UnknownHostException;
+
+/**
+ * Renders {@link CaptureEntry} instances as single-line JSON objects, for consumption by log pipelines.
+ *
+ * Every object has a <tt>timestamp</tt> and a <tt>type</tt> (eg: "RECV"). Entries of a connection or session add the
+ * <tt>source</tt> ("raw" or "interpreted"), <tt>portType</tt>, <tt>connectionId</tt>, <tt>sequence</tt>,
+ * <tt>direction</tt> ("in" or "out"), <tt>remoteAddress</tt> and <tt>streamId</tt> fields, where these are known. Entries
+ * with a payload add its <tt>payloadLength</tt> (in bytes for raw traffic, in characters otherwise) and the
+ * <tt>payload</tt> itself. Preformatted entries have a <tt>message</tt> instead.
+ *
+ * JSON is written directly into the builder that is passed, without building an object tree. Like the
+ * {@link TextLayout} (which is used to format timestamps and decode raw payloads), instances are not thread-safe.
+ */
+class JsonLayout
+{
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final TextLayout textLayout = new TextLayout();
+    private final StringBuilder scratch = new StringBuilder(1024);
+
+    /**
+     * Appends the JSON representation of an entry to a builder.
+     *
+     * @param entry the entry to render.
+     * @param out the builder to append to.
+     */
+    void format(final CaptureEntry entry, final StringBuilder out)
+    {
+        final ConnectionInfo connection = entry.getConnection();
+        final Session session = entry.getSession();
+
+        out.append("{\"timestamp\":\"");
+        textLayout.appendTimestamp(entry.getTimestamp(), out);
+        out.append('"');
+        if (entry.getType() != null) {
+            appendField("type", entry.getType(), out);
+        }
+        if (connection != null || session != null) {
+            appendField("source", session != null ? "interpreted" : "raw", out);
+        }
+        if (connection != null) {
+            appendField("portType", connection.getPortType(), out);
+            out.append(",\"connectionId\":").append(connection.getConnectionId());
+            if (entry.getSequence() > 0) {
+                out.append(",\"sequence\":").append(entry.getSequence());
+            }
+        }
+        if ("RECV".equals(entry.getType()) || "SENT".equals(entry.getType())) {
+            appendField("direction", "RECV".equals(entry.getType()) ? "in" : "out", out);
+        }
+        if (session != null) {
+            try {
+                appendField("remoteAddress", session.getHostAddress(), out);
+            } catch (final UnknownHostException ignored) {
+                // The address is not included.
+            }
+            appendField("streamId", String.valueOf(session.getStreamID()), out);
+        } else if (connection != null) {
+            appendField("remoteAddress", connection.getRemoteAddress(), out);
+            final String streamId = connection.getLatestStreamId();
+            if (streamId != null) {
+                appendField("streamId", streamId, out);
+            }
+        }
+        if (entry.getHeader() != null) {
+            appendField("message", entry.getHeader(), out);
+        }
+
+        if (entry.hasPayload()) {
+            scratch.setLength(0);
+            if (entry.getContent() != null) {
+                textLayout.appendUtf8(entry.getContent(), scratch);
+            } else if (entry.getText() != null) {
+                scratch.append(entry.getText());
+            } else {
+                final String xml = entry.getPacket().toXML();
+                entry.setRenderedPacketLength(xml.length());
+                scratch.append(xml);
+                final Redactor redactor = Redactor.current();
+                if (redactor != null) {
+                    redactor.redact(scratch, 0);
+                }
+            }
+            out.append(",\"payloadLength\":").append(entry.getPayloadSize());
+            out.append(",\"payload\":");
+            appendString(scratch, out);
+        }
+        out.append('}');
+    }
+
+    private static void appendField(final String name, final CharSequence value, final StringBuilder out)
+    {
+        out.append(",\"").append(name).append("\":");
+        appendString(value, out);
+    }
+
+    /**
+     * Appends a JSON string literal, escaping quotes, backslashes and control characters.
+     *
+     * @param value the value of the string.
+     * @param out the builder to append to.
+     */
+    static void appendString(final CharSequence value, final StringBuilder out)
+    {
+        out.append('"');
+        final int length = value.length();
+        int unescaped = 0; // The start of the characters that can be appended as they are.
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            out.append(value, unescaped, i);
+            unescaped = i + 1;
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            }
+        }
+        out.append(value, unescaped, length).append('"');
+    }
+
+    /**
+     * Shrinks internal buffers that grew to accommodate an exceptionally large payload.
+     */
+    void trim()
+    {
+        if (scratch.capacity() > 1024 * 1024) {
+            scratch.setLength(0);
+            scratch.trimToSize();
+        }
+        textLayout.trim();
+    }
+}
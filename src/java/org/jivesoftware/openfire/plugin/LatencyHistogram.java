@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent histogram of latencies, in microseconds, with a bounded relative error.
+ *
+ * Unlike the {@link FrameSizeHistogram}, every power-of-two range is divided into {@value #SUB_BUCKETS} buckets of equal
+ * width (values below {@value #SUB_BUCKETS} are counted exactly). A percentile is reported as the upper bound of the
+ * bucket that contains it, which is at most about 3% above the actual value. Values are recorded in a fixed array of
+ * counters: recording allocates nothing, and takes a single atomic increment.
+ */
+public class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The highest value that is distinguished (about 19 hours). Higher values are counted as this value.
+     */
+    private static final long MAX_VALUE = (1L << 36) - 1;
+    private static final int BUCKETS = indexOf(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    void record(final long micros)
+    {
+        final long value = Math.max(0, Math.min(MAX_VALUE, micros));
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    private static int indexOf(final long value)
+    {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - 1 - SUB_BUCKET_BITS;
+        return SUB_BUCKETS * (shift + 1) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    private static long upperBoundOf(final int index)
+    {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = index / SUB_BUCKETS - 1;
+        final long subBucket = index % SUB_BUCKETS;
+        return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Returns an (over)estimate of a percentile of the recorded latencies.
+     *
+     * @param percentile the percentile (between 0 and 100).
+     * @return the upper bound of the bucket that contains the percentile, in microseconds, or 0 if nothing was recorded.
+     */
+    public long getPercentile(final double percentile)
+    {
+        final long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    public long getCount()
+    {
+        return count.sum();
+    }
+
+    public long getMean()
+    {
+        final long total = count.sum();
+        return total == 0 ? 0 : sum.sum() / total;
+    }
+
+    public long getMax()
+    {
+        return max.get();
+    }
+
+    /**
+     * Appends a JSON object with the count, mean, commonly used percentiles and maximum (in microseconds) to a builder,
+     * for the live reports of the admin console.
+     *
+     * @param out the builder to append to.
+     */
+    void appendJson(final StringBuilder out)
+    {
+        out.append("{\"count\":").append(getCount())
+            .append(",\"mean\":").append(getMean())
+            .append(",\"p50\":").append(getPercentile(50))
+            .append(",\"p90\":").append(getPercentile(90))
+            .append(",\"p99\":").append(getPercentile(99))
+            .append(",\"p999\":").append(getPercentile(99.9))
+            .append(",\"max\":").append(getMax())
+            .append('}');
+    }
+}
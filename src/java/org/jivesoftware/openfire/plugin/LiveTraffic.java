@@ -0,0 +1,300 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import org.jivesoftware.util.SystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.UnknownHostException;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes logged entries to subscribers (typically, admin console pages that stream traffic to a browser).
+ *
+ * Entries are published by the {@link AsyncLogWriter}, on its drainer thread, after they have been written to the
+ * other outputs. Each subscriber has a filter and a bounded queue of rendered entries. When the queue of a subscriber is
+ * full, entries for that subscriber are dropped (and counted), so that a slow subscriber never delays the log writer,
+ * let alone the threads that observe traffic.
+ *
+ * While there is at least one subscriber, traffic is captured as if it was being logged (see
+ * {@link DebuggerPlugin#isLogging()}).
+ */
+public class LiveTraffic
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(LiveTraffic.class);
+
+    public static final SystemProperty<Integer> maxSubscribersProperty = SystemProperty.Builder.ofType(Integer.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "live.maxSubscribers")
+        .setDefaultValue(5)
+        .setMinValue(0)
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .build();
+    public static final SystemProperty<Integer> queueCapacityProperty = SystemProperty.Builder.ofType(Integer.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "live.queueCapacity")
+        .setDefaultValue(1000)
+        .setMinValue(1)
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .build();
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Cached outcome of {@code !subscribers.isEmpty()}, which is read for every frame that is observed.
+     */
+    private volatile boolean hasSubscribers;
+
+    /**
+     * Registers a subscriber, unless the maximum amount of subscribers has been reached.
+     *
+     * @param filter the filter that entries must match to be published to the subscriber.
+     * @return the subscriber, or null if there are too many subscribers.
+     */
+    synchronized Subscriber subscribe(final Filter filter)
+    {
+        if (subscribers.size() >= maxSubscribersProperty.getValue()) {
+            return null;
+        }
+        final Subscriber subscriber = new Subscriber(filter, queueCapacityProperty.getValue());
+        subscribers.add(subscriber);
+        hasSubscribers = true;
+        return subscriber;
+    }
+
+    synchronized void unsubscribe(final Subscriber subscriber)
+    {
+        subscriber.closed = true;
+        subscribers.remove(subscriber);
+        hasSubscribers = !subscribers.isEmpty();
+    }
+
+    /**
+     * Unsubscribes all subscribers.
+     */
+    synchronized void clear()
+    {
+        for (final Subscriber subscriber : subscribers) {
+            subscriber.closed = true;
+        }
+        subscribers.clear();
+        hasSubscribers = false;
+    }
+
+    boolean hasSubscribers()
+    {
+        return hasSubscribers;
+    }
+
+    public int getSubscriberCount()
+    {
+        return subscribers.size();
+    }
+
+    /**
+     * Publishes entries to all subscribers of which the filter matches them. An entry is rendered at most once, and
+     * only when at least one subscriber is interested in it. Must only be invoked by the log writer thread.
+     *
+     * An entry that cannot be rendered is not published, and its position in the batch is added to the failed entries.
+     *
+     * @param batch the entries to publish.
+     * @param layout the layout used to render entries.
+     * @param line a buffer to render entries into.
+     * @param failed the positions of entries in the batch that could not be written.
+     */
+    void publish(final List<CaptureEntry> batch, final TextLayout layout, final StringBuilder line, final BitSet failed)
+    {
+        if (!hasSubscribers) {
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            final CaptureEntry entry = batch.get(i);
+            String rendered = null;
+            for (final Subscriber subscriber : subscribers) {
+                if (!subscriber.filter.accepts(entry)) {
+                    continue;
+                }
+                if (rendered == null) {
+                    line.setLength(0);
+                    try {
+                        layout.format(entry, line);
+                    } catch (final RuntimeException e) {
+                        LOGGER.debug("Unable to render a log entry for live traffic subscribers.", e);
+                        failed.set(i);
+                        break;
+                    }
+                    rendered = line.toString();
+                }
+                if (subscriber.filter.acceptsText(rendered) && !subscriber.queue.offer(rendered)) {
+                    subscriber.dropped.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Selects the entries that are published to a subscriber. Criteria that are null or empty match every entry.
+     */
+    static final class Filter
+    {
+        private final String portType;
+        private final String direction;
+        private final String address;
+        private final String text;
+
+        /**
+         * @param portType the connection type (eg: "C2S-STARTTLS"), matched case-insensitively.
+         * @param direction "RECV" or "SENT", matched case-insensitively.
+         * @param address a part of the remote address of the connection.
+         * @param text a part of the rendered entry (its header or payload).
+         */
+        Filter(final String portType, final String direction, final String address, final String text)
+        {
+            this.portType = emptyToNull(portType);
+            this.direction = emptyToNull(direction);
+            this.address = emptyToNull(address);
+            this.text = emptyToNull(text);
+        }
+
+        private static String emptyToNull(final String value)
+        {
+            return value == null || value.trim().isEmpty() ? null : value.trim();
+        }
+
+        boolean accepts(final CaptureEntry entry)
+        {
+            if (direction != null && !direction.equalsIgnoreCase(entry.getType())) {
+                return false;
+            }
+            final ConnectionInfo connection = entry.getConnection();
+            if (portType != null && (connection == null || !portType.equalsIgnoreCase(connection.getPortType()))) {
+                return false;
+            }
+            if (address != null) {
+                final String remoteAddress;
+                if (connection != null) {
+                    remoteAddress = connection.getRemoteAddress();
+                } else if (entry.getSession() != null) {
+                    remoteAddress = hostAddressOf(entry);
+                } else {
+                    remoteAddress = null;
+                }
+                return remoteAddress != null && remoteAddress.toLowerCase(Locale.ROOT).contains(address.toLowerCase(Locale.ROOT));
+            }
+            return true;
+        }
+
+        boolean acceptsText(final String rendered)
+        {
+            return text == null || rendered.contains(text);
+        }
+
+        private static String hostAddressOf(final CaptureEntry entry)
+        {
+            try {
+                return entry.getSession().getHostAddress();
+            } catch (final UnknownHostException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * A subscriber to published entries. Entries are queued for the subscriber, to be taken by the thread that serves
+     * it.
+     */
+    static final class Subscriber
+    {
+        private final Filter filter;
+        private final BlockingQueue<String> queue;
+        private final AtomicLong dropped = new AtomicLong();
+        private volatile boolean closed;
+
+        private Subscriber(final Filter filter, final int capacity)
+        {
+            this.filter = filter;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        /**
+         * Waits for at least one entry to be published, and moves all published entries to a collection.
+         *
+         * @param target the collection to add entries to.
+         * @param timeout the maximum time to wait.
+         * @param unit the unit of the timeout.
+         * @return the amount of entries that were added (0 when the timeout elapsed).
+         * @throws InterruptedException if the thread was interrupted while waiting.
+         */
+        int take(final List<String> target, final long timeout, final TimeUnit unit) throws InterruptedException
+        {
+            final String first = queue.poll(timeout, unit);
+            if (first == null) {
+                return 0;
+            }
+            target.add(first);
+            return 1 + queue.drainTo(target);
+        }
+
+        /**
+         * Moves all published entries to a collection, without waiting.
+         *
+         * @param target the collection to add entries to.
+         * @return the amount of entries that were added.
+         */
+        int drainTo(final List<String> target)
+        {
+            return queue.drainTo(target);
+        }
+
+        /**
+         * Checks if there is anything to send to the subscriber: published entries, or a count of dropped entries.
+         *
+         * @return true if entries were published or dropped since they were last taken.
+         */
+        boolean hasPending()
+        {
+            return !queue.isEmpty() || dropped.get() > 0;
+        }
+
+        /**
+         * Returns the amount of entries that were dropped since the last invocation of this method.
+         *
+         * @return a count of dropped entries.
+         */
+        long takeDroppedCount()
+        {
+            return dropped.getAndSet(0);
+        }
+
+        /**
+         * Checks if this subscriber was unsubscribed (eg: because the plugin is being unloaded).
+         *
+         * @return true if no more entries will be published to this subscriber.
+         */
+        boolean isClosed()
+        {
+            return closed;
+        }
+    }
+}
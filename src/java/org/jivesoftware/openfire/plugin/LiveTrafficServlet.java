@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import org.jivesoftware.util.ParamUtils;
+import org.jivesoftware.util.TaskEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admin console page that streams logged entries to the browser as they are captured, using Server-Sent Events.
+ *
+ * Without a <tt>stream</tt> parameter, the page is rendered. With it, the response is an event stream of entries that
+ * match the filter that is defined by the other parameters, which lasts until the browser disconnects. Where the
+ * container supports it, the stream is served asynchronously: a timer task checks every stream for entries, and hands
+ * the writing of those to a container thread, which is released again as soon as the entries are written. Otherwise,
+ * each stream occupies a request thread of the admin console for its duration.
+ */
+@SuppressWarnings("serial")
+public class LiveTrafficServlet extends HttpServlet
+{
+    private static final Logger Log = LoggerFactory.getLogger(LiveTrafficServlet.class);
+
+    /**
+     * Interval at which a comment is sent when there are no entries, so that proxies and the server do not close an
+     * idle stream, and so that a disconnected browser is detected.
+     */
+    private static final long HEARTBEAT_SECONDS = 15;
+
+    /**
+     * Interval at which asynchronously served streams are checked for entries.
+     */
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(250);
+
+    private static DebuggerPlugin plugin;
+
+    @Override
+    public void init() {
+        plugin = DebuggerPlugin.getInstance();
+    }
+
+    @Override
+    protected void doGet(final HttpServletRequest request, final HttpServletResponse response) throws ServletException, IOException
+    {
+        if (!ParamUtils.getBooleanParameter(request, "stream")) {
+            request.setAttribute("subscriberCount", plugin.getLiveTraffic().getSubscriberCount());
+            request.setAttribute("maxSubscribers", LiveTraffic.maxSubscribersProperty.getValue());
+            request.getRequestDispatcher("live-traffic.jsp").forward(request, response);
+            return;
+        }
+
+        final LiveTraffic.Filter filter = new LiveTraffic.Filter(
+            ParamUtils.getParameter(request, "portType"),
+            ParamUtils.getParameter(request, "direction"),
+            ParamUtils.getParameter(request, "address"),
+            ParamUtils.getParameter(request, "text", true));
+
+        final LiveTraffic.Subscriber subscriber = plugin.getLiveTraffic().subscribe(filter);
+        if (subscriber == null) {
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "The maximum amount of live traffic streams has been reached.");
+            return;
+        }
+        boolean async = false;
+        try {
+            response.setContentType("text/event-stream");
+            response.setCharacterEncoding("UTF-8");
+            response.setHeader("Cache-Control", "no-cache");
+            response.setHeader("X-Accel-Buffering", "no"); // Disables buffering by reverse proxies that honor this.
+            final PrintWriter writer = response.getWriter();
+            writer.write("retry: 5000\n\n");
+            writer.flush();
+
+            if (request.isAsyncSupported()) {
+                // Release the container thread: entries are written by container threads as they become available.
+                final AsyncContext asyncContext = request.startAsync();
+                asyncContext.setTimeout(0); // The stream lasts until the browser disconnects.
+                final AsyncStream stream = new AsyncStream(asyncContext, subscriber, writer);
+                asyncContext.addListener(stream);
+                TaskEngine.getInstance().scheduleAtFixedRate(stream.poller, POLL_INTERVAL, POLL_INTERVAL);
+                async = true;
+                return;
+            }
+
+            // The container (or a filter in front of this servlet) does not allow the request to be completed later.
+            final List<String> entries = new ArrayList<>();
+            while (!subscriber.isClosed() && !writer.checkError()) {
+                entries.clear();
+                if (subscriber.take(entries, HEARTBEAT_SECONDS, TimeUnit.SECONDS) == 0) {
+                    writer.write(": heartbeat\n\n");
+                }
+                writeEntries(writer, subscriber, entries);
+                writer.flush(); // Sets the error state that is checked above, when the browser has disconnected.
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (!async) {
+                plugin.getLiveTraffic().unsubscribe(subscriber);
+            }
+        }
+    }
+
+    /**
+     * Writes the count of dropped entries (if any), followed by entries that were taken from a subscriber.
+     */
+    private static void writeEntries(final PrintWriter writer, final LiveTraffic.Subscriber subscriber, final List<String> entries)
+    {
+        final long dropped = subscriber.takeDroppedCount();
+        if (dropped > 0) {
+            writer.write("event: dropped\ndata: " + dropped + "\n\n");
+        }
+        for (final String entry : entries) {
+            writeEvent(writer, entry);
+        }
+    }
+
+    /**
+     * Writes a (possibly multi-line) entry as a single event, in which every line is a data field.
+     */
+    private static void writeEvent(final PrintWriter writer, final String entry)
+    {
+        int start = 0;
+        while (start <= entry.length()) {
+            int end = entry.indexOf('\n', start);
+            if (end < 0) {
+                end = entry.length();
+            }
+            final int lineEnd = end > start && entry.charAt(end - 1) == '\r' ? end - 1 : end;
+            writer.write("data: ");
+            writer.write(entry, start, lineEnd - start);
+            writer.write('\n');
+            start = end + 1;
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * An asynchronously served event stream. It is checked for entries by a timer task, which never blocks: writing is
+     * done on a container thread, and at most one write per stream is in progress at any time. The stream is finished
+     * exactly once: when the browser disconnects, when the subscriber is closed, or when the container completes or
+     * fails the request, whichever happens first.
+     */
+    private static final class AsyncStream implements AsyncListener
+    {
+        private final AsyncContext asyncContext;
+        private final LiveTraffic.Subscriber subscriber;
+        private final PrintWriter writer;
+        private final List<String> entries = new ArrayList<>();
+        private final AtomicBoolean writing = new AtomicBoolean();
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private volatile long lastWrite = System.nanoTime();
+
+        private final TimerTask poller = new TimerTask() {
+            @Override
+            public void run() {
+                poll();
+            }
+        };
+
+        private AsyncStream(final AsyncContext asyncContext, final LiveTraffic.Subscriber subscriber, final PrintWriter writer)
+        {
+            this.asyncContext = asyncContext;
+            this.subscriber = subscriber;
+            this.writer = writer;
+        }
+
+        /**
+         * Invoked by the timer task. Starts a write on a container thread when there is something to write.
+         */
+        private void poll()
+        {
+            if (finished.get()) {
+                return;
+            }
+            final boolean heartbeatDue = System.nanoTime() - lastWrite >= TimeUnit.SECONDS.toNanos(HEARTBEAT_SECONDS);
+            if (!subscriber.isClosed() && !subscriber.hasPending() && !heartbeatDue) {
+                return;
+            }
+            if (!writing.compareAndSet(false, true)) {
+                return; // The previous write is still in progress.
+            }
+            try {
+                asyncContext.start(this::write);
+            } catch (final IllegalStateException e) {
+                // The container completed the request in the meantime.
+                writing.set(false);
+                finish();
+            }
+        }
+
+        private void write()
+        {
+            try {
+                if (subscriber.isClosed()) {
+                    finish();
+                    return;
+                }
+                entries.clear();
+                if (subscriber.drainTo(entries) == 0 && !subscriber.hasPending()) {
+                    writer.write(": heartbeat\n\n");
+                }
+                writeEntries(writer, subscriber, entries);
+                writer.flush();
+                lastWrite = System.nanoTime();
+                if (writer.checkError()) {
+                    finish(); // The browser has disconnected.
+                }
+            } catch (final RuntimeException e) {
+                Log.debug("Unable to write live traffic to the admin console.", e);
+                finish();
+            } finally {
+                entries.clear();
+                writing.set(false);
+            }
+        }
+
+        private void finish()
+        {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            TaskEngine.getInstance().cancelScheduledTask(poller);
+            plugin.getLiveTraffic().unsubscribe(subscriber);
+            try {
+                asyncContext.complete();
+            } catch (final IllegalStateException e) {
+                Log.trace("The request was already completed.", e);
+            }
+        }
+
+        @Override
+        public void onComplete(final AsyncEvent event)
+        {
+            finish();
+        }
+
+        @Override
+        public void onTimeout(final AsyncEvent event)
+        {
+            finish();
+        }
+
+        @Override
+        public void onError(final AsyncEvent event)
+        {
+            finish();
+        }
+
+        @Override
+        public void onStartAsync(final AsyncEvent event)
+        {
+        }
+    }
+}
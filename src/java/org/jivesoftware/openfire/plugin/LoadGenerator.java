@@ -0,0 +1,481 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import org.dom4j.Element;
+import org.jivesoftware.openfire.XMPPServer;
+import org.jivesoftware.openfire.session.Session;
+import org.jivesoftware.util.SAXReaderUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xmpp.packet.IQ;
+import org.xmpp.packet.Packet;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends a stanza template repeatedly, at a target rate, to measure the routing latency of a live server without external
+ * tooling.
+ *
+ * A template is the XML of a stanza, in which the placeholders <tt>{n}</tt> (the sequence number of the stanza, starting
+ * at 1), <tt>{random}</tt> (a random identifier) and <tt>{domain}</tt> (the XMPP domain of this server) are replaced.
+ * Every IQ request is given a unique ID, and its response is awaited through the {@link IqResponseCorrelator}. At most
+ * a configured amount of IQ requests await a response at any time: when that amount is reached, sending is delayed.
+ *
+ * Stanzas are sent on a schedule of fixed intervals. Latency is measured from the time at which a request was scheduled
+ * to be sent (rather than from the time it was actually sent), so that delays in sending, caused by a server that cannot
+ * keep up, are included in the reported latency rather than hidden by it.
+ *
+ * At most one run is active at a time. The most recent run is retained, so that its results can be viewed after it ended.
+ */
+public class LoadGenerator
+{
+    private static final Logger Log = LoggerFactory.getLogger(LoadGenerator.class);
+
+    static final String ROUTER = "router";
+    static final Duration RESPONSE_TIMEOUT = Duration.ofSeconds(15);
+
+    private final IqResponseCorrelator correlator;
+    private final AtomicInteger runNumbers = new AtomicInteger();
+    private volatile Run run;
+
+    public LoadGenerator(final IqResponseCorrelator correlator)
+    {
+        this.correlator = correlator;
+    }
+
+    /**
+     * Starts a run, unless one is already active.
+     *
+     * @param settings the template and parameters of the run.
+     * @return the run that was started.
+     * @throws IllegalStateException if a run is already active.
+     * @throws IllegalArgumentException if the template is not a valid stanza, or the selected connection is not available.
+     */
+    synchronized Run start(final Settings settings)
+    {
+        if (run != null && run.getState() != State.FINISHED) {
+            throw new IllegalStateException("A load test is already running.");
+        }
+        final Session session;
+        if (ROUTER.equals(settings.connection)) {
+            session = null;
+        } else {
+            session = DebuggerPlugin.getInstance().getSessionIndex().resolve(settings.connection);
+            if (session == null) {
+                throw new IllegalArgumentException("The selected connection is no longer available.");
+            }
+        }
+        final Template template = new Template(settings.template, XMPPServer.getInstance().getServerInfo().getXMPPDomain());
+        run = new Run(runNumbers.incrementAndGet(), settings, template, session);
+        run.thread.start();
+        return run;
+    }
+
+    /**
+     * Stops sending stanzas in the active run, if any. Responses that are awaited are still counted.
+     */
+    void stop()
+    {
+        final Run current = run;
+        if (current != null) {
+            current.stopRequested = true;
+            LockSupport.unpark(current.thread);
+        }
+    }
+
+    /**
+     * Returns the active run, or the run that ended most recently.
+     *
+     * @return a run, or null if none was started.
+     */
+    public Run getRun()
+    {
+        return run;
+    }
+
+    /**
+     * Stops the active run, if any, and waits briefly for its thread to end.
+     */
+    void shutdown()
+    {
+        stop();
+        final Run current = run;
+        if (current != null) {
+            try {
+                current.thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public enum State
+    {
+        /**
+         * Stanzas are being sent.
+         */
+        RUNNING,
+
+        /**
+         * All stanzas were sent, and responses to IQ requests are still awaited.
+         */
+        DRAINING,
+
+        /**
+         * The run ended.
+         */
+        FINISHED
+    }
+
+    /**
+     * The parameters of a run.
+     */
+    static final class Settings
+    {
+        private final String template;
+        private final String connection;
+        private final int rate;
+        private final int concurrency;
+        private final int durationSeconds;
+        private final long count;
+
+        /**
+         * @param template the stanza template.
+         * @param connection the connection to send through (<tt>router</tt> for the packet router, otherwise a value of
+         *                   the {@link SessionIndex}).
+         * @param rate the amount of stanzas to send per second.
+         * @param concurrency the maximum amount of IQ requests that await a response.
+         * @param durationSeconds the maximum duration of the run.
+         * @param count the maximum amount of stanzas to send, or 0 for no maximum.
+         */
+        Settings(final String template, final String connection, final int rate, final int concurrency, final int durationSeconds, final long count)
+        {
+            this.template = template;
+            this.connection = connection;
+            this.rate = rate;
+            this.concurrency = concurrency;
+            this.durationSeconds = durationSeconds;
+            this.count = count;
+        }
+    }
+
+    /**
+     * A stanza template, split into literal text and placeholders. A template without placeholders that vary per stanza
+     * is parsed only once.
+     */
+    private static final class Template
+    {
+        private static final String SEQUENCE = "{n}";
+        private static final String RANDOM = "{random}";
+
+        private final List<String> parts = new ArrayList<>(); // Literal text, alternated with placeholders.
+        private final Element constant;
+
+        private Template(final String template, final String domain)
+        {
+            final String text = template.replace("{domain}", domain);
+            int start = 0;
+            while (true) {
+                final int sequence = text.indexOf(SEQUENCE, start);
+                final int random = text.indexOf(RANDOM, start);
+                final int next = sequence < 0 ? random : (random < 0 ? sequence : Math.min(sequence, random));
+                if (next < 0) {
+                    parts.add(text.substring(start));
+                    break;
+                }
+                parts.add(text.substring(start, next));
+                parts.add(next == sequence ? SEQUENCE : RANDOM);
+                start = next + parts.get(parts.size() - 1).length();
+            }
+            // Fail early on templates that are not valid stanzas.
+            final Element first = parse(render(1));
+            if (StanzaSenderServlet.toPacket(first) == null) {
+                throw new IllegalArgumentException("Unable to parse provided input as XMPP. Unrecognized element name: " + first.getName());
+            }
+            this.constant = parts.size() == 1 ? first : null;
+        }
+
+        private String render(final long sequence)
+        {
+            final StringBuilder result = new StringBuilder(parts.get(0));
+            for (int i = 1; i < parts.size(); i += 2) {
+                result.append(SEQUENCE.equals(parts.get(i)) ? String.valueOf(sequence) : UUID.randomUUID().toString());
+                result.append(parts.get(i + 1));
+            }
+            return result.toString();
+        }
+
+        private static Element parse(final String xml)
+        {
+            try {
+                return SAXReaderUtil.readRootElement(xml);
+            } catch (final ExecutionException e) {
+                throw new IllegalArgumentException("Unable to parse provided input as XML.", e);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalArgumentException("Interrupted while parsing the provided input.", e);
+            }
+        }
+
+        private Packet create(final long sequence)
+        {
+            return StanzaSenderServlet.toPacket(constant != null ? constant.createCopy() : parse(render(sequence)));
+        }
+    }
+
+    /**
+     * A single run of the load generator, and its results so far.
+     */
+    public final class Run
+    {
+        private final Settings settings;
+        private final Template template;
+        private final Session session;
+        private final String idPrefix;
+        private final Thread thread;
+        private final Semaphore permits;
+
+        private final long startedAt = System.currentTimeMillis();
+        private final long startedNanos = System.nanoTime();
+        private volatile long endedNanos;
+        private volatile State state = State.RUNNING;
+        private volatile boolean stopRequested;
+
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder responses = new LongAdder();
+        private final LongAdder errorResponses = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder cancelled = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private Run(final int number, final Settings settings, final Template template, final Session session)
+        {
+            this.settings = settings;
+            this.template = template;
+            this.session = session;
+            this.idPrefix = "load" + number + '-';
+            this.permits = new Semaphore(settings.concurrency);
+            this.thread = new Thread(this::execute, "xmldebugger-load-generator");
+            this.thread.setDaemon(true);
+        }
+
+        private void execute()
+        {
+            final long interval = TimeUnit.SECONDS.toNanos(1) / settings.rate;
+            final long deadline = startedNanos + TimeUnit.SECONDS.toNanos(settings.durationSeconds);
+            try {
+                Log.info("Started load test: {} stanza(s) per second, concurrency {}, for at most {} second(s).", settings.rate, settings.concurrency, settings.durationSeconds);
+                for (long n = 1; !stopRequested && (settings.count == 0 || n <= settings.count); n++) {
+                    final long scheduled = startedNanos + (n - 1) * interval;
+                    if (scheduled - deadline >= 0 || !awaitUntil(scheduled)) {
+                        break;
+                    }
+                    final Packet packet;
+                    try {
+                        packet = template.create(n);
+                    } catch (final RuntimeException e) {
+                        Log.debug("Unable to create stanza {} of the load test.", n, e);
+                        failures.increment();
+                        continue;
+                    }
+                    CompletableFuture<IQ> result = null;
+                    if (packet instanceof IQ && ((IQ) packet).isRequest()) {
+                        packet.setID(idPrefix + n);
+                        if (!acquirePermit(deadline)) {
+                            break;
+                        }
+                        result = correlator.register((IQ) packet, RESPONSE_TIMEOUT);
+                        result.whenComplete((response, failure) -> onResult(scheduled, response, failure));
+                    }
+                    try {
+                        if (session != null) {
+                            session.process(packet);
+                        } else {
+                            XMPPServer.getInstance().getPacketRouter().route(packet);
+                        }
+                        sent.increment();
+                    } catch (final RuntimeException e) {
+                        Log.debug("Unable to send stanza {} of the load test.", n, e);
+                        failures.increment();
+                        if (result != null) {
+                            result.cancel(false);
+                        }
+                    }
+                }
+
+                // Wait for the responses that are still awaited: each of these holds a permit.
+                state = State.DRAINING;
+                if (permits.tryAcquire(settings.concurrency, RESPONSE_TIMEOUT.toMillis() + 1000, TimeUnit.MILLISECONDS)) {
+                    permits.release(settings.concurrency);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (final RuntimeException e) {
+                Log.warn("The load test ended unexpectedly.", e);
+            } finally {
+                endedNanos = System.nanoTime();
+                state = State.FINISHED;
+                Log.info("Ended load test. Stanzas sent: {}, responses: {}, error responses: {}, timeouts: {}, cancelled: {}, failures: {}.",
+                    sent.sum(), responses.sum(), errorResponses.sum(), timeouts.sum(), cancelled.sum(), failures.sum());
+            }
+        }
+
+        /**
+         * Waits until a (System.nanoTime based) time, unless the run is stopped first.
+         *
+         * @return false if the run was stopped.
+         */
+        private boolean awaitUntil(final long time)
+        {
+            long remaining;
+            while (!stopRequested && (remaining = time - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, remaining);
+            }
+            return !stopRequested;
+        }
+
+        /**
+         * Waits for an IQ request to be allowed to await a response, unless the run is stopped or ends first.
+         *
+         * @return false if the run was stopped or ended.
+         */
+        private boolean acquirePermit(final long deadline) throws InterruptedException
+        {
+            while (!stopRequested && deadline - System.nanoTime() > 0) {
+                if (permits.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void onResult(final long scheduled, final IQ response, final Throwable failure)
+        {
+            permits.release();
+            if (response != null) {
+                latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduled));
+                if (response.getType() == IQ.Type.error) {
+                    errorResponses.increment();
+                } else {
+                    responses.increment();
+                }
+            } else if (IqResponseCorrelator.isTimeout(failure)) {
+                timeouts.increment();
+            } else if (failure != null) {
+                // The wait was cancelled: the request could not be sent, or the plugin is being unloaded.
+                cancelled.increment();
+            }
+        }
+
+        public State getState()
+        {
+            return state;
+        }
+
+        public long getStartedAt()
+        {
+            return startedAt;
+        }
+
+        public long getElapsedMillis()
+        {
+            final long end = state == State.FINISHED ? endedNanos : System.nanoTime();
+            return TimeUnit.NANOSECONDS.toMillis(end - startedNanos);
+        }
+
+        public int getRate()
+        {
+            return settings.rate;
+        }
+
+        public int getConcurrency()
+        {
+            return settings.concurrency;
+        }
+
+        public int getDurationSeconds()
+        {
+            return settings.durationSeconds;
+        }
+
+        public long getCount()
+        {
+            return settings.count;
+        }
+
+        public long getSent()
+        {
+            return sent.sum();
+        }
+
+        public long getFailures()
+        {
+            return failures.sum();
+        }
+
+        public long getResponses()
+        {
+            return responses.sum();
+        }
+
+        public long getErrorResponses()
+        {
+            return errorResponses.sum();
+        }
+
+        public long getTimeouts()
+        {
+            return timeouts.sum();
+        }
+
+        public long getCancelled()
+        {
+            return cancelled.sum();
+        }
+
+        /**
+         * Returns the amount of IQ requests that await a response.
+         *
+         * @return a request count.
+         */
+        public int getInFlight()
+        {
+            return settings.concurrency - permits.availablePermits();
+        }
+
+        /**
+         * Returns the latencies of the responses to IQ requests (including error responses), in microseconds.
+         *
+         * @return a histogram.
+         */
+        public LatencyHistogram getLatency()
+        {
+            return latency;
+        }
+    }
+}
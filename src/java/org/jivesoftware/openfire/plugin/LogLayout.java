@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+/**
+ * The format in which entries are written to STDOUT or the log file.
+ */
+public enum LogLayout
+{
+    /**
+     * The human-readable lines that this plugin has always logged (see {@link TextLayout}).
+     */
+    TEXT,
+
+    /**
+     * One JSON object per line (see {@link JsonLayout}).
+     */
+    JSON
+}
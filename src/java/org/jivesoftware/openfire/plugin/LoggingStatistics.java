@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the entries of one source (a raw XML handler factory, or the interpreted XML printer) that were logged or
+ * dropped by the {@link AsyncLogWriter}. Entries refer to the statistics of their source (see
+ * {@link CaptureEntry#statistics(LoggingStatistics)}), which are updated by the log writer.
+ */
+final class LoggingStatistics
+{
+    private final LongAdder logged = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder latencyMillis = new LongAdder();
+
+    /**
+     * Counts an entry that was written.
+     *
+     * @param payloadSize the size of the payload of the entry.
+     * @param latencyMillis the time between the observation of the entry and it being written.
+     */
+    void logged(final int payloadSize, final long latencyMillis)
+    {
+        logged.increment();
+        bytes.add(payloadSize);
+        this.latencyMillis.add(Math.max(0, latencyMillis));
+    }
+
+    void dropped()
+    {
+        dropped.increment();
+    }
+
+    long getLoggedCount()
+    {
+        return logged.sum();
+    }
+
+    long getLoggedBytes()
+    {
+        return bytes.sum();
+    }
+
+    long getDroppedCount()
+    {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the average time between the observation of an entry and it being written.
+     *
+     * @return a duration in milliseconds, or 0 if no entries were written.
+     */
+    double getAverageLatencyMillis()
+    {
+        final long count = logged.sum();
+        return count == 0 ? 0 : (double) latencyMillis.sum() / count;
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import org.jivesoftware.util.JiveGlobals;
+import org.jivesoftware.util.SystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes captured entries as length-prefixed binary records to memory-mapped capture files (see
+ * {@link CaptureFileFormat}).
+ *
+ * Each capture file ('segment') is preallocated to a fixed size and mapped into memory, so that writing a record is
+ * a memory copy, rather than a system call. When a record does not fit in the current segment, a new segment is
+ * started. Only a configurable amount of segments is retained: the oldest are deleted. Capture files can be read with
+ * {@link CaptureFileReader}.
+ */
+class MappedCaptureSink implements CaptureSink
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedCaptureSink.class);
+
+    static final String FILE_PREFIX = "xmldebugger-";
+    static final String FILE_SUFFIX = ".cap";
+
+    private static final DateTimeFormatter FILE_NAME_FORMATTER = DateTimeFormatter.ofPattern("uuuuMMdd'T'HHmmss").withZone(ZoneOffset.UTC);
+
+    public static final SystemProperty<Integer> segmentSizeProperty = SystemProperty.Builder.ofType(Integer.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "captureFile.segmentSizeMB")
+        .setDefaultValue(16)
+        .setMinValue(1)
+        .setMaxValue(1024)
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .build();
+    public static final SystemProperty<Integer> maxSegmentsProperty = SystemProperty.Builder.ofType(Integer.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "captureFile.maxSegments")
+        .setDefaultValue(20)
+        .setMinValue(1)
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .build();
+
+    private final Path directory;
+    private final CaptureRecordEncoder encoder = new CaptureRecordEncoder();
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+
+    MappedCaptureSink(final Path directory)
+    {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the directory in which capture files are written by default: the Openfire log directory.
+     *
+     * @return the default capture file directory.
+     */
+    static Path defaultDirectory()
+    {
+        return Paths.get(JiveGlobals.getHomeDirectory(), "logs");
+    }
+
+    @Override
+    public void write(final List<CaptureEntry> batch) throws IOException
+    {
+        for (final CaptureEntry entry : batch) {
+            write(entry);
+        }
+        encoder.trim();
+    }
+
+    private void write(final CaptureEntry entry) throws IOException
+    {
+        encoder.prepare(entry);
+        int payloadLength = encoder.getPayloadLength();
+        int recordSize = encoder.getRecordSize(payloadLength);
+        if (segment == null || segment.remaining() < recordSize) {
+            rotate();
+            final int available = segment.remaining();
+            if (available < recordSize) {
+                // Larger than an entire segment: truncate the payload.
+                payloadLength -= recordSize - available;
+                recordSize = available;
+                LOGGER.debug("Truncated a record of type {} to {} payload bytes, to fit in a capture segment.", encoder.getType(), payloadLength);
+            }
+        }
+        encoder.write(segment, payloadLength);
+    }
+
+    private void rotate() throws IOException
+    {
+        closeSegment();
+
+        Files.createDirectories(directory);
+        final long now = System.currentTimeMillis();
+        final Path path = createSegmentFile(directory, now, FILE_SUFFIX);
+        final long size = (long) segmentSizeProperty.getValue() * 1024 * 1024;
+
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size); // Mapping beyond the end of the file grows the file.
+        CaptureFileFormat.writeSegmentHeader(segment, now);
+        LOGGER.debug("Started capture segment {}", path);
+
+        deleteOldSegments(directory, FILE_SUFFIX);
+    }
+
+    /**
+     * Deletes the oldest capture files of a kind, retaining the configured maximum amount.
+     *
+     * @param directory the directory that contains the capture files.
+     * @param suffix the file name suffix of the kind of capture files.
+     */
+    static void deleteOldSegments(final Path directory, final String suffix)
+    {
+        final List<Path> segments = new ArrayList<>();
+        try (final DirectoryStream<Path> stream = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + suffix)) {
+            stream.forEach(segments::add);
+        } catch (final IOException e) {
+            LOGGER.warn("Unable to list capture segments in {}", directory, e);
+            return;
+        }
+        Collections.sort(segments); // File names start with a timestamp.
+        final int excess = segments.size() - maxSegmentsProperty.getValue();
+        for (int i = 0; i < excess; i++) {
+            try {
+                Files.deleteIfExists(segments.get(i));
+                LOGGER.debug("Deleted capture segment {}", segments.get(i));
+            } catch (final IOException e) {
+                LOGGER.warn("Unable to delete capture segment {}", segments.get(i), e);
+            }
+        }
+    }
+
+    /**
+     * Creates a new, empty capture file. File names contain the creation time (in seconds) and a sequence number that
+     * distinguishes files that are created in the same second: the lowest sequence number that is not in use is taken,
+     * also when the files were created by an earlier sink (for example when capturing is disabled and enabled again).
+     *
+     * @param directory the directory in which to create the file.
+     * @param creationTime the time at which the file is created.
+     * @param suffix the file name suffix of the kind of capture file.
+     * @return the path of the file.
+     * @throws IOException if the file cannot be created.
+     */
+    static Path createSegmentFile(final Path directory, final long creationTime, final String suffix) throws IOException
+    {
+        final String prefix = FILE_PREFIX + FILE_NAME_FORMATTER.format(Instant.ofEpochMilli(creationTime)) + "-";
+        for (int sequence = 0; ; sequence++) {
+            try {
+                return Files.createFile(directory.resolve(prefix + String.format("%04d", sequence) + suffix));
+            } catch (final FileAlreadyExistsException e) {
+                if (sequence == 9999) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void closeSegment()
+    {
+        if (segment != null) {
+            segment.force();
+            segment = null; // The mapping is released when the buffer is garbage collected.
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (final IOException e) {
+                LOGGER.debug("Unable to close capture segment file.", e);
+            }
+            channel = null;
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        closeSegment();
+    }
+}
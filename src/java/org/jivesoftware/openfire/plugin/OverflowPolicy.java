@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+/**
+ * Determines what happens to a log entry when the queue between the network threads and the log writer is full.
+ */
+public enum OverflowPolicy
+{
+    /**
+     * The entry that is being added is discarded.
+     */
+    DROP_NEWEST,
+
+    /**
+     * The oldest entry in the queue is discarded to make room for the entry that is being added.
+     */
+    DROP_OLDEST,
+
+    /**
+     * The thread that adds the entry waits for room in the queue, up to a configurable timeout, after which the entry
+     * is discarded.
+     */
+    BLOCK
+}
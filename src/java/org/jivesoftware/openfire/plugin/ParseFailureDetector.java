@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import org.jivesoftware.util.SystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Detects inbound stanzas that Openfire failed to parse, by comparing raw inbound traffic with the packets that are
+ * intercepted by the {@link InterpretedXMLPrinter}. When a connection closes while some of its raw stanzas were never
+ * intercepted, a {@link ParseFailureIncident} is recorded.
+ *
+ * Detection requires interpreted XML to be enabled (without which no packets are intercepted), and applies only to
+ * connections that are captured by a raw XML handler. Tracking starts when detection is enabled: connections that were
+ * already established are tracked from the next stanza boundary onward.
+ */
+public class ParseFailureDetector
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParseFailureDetector.class);
+
+    public static final SystemProperty<Boolean> enabledProperty = SystemProperty.Builder.ofType(Boolean.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "parseFailures.enabled")
+        .setDefaultValue(Boolean.FALSE)
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .addListener(enabled -> {
+            ParseFailureDetector.enabled = enabled;
+            final DebuggerPlugin plugin = DebuggerPlugin.getInstance();
+            if (!enabled && plugin != null) {
+                plugin.getParseFailureDetector().stopTracking();
+            }
+        })
+        .build();
+    public static final SystemProperty<Integer> historySizeProperty = SystemProperty.Builder.ofType(Integer.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "parseFailures.historyKB")
+        .setDefaultValue(8)
+        .setMinValue(1)
+        .setMaxValue(1024)
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .build();
+    public static final SystemProperty<Integer> maxIncidentsProperty = SystemProperty.Builder.ofType(Integer.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "parseFailures.maxIncidents")
+        .setDefaultValue(50)
+        .setMinValue(1)
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .build();
+
+    // Read for every inbound frame and packet, rather than looking up the property.
+    private static volatile boolean enabled = enabledProperty.getValue();
+
+    private final DebuggerPlugin plugin;
+    private final Deque<ParseFailureIncident> incidents = new ConcurrentLinkedDeque<>();
+    private final AtomicLong nextIncidentId = new AtomicLong(1);
+
+    ParseFailureDetector(final DebuggerPlugin plugin)
+    {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Checks if detection is enabled.
+     *
+     * @return true if detection is enabled.
+     */
+    static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Checks if stanzas are to be tracked.
+     *
+     * @return true if detection is enabled, and packets are intercepted.
+     */
+    boolean isActive()
+    {
+        return enabled && plugin.getInterpretedPrinter().isEnabled();
+    }
+
+    /**
+     * Processes an inbound frame of a connection that is captured.
+     *
+     * @param connection the connection.
+     * @param allocator the allocator of the channel.
+     * @param timestamp the time at which the frame was received.
+     * @param frame the bytes of the frame.
+     */
+    void received(final ConnectionInfo connection, final ByteBufAllocator allocator, final long timestamp, final ByteBuf frame)
+    {
+        ParseTracker tracker = connection.getParseTracker();
+        if (tracker == null) {
+            tracker = new ParseTracker(connection, historySizeProperty.getValue() * 1024);
+            connection.setParseTracker(tracker);
+        }
+        tracker.received(allocator, timestamp, frame);
+    }
+
+    /**
+     * Processes the interception of an inbound packet.
+     *
+     * @param connection the connection that carries the session on which the packet was intercepted.
+     */
+    void interpreted(final ConnectionInfo connection)
+    {
+        final ParseTracker tracker = connection.getParseTracker();
+        if (tracker != null) {
+            tracker.interpreted();
+        }
+    }
+
+    /**
+     * Processes the closing of a connection, recording an incident if stanzas of the connection were never intercepted.
+     *
+     * @param connection the connection.
+     * @param timestamp the time at which the connection closed.
+     */
+    void closed(final ConnectionInfo connection, final long timestamp)
+    {
+        final ParseTracker tracker = connection.getParseTracker();
+        if (tracker == null) {
+            return;
+        }
+        connection.setParseTracker(null);
+        tracker.close();
+        if (!isActive() || tracker.getPendingCount() == 0) {
+            return;
+        }
+
+        final ParseFailureIncident incident = new ParseFailureIncident(nextIncidentId.getAndIncrement(), timestamp, connection, tracker);
+        incidents.addFirst(incident);
+        while (incidents.size() > maxIncidentsProperty.getValue()) {
+            incidents.pollLast();
+        }
+        LOGGER.debug("Connection {} closed with {} unparsed inbound stanza(s).", connection.getConnectionId(), incident.getUnparsedCount());
+        if (DebuggerPlugin.isLogging()) {
+            final StringBuilder text = new StringBuilder()
+                .append(incident.getUnparsedCount()).append(" of ").append(incident.getReceivedCount())
+                .append(" inbound stanza(s) were never parsed before the connection closed (incident ").append(incident.getId()).append(")");
+            for (final String stanza : incident.getUnparsedStanzas()) {
+                text.append(System.lineSeparator()).append("  ").append(stanza);
+            }
+            DebuggerPlugin.log(CaptureEntry.ofText(connection, timestamp, "FAIL", text).sequence(connection.nextSequence()));
+        }
+    }
+
+    /**
+     * Stops tracking all connections. Tracking of a connection starts again (with a clean slate) when it is observed
+     * while detection is active.
+     */
+    void stopTracking()
+    {
+        for (final ConnectionInfo connection : plugin.getConnectionRegistry().getConnections()) {
+            final ParseTracker tracker = connection.getParseTracker();
+            if (tracker != null) {
+                connection.setParseTracker(null);
+                tracker.close();
+            }
+        }
+    }
+
+    /**
+     * Returns the most recent incidents.
+     *
+     * @return incidents, most recent first.
+     */
+    public List<ParseFailureIncident> getIncidents()
+    {
+        return new ArrayList<>(incidents);
+    }
+
+    /**
+     * Returns an incident.
+     *
+     * @param id the identifier of the incident.
+     * @return the incident, or null if it is not (or no longer) retained.
+     */
+    public ParseFailureIncident getIncident(final long id)
+    {
+        return incidents.stream().filter(incident -> incident.getId() == id).findFirst().orElse(null);
+    }
+
+    void clear()
+    {
+        stopTracking();
+        incidents.clear();
+    }
+}
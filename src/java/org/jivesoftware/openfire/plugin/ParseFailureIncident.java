@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Describes a connection that closed while inbound stanzas that were observed as raw traffic were never observed as
+ * interpreted packets: typically, because Openfire was unable to parse them.
+ */
+public class ParseFailureIncident
+{
+    private final long id;
+    private final long timestamp;
+    private final long connectionId;
+    private final String portType;
+    private final String remoteAddress;
+    private final String jid;
+    private final long unparsedCount;
+    private final long receivedCount;
+    private final List<String> unparsedStanzas;
+    private final List<String> recentFrames;
+
+    ParseFailureIncident(final long id, final long timestamp, final ConnectionInfo connection, final ParseTracker tracker)
+    {
+        this.id = id;
+        this.timestamp = timestamp;
+        this.connectionId = connection.getConnectionId();
+        this.portType = connection.getPortType();
+        this.remoteAddress = connection.getRemoteAddress();
+        this.jid = connection.getBoundJid() != null ? connection.getBoundJid().toString() : null;
+        this.unparsedCount = tracker.getPendingCount();
+        this.receivedCount = tracker.getReceivedCount();
+        this.unparsedStanzas = tracker.getPendingStanzas().stream().map(Redactor::redactIfEnabled).collect(Collectors.toList());
+        this.recentFrames = RecentTrafficServlet.render(tracker.getHistory());
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Date getDate() {
+        return new Date(timestamp);
+    }
+
+    public long getConnectionId() {
+        return connectionId;
+    }
+
+    public String getPortType() {
+        return portType;
+    }
+
+    public String getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    /**
+     * Returns the JID of the session of the connection.
+     *
+     * @return a JID, or null if it is not known.
+     */
+    public String getJid() {
+        return jid;
+    }
+
+    /**
+     * Returns the amount of inbound stanzas that were never observed as interpreted packets.
+     *
+     * @return a count of stanzas.
+     */
+    public long getUnparsedCount() {
+        return unparsedCount;
+    }
+
+    /**
+     * Returns the amount of inbound stanzas that were observed as raw traffic.
+     *
+     * @return a count of stanzas.
+     */
+    public long getReceivedCount() {
+        return receivedCount;
+    }
+
+    /**
+     * Returns the start of (at most the most recent {@value ParseTracker#MAX_PENDING}) stanzas that were never observed
+     * as interpreted packets.
+     *
+     * @return stanza fragments, oldest first.
+     */
+    public List<String> getUnparsedStanzas() {
+        return unparsedStanzas;
+    }
+
+    /**
+     * Returns the most recent inbound frames of the connection, in the text layout of the log file.
+     *
+     * @return one line of text per frame.
+     */
+    public List<String> getRecentFrames() {
+        return recentFrames;
+    }
+}
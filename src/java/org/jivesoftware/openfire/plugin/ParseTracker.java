@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tracks, for one connection, which inbound stanzas were observed as raw traffic but not (yet) as interpreted packets.
+ *
+ * Inbound raw traffic is reassembled into stanzas by a {@link StanzaFramer}. Every stanza is added to a queue of
+ * pending stanzas, from which the oldest is removed whenever Openfire intercepts an inbound packet on the session of the
+ * connection. As Openfire parses stanzas in the order in which they are received, stanzas that are still pending when
+ * the connection closes were never parsed into a packet.
+ *
+ * Memory use is bounded: only the start of each pending stanza is retained, at most {@link #MAX_PENDING} stanzas are
+ * retained (older ones are counted, but forgotten), and recent inbound frames are kept in a fixed-size buffer.
+ *
+ * Raw traffic is observed on the event loop of the connection, while packets can be intercepted on other threads. All
+ * methods are synchronized on this instance, which is virtually always uncontended.
+ */
+final class ParseTracker
+{
+    /**
+     * Maximum amount of pending stanzas of which the start is retained.
+     */
+    static final int MAX_PENDING = 32;
+
+    /**
+     * Maximum amount of bytes of a pending stanza that is retained.
+     */
+    static final int MAX_PENDING_BYTES = 256;
+
+    /**
+     * Maximum amount of bytes of a stanza that is buffered by the framer. Only the start of a stanza is of interest.
+     */
+    private static final int MAX_FRAMED_BYTES = 64 * 1024;
+
+    private final StanzaFramer framer = new StanzaFramer();
+    private final StanzaFramer.UnitConsumer unitConsumer = this::unit;
+    private final RecentTrafficBuffer history;
+    private final ArrayDeque<byte[]> pending = new ArrayDeque<>();
+    private long forgotten;
+    private long received;
+    private long interpreted;
+
+    ParseTracker(final ConnectionInfo connection, final int historyBytes)
+    {
+        this.history = new RecentTrafficBuffer(connection, historyBytes);
+    }
+
+    /**
+     * Processes an inbound frame.
+     *
+     * @param allocator the allocator to use for buffers of incomplete stanzas.
+     * @param timestamp the time at which the frame was received.
+     * @param frame the bytes of the frame (its reader index is not modified).
+     */
+    synchronized void received(final ByteBufAllocator allocator, final long timestamp, final ByteBuf frame)
+    {
+        history.record(timestamp, "RECV", frame);
+        framer.feed(allocator, frame, MAX_FRAMED_BYTES, unitConsumer);
+    }
+
+    private void unit(final ByteBuf unit)
+    {
+        try {
+            if (!isStanza(unit)) {
+                return;
+            }
+            received++;
+            if (pending.size() == MAX_PENDING) {
+                pending.removeFirst();
+                forgotten++;
+            }
+            final byte[] start = new byte[Math.min(unit.readableBytes(), MAX_PENDING_BYTES)];
+            unit.getBytes(unit.readerIndex(), start, 0, start.length);
+            pending.addLast(start);
+        } finally {
+            unit.release();
+        }
+    }
+
+    /**
+     * Checks if a unit is a stanza (a message, presence or iq element), by inspecting its element name. Other top-level
+     * elements (such as stream negotiation and stream management elements) are not reported to packet interceptors.
+     */
+    static boolean isStanza(final ByteBuf unit)
+    {
+        final int start = unit.readerIndex();
+        final int end = unit.writerIndex();
+        if (end - start < 3 || unit.getByte(start) != '<') {
+            return false;
+        }
+        int nameStart = start + 1;
+        int nameEnd = nameStart;
+        while (nameEnd < end) {
+            final byte b = unit.getByte(nameEnd);
+            if (b == ':') {
+                nameStart = nameEnd + 1; // Ignore a namespace prefix.
+            } else if (b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '/' || b == '>') {
+                break;
+            }
+            nameEnd++;
+        }
+        final String name = unit.toString(nameStart, nameEnd - nameStart, StandardCharsets.US_ASCII);
+        return "message".equals(name) || "presence".equals(name) || "iq".equals(name);
+    }
+
+    /**
+     * Records that an inbound packet was intercepted on the session of the connection.
+     */
+    synchronized void interpreted()
+    {
+        interpreted++;
+        if (!pending.isEmpty()) {
+            pending.removeFirst();
+        } else if (forgotten > 0) {
+            forgotten--;
+        }
+    }
+
+    /**
+     * Returns the amount of inbound stanzas that were observed as raw traffic, but not as interpreted packets.
+     *
+     * @return a count of stanzas.
+     */
+    synchronized long getPendingCount()
+    {
+        return pending.size() + forgotten;
+    }
+
+    /**
+     * Returns the start of each pending stanza of which that is retained, oldest first.
+     *
+     * @return stanza fragments.
+     */
+    synchronized List<String> getPendingStanzas()
+    {
+        final List<String> result = new ArrayList<>(pending.size());
+        for (final byte[] start : pending) {
+            result.add(new String(start, StandardCharsets.UTF_8));
+        }
+        return result;
+    }
+
+    synchronized long getReceivedCount()
+    {
+        return received;
+    }
+
+    synchronized long getInterpretedCount()
+    {
+        return interpreted;
+    }
+
+    RecentTrafficBuffer getHistory()
+    {
+        return history;
+    }
+
+    /**
+     * Releases the buffers of the framer.
+     */
+    synchronized void close()
+    {
+        framer.reset();
+    }
+}
@@ -16,33 +16,107 @@
 package org.jivesoftware.openfire.plugin;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufHolder;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
-import io.netty.util.CharsetUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.net.SocketAddress;
-import java.time.ZoneOffset;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
-
 public class RawPrintChannelHandler extends ChannelDuplexHandler
 {
     private static final Logger Log = LoggerFactory.getLogger(RawPrintChannelHandler.class);
 
     private final String prefix;
+    private final RawPrintChannelHandlerFactory factory;
+
+    /**
+     * Information that is static for the lifetime of the connection, from which entry headers are rendered on the log
+     * writer thread. Resolved lazily, as the remote address is not always known when the handler is created.
+     */
+    private ConnectionInfo connection;
+
+    /**
+     * The buffer in which recent traffic of this connection is retained (when that feature is enabled), and the
+     * generation of the registry that it was obtained from.
+     */
+    private RecentTrafficBuffer recentTraffic;
+    private int recentTrafficGeneration;
+
+    /**
+     * Limits the rate at which frames of this connection are logged, and counts the frames that were not logged since
+     * the last frame that was.
+     */
+    private final TokenBucket frameLimit = new TokenBucket();
+    private long skippedFrames;
+
+    /**
+     * Reassemble the traffic of each direction into complete stanzas, when stanza framing is enabled. Created lazily.
+     */
+    private FramedDirection received;
+    private FramedDirection sent;
 
-    public RawPrintChannelHandler(final String prefix)
+    public RawPrintChannelHandler(final String prefix, final RawPrintChannelHandlerFactory factory)
     {
         this.prefix = prefix;
+        this.factory = factory;
+    }
+
+    private ConnectionInfo connection(final ChannelHandlerContext ctx) {
+        if (connection == null) {
+            final ConnectionInfo info = ConnectionInfo.of(ctx, prefix);
+            if (ctx.channel().remoteAddress() != null) {
+                connection = info;
+                final DebuggerPlugin plugin = DebuggerPlugin.getInstance();
+                if (plugin != null) {
+                    plugin.getConnectionRegistry().register(ctx.channel(), info);
+                }
+            }
+            return info;
+        }
+        return connection;
+    }
+
+    /**
+     * Checks if traffic on the connection is to be captured, according to the capture filter. For connections that
+     * match or do not match the filter, this is a lookup of the outcome of an earlier evaluation. Only for connections of
+     * which the outcome depends on information that is not yet known, frames that are sent are inspected for that
+     * information.
+     *
+     * @param ctx the handler context.
+     * @param messageType the type of the frame, or the event (eg: "SENT").
+     * @param content the bytes of the frame (can be null).
+     * @return true if the traffic is to be captured.
+     */
+    private boolean isCaptured(final ChannelHandlerContext ctx, final String messageType, final ByteBuf content) {
+        final ConnectionInfo info = connection(ctx);
+        final DebuggerPlugin plugin = DebuggerPlugin.getInstance();
+        if (plugin == null) {
+            return true;
+        }
+        final ConnectionRegistry registry = plugin.getConnectionRegistry();
+        if (content != null && "SENT".equals(messageType)) {
+            registry.inspectSent(info, content);
+        }
+        return registry.isCaptured(info);
     }
 
-    private String messagePrefix(final SocketAddress remoteAddress, final String messageType, final String channelContextName) {
-        final String nowAsString = ZonedDateTime.now( ZoneOffset.UTC ).format( DateTimeFormatter.ISO_INSTANT );
-        return String.format("%s - %s %-16s - %s - (%11s)", nowAsString, prefix, remoteAddress == null ? "???" : remoteAddress, messageType, channelContextName);
+    private RecentTrafficBuffer recentTraffic(final ChannelHandlerContext ctx) {
+        if (!RecentTraffic.isEnabled()) {
+            recentTraffic = null;
+            return null;
+        }
+        final DebuggerPlugin plugin = DebuggerPlugin.getInstance();
+        if (plugin == null) {
+            return null;
+        }
+        final RecentTraffic registry = plugin.getRecentTraffic();
+        if (recentTraffic == null || recentTrafficGeneration != registry.getGeneration()) {
+            recentTrafficGeneration = registry.getGeneration();
+            recentTraffic = registry.bufferFor(ctx.channel(), connection(ctx));
+        }
+        return recentTraffic;
     }
 
     @Override
@@ -54,8 +128,9 @@ public class RawPrintChannelHandler extends ChannelDuplexHandler
     @Override
     public void channelActive(final ChannelHandlerContext ctx) throws Exception
     {
-        final SocketAddress remoteAddress = ctx.channel() != null ? ctx.channel().remoteAddress() : null;
-        DebuggerPlugin.log(messagePrefix(remoteAddress, "OPEN", ctx.name()));
+        if (factory.isEnabled() && isCaptured(ctx, "OPEN", null)) {
+            logEvent(ctx, "OPEN");
+        }
 
         super.channelActive(ctx);
     }
@@ -63,36 +138,208 @@ public class RawPrintChannelHandler extends ChannelDuplexHandler
     @Override
     public void channelInactive(final ChannelHandlerContext ctx) throws Exception
     {
-        final SocketAddress remoteAddress = ctx.channel() != null ? ctx.channel().remoteAddress() : null;
-        DebuggerPlugin.log(messagePrefix(remoteAddress, "CLSD", ctx.name()));
+        resetFramers();
+        if (factory.isEnabled() && isCaptured(ctx, "CLSD", null)) {
+            if (DebuggerPlugin.isLogging()) {
+                logSkipped(ctx, System.currentTimeMillis());
+            }
+            final DebuggerPlugin plugin = DebuggerPlugin.getInstance();
+            if (plugin != null && connection != null) {
+                plugin.getParseFailureDetector().closed(connection, System.currentTimeMillis());
+            }
+            logEvent(ctx, "CLSD");
+        }
 
         super.channelInactive(ctx);
     }
 
-    private static String payloadAsText(final Object msg)
+    @Override
+    public void handlerRemoved(final ChannelHandlerContext ctx) throws Exception
+    {
+        resetFramers();
+        super.handlerRemoved(ctx);
+    }
+
+    private void resetFramers()
     {
-        if (msg instanceof String) {
-            return (String) msg;
+        if (received != null) {
+            received.framer.reset();
+            received = null;
+        }
+        if (sent != null) {
+            sent.framer.reset();
+            sent = null;
         }
+    }
+
+    /**
+     * Returns the bytes of a message, without copying them.
+     *
+     * @param msg the message.
+     * @return the bytes of the message, or null if the message is not backed by a buffer.
+     */
+    private static ByteBuf contentOf(final Object msg)
+    {
         if (msg instanceof ByteBuf) {
-            // Use the readable region without changing reader indexes.
-            return ((ByteBuf) msg).toString(CharsetUtil.UTF_8);
+            return (ByteBuf) msg;
         }
         if (msg instanceof ByteBufHolder) {
-            return ((ByteBufHolder) msg).content().toString(CharsetUtil.UTF_8);
+            return ((ByteBufHolder) msg).content();
+        }
+        return null;
+    }
+
+    /**
+     * Captures the readable bytes of a buffer, in a way that does not modify the reader index of that buffer, and that
+     * does not prevent the buffer from being released by the rest of the pipeline. The returned buffer must be released
+     * by the caller.
+     *
+     * Note that {@link CaptureMode#SLICE} increases the reference count of the original buffer. Netty's decoders
+     * account for this (they will not modify or discard bytes of a buffer that is shared), but the memory of the original
+     * buffer is not returned to its pool until the captured slice has been released.
+     *
+     * @param allocator the allocator to use when bytes are to be copied.
+     * @param content the bytes to capture.
+     * @return a buffer containing the captured bytes.
+     */
+    static ByteBuf capture(final ByteBufAllocator allocator, final ByteBuf content)
+    {
+        if (DebuggerPlugin.getCaptureMode() == CaptureMode.COPY) {
+            final int length = content.readableBytes();
+            final ByteBuf copy = allocator.directBuffer(length);
+            copy.writeBytes(content, content.readerIndex(), length);
+            return copy;
         }
+        return content.retainedSlice();
+    }
 
-        Log.debug("Unrecognized payload type '{}' - returning 'toString' as a fallback option.", msg.getClass().getName());
-        return msg.toString();
+    /**
+     * Checks if a frame may be logged under the configured rate limits. When it may, and earlier frames were skipped,
+     * an entry that records the amount of skipped frames is logged first, so that gaps in the log are recognizable.
+     *
+     * @param ctx the handler context.
+     * @param messageType the direction of the frame ("RECV" or "SENT").
+     * @param now the current time.
+     * @return true if the frame may be logged.
+     */
+    private boolean tryAcquireFrame(final ChannelHandlerContext ctx, final String messageType, final long now)
+    {
+        if (!factory.tryAcquireFrame(frameLimit)) {
+            skippedFrames++;
+            // The redactor does not see this frame: it cannot tell if what follows is inside a sensitive element.
+            connection(ctx).markRedactionGap("RECV".equals(messageType));
+            return false;
+        }
+        logSkipped(ctx, now);
+        return true;
+    }
+
+    private void logSkipped(final ChannelHandlerContext ctx, final long now)
+    {
+        if (skippedFrames > 0) {
+            final ConnectionInfo info = connection(ctx);
+            submit(CaptureEntry.ofText(info, now, "SKIP", skippedFrames + " frame(s) not logged due to rate limiting").sequence(info.nextSequence()));
+            skippedFrames = 0;
+        }
+    }
+
+    /**
+     * Queues an entry to be logged, attributing it to the factory of this handler.
+     */
+    private void submit(final CaptureEntry entry)
+    {
+        DebuggerPlugin.log(entry.statistics(factory.getStatistics()));
+    }
+
+    private void logEvent(final ChannelHandlerContext ctx, final String messageType)
+    {
+        final long now = System.currentTimeMillis();
+        final RecentTrafficBuffer recent = recentTraffic(ctx);
+        if (recent != null) {
+            recent.record(now, messageType);
+        }
+        if (DebuggerPlugin.isLogging()) {
+            final ConnectionInfo info = connection(ctx);
+            submit(CaptureEntry.ofEvent(info, now, messageType).sequence(info.nextSequence()));
+        }
+    }
+
+    private void log(final ChannelHandlerContext ctx, final String messageType, final Object msg)
+    {
+        // The (single, volatile) read of the factory's flag makes toggling the debugger take effect on live channels.
+        if (!factory.isEnabled()) {
+            return;
+        }
+
+        // Connections that do not match the capture filter are rejected before anything is captured or decoded.
+        final ByteBuf content = contentOf(msg);
+        if (!isCaptured(ctx, messageType, content)) {
+            return;
+        }
+
+        if (content != null) {
+            if (connection != null) {
+                final DebuggerPlugin plugin = DebuggerPlugin.getInstance();
+                if (plugin != null && plugin.getTrafficMetrics().isEnabled()) {
+                    plugin.getTrafficMetrics().forConnection(connection).record("RECV".equals(messageType), content.readableBytes());
+                }
+            }
+            final long now = System.currentTimeMillis();
+            final RecentTrafficBuffer recent = recentTraffic(ctx);
+            if (recent != null) {
+                recent.record(now, messageType, content);
+            }
+            if ("RECV".equals(messageType) && connection != null) {
+                final DebuggerPlugin plugin = DebuggerPlugin.getInstance();
+                if (plugin != null && plugin.getParseFailureDetector().isActive()) {
+                    plugin.getParseFailureDetector().received(connection, ctx.alloc(), now, content);
+                }
+            }
+            if (!DebuggerPlugin.isLogging()) {
+                resetFramers(); // Bytes that are not observed cannot be reassembled.
+            } else if (StanzaFramer.isEnabled()) {
+                if ("RECV".equals(messageType)) {
+                    if (received == null) {
+                        received = new FramedDirection(messageType);
+                    }
+                    received.feed(ctx, content, now);
+                } else {
+                    if (sent == null) {
+                        sent = new FramedDirection(messageType);
+                    }
+                    sent.feed(ctx, content, now);
+                }
+            } else {
+                resetFramers();
+                if ((content.isReadable() || DebuggerPlugin.isLoggingWhitespace()) && tryAcquireFrame(ctx, messageType, now)) {
+                    final ConnectionInfo info = connection(ctx);
+                    submit(CaptureEntry.ofBytes(info, now, messageType, capture(ctx.alloc(), content)).sequence(info.nextSequence()));
+                }
+            }
+            return;
+        }
+
+        if (!DebuggerPlugin.isLogging()) {
+            return;
+        }
+
+        final String payload;
+        if (msg instanceof String) {
+            payload = (String) msg;
+        } else {
+            Log.debug("Unrecognized payload type '{}' - returning 'toString' as a fallback option.", msg.getClass().getName());
+            payload = msg.toString();
+        }
+        final long now = System.currentTimeMillis();
+        if (payload != null && (DebuggerPlugin.isLoggingWhitespace() || !payload.isEmpty()) && tryAcquireFrame(ctx, messageType, now)) {
+            final ConnectionInfo info = connection(ctx);
+            submit(CaptureEntry.ofText(info, now, messageType, payload).sequence(info.nextSequence()));
+        }
     }
 
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
-        final String payload = payloadAsText(msg);
-        if (payload != null && (DebuggerPlugin.logWhitespaceProperty.getValue() || !payload.isEmpty())) {
-            final SocketAddress remoteAddress = ctx.channel() != null ? ctx.channel().remoteAddress() : null;
-            DebuggerPlugin.log(messagePrefix(remoteAddress, "RECV", ctx.name()) + ": " + payload);
-        }
+        log(ctx, "RECV", msg);
 
         super.channelRead(ctx, msg);
     }
@@ -100,12 +347,49 @@ public class RawPrintChannelHandler extends ChannelDuplexHandler
     @Override
     public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception
     {
-        final String payload = payloadAsText(msg);
-        if (payload != null && (DebuggerPlugin.logWhitespaceProperty.getValue() || !payload.isEmpty())) {
-            final SocketAddress remoteAddress = ctx.channel() != null ? ctx.channel().remoteAddress() : null;
-            DebuggerPlugin.log(messagePrefix(remoteAddress, "SENT", ctx.name()) + ": " + payload);
-        }
+        log(ctx, "SENT", msg);
 
         super.write(ctx, msg, promise);
     }
+
+    /**
+     * Reassembles the traffic of one direction of the connection into complete stanzas, each of which is logged as a
+     * separate entry.
+     */
+    private final class FramedDirection implements StanzaFramer.UnitConsumer
+    {
+        private final String messageType;
+        private final StanzaFramer framer = new StanzaFramer();
+
+        // Only set while a frame is fed to the framer.
+        private ChannelHandlerContext ctx;
+        private long timestamp;
+
+        private FramedDirection(final String messageType)
+        {
+            this.messageType = messageType;
+        }
+
+        void feed(final ChannelHandlerContext ctx, final ByteBuf content, final long timestamp)
+        {
+            this.ctx = ctx;
+            this.timestamp = timestamp;
+            try {
+                framer.feed(ctx.alloc(), content, StanzaFramer.getMaxStanzaSize(), this);
+            } finally {
+                this.ctx = null;
+            }
+        }
+
+        @Override
+        public void accept(final ByteBuf unit)
+        {
+            if (tryAcquireFrame(ctx, messageType, timestamp)) {
+                final ConnectionInfo info = connection(ctx);
+                submit(CaptureEntry.ofBytes(info, timestamp, messageType, unit).sequence(info.nextSequence()));
+            } else {
+                unit.release();
+            }
+        }
+    }
 }
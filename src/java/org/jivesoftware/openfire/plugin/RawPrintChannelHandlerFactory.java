@@ -16,8 +16,12 @@
 
 package org.jivesoftware.openfire.plugin;
 
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelPipeline;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.util.concurrent.GlobalEventExecutor;
 import org.jivesoftware.openfire.nio.NettyChannelHandlerFactory;
 import org.jivesoftware.openfire.nio.NettyConnection;
 import org.jivesoftware.util.SystemProperty;
@@ -25,6 +29,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Netty handler that prints to the stdout received XML stanzas before they are actually parsed and
@@ -37,13 +44,84 @@ import java.util.List;
 public class RawPrintChannelHandlerFactory implements NettyChannelHandlerFactory
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(RawPrintChannelHandlerFactory.class);
-    private static final String FILTER_NAME = "rawDebugger";
+    static final String FILTER_NAME = "rawDebugger";
+
+    /**
+     * When enabled, disabling the debugger for a port removes the handler from the pipelines of all live channels of
+     * that port (and enabling it adds the handler back), so that a disabled debugger has no overhead at all. When
+     * disabled, handlers remain in place, and skip all work after checking a single flag.
+     */
+    public static final SystemProperty<Boolean> removeHandlersWhenDisabledProperty = SystemProperty.Builder.ofType(Boolean.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "removeHandlersWhenDisabled")
+        .setDefaultValue(Boolean.FALSE)
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .addListener(remove -> {
+            final DebuggerPlugin plugin = DebuggerPlugin.getInstance();
+            if (plugin != null) {
+                plugin.getPortFilters().forEach(RawPrintChannelHandlerFactory::updateLiveHandlers);
+            }
+        })
+        .build();
+
+    /**
+     * Only one in every this many new connections is debugged. The handler is not added to the pipeline of other
+     * connections at all. A value of 1 debugs every connection.
+     */
+    public static final SystemProperty<Integer> sampleConnectionRatioProperty = SystemProperty.Builder.ofType(Integer.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "sampling.connectionRatio")
+        .setDefaultValue(1)
+        .setMinValue(1)
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .addListener(ratio -> RawPrintChannelHandlerFactory.sampleConnectionRatio = ratio)
+        .build();
+
+    /**
+     * The maximum amount of frames, of all connections combined, that is logged per second. Zero or less is unlimited.
+     */
+    public static final SystemProperty<Integer> maxFramesPerSecondProperty = SystemProperty.Builder.ofType(Integer.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "sampling.maxFramesPerSecond")
+        .setDefaultValue(0)
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .addListener(rate -> RawPrintChannelHandlerFactory.maxFramesPerSecond = rate)
+        .build();
+
+    /**
+     * The maximum amount of frames per connection that is logged per second. Zero or less is unlimited.
+     */
+    public static final SystemProperty<Integer> maxFramesPerSecondPerConnectionProperty = SystemProperty.Builder.ofType(Integer.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "sampling.maxFramesPerSecondPerConnection")
+        .setDefaultValue(0)
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .addListener(rate -> RawPrintChannelHandlerFactory.maxFramesPerSecondPerConnection = rate)
+        .build();
+
+    // Read for every new connection or frame, rather than looking up the properties.
+    private static volatile int sampleConnectionRatio = sampleConnectionRatioProperty.getValue();
+    private static volatile int maxFramesPerSecond = maxFramesPerSecondProperty.getValue();
+    private static volatile int maxFramesPerSecondPerConnection = maxFramesPerSecondPerConnectionProperty.getValue();
+
+    /**
+     * Limits the rate at which frames are logged, over all connection types.
+     */
+    private static final TokenBucket GLOBAL_FRAME_LIMIT = new TokenBucket();
+
     private final String prefix;
-    private boolean enabled;
+    private final AtomicLong newConnections = new AtomicLong();
+    private final LongAdder skippedConnections = new LongAdder();
+    private final LongAdder skippedFrames = new LongAdder();
+    private final LoggingStatistics statistics = new LoggingStatistics();
+    // Read by every handler for every frame. Volatile, so that a change takes effect on all live channels immediately.
+    private volatile boolean enabled;
     private final SystemProperty<Boolean> enabledProperty;
+    private final ChannelGroup channels;
 
     RawPrintChannelHandlerFactory(final String prefix) {
         this.prefix = prefix;
+        this.channels = new DefaultChannelGroup(prefix, GlobalEventExecutor.INSTANCE);
         this.enabledProperty = SystemProperty.Builder.ofType(Boolean.class)
             .setKey(DebuggerPlugin.PROPERTY_PREFIX + prefix.toLowerCase())
             .setDefaultValue(Boolean.TRUE)
@@ -55,11 +133,31 @@ public class RawPrintChannelHandlerFactory implements NettyChannelHandlerFactory
     }
 
     ChannelHandler generateHandler() {
-        return new RawPrintChannelHandler(prefix);
+        return new RawPrintChannelHandler(prefix, this);
     }
 
     @Override
     public void addNewHandlerTo(final ChannelPipeline pipeline)
+    {
+        // Connections that are not sampled are not tracked either, so that they never get a handler.
+        final int ratio = sampleConnectionRatio;
+        if (ratio > 1 && newConnections.getAndIncrement() % ratio != 0) {
+            LOGGER.trace("Not adding handler '{}' for {} to pipeline {}, as the connection is not sampled.", FILTER_NAME, prefix, pipeline);
+            skippedConnections.increment();
+            return;
+        }
+
+        // Keep track of every channel (closed channels are removed automatically), to be able to add or remove handlers later.
+        channels.add(pipeline.channel());
+
+        if (!enabled && removeHandlersWhenDisabledProperty.getValue()) {
+            LOGGER.trace("Not adding handler '{}' for {} to pipeline {}, as the debugger is disabled.", FILTER_NAME, prefix, pipeline);
+            return;
+        }
+        addHandlerTo(pipeline);
+    }
+
+    private void addHandlerTo(final ChannelPipeline pipeline)
     {
         final ChannelHandler filter = generateHandler();
 
@@ -88,10 +186,108 @@ public class RawPrintChannelHandlerFactory implements NettyChannelHandlerFactory
     public void removeHandlerFrom(final ChannelPipeline pipeline) {
         if (pipeline.get(FILTER_NAME) != null) {
             LOGGER.debug("Removing handler '{}' for {} from pipeline {}", FILTER_NAME, prefix, pipeline);
-            pipeline.remove(FILTER_NAME);
+            try {
+                pipeline.remove(FILTER_NAME);
+            } catch (final NoSuchElementException e) {
+                LOGGER.trace("Handler '{}' for {} was concurrently removed from pipeline {}", FILTER_NAME, prefix, pipeline);
+            }
+        }
+    }
+
+    /**
+     * Adds or removes the handler to/from the pipelines of all live channels, depending on whether the debugger is
+     * enabled, and whether handlers are to be removed when the debugger is disabled.
+     */
+    void updateLiveHandlers() {
+        final boolean present = enabled || !removeHandlersWhenDisabledProperty.getValue();
+        for (final Channel channel : channels) {
+            final ChannelPipeline pipeline = channel.pipeline();
+            if (present && pipeline.get(FILTER_NAME) == null) {
+                try {
+                    addHandlerTo(pipeline);
+                } catch (final IllegalArgumentException e) {
+                    LOGGER.trace("Handler '{}' for {} was concurrently added to pipeline {}", FILTER_NAME, prefix, pipeline);
+                }
+            } else if (!present) {
+                removeHandlerFrom(pipeline);
+            }
+        }
+    }
+
+    /**
+     * Removes the handler from the pipelines of all live channels, while continuing to track these channels, so that the
+     * handler is added back when the debugger is enabled again.
+     */
+    void removeLiveHandlers() {
+        for (final Channel channel : channels) {
+            removeHandlerFrom(channel.pipeline());
+        }
+    }
+
+    /**
+     * Removes the handler from the pipelines of all live channels, and stops tracking these channels.
+     */
+    void shutdown() {
+        for (final Channel channel : channels) {
+            removeHandlerFrom(channel.pipeline());
         }
+        channels.clear();
     }
 
+    /**
+     * Checks if a frame may be logged under the configured rate limits, counting it as skipped if it may not.
+     *
+     * @param connectionLimit the rate limit of the connection on which the frame was observed.
+     * @return true if the frame may be logged.
+     */
+    boolean tryAcquireFrame(final TokenBucket connectionLimit) {
+        final int connectionRate = maxFramesPerSecondPerConnection;
+        if (connectionLimit.tryAcquire(connectionRate)) {
+            if (GLOBAL_FRAME_LIMIT.tryAcquire(maxFramesPerSecond)) {
+                return true;
+            }
+            // The frame is not logged: it should not count towards the limit of its connection either.
+            connectionLimit.release(connectionRate);
+        }
+        skippedFrames.increment();
+        return false;
+    }
+
+    /**
+     * Returns the amount of new connections to which no handler was added, because they were not sampled.
+     *
+     * @return a count of connections.
+     */
+    public long getSkippedConnectionCount() {
+        return skippedConnections.sum();
+    }
+
+    /**
+     * Returns the amount of frames that were not logged, because a rate limit was exceeded.
+     *
+     * @return a count of frames.
+     */
+    public long getSkippedFrameCount() {
+        return skippedFrames.sum();
+    }
+
+    /**
+     * Returns the statistics of the entries that were logged by handlers of this factory.
+     *
+     * @return logging statistics.
+     */
+    LoggingStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Returns the connection type of the handlers of this factory, as it is shown in logged entries.
+     *
+     * @return a connection type (eg: "C2S-STARTTLS").
+     */
+    String getPortType() {
+        return prefix;
+    }
 
     public boolean isEnabled() {
         return enabled;
@@ -104,5 +300,9 @@ public class RawPrintChannelHandlerFactory implements NettyChannelHandlerFactory
     private void enabled(final boolean enabled) {
         this.enabled = enabled;
         LOGGER.info("{} logger {}", prefix, enabled ? "enabled" : "disabled");
+        // When enabled, handlers are (re)added to channels from which they were removed, for example by a capture session.
+        if (enabled || removeHandlersWhenDisabledProperty.getValue()) {
+            updateLiveHandlers();
+        }
     }
 }
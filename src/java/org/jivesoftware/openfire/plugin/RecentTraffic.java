@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import io.netty.channel.Channel;
+import org.jivesoftware.util.SystemProperty;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a {@link RecentTrafficBuffer} for every connection that is observed by a {@link RawPrintChannelHandler} while
+ * this feature is enabled. A buffer is discarded when its connection is closed.
+ */
+public class RecentTraffic
+{
+    public static final SystemProperty<Boolean> enabledProperty = SystemProperty.Builder.ofType(Boolean.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "recentTraffic.enabled")
+        .setDefaultValue(Boolean.FALSE)
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .addListener(enabled -> {
+            RecentTraffic.enabled = enabled;
+            final DebuggerPlugin plugin = DebuggerPlugin.getInstance();
+            if (!enabled && plugin != null) {
+                plugin.getRecentTraffic().clear();
+            }
+        })
+        .build();
+    public static final SystemProperty<Integer> sizeProperty = SystemProperty.Builder.ofType(Integer.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "recentTraffic.sizeKB")
+        .setDefaultValue(32)
+        .setMinValue(1)
+        .setMaxValue(1024)
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .build();
+
+    // Read for every frame, rather than looking up the property.
+    private static volatile boolean enabled = enabledProperty.getValue();
+
+    private final Map<Long, RecentTrafficBuffer> buffers = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented whenever all buffers are discarded, allowing handlers to detect that a buffer they hold on to is stale.
+     */
+    private volatile int generation;
+
+    /**
+     * Checks if recent traffic is retained.
+     *
+     * @return true if this feature is enabled.
+     */
+    static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Returns the buffer for a connection, creating it if it does not exist yet. A newly created buffer is discarded
+     * when the channel is closed.
+     *
+     * @param channel the channel of the connection.
+     * @param connection information about the connection.
+     * @return the buffer for the connection.
+     */
+    RecentTrafficBuffer bufferFor(final Channel channel, final ConnectionInfo connection)
+    {
+        final long connectionId = connection.getConnectionId();
+        final RecentTrafficBuffer existing = buffers.get(connectionId);
+        if (existing != null) {
+            return existing;
+        }
+        final RecentTrafficBuffer created = new RecentTrafficBuffer(connection, sizeProperty.getValue() * 1024);
+        final RecentTrafficBuffer raced = buffers.putIfAbsent(connectionId, created);
+        if (raced != null) {
+            return raced;
+        }
+        channel.closeFuture().addListener(future -> buffers.remove(connectionId));
+        return created;
+    }
+
+    /**
+     * Returns the buffer for a connection.
+     *
+     * @param connectionId the identifier of the connection.
+     * @return the buffer, or null if no traffic is retained for the connection.
+     */
+    RecentTrafficBuffer get(final long connectionId)
+    {
+        return buffers.get(connectionId);
+    }
+
+    /**
+     * Returns the buffers of all connections for which traffic is retained.
+     *
+     * @return an unmodifiable view of all buffers.
+     */
+    Collection<RecentTrafficBuffer> getBuffers()
+    {
+        return Collections.unmodifiableCollection(buffers.values());
+    }
+
+    int getGeneration()
+    {
+        return generation;
+    }
+
+    void clear()
+    {
+        generation++;
+        buffers.clear();
+    }
+}
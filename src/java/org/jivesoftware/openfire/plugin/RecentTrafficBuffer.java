@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A fixed-size ring of the most recent raw traffic of one connection.
+ *
+ * Traffic is copied into a byte array that is allocated once, when the buffer is created. When the array is full, new
+ * traffic overwrites the oldest traffic. Records (the timestamp, type and location of each captured frame) are kept in
+ * a separate, bounded ring. Recording does not allocate: the cost of capturing is a memory copy, while the cost of
+ * rendering is paid only when the content of the buffer is requested.
+ *
+ * Recording is done by the event loop of the connection, while snapshots are taken by admin console threads. Both are
+ * synchronized on this instance, which is virtually always uncontended.
+ */
+class RecentTrafficBuffer
+{
+    private static final int MAX_RECORDS = 512;
+
+    /**
+     * A frame as retained by the buffer.
+     */
+    static final class Record
+    {
+        final long timestamp;
+        final String type;
+        final byte[] payload;
+        final boolean truncated;
+
+        Record(final long timestamp, final String type, final byte[] payload, final boolean truncated)
+        {
+            this.timestamp = timestamp;
+            this.type = type;
+            this.payload = payload;
+            this.truncated = truncated;
+        }
+    }
+
+    private final ConnectionInfo connection;
+    private final byte[] data;
+    private long bytesWritten;
+
+    private final long[] recordStarts = new long[MAX_RECORDS];
+    private final int[] recordLengths = new int[MAX_RECORDS];
+    private final long[] recordTimestamps = new long[MAX_RECORDS];
+    private final String[] recordTypes = new String[MAX_RECORDS];
+    private final boolean[] recordTruncated = new boolean[MAX_RECORDS];
+    private long recordsWritten;
+    private volatile long lastActivity;
+
+    RecentTrafficBuffer(final ConnectionInfo connection, final int capacity)
+    {
+        this.connection = connection;
+        this.data = new byte[capacity];
+    }
+
+    ConnectionInfo getConnection()
+    {
+        return connection;
+    }
+
+    /**
+     * Returns the time at which traffic was last recorded.
+     *
+     * @return a timestamp in milliseconds since the epoch.
+     */
+    long getLastActivity()
+    {
+        return lastActivity;
+    }
+
+    /**
+     * Returns the amount of bytes that this buffer can retain.
+     *
+     * @return the capacity in bytes.
+     */
+    int getCapacity()
+    {
+        return data.length;
+    }
+
+    /**
+     * Returns the total amount of bytes that was recorded (including bytes that have since been overwritten).
+     *
+     * @return the amount of recorded bytes.
+     */
+    synchronized long getBytesWritten()
+    {
+        return bytesWritten;
+    }
+
+    /**
+     * Records an event that has no payload.
+     *
+     * @param timestamp the time (in milliseconds since the epoch) at which the event occurred.
+     * @param type the type of the event (eg: "OPEN").
+     */
+    synchronized void record(final long timestamp, final String type)
+    {
+        addRecord(timestamp, type, 0, false);
+    }
+
+    /**
+     * Records a frame. The readable bytes of the buffer are copied; its indexes are not modified.
+     *
+     * @param timestamp the time (in milliseconds since the epoch) at which the frame was observed.
+     * @param type the type of the frame (eg: "RECV").
+     * @param content the bytes of the frame.
+     */
+    synchronized void record(final long timestamp, final String type, final ByteBuf content)
+    {
+        int length = content.readableBytes();
+        int sourceIndex = content.readerIndex();
+        final boolean truncated = length > data.length;
+        if (truncated) {
+            // Retain only the tail of a frame that exceeds the capacity of this buffer.
+            sourceIndex += length - data.length;
+            length = data.length;
+        }
+
+        final int position = (int) (bytesWritten % data.length);
+        final int firstPart = Math.min(length, data.length - position);
+        content.getBytes(sourceIndex, data, position, firstPart);
+        if (firstPart < length) {
+            content.getBytes(sourceIndex + firstPart, data, 0, length - firstPart);
+        }
+        addRecord(timestamp, type, length, truncated);
+    }
+
+    private void addRecord(final long timestamp, final String type, final int length, final boolean truncated)
+    {
+        final int index = (int) (recordsWritten % MAX_RECORDS);
+        recordStarts[index] = bytesWritten;
+        recordLengths[index] = length;
+        recordTimestamps[index] = timestamp;
+        recordTypes[index] = type;
+        recordTruncated[index] = truncated;
+        recordsWritten++;
+        bytesWritten += length;
+        lastActivity = timestamp;
+    }
+
+    /**
+     * Returns a copy of all records of which the data has not been overwritten, oldest first.
+     *
+     * @return the retained records.
+     */
+    synchronized List<Record> snapshot()
+    {
+        final long firstRecord = Math.max(0, recordsWritten - MAX_RECORDS);
+        final long oldestRetainedByte = bytesWritten - data.length;
+        final List<Record> result = new ArrayList<>((int) (recordsWritten - firstRecord));
+        for (long r = firstRecord; r < recordsWritten; r++) {
+            final int index = (int) (r % MAX_RECORDS);
+            if (recordStarts[index] < oldestRetainedByte) {
+                continue; // (partially) overwritten.
+            }
+            final int length = recordLengths[index];
+            final byte[] payload = new byte[length];
+            final int position = (int) (recordStarts[index] % data.length);
+            final int firstPart = Math.min(length, data.length - position);
+            System.arraycopy(data, position, payload, 0, firstPart);
+            if (firstPart < length) {
+                System.arraycopy(data, 0, payload, firstPart, length - firstPart);
+            }
+            result.add(new Record(recordTimestamps[index], recordTypes[index], payload, recordTruncated[index]));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import io.netty.buffer.Unpooled;
+import org.jivesoftware.admin.FlashMessageTag;
+import org.jivesoftware.util.ParamUtils;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Admin console page that shows the traffic that is retained in memory for each connection, and the incidents that
+ * were recorded by the {@link ParseFailureDetector}.
+ */
+@SuppressWarnings("serial")
+public class RecentTrafficServlet extends HttpServlet
+{
+    /**
+     * Maximum amount of connections that is listed on the page.
+     */
+    private static final int MAX_LISTED_CONNECTIONS = 100;
+
+    private static DebuggerPlugin plugin;
+
+    @Override
+    public void init() {
+        plugin = DebuggerPlugin.getInstance();
+    }
+
+    @Override
+    protected void doGet(final HttpServletRequest request, final HttpServletResponse response) throws ServletException, IOException
+    {
+        final String search = ParamUtils.getStringParameter(request, "search", "").trim();
+        final long selectedId = ParamUtils.getLongParameter(request, "connection", -1);
+        final long incidentId = ParamUtils.getLongParameter(request, "incident", -1);
+
+        // Only the most recently active connections matching the search are listed, to keep this page usable on servers with many connections.
+        final List<ConnectionSummary> connections = plugin.getRecentTraffic().getBuffers().stream()
+            .filter(buffer -> search.isEmpty() || buffer.getConnection().getRemoteAddress().contains(search) || String.valueOf(buffer.getConnection().getConnectionId()).equals(search))
+            .sorted(Comparator.comparingLong(RecentTrafficBuffer::getLastActivity).reversed())
+            .limit(MAX_LISTED_CONNECTIONS)
+            .map(ConnectionSummary::new)
+            .collect(Collectors.toList());
+
+        request.setAttribute("enabled", RecentTraffic.enabledProperty.getValue());
+        request.setAttribute("sizeKB", RecentTraffic.sizeProperty.getValue());
+        request.setAttribute("search", search);
+        request.setAttribute("connections", connections);
+        request.setAttribute("connectionCount", plugin.getRecentTraffic().getBuffers().size());
+
+        final RecentTrafficBuffer selected = selectedId >= 0 ? plugin.getRecentTraffic().get(selectedId) : null;
+        if (selected != null) {
+            request.setAttribute("selected", new ConnectionSummary(selected));
+            request.setAttribute("lines", render(selected));
+        }
+
+        request.setAttribute("parseFailuresEnabled", ParseFailureDetector.enabledProperty.getValue());
+        request.setAttribute("interpretedEnabled", plugin.getInterpretedPrinter().isEnabled());
+        final List<ParseFailureIncident> incidents = plugin.getParseFailureDetector().getIncidents();
+        request.setAttribute("incidents", incidents);
+        request.setAttribute("incidentCount", incidents.size());
+        if (incidentId >= 0) {
+            request.setAttribute("selectedIncident", plugin.getParseFailureDetector().getIncident(incidentId));
+        }
+
+        request.getRequestDispatcher("recent-traffic.jsp").forward(request, response);
+    }
+
+    @Override
+    protected void doPost(final HttpServletRequest request, final HttpServletResponse response) throws IOException
+    {
+        final HttpSession session = request.getSession();
+
+        if (request.getParameter("cancel") != null) {
+            session.setAttribute(FlashMessageTag.WARNING_MESSAGE_KEY, "No changes were made");
+            response.sendRedirect(request.getRequestURI());
+            return;
+        }
+
+        RecentTraffic.enabledProperty.setValue(ParamUtils.getBooleanParameter(request, "enabled"));
+        RecentTraffic.sizeProperty.setValue(ParamUtils.getIntParameter(request, "sizeKB", RecentTraffic.sizeProperty.getDefaultValue()));
+        ParseFailureDetector.enabledProperty.setValue(ParamUtils.getBooleanParameter(request, "parseFailuresEnabled"));
+
+        session.setAttribute(FlashMessageTag.SUCCESS_MESSAGE_KEY, "Recent traffic settings updated");
+        response.sendRedirect(request.getRequestURI());
+    }
+
+    /**
+     * Renders the retained traffic of a connection in the text layout of the log file, masking sensitive data when
+     * redaction is enabled.
+     *
+     * @param buffer the retained traffic.
+     * @return one line of text per retained record.
+     */
+    static List<String> render(final RecentTrafficBuffer buffer)
+    {
+        final TextLayout layout = new TextLayout();
+        final List<String> result = new ArrayList<>();
+        final StringBuilder line = new StringBuilder();
+
+        // Retained traffic is stored as it was observed. It is masked per direction, as it would have been when logged.
+        final Redactor redactor = Redactor.current();
+        final Redactor.State received = redactor != null ? redactor.newState() : null;
+        final Redactor.State sent = redactor != null ? redactor.newState() : null;
+        for (final RecentTrafficBuffer.Record record : buffer.snapshot()) {
+            if (redactor != null) {
+                Redactor.redact("RECV".equals(record.type) ? received : sent, record.payload);
+            }
+            final CaptureEntry entry = record.payload.length == 0 && ("OPEN".equals(record.type) || "CLSD".equals(record.type))
+                ? CaptureEntry.ofEvent(buffer.getConnection(), record.timestamp, record.type)
+                : CaptureEntry.ofBytes(buffer.getConnection(), record.timestamp, record.type, Unpooled.wrappedBuffer(record.payload));
+            try {
+                line.setLength(0);
+                layout.format(entry, line);
+                if (record.truncated) {
+                    line.append(" [truncated]");
+                }
+                result.add(line.toString());
+            } finally {
+                entry.release();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Describes a connection for which traffic is retained, as shown on the admin console page.
+     */
+    public static class ConnectionSummary
+    {
+        private final long connectionId;
+        private final String portType;
+        private final String remoteAddress;
+        private final long bytesRecorded;
+        private final int capacity;
+        private final long lastActivity;
+
+        ConnectionSummary(final RecentTrafficBuffer buffer)
+        {
+            this.connectionId = buffer.getConnection().getConnectionId();
+            this.portType = buffer.getConnection().getPortType();
+            this.remoteAddress = buffer.getConnection().getRemoteAddress();
+            this.bytesRecorded = buffer.getBytesWritten();
+            this.capacity = buffer.getCapacity();
+            this.lastActivity = buffer.getLastActivity();
+        }
+
+        public long getConnectionId() {
+            return connectionId;
+        }
+
+        public String getPortType() {
+            return portType;
+        }
+
+        public String getRemoteAddress() {
+            return remoteAddress;
+        }
+
+        public long getBytesRecorded() {
+            return bytesRecorded;
+        }
+
+        public long getBytesRetained() {
+            return Math.min(bytesRecorded, capacity);
+        }
+
+        public long getLastActivity() {
+            return lastActivity;
+        }
+
+        public Date getLastActivityDate() {
+            return new Date(lastActivity);
+        }
+    }
+}
@@ -0,0 +1,559 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import io.netty.buffer.ByteBuf;
+import org.jivesoftware.util.SystemProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Masks the character data of sensitive elements (by default: SASL authentication data, passwords and message bodies)
+ * before traffic is written anywhere.
+ *
+ * Payloads are scanned for element names by a small state machine that operates on individual bytes (or characters),
+ * rather than by regular expressions over decoded text. Every byte of character data inside a sensitive element,
+ * including that of elements nested in it, is replaced by an asterisk. Markup is retained, and the length of the payload
+ * does not change. As element names are ASCII, the same scanner works on UTF-8 bytes and on characters. Names are
+ * matched on their local part: a namespace prefix is ignored.
+ *
+ * A sensitive element can span several frames of raw traffic. The state of the scanner is therefore kept per connection
+ * and direction (see {@link State}). Text payloads and intercepted packets are complete, and are scanned from a fresh
+ * state. Payloads that do not contain a sensitive element are not copied.
+ *
+ * When the scanner does not see all traffic of a connection (because frames were dropped or skipped, because redaction
+ * was enabled while the connection was established, or because the connection was not captured from its start), it
+ * cannot tell whether the traffic that follows is inside a sensitive element. It then masks all character data until the
+ * next stanza boundary: the start or end tag of a stanza or stream.
+ *
+ * Instances are immutable, and are replaced when the configuration changes. The state of a connection is carried over
+ * to the new configuration, so that an element that is being masked remains masked until it ends.
+ */
+final class Redactor
+{
+    private static final char MASK = '*';
+
+    /**
+     * The local names of the elements that start or end at a stanza boundary, where the scanner can resynchronize.
+     */
+    private static final byte[][] BOUNDARY_NAMES = {
+        "message".getBytes(StandardCharsets.US_ASCII),
+        "presence".getBytes(StandardCharsets.US_ASCII),
+        "iq".getBytes(StandardCharsets.US_ASCII),
+        "stream".getBytes(StandardCharsets.US_ASCII),
+    };
+
+    public static final SystemProperty<Boolean> enabledProperty = SystemProperty.Builder.ofType(Boolean.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "redaction.enabled")
+        .setDefaultValue(false)
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .addListener(value -> {
+            if (value) {
+                // Traffic was not scanned while redaction was disabled: states of earlier redactors are not resumed.
+                configured = new Redactor(Redactor.configured.elements, Redactor.configured.epoch + 1);
+            }
+        })
+        .build();
+    public static final SystemProperty<String> elementsProperty = SystemProperty.Builder.ofType(String.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "redaction.elements")
+        .setDefaultValue("auth, response, password, body")
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .addListener(value -> configured = new Redactor(value, Redactor.configured.epoch))
+        .build();
+
+    private static volatile Redactor configured = new Redactor(elementsProperty.getValue(), 0);
+
+    private final String elements;
+
+    /**
+     * Incremented when redaction is enabled. A scanner state is carried over to a new redactor of the same epoch only.
+     */
+    private final int epoch;
+
+    /**
+     * The local names of the sensitive elements, as ASCII bytes.
+     */
+    private final byte[][] names;
+    private final int maxNameLength;
+
+    Redactor(final String elements, final int epoch)
+    {
+        this.elements = elements;
+        this.epoch = epoch;
+        final List<String> values = CaptureFilter.split(elements);
+        this.names = new byte[values.size()][];
+        int max = 0;
+        for (int i = 0; i < names.length; i++) {
+            names[i] = values.get(i).getBytes(StandardCharsets.US_ASCII);
+            max = Math.max(max, names[i].length);
+        }
+        this.maxNameLength = max;
+    }
+
+    /**
+     * Returns the redactor that applies the current configuration.
+     *
+     * @return a redactor, or null if redaction is disabled.
+     */
+    static Redactor current()
+    {
+        return enabledProperty.getValue() ? configured : null;
+    }
+
+    /**
+     * Masks a text if redaction is enabled.
+     *
+     * @param text the complete text.
+     * @return the text, masked if needed.
+     */
+    static String redactIfEnabled(final String text)
+    {
+        final Redactor redactor = current();
+        if (redactor == null) {
+            return text;
+        }
+        final String redacted = redactor.redact(text);
+        return redacted != null ? redacted : text;
+    }
+
+    /**
+     * Masks the payload of an entry, replacing it by a masked copy when it contains sensitive data. Raw traffic is
+     * scanned with the state of its connection and direction: the entries of a connection must be passed in the order in
+     * which they were observed, by a single thread.
+     *
+     * Intercepted packets are not serialized until they are rendered. These are masked by the {@link TextLayout}.
+     *
+     * @param entry the entry to mask.
+     */
+    void redact(final CaptureEntry entry)
+    {
+        final ByteBuf content = entry.getContent();
+        if (content != null && entry.getConnection() != null) {
+            final ByteBuf redacted = redact(stateFor(entry.getConnection(), "RECV".equals(entry.getType())), content);
+            if (redacted != content) {
+                entry.setContent(redacted);
+            }
+        } else if (entry.getText() != null) {
+            final String redacted = redact(entry.getText());
+            if (redacted != null) {
+                entry.setText(redacted);
+            }
+        }
+    }
+
+    /**
+     * Returns the scanner state of one direction of a connection. A state is created if it does not exist, and replaced
+     * if it was created by another redactor. A state that does not follow on from the traffic that was scanned before
+     * resynchronizes at the next stanza boundary.
+     */
+    State stateFor(final ConnectionInfo connection, final boolean received)
+    {
+        State state = connection.getRedactionState(received);
+        if (state == null) {
+            // The connection may not have been captured from its start.
+            state = new State(this, true);
+            connection.setRedactionState(received, state);
+        } else if (state.redactor != this) {
+            state = state.redactor.epoch == epoch ? new State(this, state) : new State(this, true);
+            connection.setRedactionState(received, state);
+        }
+        if (connection.takeRedactionGap(received)) {
+            state.resynchronize();
+        }
+        return state;
+    }
+
+    /**
+     * Creates a scanner state for traffic that is scanned outside of the log writer, and that does not necessarily start
+     * at the start of a stream. The state resynchronizes at the first stanza boundary.
+     *
+     * @return a new state.
+     */
+    State newState()
+    {
+        return new State(this, true);
+    }
+
+    /**
+     * Masks the readable bytes of a buffer. The buffer itself is never modified, as its memory can be shared with the
+     * network pipeline: the bytes are copied when the first byte that is to be masked is found.
+     *
+     * @param state the state of the scanner.
+     * @param content the bytes to scan.
+     * @return the buffer itself if nothing was masked, otherwise a masked copy (which must be released by the caller).
+     */
+    static ByteBuf redact(final State state, final ByteBuf content)
+    {
+        final int start = content.readerIndex();
+        final int end = content.writerIndex();
+        ByteBuf copy = null;
+        for (int i = start; i < end; i++) {
+            if (state.mask(content.getByte(i))) {
+                if (copy == null) {
+                    copy = content.alloc().heapBuffer(end - start);
+                    copy.writeBytes(content, start, end - start);
+                }
+                copy.setByte(i - start, MASK);
+            }
+        }
+        return copy != null ? copy : content;
+    }
+
+    /**
+     * Masks bytes in place.
+     *
+     * @param state the state of the scanner.
+     * @param bytes the bytes to scan.
+     */
+    static void redact(final State state, final byte[] bytes)
+    {
+        for (int i = 0; i < bytes.length; i++) {
+            if (state.mask(bytes[i])) {
+                bytes[i] = MASK;
+            }
+        }
+    }
+
+    /**
+     * Masks a complete text.
+     *
+     * @param text the text to scan.
+     * @return a masked copy of the text, or null if nothing was masked.
+     */
+    String redact(final CharSequence text)
+    {
+        final State state = new State(this, false);
+        char[] copy = null;
+        for (int i = 0; i < text.length(); i++) {
+            if (state.mask(text.charAt(i))) {
+                if (copy == null) {
+                    copy = text.toString().toCharArray();
+                }
+                copy[i] = MASK;
+            }
+        }
+        return copy != null ? new String(copy) : null;
+    }
+
+    /**
+     * Masks, in place, a complete text that was appended to a builder.
+     *
+     * @param out the builder.
+     * @param start the index of the first character of the text.
+     */
+    void redact(final StringBuilder out, final int start)
+    {
+        final State state = new State(this, false);
+        for (int i = start; i < out.length(); i++) {
+            if (state.mask(out.charAt(i))) {
+                out.setCharAt(i, MASK);
+            }
+        }
+    }
+
+    private static byte[] find(final byte[][] candidates, final byte[] name, final int length)
+    {
+        for (final byte[] candidate : candidates) {
+            if (nameEquals(candidate, name, length)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static boolean nameEquals(final byte[] expected, final byte[] name, final int length)
+    {
+        if (expected.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (expected[i] != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The position of the scanner in a stream of XML. Instances are not thread-safe.
+     */
+    static final class State
+    {
+        private static final int TEXT = 0;
+        private static final int TAG_START = 1;
+        private static final int NAME = 2;
+        private static final int ATTRIBUTES = 3;
+        private static final int MARKUP_DECLARATION = 4; // After '<!': a comment, a CDATA section or a declaration.
+        private static final int COMMENT = 5;
+        private static final int CDATA = 6;
+        private static final int DECLARATION = 7;
+        private static final int PROCESSING_INSTRUCTION = 8;
+
+        private static final byte[] CDATA_START = "[CDATA[".getBytes(StandardCharsets.US_ASCII);
+
+        private final Redactor redactor;
+        private final byte[] name;
+        private int nameLength;
+        private int mode = TEXT;
+        private boolean closing;
+        private boolean selfClosing;
+        private int quote;
+
+        /**
+         * In a markup declaration: the amount of characters that matched the start of a comment or CDATA section. In a
+         * comment, CDATA section or processing instruction: the amount of characters that matched its end.
+         */
+        private int matched;
+
+        /**
+         * The name of the sensitive element that is being masked, and the amount of elements of that name that are
+         * open. Masking stops when the depth returns to 0.
+         */
+        private byte[] maskedName;
+        private int depth;
+
+        /**
+         * Set when the position in the stream is not known: all character data is masked until a stanza boundary.
+         */
+        private boolean resynchronizing;
+
+        private State(final Redactor redactor, final boolean resynchronizing)
+        {
+            this.redactor = redactor;
+            this.name = new byte[nameCapacity(redactor, null)];
+            this.resynchronizing = resynchronizing;
+        }
+
+        /**
+         * Creates a state for a new configuration, that continues at the position of the state of the previous one.
+         */
+        private State(final Redactor redactor, final State previous)
+        {
+            this.redactor = redactor;
+            this.name = new byte[nameCapacity(redactor, previous.maskedName)];
+            System.arraycopy(previous.name, 0, name, 0, Math.min(previous.name.length, name.length));
+            this.nameLength = previous.nameLength;
+            this.mode = previous.mode;
+            this.closing = previous.closing;
+            this.selfClosing = previous.selfClosing;
+            this.quote = previous.quote;
+            this.matched = previous.matched;
+            this.maskedName = previous.maskedName;
+            this.depth = previous.depth;
+            this.resynchronizing = previous.resynchronizing;
+        }
+
+        private static int nameCapacity(final Redactor redactor, final byte[] maskedName)
+        {
+            int capacity = redactor.maxNameLength;
+            for (final byte[] boundary : BOUNDARY_NAMES) {
+                capacity = Math.max(capacity, boundary.length);
+            }
+            return maskedName == null ? capacity : Math.max(capacity, maskedName.length);
+        }
+
+        /**
+         * Forgets the position in the stream, after traffic was not scanned. All character data is masked until the next
+         * stanza boundary.
+         */
+        void resynchronize()
+        {
+            resynchronizing = true;
+            mode = TEXT;
+            quote = 0;
+        }
+
+        private boolean masking()
+        {
+            return depth > 0 || resynchronizing;
+        }
+
+        /**
+         * Advances the scanner by one byte or character.
+         *
+         * @param c the byte or character.
+         * @return true if it is to be masked.
+         */
+        boolean mask(final int c)
+        {
+            switch (mode) {
+                case TEXT:
+                    if (c == '<') {
+                        mode = TAG_START;
+                        return false;
+                    }
+                    return masking();
+
+                case TAG_START:
+                    nameLength = 0;
+                    selfClosing = false;
+                    closing = c == '/';
+                    matched = 0;
+                    if (c == '?') {
+                        mode = PROCESSING_INSTRUCTION;
+                    } else if (c == '!') {
+                        mode = MARKUP_DECLARATION;
+                    } else {
+                        mode = NAME;
+                        if (!closing) {
+                            appendName(c);
+                        }
+                    }
+                    return false;
+
+                case NAME:
+                    if (c == '>') {
+                        endTag();
+                    } else if (c == '/') {
+                        selfClosing = true;
+                        mode = ATTRIBUTES;
+                    } else if (isWhitespace(c)) {
+                        mode = ATTRIBUTES;
+                    } else if (c == ':') {
+                        nameLength = 0; // Ignore the namespace prefix.
+                    } else {
+                        appendName(c);
+                    }
+                    return false;
+
+                case ATTRIBUTES:
+                    if (quote != 0) {
+                        if (c == quote) {
+                            quote = 0;
+                        }
+                    } else if (c == '>') {
+                        endTag();
+                    } else if (c == '/') {
+                        selfClosing = true;
+                    } else if (c == '\'' || c == '"') {
+                        quote = c;
+                        selfClosing = false;
+                    } else if (!isWhitespace(c)) {
+                        selfClosing = false;
+                    }
+                    return false;
+
+                case MARKUP_DECLARATION:
+                    if (matched == 0 && c == '-') {
+                        mode = COMMENT;
+                        matched = -1; // Expecting the second '-' of the start of the comment.
+                        return false;
+                    }
+                    if (c == CDATA_START[matched]) {
+                        if (++matched == CDATA_START.length) {
+                            mode = CDATA;
+                            matched = 0;
+                        }
+                        return false;
+                    }
+                    mode = DECLARATION;
+                    return mask(c);
+
+                case COMMENT:
+                    if (matched < 0) {
+                        matched = 0;
+                        if (c == '-') {
+                            return false;
+                        }
+                        mode = DECLARATION; // Not a comment after all.
+                        return mask(c);
+                    }
+                    return !endsWith(c, '-', "-->") && masking();
+
+                case CDATA:
+                    // The content of a CDATA section is character data: it can contain '<' and '>'.
+                    return !endsWith(c, ']', "]]>") && masking();
+
+                case PROCESSING_INSTRUCTION:
+                    return !endsWith(c, '?', "?>") && masking();
+
+                case DECLARATION:
+                default:
+                    if (c == '>') {
+                        mode = TEXT;
+                    }
+                    return masking();
+            }
+        }
+
+        /**
+         * Tracks the end of a comment, CDATA section or processing instruction, which consists of one or more repeated
+         * characters followed by '>'.
+         *
+         * @return true if this character ends the construct (after which the scanner is back in character data). The
+         * repeated characters that precede it have already been processed (and possibly masked) as content.
+         */
+        private boolean endsWith(final int c, final char repeated, final String end)
+        {
+            if (c == repeated) {
+                matched++;
+                return false;
+            }
+            if (c == '>' && matched >= end.length() - 1) {
+                mode = TEXT;
+                matched = 0;
+                return true;
+            }
+            matched = 0;
+            return false;
+        }
+
+        private static boolean isWhitespace(final int c)
+        {
+            return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+        }
+
+        private void appendName(final int c)
+        {
+            if (nameLength < name.length) {
+                name[nameLength] = c >= 0 && c < 128 ? (byte) c : -1; // Sensitive names are ASCII.
+            }
+            nameLength++; // Names that are longer than any sensitive name are counted, but never match.
+        }
+
+        private void endTag()
+        {
+            mode = TEXT;
+            if (resynchronizing) {
+                if (find(BOUNDARY_NAMES, name, nameLength) == null) {
+                    return;
+                }
+                // At the start or end of a stanza or stream: not inside any sensitive element.
+                resynchronizing = false;
+                depth = 0;
+                maskedName = null;
+            }
+            final boolean matchesMasked = depth > 0 && nameEquals(maskedName, name, nameLength);
+            if (closing) {
+                if (matchesMasked) {
+                    depth--;
+                }
+            } else if (!selfClosing) {
+                if (matchesMasked) {
+                    depth++;
+                } else if (depth == 0 && nameLength <= name.length) {
+                    maskedName = find(redactor.names, name, nameLength);
+                    if (maskedName != null) {
+                        depth = 1;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,379 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import org.jivesoftware.openfire.SessionManager;
+import org.jivesoftware.openfire.StreamID;
+import org.jivesoftware.openfire.event.ServerSessionEventListener;
+import org.jivesoftware.openfire.event.SessionEventListener;
+import org.jivesoftware.openfire.session.ClientSession;
+import org.jivesoftware.openfire.session.DomainPair;
+import org.jivesoftware.openfire.session.IncomingServerSession;
+import org.jivesoftware.openfire.session.Session;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+/**
+ * Indexes the client and incoming server sessions of this server, so that the {@link StanzaSenderServlet} can look up
+ * a session by its stream ID in constant time, and can search sessions page by page, by the prefix of their address or
+ * stream ID, without enumerating all sessions of the server.
+ *
+ * The index is maintained from Openfire's (server) session events. Sessions that exist when the plugin is loaded are
+ * indexed once, by {@link #indexExisting()}. Outgoing server sessions are few, and are not indexed: these are looked up
+ * by their domain pair, and listed after all indexed sessions.
+ */
+public class SessionIndex implements SessionEventListener, ServerSessionEventListener
+{
+    static final String CLIENT_PREFIX = "c2s:";
+    static final String INCOMING_SERVER_PREFIX = "s2s-in:";
+    static final String OUTGOING_SERVER_PREFIX = "s2s-out:";
+
+    /**
+     * Separates the part of a key that is searched from the stream ID that makes the key unique. Keys are used in
+     * cursors, which are passed (encoded) in URLs. A space can occur in the resource part of a JID, but control
+     * characters are not allowed in JIDs, nor do they occur in stream IDs.
+     */
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    // Cursor phases: sessions by address, sessions by stream ID, outgoing server sessions.
+    private static final char BY_ADDRESS = 'a';
+    private static final char BY_STREAM_ID = 's';
+    private static final char OUTGOING = 'o';
+
+    private final Map<String, Entry> byStreamId = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Entry> byAddressKey = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, Entry> byStreamIdKey = new ConcurrentSkipListMap<>();
+    private final Supplier<Collection<DomainPair>> outgoingDomainPairs;
+
+    public SessionIndex()
+    {
+        this(() -> SessionManager.getInstance().getOutgoingDomainPairs());
+    }
+
+    /**
+     * @param outgoingDomainPairs provides the domain pairs of the outgoing server sessions of this server.
+     */
+    SessionIndex(final Supplier<Collection<DomainPair>> outgoingDomainPairs)
+    {
+        this.outgoingDomainPairs = outgoingDomainPairs;
+    }
+
+    /**
+     * Indexes the sessions that already exist.
+     */
+    void indexExisting()
+    {
+        final SessionManager sessionManager = SessionManager.getInstance();
+        for (final ClientSession session : sessionManager.getSessions()) {
+            index(session);
+        }
+        for (final String remoteDomain : sessionManager.getIncomingServers()) {
+            for (final IncomingServerSession session : sessionManager.getIncomingServerSessions(remoteDomain)) {
+                index(session);
+            }
+        }
+    }
+
+    void clear()
+    {
+        byStreamId.clear();
+        byAddressKey.clear();
+        byStreamIdKey.clear();
+    }
+
+    /**
+     * Adds a session to the index, replacing an earlier entry of the same stream, of which the address may have changed.
+     */
+    private void index(final Session session)
+    {
+        final StreamID streamId = session.getStreamID();
+        final String prefix = session instanceof ClientSession ? CLIENT_PREFIX : session instanceof IncomingServerSession ? INCOMING_SERVER_PREFIX : null;
+        if (streamId == null || prefix == null) {
+            return;
+        }
+        final Entry entry = new Entry(prefix, streamId.getID(), session);
+        byStreamId.compute(entry.streamId, (id, previous) -> {
+            if (previous != null) {
+                byAddressKey.remove(previous.addressKey, previous);
+                byStreamIdKey.remove(previous.streamIdKey, previous);
+            }
+            byAddressKey.put(entry.addressKey, entry);
+            byStreamIdKey.put(entry.streamIdKey, entry);
+            return entry;
+        });
+    }
+
+    private void remove(final Session session)
+    {
+        final StreamID streamId = session.getStreamID();
+        if (streamId == null) {
+            return;
+        }
+        byStreamId.computeIfPresent(streamId.getID(), (id, existing) -> {
+            if (existing.session != session) {
+                return existing;
+            }
+            byAddressKey.remove(existing.addressKey, existing);
+            byStreamIdKey.remove(existing.streamIdKey, existing);
+            return null;
+        });
+    }
+
+    /**
+     * Resolves the value of a {@link StanzaSenderServlet.ConnectionOption} to a session.
+     *
+     * @param value the value of the option (eg: "c2s:" followed by a stream ID).
+     * @return the session, or null if the value is invalid or the session no longer exists.
+     */
+    Session resolve(final String value)
+    {
+        if (value.startsWith(OUTGOING_SERVER_PREFIX)) {
+            final DomainPair domainPair = parseDomainPair(value.substring(OUTGOING_SERVER_PREFIX.length()));
+            return domainPair != null ? SessionManager.getInstance().getOutgoingServerSession(domainPair) : null;
+        }
+        final Entry entry = get(value);
+        return entry != null && !entry.session.isClosed() ? entry.session : null;
+    }
+
+    /**
+     * Describes the connection that is identified by the value of a {@link StanzaSenderServlet.ConnectionOption}.
+     *
+     * @param value the value of the option.
+     * @return the option, or null if the value is invalid or the session no longer exists.
+     */
+    StanzaSenderServlet.ConnectionOption describe(final String value)
+    {
+        if (value.startsWith(OUTGOING_SERVER_PREFIX)) {
+            final DomainPair domainPair = parseDomainPair(value.substring(OUTGOING_SERVER_PREFIX.length()));
+            return domainPair != null ? outgoingOption(domainPair) : null;
+        }
+        final Entry entry = get(value);
+        return entry != null ? entry.option() : null;
+    }
+
+    private Entry get(final String value)
+    {
+        final int separator = value.indexOf(':');
+        if (separator < 0) {
+            return null;
+        }
+        final Entry entry = byStreamId.get(value.substring(separator + 1));
+        return entry != null && value.startsWith(entry.prefix) ? entry : null;
+    }
+
+    private static DomainPair parseDomainPair(final String value)
+    {
+        final int splitPosition = value.indexOf('|');
+        if (splitPosition <= 0 || splitPosition == value.length() - 1) {
+            return null;
+        }
+        return new DomainPair(value.substring(0, splitPosition), value.substring(splitPosition + 1));
+    }
+
+    private static StanzaSenderServlet.ConnectionOption outgoingOption(final DomainPair domainPair)
+    {
+        return new StanzaSenderServlet.ConnectionOption(OUTGOING_SERVER_PREFIX + domainPair.getLocal() + "|" + domainPair.getRemote(), "S2S outgoing - " + domainPair.getLocal() + " -> " + domainPair.getRemote());
+    }
+
+    /**
+     * Returns the amount of indexed sessions.
+     *
+     * @return a session count.
+     */
+    int size()
+    {
+        return byStreamId.size();
+    }
+
+    /**
+     * Searches for connections of which the address (the JID of a client session) or the stream ID starts with a prefix.
+     * Connections that match on their address are listed first, in order of their address, followed by those that match
+     * only on their stream ID, and by outgoing server sessions of which the remote domain matches.
+     *
+     * @param query the prefix to search for (case-insensitive). An empty query matches all connections.
+     * @param cursor the cursor of the previous page, or null for the first page.
+     * @param limit the maximum amount of connections on the page.
+     * @return a page of connections.
+     */
+    Page search(final String query, final String cursor, final int limit)
+    {
+        final String prefix = query.toLowerCase(Locale.ROOT);
+        final List<StanzaSenderServlet.ConnectionOption> options = new ArrayList<>(limit);
+        char phase = cursor == null || cursor.isEmpty() ? BY_ADDRESS : cursor.charAt(0);
+        String after = cursor == null || cursor.length() < 2 ? null : cursor.substring(1);
+
+        if (phase == BY_ADDRESS) {
+            for (final Map.Entry<String, Entry> match : range(byAddressKey, prefix, after).entrySet()) {
+                if (!match.getKey().startsWith(prefix)) {
+                    break;
+                }
+                if (options.size() == limit) {
+                    return new Page(options, cursor(BY_ADDRESS, after));
+                }
+                options.add(match.getValue().option());
+                after = match.getKey();
+            }
+            phase = BY_STREAM_ID;
+            after = null;
+        }
+
+        if (phase == BY_STREAM_ID) {
+            if (!prefix.isEmpty()) { // An empty query matched every session on its address.
+                for (final Map.Entry<String, Entry> match : range(byStreamIdKey, prefix, after).entrySet()) {
+                    if (!match.getKey().startsWith(prefix)) {
+                        break;
+                    }
+                    if (match.getValue().addressKey.startsWith(prefix)) {
+                        continue; // Listed by address.
+                    }
+                    if (options.size() == limit) {
+                        return new Page(options, cursor(BY_STREAM_ID, after));
+                    }
+                    options.add(match.getValue().option());
+                    after = match.getKey();
+                }
+            }
+            phase = OUTGOING;
+            after = null;
+        }
+
+        if (phase == OUTGOING) {
+            final NavigableMap<String, DomainPair> outgoing = new TreeMap<>();
+            for (final DomainPair domainPair : outgoingDomainPairs.get()) {
+                final String key = domainPair.getRemote().toLowerCase(Locale.ROOT) + KEY_SEPARATOR + domainPair.getLocal();
+                if (key.startsWith(prefix)) {
+                    outgoing.put(key, domainPair);
+                }
+            }
+            for (final Map.Entry<String, DomainPair> match : (after == null ? outgoing : outgoing.tailMap(after, false)).entrySet()) {
+                if (options.size() == limit) {
+                    return new Page(options, cursor(OUTGOING, after));
+                }
+                options.add(outgoingOption(match.getValue()));
+                after = match.getKey();
+            }
+        }
+        return new Page(options, null);
+    }
+
+    private static String cursor(final char phase, final String after)
+    {
+        return after == null ? String.valueOf(phase) : phase + after;
+    }
+
+    private static NavigableMap<String, Entry> range(final NavigableMap<String, Entry> map, final String prefix, final String after)
+    {
+        return after == null ? map.tailMap(prefix, true) : map.tailMap(after, false);
+    }
+
+    @Override
+    public void sessionCreated(final Session session)
+    {
+        index(session);
+    }
+
+    @Override
+    public void sessionDestroyed(final Session session)
+    {
+        remove(session);
+    }
+
+    @Override
+    public void anonymousSessionCreated(final Session session)
+    {
+        index(session);
+    }
+
+    @Override
+    public void anonymousSessionDestroyed(final Session session)
+    {
+        remove(session);
+    }
+
+    @Override
+    public void resourceBound(final Session session)
+    {
+        index(session); // The address of the session now includes its resource.
+    }
+
+    /**
+     * An indexed session.
+     */
+    private static final class Entry
+    {
+        private final String prefix;
+        private final String streamId;
+        private final Session session;
+        private final String address;
+        private final String addressKey;
+        private final String streamIdKey;
+
+        private Entry(final String prefix, final String streamId, final Session session)
+        {
+            this.prefix = prefix;
+            this.streamId = streamId;
+            this.session = session;
+            this.address = String.valueOf(session.getAddress());
+            this.addressKey = address.toLowerCase(Locale.ROOT) + KEY_SEPARATOR + streamId;
+            this.streamIdKey = streamId.toLowerCase(Locale.ROOT) + KEY_SEPARATOR + streamId;
+        }
+
+        StanzaSenderServlet.ConnectionOption option()
+        {
+            final String type = CLIENT_PREFIX.equals(prefix) ? "C2S" : "S2S incoming";
+            return new StanzaSenderServlet.ConnectionOption(prefix + streamId, type + " - " + address + " (stream: " + streamId + ")");
+        }
+    }
+
+    /**
+     * A page of search results.
+     */
+    static final class Page
+    {
+        private final List<StanzaSenderServlet.ConnectionOption> options;
+        private final String next;
+
+        Page(final List<StanzaSenderServlet.ConnectionOption> options, final String next)
+        {
+            this.options = options;
+            this.next = next;
+        }
+
+        List<StanzaSenderServlet.ConnectionOption> getOptions()
+        {
+            return options;
+        }
+
+        /**
+         * Returns the cursor from which the next page is searched.
+         *
+         * @return a cursor, or null if this is the last page.
+         */
+        String getNext()
+        {
+            return next;
+        }
+    }
+}
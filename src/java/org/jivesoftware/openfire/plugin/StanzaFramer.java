@@ -0,0 +1,328 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import org.jivesoftware.util.SystemProperty;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reassembles the bytes that flow in one direction of a connection into complete top-level XML units: stanzas (and
+ * other top-level elements, such as stream features), stream headers and stream footers.
+ *
+ * Network frames do not align with XML: a single stanza can be split over several frames, and one frame can contain
+ * several stanzas. This class tracks just enough of the XML syntax (tags, attribute values, comments, CDATA sections and
+ * processing instructions) to know the element depth after every byte, without decoding or parsing the bytes. The
+ * {@code stream:stream} element is not counted in the depth, so that a stanza is complete whenever the depth returns to
+ * zero. This also means that the framer recovers when it starts observing a stream in between two stanzas.
+ *
+ * Bytes of an incomplete unit are copied to a buffer. When that buffer exceeds the configured maximum size, its content
+ * is emitted as a partial unit, so that an exceptionally large (or malicious) stanza cannot exhaust memory. Units that
+ * are completely contained in a single frame are captured directly from that frame.
+ *
+ * Instances are not thread-safe. Each instance is intended to be used by one direction of one channel only.
+ */
+final class StanzaFramer
+{
+    /**
+     * Receives the units that are reassembled. Ownership of the buffer is transferred to the receiver.
+     */
+    interface UnitConsumer
+    {
+        void accept(ByteBuf unit);
+    }
+
+    public static final SystemProperty<Boolean> enabledProperty = SystemProperty.Builder.ofType(Boolean.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "framing.enabled")
+        .setDefaultValue(Boolean.FALSE)
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .addListener(enabled -> StanzaFramer.enabled = enabled)
+        .build();
+    public static final SystemProperty<Integer> maxStanzaSizeProperty = SystemProperty.Builder.ofType(Integer.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "framing.maxStanzaSizeKB")
+        .setDefaultValue(512)
+        .setMinValue(1)
+        .setMaxValue(65536)
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .addListener(sizeKB -> StanzaFramer.maxStanzaSize = sizeKB * 1024)
+        .build();
+
+    // Read for every frame, rather than looking up the properties.
+    private static volatile boolean enabled = enabledProperty.getValue();
+    private static volatile int maxStanzaSize = maxStanzaSizeProperty.getValue() * 1024;
+
+    /**
+     * Checks if raw traffic is reassembled into stanzas.
+     *
+     * @return true if stanza framing is enabled.
+     */
+    static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Returns the maximum amount of an incomplete stanza that is buffered.
+     *
+     * @return a size in bytes.
+     */
+    static int getMaxStanzaSize()
+    {
+        return maxStanzaSize;
+    }
+
+    private static final byte[] STREAM_NAME = "stream:stream".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int TEXT = 0;
+    private static final int TAG_OPEN = 1;          // After '<'.
+    private static final int START_TAG = 2;         // In a start tag, outside of attribute values.
+    private static final int ATTRIBUTE_VALUE = 3;   // In a quoted attribute value.
+    private static final int EMPTY_TAG_END = 4;     // After '/' in a start tag.
+    private static final int END_TAG = 5;           // In an end tag.
+    private static final int PROCESSING = 6;        // In a processing instruction or XML declaration.
+    private static final int DECLARATION = 7;       // After '<!'.
+    private static final int COMMENT = 8;
+    private static final int CDATA = 9;
+
+    private int state = TEXT;
+    private int depth;
+    private byte quote;
+
+    /**
+     * Amount of characters of the current element name that were compared to {@link #STREAM_NAME}, or -1 if the name
+     * is known not to match.
+     */
+    private int nameMatch;
+
+    /**
+     * Amount of consecutive '-', ']' or '?' characters that were observed, to detect the end of comments, CDATA
+     * sections and processing instructions.
+     */
+    private int terminatorCount;
+
+    /**
+     * Whether any markup of the current unit was observed. While this is false, the pending bytes are whitespace (or
+     * stray text) between units.
+     */
+    private boolean unitStarted;
+
+    private ByteBuf pending;
+
+    /**
+     * Processes the readable bytes of a frame. The reader index of the frame is not modified.
+     *
+     * @param allocator the allocator to use for buffers of incomplete units.
+     * @param frame the bytes of the frame.
+     * @param maxPendingBytes the maximum amount of bytes of an incomplete unit that are buffered.
+     * @param consumer receives every unit that is completed by the bytes of this frame.
+     */
+    void feed(final ByteBufAllocator allocator, final ByteBuf frame, final int maxPendingBytes, final UnitConsumer consumer)
+    {
+        final int end = frame.writerIndex();
+        int unitStart = frame.readerIndex();
+        for (int i = unitStart; i < end; i++) {
+            final byte b = frame.getByte(i);
+            if (state == TEXT && b == '<' && depth == 0 && !unitStarted && i > unitStart) {
+                // Whatever precedes a top-level element is a unit of its own (typically whitespace keep-alives).
+                emit(allocator, frame, unitStart, i, consumer);
+                unitStart = i;
+            }
+            if (advance(b)) {
+                emit(allocator, frame, unitStart, i + 1, consumer);
+                unitStart = i + 1;
+            }
+        }
+
+        if (unitStart < end) {
+            if (state == TEXT && depth == 0 && !unitStarted) {
+                emit(allocator, frame, unitStart, end, consumer);
+                return;
+            }
+            if (pending == null) {
+                pending = allocator.directBuffer(end - unitStart);
+            }
+            pending.writeBytes(frame, unitStart, end - unitStart);
+            if (pending.readableBytes() >= maxPendingBytes) {
+                // Emit what is buffered as a partial unit, but keep tracking the structure of the XML.
+                consumer.accept(pending);
+                pending = null;
+            }
+        }
+    }
+
+    private void emit(final ByteBufAllocator allocator, final ByteBuf frame, final int from, final int to, final UnitConsumer consumer)
+    {
+        unitStarted = false;
+        if (pending == null) {
+            consumer.accept(RawPrintChannelHandler.capture(allocator, frame.slice(from, to - from)));
+        } else {
+            pending.writeBytes(frame, from, to - from);
+            consumer.accept(pending);
+            pending = null;
+        }
+    }
+
+    /**
+     * Updates the state with one byte.
+     *
+     * @param b the byte.
+     * @return true if the byte completes a unit.
+     */
+    private boolean advance(final byte b)
+    {
+        switch (state) {
+            case TEXT:
+                if (b == '<') {
+                    state = TAG_OPEN;
+                    unitStarted = true;
+                }
+                return false;
+
+            case TAG_OPEN:
+                nameMatch = 0;
+                terminatorCount = 0;
+                if (b == '/') {
+                    state = END_TAG;
+                } else if (b == '?') {
+                    state = PROCESSING;
+                } else if (b == '!') {
+                    state = DECLARATION;
+                } else {
+                    state = START_TAG;
+                    matchName(b);
+                }
+                return false;
+
+            case START_TAG:
+                if (b == '"' || b == '\'') {
+                    quote = b;
+                    state = ATTRIBUTE_VALUE;
+                } else if (b == '/') {
+                    state = EMPTY_TAG_END;
+                } else if (b == '>') {
+                    state = TEXT;
+                    if (isStreamName()) {
+                        depth = 0; // A new stream. Recover from any earlier confusion.
+                        return true;
+                    }
+                    depth++;
+                } else {
+                    matchName(b);
+                }
+                return false;
+
+            case ATTRIBUTE_VALUE:
+                if (b == quote) {
+                    state = START_TAG;
+                }
+                return false;
+
+            case EMPTY_TAG_END:
+                if (b == '>') {
+                    state = TEXT;
+                    return depth == 0;
+                }
+                state = START_TAG; // Not valid XML. Carry on as if the '/' was not there.
+                return false;
+
+            case END_TAG:
+                if (b == '>') {
+                    state = TEXT;
+                    if (isStreamName()) {
+                        depth = 0;
+                        return true;
+                    }
+                    if (depth > 0) {
+                        depth--;
+                    }
+                    return depth == 0;
+                }
+                matchName(b);
+                return false;
+
+            case PROCESSING:
+                if (b == '>' && terminatorCount > 0) {
+                    state = TEXT;
+                }
+                terminatorCount = b == '?' ? 1 : 0;
+                return false;
+
+            case DECLARATION:
+                if (b == '-') {
+                    state = COMMENT;
+                } else if (b == '[') {
+                    state = CDATA;
+                } else if (b == '>') {
+                    state = TEXT;
+                }
+                return false;
+
+            case COMMENT:
+                if (b == '>' && terminatorCount >= 2) {
+                    state = TEXT;
+                }
+                terminatorCount = b == '-' ? terminatorCount + 1 : 0;
+                return false;
+
+            case CDATA:
+                if (b == '>' && terminatorCount >= 2) {
+                    state = TEXT;
+                }
+                terminatorCount = b == ']' ? terminatorCount + 1 : 0;
+                return false;
+
+            default:
+                throw new IllegalStateException("Unknown state: " + state);
+        }
+    }
+
+    private void matchName(final byte b)
+    {
+        if (nameMatch < 0 || nameMatch == Integer.MAX_VALUE) {
+            return; // Known not to match, or the name is complete.
+        }
+        if (b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+            nameMatch = nameMatch == STREAM_NAME.length ? Integer.MAX_VALUE : -1; // The name is complete.
+        } else if (nameMatch < STREAM_NAME.length && STREAM_NAME[nameMatch] == b) {
+            nameMatch++;
+        } else {
+            nameMatch = -1;
+        }
+    }
+
+    private boolean isStreamName()
+    {
+        return nameMatch == STREAM_NAME.length || nameMatch == Integer.MAX_VALUE;
+    }
+
+    /**
+     * Releases the buffered bytes of an incomplete unit (if any), and resets the state of this framer.
+     */
+    void reset()
+    {
+        if (pending != null) {
+            pending.release();
+            pending = null;
+        }
+        state = TEXT;
+        depth = 0;
+        unitStarted = false;
+    }
+}
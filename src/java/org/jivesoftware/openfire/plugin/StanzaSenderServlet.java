@@ -2,15 +2,7 @@ package org.jivesoftware.openfire.plugin;
 
 import org.dom4j.Element;
 import org.jivesoftware.admin.FlashMessageTag;
-import org.jivesoftware.openfire.SessionManager;
 import org.jivesoftware.openfire.XMPPServer;
-import org.jivesoftware.openfire.interceptor.InterceptorManager;
-import org.jivesoftware.openfire.interceptor.PacketInterceptor;
-import org.jivesoftware.openfire.interceptor.PacketRejectedException;
-import org.jivesoftware.openfire.session.ClientSession;
-import org.jivesoftware.openfire.session.DomainPair;
-import org.jivesoftware.openfire.session.IncomingServerSession;
-import org.jivesoftware.openfire.session.OutgoingServerSession;
 import org.jivesoftware.openfire.session.Session;
 import org.jivesoftware.util.ParamUtils;
 import org.jivesoftware.util.SAXReaderUtil;
@@ -21,26 +13,41 @@ import org.xmpp.packet.Message;
 import org.xmpp.packet.Packet;
 import org.xmpp.packet.Presence;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class StanzaSenderServlet extends HttpServlet
 {
     private static final Logger Log = LoggerFactory.getLogger(StanzaSenderServlet.class); // beware: this plugin uses its own log file (logged messages will end up in that file, not in openfire.log)
     private static final String DEFAULT_CONNECTION_VALUE = "router";
+    private static final Duration RESULT_TIMEOUT = Duration.ofSeconds(15);
 
     /**
-     * Renders the stanza sender page and exposes currently available connections for selection.
+     * Time that an asynchronously processed request is kept open after the result should have timed out, so that the
+     * correlator (rather than the container) normally reports the timeout.
+     */
+    private static final long ASYNC_TIMEOUT_MARGIN_MS = 5000;
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_LOAD_RATE = 100_000;
+    private static final int MAX_LOAD_CONCURRENCY = 10_000;
+    private static final int MAX_LOAD_DURATION_SECONDS = 3600;
+
+    /**
+     * Renders the stanza sender page, or (when a search query is provided) a page of the connections that can be
+     * selected on it. Connections are no longer all rendered on the page: they are searched for from the page.
      *
      * @param request the incoming HTTP request.
      * @param response the HTTP response used to render the JSP.
@@ -49,7 +56,18 @@ public class StanzaSenderServlet extends HttpServlet
      */
     @Override
     protected void doGet(final HttpServletRequest request, final HttpServletResponse response) throws ServletException, IOException {
-        request.setAttribute("connections", getAvailableConnections());
+        if (request.getParameter("search") != null) {
+            writeConnections(request, response);
+            return;
+        }
+        if (request.getParameter("loadStatus") != null) {
+            writeLoadStatus(response);
+            return;
+        }
+        final Object selected = request.getSession().getAttribute("connection");
+        if (selected instanceof String && !DEFAULT_CONNECTION_VALUE.equals(selected)) {
+            request.setAttribute("selectedConnection", DebuggerPlugin.getInstance().getSessionIndex().describe((String) selected));
+        }
         request.getRequestDispatcher("stanza-send.jsp").forward(request, response);
         final HttpSession session = request.getSession();
         session.removeAttribute("stanza");
@@ -63,8 +81,9 @@ public class StanzaSenderServlet extends HttpServlet
     /**
      * Sends a stanza either through the packet router (default) or through a selected active session.
      *
-     * When an IQ request stanza is submitted, this method temporarily installs an interceptor to
-     * capture the corresponding IQ response for display in the UI.
+     * When an IQ request stanza is submitted, its response is awaited through the {@link IqResponseCorrelator}, for
+     * display in the UI. Where the container supports it, the request is then processed asynchronously: no container
+     * thread is held while waiting, and the admin is redirected when the response arrives or times out.
      *
      * @param request the incoming HTTP request that contains form data.
      * @param response the HTTP response used for redirects.
@@ -80,6 +99,13 @@ public class StanzaSenderServlet extends HttpServlet
             return;
         }
 
+        if (request.getParameter("stopLoad") != null) {
+            DebuggerPlugin.getInstance().getLoadGenerator().stop();
+            session.setAttribute(FlashMessageTag.SUCCESS_MESSAGE_KEY, "Load test stopped");
+            response.sendRedirect(request.getRequestURI());
+            return;
+        }
+
         final String stanza = ParamUtils.getStringParameter(request, "stanza", "").trim();
         final String connection = ParamUtils.getStringParameter(request, "connection", DEFAULT_CONNECTION_VALUE).trim();
         final String template = ParamUtils.getStringParameter(request, "template", "").trim();
@@ -108,6 +134,12 @@ public class StanzaSenderServlet extends HttpServlet
             return;
         }
 
+        if (request.getParameter("startLoad") != null) {
+            startLoad(request, session, stanza, connection);
+            response.sendRedirect(request.getRequestURI());
+            return;
+        }
+
         final Element element;
         try {
             element = SAXReaderUtil.readRootElement(stanza);
@@ -118,86 +150,260 @@ public class StanzaSenderServlet extends HttpServlet
             return;
         }
 
-        final PacketInterceptor resultListener;
-        final CompletableFuture<Packet> result = new CompletableFuture<>();
         final Packet packet;
         try {
-            switch (element.getName()) {
-                case "iq":
-                    packet = new IQ(element);
-                    if (((IQ)packet).isRequest() && packet.getID() != null) {
-                        resultListener = new PacketInterceptor()
-                        {
-                            @Override
-                            public void interceptPacket(Packet response, Session session, boolean read, boolean processed) throws PacketRejectedException
-                            {
-                                if (!processed && response instanceof IQ && ((IQ) response).isResponse() && response.getID().equals(packet.getID()))
-                                {
-                                    result.complete(response);
-                                }
-                            }
-                        };
-                    } else {
-                        resultListener = null;
-                    }
-                    break;
-
-                case "message":
-                    packet = new Message(element);
-                    resultListener = null;
-                    break;
-
-                case "presence":
-                    packet = new Presence(element);
-                    resultListener = null;
-                    break;
-
-                default:
-                    Log.warn("Unable to parse provided input as XMPP. Unrecognized element name: {}", element.getName());
-                    session.setAttribute(FlashMessageTag.ERROR_MESSAGE_KEY, "Unable to parse provided input as XMPP. Unrecognized element name: " + element.getName());
-                    response.sendRedirect(request.getRequestURI());
-                    return;
-            }
+            packet = toPacket(element);
         } catch (RuntimeException e) {
             Log.warn("Unable to parse provided input as XMPP. Input: '{}'", element.asXML(), e);
             session.setAttribute(FlashMessageTag.ERROR_MESSAGE_KEY, "Unable to parse provided input as XMPP.");
             response.sendRedirect(request.getRequestURI());
             return;
         }
+        if (packet == null) {
+            Log.warn("Unable to parse provided input as XMPP. Unrecognized element name: {}", element.getName());
+            session.setAttribute(FlashMessageTag.ERROR_MESSAGE_KEY, "Unable to parse provided input as XMPP. Unrecognized element name: " + element.getName());
+            response.sendRedirect(request.getRequestURI());
+            return;
+        }
+
+        // The response is awaited before the request is sent, as it can be routed back before sending returns.
+        final CompletableFuture<IQ> result;
+        if (packet instanceof IQ && ((IQ) packet).isRequest() && packet.getID() != null) {
+            result = DebuggerPlugin.getInstance().getIqResponseCorrelator().register((IQ) packet, RESULT_TIMEOUT);
+        } else {
+            result = null;
+        }
 
         try {
-            if (resultListener != null) {
-                InterceptorManager.getInstance().addInterceptor(resultListener);
-            }
             if (DEFAULT_CONNECTION_VALUE.equals(connection)) {
                 XMPPServer.getInstance().getPacketRouter().route(packet);
             } else {
                 final Session selectedSession = resolveSession(connection);
                 if (selectedSession == null) {
+                    if (result != null) {
+                        result.cancel(false);
+                    }
                     session.setAttribute(FlashMessageTag.ERROR_MESSAGE_KEY, "The selected connection is no longer available.");
                     response.sendRedirect(request.getRequestURI());
                     return;
                 }
                 selectedSession.process(packet);
             }
-            session.setAttribute(FlashMessageTag.SUCCESS_MESSAGE_KEY, "Stanza sent");
-            if (resultListener != null) {
-                final Packet resultingStanza = result.get(15, TimeUnit.SECONDS);
-                session.setAttribute(FlashMessageTag.SUCCESS_MESSAGE_KEY, "Stanza sent, result received.");
-                session.setAttribute("result", resultingStanza.toString());
+        } catch (RuntimeException e) {
+            if (result != null) {
+                result.cancel(false);
             }
-        } catch (ExecutionException | InterruptedException | TimeoutException e) {
-            Log.warn("No response to stanza captured.", e);
-            session.setAttribute(FlashMessageTag.WARNING_MESSAGE_KEY, "No response to stanza captured.");
+            throw e;
+        }
+        session.setAttribute(FlashMessageTag.SUCCESS_MESSAGE_KEY, "Stanza sent");
+
+        if (result == null) {
             response.sendRedirect(request.getRequestURI());
             return;
-        } finally {
-            if (resultListener != null) {
-                InterceptorManager.getInstance().removeInterceptor(resultListener);
+        }
+
+        if (!request.isAsyncSupported()) {
+            // The container (or a filter in front of this servlet) does not allow the request to be completed later.
+            IQ resultingStanza = null;
+            Throwable failure = null;
+            try {
+                resultingStanza = result.get();
+            } catch (ExecutionException e) {
+                failure = e.getCause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = e;
+            } finally {
+                result.cancel(false);
             }
+            applyResult(session, resultingStanza, failure);
+            response.sendRedirect(request.getRequestURI());
+            return;
         }
 
-        response.sendRedirect(request.getRequestURI());
+        // Release the container thread: the request is completed when the response is received, or times out.
+        final AsyncContext asyncContext = request.startAsync();
+        final PendingResult pendingResult = new PendingResult(asyncContext, session, request.getRequestURI(), result);
+        asyncContext.setTimeout(RESULT_TIMEOUT.toMillis() + ASYNC_TIMEOUT_MARGIN_MS);
+        asyncContext.addListener(pendingResult);
+        result.whenComplete(pendingResult::onResult);
+    }
+
+    /**
+     * Stores the outcome of waiting for the response to an IQ request as flash messages in the session of the admin.
+     *
+     * @param session the session of the admin that sent the request.
+     * @param resultingStanza the response, or null if none was received.
+     * @param failure the reason for which no response was received, if any.
+     */
+    private static void applyResult(final HttpSession session, final IQ resultingStanza, final Throwable failure)
+    {
+        if (resultingStanza != null) {
+            session.setAttribute(FlashMessageTag.SUCCESS_MESSAGE_KEY, "Stanza sent, result received.");
+            session.setAttribute("result", resultingStanza.toString());
+        } else {
+            Log.warn("No response to stanza captured.", failure);
+            session.setAttribute(FlashMessageTag.WARNING_MESSAGE_KEY, "No response to stanza captured.");
+        }
+    }
+
+    /**
+     * An asynchronously processed request that waits for the response to an IQ request. It is completed exactly once:
+     * when the response is received, when the correlator times out, or when the container times out or fails the
+     * request, whichever happens first.
+     */
+    private static final class PendingResult implements AsyncListener
+    {
+        private final AsyncContext asyncContext;
+        private final HttpSession session;
+        private final String location;
+        private final CompletableFuture<IQ> result;
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        private PendingResult(final AsyncContext asyncContext, final HttpSession session, final String location, final CompletableFuture<IQ> result)
+        {
+            this.asyncContext = asyncContext;
+            this.session = session;
+            this.location = location;
+            this.result = result;
+        }
+
+        /**
+         * Invoked by the correlator, typically on a thread that routes packets. The response to the admin is written on a
+         * container thread instead.
+         */
+        private void onResult(final IQ resultingStanza, final Throwable failure)
+        {
+            if (completed.get()) {
+                return;
+            }
+            try {
+                asyncContext.start(() -> complete(resultingStanza, failure));
+            } catch (IllegalStateException e) {
+                // The container completed the request in the meantime.
+                Log.debug("Unable to complete the request after its result became available.", e);
+            }
+        }
+
+        private void complete(final IQ resultingStanza, final Throwable failure)
+        {
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                applyResult(session, resultingStanza, failure);
+                ((HttpServletResponse) asyncContext.getResponse()).sendRedirect(location);
+            } catch (IOException | RuntimeException e) {
+                Log.debug("Unable to send the result of the stanza to the admin console.", e);
+            } finally {
+                asyncContext.complete();
+            }
+        }
+
+        @Override
+        public void onTimeout(final AsyncEvent event)
+        {
+            complete(null, new TimeoutException("The request timed out before a response was received."));
+            result.cancel(false);
+        }
+
+        @Override
+        public void onError(final AsyncEvent event)
+        {
+            complete(null, event.getThrowable());
+            result.cancel(false);
+        }
+
+        @Override
+        public void onComplete(final AsyncEvent event)
+        {
+            result.cancel(false);
+        }
+
+        @Override
+        public void onStartAsync(final AsyncEvent event)
+        {
+        }
+    }
+
+    /**
+     * Starts a run of the {@link LoadGenerator}, using the submitted stanza as its template. The parameters of the run
+     * are retained in the session of the admin, so that they are prefilled on the next visit.
+     *
+     * @param request the incoming HTTP request that contains form data.
+     * @param session the session of the admin.
+     * @param stanza the stanza template.
+     * @param connection the form value of the selected connection.
+     */
+    private static void startLoad(final HttpServletRequest request, final HttpSession session, final String stanza, final String connection) {
+        final int rate = Math.max(1, Math.min(MAX_LOAD_RATE, ParamUtils.getIntParameter(request, "loadRate", 10)));
+        final int concurrency = Math.max(1, Math.min(MAX_LOAD_CONCURRENCY, ParamUtils.getIntParameter(request, "loadConcurrency", 10)));
+        final int duration = Math.max(1, Math.min(MAX_LOAD_DURATION_SECONDS, ParamUtils.getIntParameter(request, "loadDuration", 10)));
+        final long count = Math.max(0, ParamUtils.getLongParameter(request, "loadCount", 0));
+        session.setAttribute("loadRate", rate);
+        session.setAttribute("loadConcurrency", concurrency);
+        session.setAttribute("loadDuration", duration);
+        session.setAttribute("loadCount", count);
+        try {
+            DebuggerPlugin.getInstance().getLoadGenerator().start(new LoadGenerator.Settings(stanza, connection, rate, concurrency, duration, count));
+            session.setAttribute(FlashMessageTag.SUCCESS_MESSAGE_KEY, "Load test started");
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            Log.debug("Unable to start load test.", e);
+            session.setAttribute(FlashMessageTag.ERROR_MESSAGE_KEY, e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the progress and results of the most recent load test as JSON, for the live report on the stanza sender
+     * page. Latencies are in microseconds. The response is <tt>{}</tt> when no load test was started.
+     *
+     * @param response the HTTP response to write to.
+     * @throws IOException if an I/O error occurs while writing the response.
+     */
+    private static void writeLoadStatus(final HttpServletResponse response) throws IOException {
+        final LoadGenerator.Run run = DebuggerPlugin.getInstance().getLoadGenerator().getRun();
+        final StringBuilder json = new StringBuilder(512).append('{');
+        if (run != null) {
+            json.append("\"state\":");
+            JsonLayout.appendString(run.getState().name(), json);
+            json.append(",\"elapsedMillis\":").append(run.getElapsedMillis())
+                .append(",\"rate\":").append(run.getRate())
+                .append(",\"concurrency\":").append(run.getConcurrency())
+                .append(",\"sent\":").append(run.getSent())
+                .append(",\"failures\":").append(run.getFailures())
+                .append(",\"responses\":").append(run.getResponses())
+                .append(",\"errorResponses\":").append(run.getErrorResponses())
+                .append(",\"timeouts\":").append(run.getTimeouts())
+                .append(",\"cancelled\":").append(run.getCancelled())
+                .append(",\"inFlight\":").append(run.getInFlight())
+                .append(",\"latency\":");
+            run.getLatency().appendJson(json);
+        }
+        json.append('}');
+
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        response.getWriter().write(json.toString());
+    }
+
+    /**
+     * Wraps a parsed stanza in the packet type that corresponds to its element name.
+     *
+     * @param element the root element of the stanza.
+     * @return the packet, or {@code null} when the element is not an XMPP stanza.
+     */
+    static Packet toPacket(final Element element) {
+        switch (element.getName()) {
+            case "iq":
+                return new IQ(element);
+            case "message":
+                return new Message(element);
+            case "presence":
+                return new Presence(element);
+            default:
+                return null;
+        }
     }
 
     /**
@@ -236,81 +442,51 @@ public class StanzaSenderServlet extends HttpServlet
     }
 
     /**
-     * Collects all currently active C2S and S2S connections that can be selected in the UI.
+     * Writes a page of connections that match a search as JSON, for the connection picker of the stanza sender page.
+     * The response has the form <tt>{"connections":[{"value":"...","label":"..."}],"next":"..."}</tt>, in which
+     * <tt>next</tt> is the cursor of the next page (absent on the last page).
      *
-     * @return a list of selectable connection options.
+     * @param request the incoming HTTP request, with the search query, optional cursor and optional page size.
+     * @param response the HTTP response to write to.
+     * @throws IOException if an I/O error occurs while writing the response.
      */
-    private static List<ConnectionOption> getAvailableConnections() {
-        final SessionManager sessionManager = SessionManager.getInstance();
-        final List<ConnectionOption> result = new ArrayList<>();
-
-        for (final ClientSession clientSession : sessionManager.getSessions()) {
-            final String streamId = clientSession.getStreamID() != null ? clientSession.getStreamID().getID() : null;
-            if (streamId != null) {
-                result.add(new ConnectionOption("c2s:" + streamId, "C2S - " + clientSession.getAddress() + " (stream: " + streamId + ")"));
-            }
-        }
+    private static void writeConnections(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+        final String query = ParamUtils.getStringParameter(request, "search", "").trim();
+        final String cursor = ParamUtils.getStringParameter(request, "after", null);
+        final int limit = Math.min(MAX_PAGE_SIZE, Math.max(1, ParamUtils.getIntParameter(request, "limit", DEFAULT_PAGE_SIZE)));
+        final SessionIndex.Page page = DebuggerPlugin.getInstance().getSessionIndex().search(query, cursor, limit);
 
-        for (final String remoteDomain : sessionManager.getIncomingServers()) {
-            for (final IncomingServerSession incomingSession : sessionManager.getIncomingServerSessions(remoteDomain)) {
-                final String streamId = incomingSession.getStreamID() != null ? incomingSession.getStreamID().getID() : null;
-                if (streamId != null) {
-                    result.add(new ConnectionOption("s2s-in:" + streamId, "S2S incoming - " + incomingSession.getAddress() + " (stream: " + streamId + ")"));
-                }
-            }
+        final StringBuilder json = new StringBuilder(128 + page.getOptions().size() * 96).append("{\"connections\":[");
+        for (int i = 0; i < page.getOptions().size(); i++) {
+            final ConnectionOption option = page.getOptions().get(i);
+            json.append(i == 0 ? "{\"value\":" : ",{\"value\":");
+            JsonLayout.appendString(option.getValue(), json);
+            json.append(",\"label\":");
+            JsonLayout.appendString(option.getLabel(), json);
+            json.append('}');
         }
-
-        for (final DomainPair domainPair : sessionManager.getOutgoingDomainPairs()) {
-            result.add(new ConnectionOption("s2s-out:" + domainPair.getLocal() + "|" + domainPair.getRemote(), "S2S outgoing - " + domainPair.getLocal() + " -> " + domainPair.getRemote()));
+        json.append(']');
+        if (page.getNext() != null) {
+            json.append(",\"next\":");
+            JsonLayout.appendString(page.getNext(), json);
         }
+        json.append('}');
 
-        return result;
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        response.getWriter().write(json.toString());
     }
 
     /**
-     * Resolves the submitted selection value to a currently active session.
+     * Resolves the submitted selection value to a currently active session. Client and incoming server sessions are
+     * looked up by stream ID in the {@link SessionIndex}, outgoing server sessions by their domain pair.
      *
      * @param selection the form value of the selected connection option.
      * @return the matched session, or {@code null} when the selection is invalid or no longer active.
      */
     private static Session resolveSession(final String selection) {
-        final SessionManager sessionManager = SessionManager.getInstance();
-
-        if (selection.startsWith("c2s:")) {
-            final String streamId = selection.substring("c2s:".length());
-            for (final ClientSession clientSession : sessionManager.getSessions()) {
-                if (clientSession.getStreamID() != null && streamId.equals(clientSession.getStreamID().getID())) {
-                    return clientSession;
-                }
-            }
-            return null;
-        }
-
-        if (selection.startsWith("s2s-in:")) {
-            final String streamId = selection.substring("s2s-in:".length());
-            for (final String remoteDomain : sessionManager.getIncomingServers()) {
-                for (final IncomingServerSession incomingSession : sessionManager.getIncomingServerSessions(remoteDomain)) {
-                    if (incomingSession.getStreamID() != null && streamId.equals(incomingSession.getStreamID().getID())) {
-                        return incomingSession;
-                    }
-                }
-            }
-            return null;
-        }
-
-        if (selection.startsWith("s2s-out:")) {
-            final String value = selection.substring("s2s-out:".length());
-            final int splitPosition = value.indexOf('|');
-            if (splitPosition <= 0 || splitPosition == value.length() - 1) {
-                return null;
-            }
-            final String localDomain = value.substring(0, splitPosition);
-            final String remoteDomain = value.substring(splitPosition + 1);
-            final OutgoingServerSession outgoingServerSession = sessionManager.getOutgoingServerSession(new DomainPair(localDomain, remoteDomain));
-            return outgoingServerSession;
-        }
-
-        return null;
+        return DebuggerPlugin.getInstance().getSessionIndex().resolve(selection);
     }
 
     /**
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import io.netty.buffer.ByteBuf;
+import org.jivesoftware.openfire.session.Session;
+
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Renders {@link CaptureEntry} instances as the human-readable lines that this plugin has always logged.
+ *
+ * Headers are assembled from text that is precomputed per connection (see {@link ConnectionInfo}) and a timestamp of
+ * which the formatted date and time are cached per second. Raw payloads are decoded from UTF-8 into a buffer that is
+ * reused between invocations. Instances of this class are therefore not thread-safe: each is intended to be used by
+ * one log writer thread only.
+ */
+class TextLayout
+{
+    private static final DateTimeFormatter SECONDS_FORMATTER = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss").withZone(ZoneOffset.UTC);
+
+    private long cachedEpochSecond = Long.MIN_VALUE;
+    private String cachedSecondsText;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private CharBuffer chars = CharBuffer.allocate(4096);
+
+    /**
+     * Appends the textual representation of an entry to a builder.
+     *
+     * @param entry the entry to render.
+     * @param out the builder to append to.
+     */
+    void format(final CaptureEntry entry, final StringBuilder out)
+    {
+        final ConnectionInfo connection = entry.getConnection();
+        if (entry.getSession() != null) {
+            appendInterpretedHeader(entry.getSession(), entry.getType(), out);
+        } else if (connection != null) {
+            appendTimestamp(entry.getTimestamp(), out);
+            out.append(" - ").append(connection.getHeaderStart()).append(entry.getType()).append(connection.getHeaderEnd());
+        } else {
+            out.append(entry.getHeader());
+        }
+        if (connection != null && entry.getSequence() > 0) {
+            // Allows raw and interpreted entries of the same connection to be joined, and put in order.
+            out.append(" #").append(connection.getConnectionId()).append(':').append(entry.getSequence());
+        }
+        if (entry.getContent() != null) {
+            out.append(": ");
+            appendUtf8(entry.getContent(), out);
+        } else if (entry.getText() != null) {
+            out.append(": ").append(entry.getText());
+        } else if (entry.getPacket() != null) {
+            final String xml = entry.getPacket().toXML();
+            entry.setRenderedPacketLength(xml.length());
+            out.append(": ");
+            final int start = out.length();
+            out.append(xml);
+            final Redactor redactor = Redactor.current();
+            if (redactor != null) {
+                redactor.redact(out, start);
+            }
+        }
+    }
+
+    /**
+     * Appends the header of an intercepted packet, which is padded so that it aligns with the headers of raw traffic.
+     * Equivalent to the "INT %-16s - %s - (%11s)" format that was historically used.
+     *
+     * @param session the session on which the packet was intercepted.
+     * @param type the type of the event (eg: "RECV").
+     * @param out the builder to append to.
+     */
+    private static void appendInterpretedHeader(final Session session, final String type, final StringBuilder out)
+    {
+        String hostAddress;
+        try {
+            hostAddress = "/" + session.getHostAddress() + ":?????";
+        } catch (final UnknownHostException ignored) {
+            hostAddress = "";
+        }
+        out.append("INT ").append(hostAddress);
+        for (int i = hostAddress.length(); i < 16; i++) {
+            out.append(' ');
+        }
+        out.append(" - ").append(type).append(" - (");
+        final String streamId = String.valueOf(session.getStreamID());
+        for (int i = streamId.length(); i < 11; i++) {
+            out.append(' ');
+        }
+        out.append(streamId).append(')');
+    }
+
+    /**
+     * Appends a timestamp in ISO-8601 format, with millisecond precision, in UTC (eg: 2026-05-13T09:41:07.123Z).
+     *
+     * @param epochMillis the timestamp to format (in milliseconds since the epoch).
+     * @param out the builder to append to.
+     */
+    void appendTimestamp(final long epochMillis, final StringBuilder out)
+    {
+        final long epochSecond = Math.floorDiv(epochMillis, 1000L);
+        if (epochSecond != cachedEpochSecond) {
+            cachedSecondsText = SECONDS_FORMATTER.format(Instant.ofEpochSecond(epochSecond));
+            cachedEpochSecond = epochSecond;
+        }
+        final int millis = (int) Math.floorMod(epochMillis, 1000L);
+        out.append(cachedSecondsText).append('.');
+        if (millis < 100) {
+            out.append('0');
+        }
+        if (millis < 10) {
+            out.append('0');
+        }
+        out.append(millis).append('Z');
+    }
+
+    /**
+     * Decodes the readable bytes of a buffer as UTF-8, appending the result to a builder. The reader index of the buffer
+     * is not modified.
+     *
+     * @param content the bytes to decode.
+     * @param out the builder to append to.
+     */
+    void appendUtf8(final ByteBuf content, final StringBuilder out)
+    {
+        final int length = content.readableBytes();
+        if (length == 0) {
+            return;
+        }
+        final ByteBuffer bytes = content.nioBuffer(content.readerIndex(), length);
+        final int required = (int) (length * (double) decoder.maxCharsPerByte());
+        if (chars.capacity() < required) {
+            chars = CharBuffer.allocate(Integer.highestOneBit(required) << 1);
+        }
+        chars.clear();
+        decoder.reset();
+        decoder.decode(bytes, chars, true);
+        decoder.flush(chars);
+        chars.flip();
+        out.append(chars.array(), chars.arrayOffset(), chars.limit());
+    }
+
+    /**
+     * Shrinks internal buffers that grew to accommodate an exceptionally large payload.
+     */
+    void trim()
+    {
+        if (chars.capacity() > 1024 * 1024) {
+            chars = CharBuffer.allocate(4096);
+        }
+    }
+}
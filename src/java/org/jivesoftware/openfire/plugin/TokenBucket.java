@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free token bucket that limits the rate at which events are accepted.
+ *
+ * The bucket holds at most one second worth of tokens, and is refilled continuously. Rather than counting tokens, it
+ * keeps track of the time at which the bucket would be full again (which is equivalent, but needs only a single
+ * compare-and-set to update). The rate is passed on every invocation, so that a change of configuration takes effect
+ * immediately.
+ */
+final class TokenBucket
+{
+    private static final long BURST_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * The (System.nanoTime based) time at which the bucket is full again. Every accepted event moves this forward by the
+     * interval between events that corresponds to the rate.
+     */
+    private final AtomicLong fullAt = new AtomicLong(System.nanoTime() - BURST_NANOS);
+
+    /**
+     * Attempts to take a token from the bucket.
+     *
+     * @param ratePerSecond the maximum sustained amount of events per second. Zero or less means unlimited.
+     * @return true if the event is accepted, false if it exceeds the rate.
+     */
+    boolean tryAcquire(final int ratePerSecond)
+    {
+        if (ratePerSecond <= 0) {
+            return true;
+        }
+        final long interval = BURST_NANOS / ratePerSecond;
+        while (true) {
+            final long now = System.nanoTime();
+            final long current = fullAt.get();
+            final long next = (current - now < 0 ? now : current) + interval;
+            if (next - now > BURST_NANOS) {
+                return false;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns a token that was taken by {@link #tryAcquire(int)}, for an event that was not accepted after all.
+     *
+     * @param ratePerSecond the rate that was used to take the token.
+     */
+    void release(final int ratePerSecond)
+    {
+        if (ratePerSecond > 0) {
+            fullAt.addAndGet(-(BURST_NANOS / ratePerSecond));
+        }
+    }
+}
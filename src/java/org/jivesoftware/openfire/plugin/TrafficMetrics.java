@@ -0,0 +1,340 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import org.jivesoftware.util.SystemProperty;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the frames and bytes of raw traffic per direction, per connection type and per connection, without capturing
+ * or decoding any payload. Counting applies to connections that are observed by a {@link RawPrintChannelHandler}
+ * (and that match the capture filter), regardless of whether traffic is logged.
+ *
+ * Totals per connection type are kept in {@link LongAdder}s, as they are updated by many event loops. Counters of a
+ * connection are only updated by the event loop of that connection, and are kept in plain volatile fields.
+ */
+public class TrafficMetrics implements TrafficMetricsMXBean
+{
+    /**
+     * The amount of connections that is reported as top talkers over JMX.
+     */
+    static final int JMX_TOP_TALKERS = 10;
+
+    public static final SystemProperty<Boolean> enabledProperty = SystemProperty.Builder.ofType(Boolean.class)
+        .setKey(DebuggerPlugin.PROPERTY_PREFIX + "metrics.enabled")
+        .setDefaultValue(Boolean.FALSE)
+        .setDynamic(true)
+        .setPlugin(DebuggerPlugin.PLUGIN_NAME)
+        .addListener(enabled -> {
+            TrafficMetrics.enabled = enabled;
+            final DebuggerPlugin plugin = DebuggerPlugin.getInstance();
+            if (!enabled && plugin != null) {
+                plugin.getTrafficMetrics().reset();
+            }
+        })
+        .build();
+
+    // Read for every frame, rather than looking up the property.
+    private static volatile boolean enabled = enabledProperty.getValue();
+
+    private final Map<String, PortMetrics> ports = new ConcurrentHashMap<>();
+    private final ConnectionRegistry connectionRegistry;
+
+    /**
+     * Incremented whenever all metrics are reset, allowing handlers to detect that the metrics they hold on to are stale.
+     */
+    private volatile int generation;
+    private volatile long since = System.currentTimeMillis();
+
+    TrafficMetrics(final ConnectionRegistry connectionRegistry)
+    {
+        this.connectionRegistry = connectionRegistry;
+    }
+
+    /**
+     * Returns the metrics of a connection, creating them if they do not exist yet (or were reset).
+     *
+     * @param connection the connection.
+     * @return the metrics of the connection.
+     */
+    ConnectionMetrics forConnection(final ConnectionInfo connection)
+    {
+        final ConnectionMetrics existing = connection.getMetrics();
+        if (existing != null && existing.generation == generation) {
+            return existing;
+        }
+        final PortMetrics port = ports.computeIfAbsent(connection.getPortType(), PortMetrics::new);
+        final ConnectionMetrics created = new ConnectionMetrics(connection, port, generation);
+        connection.setMetrics(created);
+        return created;
+    }
+
+    /**
+     * Returns the metrics of every connection type for which traffic was counted.
+     *
+     * @return metrics, ordered by connection type.
+     */
+    public List<PortMetrics> getPortMetrics()
+    {
+        return new ArrayList<>(new TreeMap<>(ports).values());
+    }
+
+    /**
+     * Returns the open connections that sent and received the most bytes since they were opened (or since metrics were
+     * reset).
+     *
+     * @param limit the maximum amount of connections to return.
+     * @return connection metrics, in decreasing order of total bytes.
+     */
+    public List<ConnectionMetrics> getTopTalkers(final int limit)
+    {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        final Comparator<ConnectionMetrics> byTotalBytes = Comparator.comparingLong(ConnectionMetrics::getTotalBytes);
+        final PriorityQueue<ConnectionMetrics> top = new PriorityQueue<>(limit + 1, byTotalBytes);
+        for (final ConnectionInfo connection : connectionRegistry.getConnections()) {
+            final ConnectionMetrics metrics = connection.getMetrics();
+            if (metrics == null || metrics.generation != generation) {
+                continue;
+            }
+            top.add(metrics);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        final List<ConnectionMetrics> result = new ArrayList<>(top);
+        result.sort(byTotalBytes.reversed());
+        return result;
+    }
+
+    /**
+     * Returns the time at which counting started.
+     *
+     * @return a timestamp, in milliseconds since the epoch.
+     */
+    public long getSince()
+    {
+        return since;
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(final boolean enabled)
+    {
+        enabledProperty.setValue(enabled);
+    }
+
+    @Override
+    public long getReceivedFrames()
+    {
+        return ports.values().stream().mapToLong(port -> port.received.getFrames()).sum();
+    }
+
+    @Override
+    public long getReceivedBytes()
+    {
+        return ports.values().stream().mapToLong(port -> port.received.getBytes()).sum();
+    }
+
+    @Override
+    public long getSentFrames()
+    {
+        return ports.values().stream().mapToLong(port -> port.sent.getFrames()).sum();
+    }
+
+    @Override
+    public long getSentBytes()
+    {
+        return ports.values().stream().mapToLong(port -> port.sent.getBytes()).sum();
+    }
+
+    @Override
+    public Map<String, Long> getReceivedBytesByPortType()
+    {
+        final Map<String, Long> result = new TreeMap<>();
+        ports.forEach((portType, port) -> result.put(portType, port.received.getBytes()));
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getSentBytesByPortType()
+    {
+        final Map<String, Long> result = new TreeMap<>();
+        ports.forEach((portType, port) -> result.put(portType, port.sent.getBytes()));
+        return result;
+    }
+
+    @Override
+    public List<ConnectionMetrics> getTopTalkers()
+    {
+        return getTopTalkers(JMX_TOP_TALKERS);
+    }
+
+    @Override
+    public void reset()
+    {
+        generation++;
+        ports.clear();
+        since = System.currentTimeMillis();
+    }
+
+    /**
+     * Counts the traffic in one direction.
+     */
+    public static class DirectionMetrics
+    {
+        private final LongAdder frames = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final FrameSizeHistogram frameSizes = new FrameSizeHistogram();
+
+        void record(final int size)
+        {
+            frames.increment();
+            bytes.add(size);
+            frameSizes.record(size);
+        }
+
+        public long getFrames() {
+            return frames.sum();
+        }
+
+        public long getBytes() {
+            return bytes.sum();
+        }
+
+        public FrameSizeHistogram getFrameSizes() {
+            return frameSizes;
+        }
+    }
+
+    /**
+     * Counts the traffic of all connections of one type.
+     */
+    public static class PortMetrics
+    {
+        private final String portType;
+        private final DirectionMetrics received = new DirectionMetrics();
+        private final DirectionMetrics sent = new DirectionMetrics();
+
+        private PortMetrics(final String portType)
+        {
+            this.portType = portType;
+        }
+
+        public String getPortType() {
+            return portType;
+        }
+
+        public DirectionMetrics getReceived() {
+            return received;
+        }
+
+        public DirectionMetrics getSent() {
+            return sent;
+        }
+    }
+
+    /**
+     * Counts the traffic of one connection. Updated by the event loop of the connection only.
+     */
+    public static class ConnectionMetrics
+    {
+        private final ConnectionInfo connection;
+        private final PortMetrics port;
+        private final int generation;
+        private volatile long receivedFrames;
+        private volatile long receivedBytes;
+        private volatile long sentFrames;
+        private volatile long sentBytes;
+
+        private ConnectionMetrics(final ConnectionInfo connection, final PortMetrics port, final int generation)
+        {
+            this.connection = connection;
+            this.port = port;
+            this.generation = generation;
+        }
+
+        /**
+         * Counts a frame.
+         *
+         * @param received true if the frame was received, false if it was sent.
+         * @param size the size of the frame, in bytes.
+         */
+        @SuppressWarnings("NonAtomicOperationOnVolatileField") // There is only one writer.
+        void record(final boolean received, final int size)
+        {
+            if (received) {
+                receivedFrames++;
+                receivedBytes += size;
+                port.received.record(size);
+            } else {
+                sentFrames++;
+                sentBytes += size;
+                port.sent.record(size);
+            }
+        }
+
+        public long getConnectionId() {
+            return connection.getConnectionId();
+        }
+
+        public String getPortType() {
+            return connection.getPortType();
+        }
+
+        public String getRemoteAddress() {
+            return connection.getRemoteAddress();
+        }
+
+        public String getJid() {
+            return connection.getBoundJid() != null ? connection.getBoundJid().toString() : null;
+        }
+
+        public long getReceivedFrames() {
+            return receivedFrames;
+        }
+
+        public long getReceivedBytes() {
+            return receivedBytes;
+        }
+
+        public long getSentFrames() {
+            return sentFrames;
+        }
+
+        public long getSentBytes() {
+            return sentBytes;
+        }
+
+        public long getTotalBytes() {
+            return receivedBytes + sentBytes;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Management interface of {@link TrafficMetrics}, registered as
+ * <tt>org.igniterealtime.openfire.plugin.xmldebugger:type=TrafficMetrics</tt>.
+ */
+public interface TrafficMetricsMXBean
+{
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getReceivedFrames();
+
+    long getReceivedBytes();
+
+    long getSentFrames();
+
+    long getSentBytes();
+
+    Map<String, Long> getReceivedBytesByPortType();
+
+    Map<String, Long> getSentBytesByPortType();
+
+    /**
+     * Returns the open connections that sent and received the most bytes.
+     *
+     * @return at most {@link TrafficMetrics#JMX_TOP_TALKERS} connections, in decreasing order of total bytes.
+     */
+    List<TrafficMetrics.ConnectionMetrics> getTopTalkers();
+
+    void reset();
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import org.jivesoftware.admin.FlashMessageTag;
+import org.jivesoftware.util.ParamUtils;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * Admin console page that shows the {@link TrafficMetrics}: totals and frame sizes per connection type, and the
+ * connections that are most active.
+ */
+@SuppressWarnings("serial")
+public class TrafficMetricsServlet extends HttpServlet
+{
+    private static final int DEFAULT_TOP_TALKERS = 20;
+    private static final int MAX_TOP_TALKERS = 500;
+
+    private static DebuggerPlugin plugin;
+
+    @Override
+    public void init() {
+        plugin = DebuggerPlugin.getInstance();
+    }
+
+    @Override
+    protected void doGet(final HttpServletRequest request, final HttpServletResponse response) throws ServletException, IOException
+    {
+        final int limit = Math.max(1, Math.min(MAX_TOP_TALKERS, ParamUtils.getIntParameter(request, "limit", DEFAULT_TOP_TALKERS)));
+
+        request.setAttribute("enabled", TrafficMetrics.enabledProperty.getValue());
+        request.setAttribute("since", new Date(plugin.getTrafficMetrics().getSince()));
+        request.setAttribute("ports", plugin.getTrafficMetrics().getPortMetrics());
+        request.setAttribute("limit", limit);
+        request.setAttribute("topTalkers", plugin.getTrafficMetrics().getTopTalkers(limit));
+
+        request.getRequestDispatcher("traffic-metrics.jsp").forward(request, response);
+    }
+
+    @Override
+    protected void doPost(final HttpServletRequest request, final HttpServletResponse response) throws IOException
+    {
+        final HttpSession session = request.getSession();
+
+        if (request.getParameter("cancel") != null) {
+            session.setAttribute(FlashMessageTag.WARNING_MESSAGE_KEY, "No changes were made");
+            response.sendRedirect(request.getRequestURI());
+            return;
+        }
+
+        if (request.getParameter("reset") != null) {
+            plugin.getTrafficMetrics().reset();
+            session.setAttribute(FlashMessageTag.SUCCESS_MESSAGE_KEY, "Traffic metrics reset");
+            response.sendRedirect(request.getRequestURI());
+            return;
+        }
+
+        TrafficMetrics.enabledProperty.setValue(ParamUtils.getBooleanParameter(request, "enabled"));
+
+        session.setAttribute(FlashMessageTag.SUCCESS_MESSAGE_KEY, "Traffic metrics settings updated");
+        response.sendRedirect(request.getRequestURI());
+    }
+}
@@ -0,0 +1,624 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.dom4j.Element;
+import org.jivesoftware.openfire.XMPPServer;
+import org.jivesoftware.openfire.session.Session;
+import org.jivesoftware.util.SAXReaderUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xmpp.packet.IQ;
+import org.xmpp.packet.JID;
+import org.xmpp.packet.Packet;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays inbound traffic from capture files (as written by {@link MappedCaptureSink} or {@link CompressedCaptureSink})
+ * into the server, to reproduce performance problems.
+ *
+ * The received bytes of every captured connection are reassembled into complete stanzas by a {@link StanzaFramer}.
+ * Stream headers, stream negotiation (such as authentication) and other elements that are not stanzas are skipped. The
+ * addresses of the stanzas are rewritten (typically to test accounts), after which the stanzas are injected through the
+ * packet router or a selected session, like the {@link StanzaSenderServlet} does.
+ *
+ * Stanzas are injected at their original inter-arrival times, divided by a speed-up factor (or as fast as possible).
+ * Every IQ request is given a unique ID, and the latency of its response is measured through the
+ * {@link IqResponseCorrelator}, from the time at which the request was scheduled to be injected. The lag behind that
+ * schedule is reported as well: a replay that cannot keep up does not reproduce the original load.
+ *
+ * At most one replay is active at a time. The most recent replay is retained, so that its results can be viewed after it
+ * ended. Only capture files in the directory in which the plugin writes them can be replayed.
+ */
+public class TrafficReplay
+{
+    private static final Logger Log = LoggerFactory.getLogger(TrafficReplay.class);
+
+    static final String ROUTER = "router";
+    static final Duration RESPONSE_TIMEOUT = Duration.ofSeconds(15);
+
+    private final IqResponseCorrelator correlator;
+    private final AtomicInteger runNumbers = new AtomicInteger();
+    private volatile Run run;
+
+    public TrafficReplay(final IqResponseCorrelator correlator)
+    {
+        this.correlator = correlator;
+    }
+
+    /**
+     * Returns the names of the capture files that can be replayed, in chronological order.
+     *
+     * @return file names.
+     */
+    static List<String> getCaptureFiles()
+    {
+        final List<String> result = new ArrayList<>();
+        final Path directory = MappedCaptureSink.defaultDirectory();
+        if (!Files.isDirectory(directory)) {
+            return result;
+        }
+        try (final DirectoryStream<Path> stream = Files.newDirectoryStream(directory, MappedCaptureSink.FILE_PREFIX + "*{" + MappedCaptureSink.FILE_SUFFIX + "," + CompressedCaptureSink.FILE_SUFFIX + "}")) {
+            stream.forEach(path -> result.add(path.getFileName().toString()));
+        } catch (final IOException e) {
+            Log.warn("Unable to list capture files in {}", directory, e);
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Starts a replay, unless one is already active.
+     *
+     * @param settings the source and parameters of the replay.
+     * @return the replay that was started.
+     * @throws IllegalStateException if a replay is already active.
+     * @throws IllegalArgumentException if a setting is invalid, or the selected connection is not available.
+     */
+    synchronized Run start(final Settings settings)
+    {
+        if (run != null && run.getState() != State.FINISHED) {
+            throw new IllegalStateException("A replay is already running.");
+        }
+
+        // Records are read with the same filters as the command-line reader.
+        final List<String> arguments = new ArrayList<>();
+        Collections.addAll(arguments, "--type", "RECV", "--type", "CLSD");
+        if (settings.since != null) {
+            Collections.addAll(arguments, "--since", settings.since.toString());
+        }
+        if (settings.until != null) {
+            Collections.addAll(arguments, "--until", settings.until.toString());
+        }
+        if (settings.file.isEmpty()) {
+            arguments.add(MappedCaptureSink.defaultDirectory().toString());
+        } else if (getCaptureFiles().contains(settings.file)) {
+            arguments.add(MappedCaptureSink.defaultDirectory().resolve(settings.file).toString());
+        } else {
+            throw new IllegalArgumentException("Unknown capture file: " + settings.file);
+        }
+        final CaptureFileReader reader = new CaptureFileReader();
+        reader.parseArguments(arguments.toArray(new String[0]));
+
+        final AddressRewriter rewriter = new AddressRewriter(settings.rewriteRules);
+        final Session session;
+        if (ROUTER.equals(settings.connection)) {
+            session = null;
+        } else {
+            session = DebuggerPlugin.getInstance().getSessionIndex().resolve(settings.connection);
+            if (session == null) {
+                throw new IllegalArgumentException("The selected connection is no longer available.");
+            }
+        }
+        run = new Run(runNumbers.incrementAndGet(), settings, reader, rewriter, session);
+        run.thread.start();
+        return run;
+    }
+
+    /**
+     * Stops injecting stanzas in the active replay, if any. Responses that are awaited are still counted.
+     */
+    void stop()
+    {
+        final Run current = run;
+        if (current != null) {
+            current.stopRequested = true;
+            LockSupport.unpark(current.thread);
+        }
+    }
+
+    /**
+     * Returns the active replay, or the replay that ended most recently.
+     *
+     * @return a replay, or null if none was started.
+     */
+    public Run getRun()
+    {
+        return run;
+    }
+
+    /**
+     * Stops the active replay, if any, and waits briefly for its thread to end.
+     */
+    void shutdown()
+    {
+        stop();
+        final Run current = run;
+        if (current != null) {
+            try {
+                current.thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public enum State
+    {
+        /**
+         * Captured traffic is being injected.
+         */
+        RUNNING,
+
+        /**
+         * All captured traffic was injected, and responses to IQ requests are still awaited.
+         */
+        DRAINING,
+
+        /**
+         * The replay ended.
+         */
+        FINISHED
+    }
+
+    /**
+     * The parameters of a replay.
+     */
+    static final class Settings
+    {
+        private final String file;
+        private final Instant since;
+        private final Instant until;
+        private final String rewriteRules;
+        private final String connection;
+        private final double speed;
+
+        /**
+         * @param file the name of the capture file to replay, or an empty string for all capture files.
+         * @param since the time of the first record to replay, or null.
+         * @param until the time before which records are replayed, or null.
+         * @param rewriteRules the address rewrite rules (see {@link AddressRewriter}).
+         * @param connection the connection to inject through (<tt>router</tt> for the packet router, otherwise a value
+         *                   of the {@link SessionIndex}).
+         * @param speed the factor by which the original inter-arrival times are divided, or 0 to inject as fast as
+         *              possible.
+         */
+        Settings(final String file, final Instant since, final Instant until, final String rewriteRules, final String connection, final double speed)
+        {
+            this.file = file;
+            this.since = since;
+            this.until = until;
+            this.rewriteRules = rewriteRules;
+            this.connection = connection;
+            this.speed = speed;
+        }
+    }
+
+    /**
+     * Rewrites the <tt>to</tt> and <tt>from</tt> addresses of stanzas, so that captured traffic of real accounts can be
+     * directed at test accounts.
+     *
+     * Rules are of the form <tt>original = replacement</tt>, separated by line breaks or commas. When the original is a
+     * bare JID (eg: <tt>alice@example.org = test1@example.org</tt>), that JID is replaced. When it is <tt>*</tt>, every
+     * other address of an account is replaced. Otherwise, it is a domain (eg: <tt>example.org = test.example.org</tt>),
+     * of which all addresses are moved to the replacement domain. Resources are retained. Matching is case-insensitive.
+     */
+    static final class AddressRewriter
+    {
+        private static final String WILDCARD = "*";
+
+        private final Map<String, String> bareJids = new HashMap<>();
+        private final Map<String, String> domains = new HashMap<>();
+        private final String wildcard;
+
+        AddressRewriter(final String rules)
+        {
+            String any = null;
+            for (final String rule : rules.split("[,\\r\\n]+")) {
+                if (rule.trim().isEmpty()) {
+                    continue;
+                }
+                final int separator = rule.indexOf('=');
+                final String original = separator < 0 ? "" : rule.substring(0, separator).trim().toLowerCase(Locale.ROOT);
+                final String replacement = separator < 0 ? "" : rule.substring(separator + 1).trim();
+                if (original.isEmpty() || replacement.isEmpty() || original.indexOf('/') >= 0 || replacement.indexOf('/') >= 0) {
+                    throw new IllegalArgumentException("Invalid address rewrite rule: " + rule.trim());
+                }
+                if (WILDCARD.equals(original)) {
+                    any = replacement;
+                } else if (original.indexOf('@') >= 0) {
+                    bareJids.put(original, replacement);
+                } else {
+                    domains.put(original, replacement);
+                }
+            }
+            this.wildcard = any;
+        }
+
+        void rewrite(final Packet packet)
+        {
+            final JID to = packet.getTo();
+            if (to != null) {
+                packet.setTo(rewrite(to));
+            }
+            final JID from = packet.getFrom();
+            if (from != null) {
+                packet.setFrom(rewrite(from));
+            }
+        }
+
+        JID rewrite(final JID address)
+        {
+            String replacement = bareJids.get(address.toBareJID().toLowerCase(Locale.ROOT));
+            if (replacement == null && address.getNode() != null) {
+                replacement = wildcard;
+            }
+            if (replacement != null) {
+                return new JID(address.getResource() == null ? replacement : replacement + '/' + address.getResource());
+            }
+            final String domain = domains.get(address.getDomain().toLowerCase(Locale.ROOT));
+            if (domain != null) {
+                return new JID(address.getNode(), domain, address.getResource());
+            }
+            return address;
+        }
+    }
+
+    /**
+     * A single replay, and its results so far.
+     */
+    public final class Run
+    {
+        private final Settings settings;
+        private final CaptureFileReader reader;
+        private final AddressRewriter rewriter;
+        private final Session session;
+        private final String idPrefix;
+        private final Thread thread;
+
+        /**
+         * The framer of the received traffic of every captured connection that is open, by connection ID. Only accessed
+         * by the thread of the replay.
+         */
+        private final Map<Long, StanzaFramer> framers = new HashMap<>();
+        private final List<String> units = new ArrayList<>();
+
+        private final long startedAt = System.currentTimeMillis();
+        private final long startedNanos = System.nanoTime();
+        private long firstTimestamp = -1; // Only accessed by the thread of the replay.
+        private long requests; // Only accessed by the thread of the replay.
+        private volatile long capturedSpanMillis;
+        private volatile long endedNanos;
+        private volatile State state = State.RUNNING;
+        private volatile boolean stopRequested;
+
+        private final LongAdder records = new LongAdder();
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder responses = new LongAdder();
+        private final LongAdder errorResponses = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder cancelled = new LongAdder();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final LongAccumulator maxLagNanos = new LongAccumulator(Math::max, 0);
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private Run(final int number, final Settings settings, final CaptureFileReader reader, final AddressRewriter rewriter, final Session session)
+        {
+            this.settings = settings;
+            this.reader = reader;
+            this.rewriter = rewriter;
+            this.session = session;
+            this.idPrefix = "replay" + number + '-';
+            this.thread = new Thread(this::execute, "xmldebugger-traffic-replay");
+            this.thread.setDaemon(true);
+        }
+
+        private void execute()
+        {
+            try {
+                Log.info("Started replay of {} at speed {}.", settings.file.isEmpty() ? "all capture files" : settings.file, settings.speed);
+                reader.read(this::replay, (path, e) -> Log.warn("Skipped {} during replay: {}", path, e.getMessage()));
+
+                // Wait for the responses that are still awaited.
+                state = State.DRAINING;
+                final long deadline = System.nanoTime() + RESPONSE_TIMEOUT.toNanos() + TimeUnit.SECONDS.toNanos(1);
+                while (inFlight.get() > 0 && deadline - System.nanoTime() > 0) {
+                    Thread.sleep(100);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (final IOException | RuntimeException e) {
+                Log.warn("The replay ended unexpectedly.", e);
+            } finally {
+                framers.values().forEach(StanzaFramer::reset);
+                framers.clear();
+                endedNanos = System.nanoTime();
+                state = State.FINISHED;
+                Log.info("Ended replay. Records read: {}, stanzas injected: {}, skipped: {}, responses: {}, error responses: {}, timeouts: {}, cancelled: {}, failures: {}.",
+                    records.sum(), sent.sum(), skipped.sum(), responses.sum(), errorResponses.sum(), timeouts.sum(), cancelled.sum(), failures.sum());
+            }
+        }
+
+        /**
+         * Reassembles the stanzas in a record, and injects them.
+         *
+         * @return false if the replay was stopped.
+         */
+        private boolean replay(final CaptureFileFormat.Record record)
+        {
+            if (stopRequested) {
+                return false;
+            }
+            records.increment();
+            if ("CLSD".equals(record.type)) {
+                final StanzaFramer framer = framers.remove(record.connectionId);
+                if (framer != null) {
+                    framer.reset();
+                }
+                return true;
+            }
+            if (record.payload.length == 0) {
+                return true;
+            }
+
+            final StanzaFramer framer = framers.computeIfAbsent(record.connectionId, id -> new StanzaFramer());
+            final ByteBuf frame = Unpooled.wrappedBuffer(record.payload);
+            framer.feed(ByteBufAllocator.DEFAULT, frame, StanzaFramer.maxStanzaSizeProperty.getValue() * 1024, unit -> {
+                try {
+                    units.add(unit.toString(StandardCharsets.UTF_8).trim());
+                } finally {
+                    unit.release();
+                }
+            });
+            frame.release();
+            for (final String unit : units) {
+                if (stopRequested) {
+                    break;
+                }
+                inject(unit, record.timestamp);
+            }
+            units.clear();
+            return !stopRequested;
+        }
+
+        private void inject(final String xml, final long timestamp)
+        {
+            // Skip whitespace keep-alives, stream headers and footers.
+            if (xml.isEmpty() || !xml.startsWith("<") || xml.startsWith("<?") || xml.startsWith("</") || xml.startsWith("<stream:")) {
+                return;
+            }
+            final Packet packet;
+            try {
+                final Element element = SAXReaderUtil.readRootElement(xml);
+                packet = StanzaSenderServlet.toPacket(element);
+            } catch (final ExecutionException | RuntimeException e) {
+                Log.trace("Skipped a unit that could not be parsed: {}", xml, e);
+                skipped.increment();
+                return;
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stopRequested = true;
+                return;
+            }
+            if (packet == null) {
+                skipped.increment(); // Stream negotiation, stream management, and other elements that are not stanzas.
+                return;
+            }
+            rewriter.rewrite(packet);
+
+            if (firstTimestamp < 0) {
+                firstTimestamp = timestamp;
+            }
+            capturedSpanMillis = timestamp - firstTimestamp;
+            final long scheduled;
+            if (settings.speed > 0) {
+                scheduled = startedNanos + (long) (TimeUnit.MILLISECONDS.toNanos(timestamp - firstTimestamp) / settings.speed);
+                if (!awaitUntil(scheduled)) {
+                    return;
+                }
+                maxLagNanos.accumulate(System.nanoTime() - scheduled);
+            } else {
+                scheduled = System.nanoTime();
+            }
+
+            CompletableFuture<IQ> result = null;
+            if (packet instanceof IQ && ((IQ) packet).isRequest()) {
+                packet.setID(idPrefix + ++requests);
+                inFlight.incrementAndGet();
+                result = correlator.register((IQ) packet, RESPONSE_TIMEOUT);
+                result.whenComplete((response, failure) -> onResult(scheduled, response, failure));
+            }
+            try {
+                if (session != null) {
+                    session.process(packet);
+                } else {
+                    XMPPServer.getInstance().getPacketRouter().route(packet);
+                }
+                sent.increment();
+            } catch (final RuntimeException e) {
+                Log.debug("Unable to inject a replayed stanza: {}", xml, e);
+                failures.increment();
+                if (result != null) {
+                    // Evicts the pending request from the correlator, rather than leaving it until its timeout.
+                    result.cancel(false);
+                }
+            }
+        }
+
+        /**
+         * Waits until a (System.nanoTime based) time, unless the replay is stopped first.
+         *
+         * @return false if the replay was stopped.
+         */
+        private boolean awaitUntil(final long time)
+        {
+            long remaining;
+            while (!stopRequested && (remaining = time - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, remaining);
+            }
+            return !stopRequested;
+        }
+
+        private void onResult(final long scheduled, final IQ response, final Throwable failure)
+        {
+            inFlight.decrementAndGet();
+            if (response != null) {
+                latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduled));
+                if (response.getType() == IQ.Type.error) {
+                    errorResponses.increment();
+                } else {
+                    responses.increment();
+                }
+            } else if (IqResponseCorrelator.isTimeout(failure)) {
+                timeouts.increment();
+            } else if (failure != null) {
+                // The wait was cancelled: the stanza could not be injected, or the plugin is being unloaded.
+                cancelled.increment();
+            }
+        }
+
+        public State getState()
+        {
+            return state;
+        }
+
+        public long getStartedAt()
+        {
+            return startedAt;
+        }
+
+        public long getElapsedMillis()
+        {
+            final long end = state == State.FINISHED ? endedNanos : System.nanoTime();
+            return TimeUnit.NANOSECONDS.toMillis(end - startedNanos);
+        }
+
+        public double getSpeed()
+        {
+            return settings.speed;
+        }
+
+        /**
+         * Returns the time between the first stanza that was replayed and the most recent one, as captured.
+         *
+         * @return a duration in milliseconds.
+         */
+        public long getCapturedSpanMillis()
+        {
+            return capturedSpanMillis;
+        }
+
+        /**
+         * Returns the longest time by which the injection of a stanza lagged behind its schedule.
+         *
+         * @return a duration in milliseconds (0 when replaying as fast as possible).
+         */
+        public long getMaxLagMillis()
+        {
+            return TimeUnit.NANOSECONDS.toMillis(maxLagNanos.get());
+        }
+
+        public long getRecords()
+        {
+            return records.sum();
+        }
+
+        public long getSent()
+        {
+            return sent.sum();
+        }
+
+        public long getSkipped()
+        {
+            return skipped.sum();
+        }
+
+        public long getFailures()
+        {
+            return failures.sum();
+        }
+
+        public long getResponses()
+        {
+            return responses.sum();
+        }
+
+        public long getErrorResponses()
+        {
+            return errorResponses.sum();
+        }
+
+        public long getTimeouts()
+        {
+            return timeouts.sum();
+        }
+
+        public long getCancelled()
+        {
+            return cancelled.sum();
+        }
+
+        public int getInFlight()
+        {
+            return inFlight.get();
+        }
+
+        /**
+         * Returns the latencies of the responses to IQ requests (including error responses), in microseconds.
+         *
+         * @return a histogram.
+         */
+        public LatencyHistogram getLatency()
+        {
+            return latency;
+        }
+    }
+}
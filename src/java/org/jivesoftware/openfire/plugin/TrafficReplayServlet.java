@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import org.jivesoftware.admin.FlashMessageTag;
+import org.jivesoftware.util.ParamUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Admin console page that replays captured inbound traffic into the server (see {@link TrafficReplay}), and reports the
+ * progress of the replay.
+ */
+@SuppressWarnings("serial")
+public class TrafficReplayServlet extends HttpServlet
+{
+    private static final Logger Log = LoggerFactory.getLogger(TrafficReplayServlet.class);
+    private static final double MAX_SPEED = 1000;
+
+    private static DebuggerPlugin plugin;
+
+    @Override
+    public void init() {
+        plugin = DebuggerPlugin.getInstance();
+    }
+
+    @Override
+    protected void doGet(final HttpServletRequest request, final HttpServletResponse response) throws ServletException, IOException
+    {
+        if (request.getParameter("status") != null) {
+            writeStatus(response);
+            return;
+        }
+        final Object selected = request.getSession().getAttribute("replayConnection");
+        if (selected instanceof String && !TrafficReplay.ROUTER.equals(selected)) {
+            request.setAttribute("selectedConnection", plugin.getSessionIndex().describe((String) selected));
+        }
+        request.setAttribute("captureFiles", TrafficReplay.getCaptureFiles());
+        request.setAttribute("captureFileEnabled", DebuggerPlugin.loggingToCaptureFileProperty.getValue());
+        request.getRequestDispatcher("traffic-replay.jsp").forward(request, response);
+    }
+
+    @Override
+    protected void doPost(final HttpServletRequest request, final HttpServletResponse response) throws IOException
+    {
+        final HttpSession session = request.getSession();
+
+        if (request.getParameter("cancel") != null) {
+            session.setAttribute(FlashMessageTag.WARNING_MESSAGE_KEY, "No changes were made");
+            response.sendRedirect(request.getRequestURI());
+            return;
+        }
+
+        if (request.getParameter("stop") != null) {
+            plugin.getTrafficReplay().stop();
+            session.setAttribute(FlashMessageTag.SUCCESS_MESSAGE_KEY, "Replay stopped");
+            response.sendRedirect(request.getRequestURI());
+            return;
+        }
+
+        final String file = ParamUtils.getStringParameter(request, "file", "").trim();
+        final String since = ParamUtils.getStringParameter(request, "since", "").trim();
+        final String until = ParamUtils.getStringParameter(request, "until", "").trim();
+        final String rules = ParamUtils.getStringParameter(request, "rules", "").trim();
+        final String connection = ParamUtils.getStringParameter(request, "connection", TrafficReplay.ROUTER).trim();
+        final double speed = Math.max(0, Math.min(MAX_SPEED, ParamUtils.getDoubleParameter(request, "speed", 1)));
+        session.setAttribute("replayFile", file);
+        session.setAttribute("replaySince", since);
+        session.setAttribute("replayUntil", until);
+        session.setAttribute("replayRules", rules);
+        session.setAttribute("replayConnection", connection);
+        session.setAttribute("replaySpeed", speed);
+
+        try {
+            plugin.getTrafficReplay().start(new TrafficReplay.Settings(file, parseInstant(since), parseInstant(until), rules, connection, speed));
+            session.setAttribute(FlashMessageTag.SUCCESS_MESSAGE_KEY, "Replay started");
+        } catch (DateTimeParseException e) {
+            session.setAttribute(FlashMessageTag.ERROR_MESSAGE_KEY, "Invalid time: " + e.getParsedString() + ". Use a format like 2026-05-13T09:00:00Z.");
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            Log.debug("Unable to start replay.", e);
+            session.setAttribute(FlashMessageTag.ERROR_MESSAGE_KEY, e.getMessage());
+        }
+        response.sendRedirect(request.getRequestURI());
+    }
+
+    private static Instant parseInstant(final String value)
+    {
+        return value.isEmpty() ? null : Instant.parse(value);
+    }
+
+    /**
+     * Writes the progress and results of the most recent replay as JSON, for the live report on the page. Latencies are
+     * in microseconds. The response is <tt>{}</tt> when no replay was started.
+     *
+     * @param response the HTTP response to write to.
+     * @throws IOException if an I/O error occurs while writing the response.
+     */
+    private static void writeStatus(final HttpServletResponse response) throws IOException
+    {
+        final TrafficReplay.Run run = plugin.getTrafficReplay().getRun();
+        final StringBuilder json = new StringBuilder(512).append('{');
+        if (run != null) {
+            json.append("\"state\":");
+            JsonLayout.appendString(run.getState().name(), json);
+            json.append(",\"elapsedMillis\":").append(run.getElapsedMillis())
+                .append(",\"capturedSpanMillis\":").append(run.getCapturedSpanMillis())
+                .append(",\"maxLagMillis\":").append(run.getMaxLagMillis())
+                .append(",\"records\":").append(run.getRecords())
+                .append(",\"sent\":").append(run.getSent())
+                .append(",\"skipped\":").append(run.getSkipped())
+                .append(",\"failures\":").append(run.getFailures())
+                .append(",\"responses\":").append(run.getResponses())
+                .append(",\"errorResponses\":").append(run.getErrorResponses())
+                .append(",\"timeouts\":").append(run.getTimeouts())
+                .append(",\"cancelled\":").append(run.getCancelled())
+                .append(",\"inFlight\":").append(run.getInFlight())
+                .append(",\"latency\":");
+            run.getLatency().appendJson(json);
+        }
+        json.append('}');
+
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        response.getWriter().write(json.toString());
+    }
+}
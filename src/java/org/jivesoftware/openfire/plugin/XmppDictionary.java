@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Adler32;
+
+/**
+ * A preset dictionary for the Deflate compression of XMPP traffic. Blocks of captured records are compressed
+ * independently, which means that each block starts without any history to refer back to. Priming the compressor with
+ * the text that is most common in XMPP traffic (namespaces, element and attribute names) recovers most of the
+ * compression that would otherwise be lost, especially for small blocks.
+ *
+ * Deflate refers back at most 32KB, and strings near the end of the dictionary are cheapest to refer to: the most common
+ * strings are therefore at the end. The dictionary must never change in a way that changes its bytes, as files that were
+ * compressed with it cannot be read without it. A new dictionary requires a new class (or version), and readers that
+ * support both, distinguished by the dictionary id that is stored in each file.
+ */
+final class XmppDictionary
+{
+    private static final String TEXT = ""
+        + "<stream:features><mechanisms xmlns='urn:ietf:params:xml:ns:xmpp-sasl'><mechanism>SCRAM-SHA-1</mechanism>"
+        + "<mechanism>PLAIN</mechanism></mechanisms><starttls xmlns='urn:ietf:params:xml:ns:xmpp-tls'><required/></starttls>"
+        + "<proceed xmlns='urn:ietf:params:xml:ns:xmpp-tls'/><auth xmlns='urn:ietf:params:xml:ns:xmpp-sasl' mechanism='"
+        + "<success xmlns='urn:ietf:params:xml:ns:xmpp-sasl'/><bind xmlns='urn:ietf:params:xml:ns:xmpp-bind'><resource>"
+        + "<session xmlns='urn:ietf:params:xml:ns:xmpp-session'/><sm xmlns='urn:xmpp:sm:3'/><enable xmlns='urn:xmpp:sm:3' resume='true'/>"
+        + "<r xmlns='urn:xmpp:sm:3'/><a xmlns='urn:xmpp:sm:3' h='<csi xmlns='urn:xmpp:csi:0'/><ver xmlns='urn:xmpp:features:rosterver'/>"
+        + "<stream:error><conflict xmlns='urn:ietf:params:xml:ns:xmpp-streams'/><text xmlns='urn:ietf:params:xml:ns:xmpp-streams'>"
+        + "<error type='cancel'><service-unavailable xmlns='urn:ietf:params:xml:ns:xmpp-stanzas'/><item-not-found xmlns='urn:ietf:params:xml:ns:xmpp-stanzas'/>"
+        + "<feature-not-implemented xmlns='urn:ietf:params:xml:ns:xmpp-stanzas'/><forbidden xmlns='urn:ietf:params:xml:ns:xmpp-stanzas'/></error>"
+        + "<query xmlns='http://jabber.org/protocol/disco#info'><identity category='server' type='im' name='Openfire Server'/>"
+        + "<feature var='http://jabber.org/protocol/disco#items'/><query xmlns='http://jabber.org/protocol/disco#items'/>"
+        + "<query xmlns='jabber:iq:roster' ver='<item jid=' subscription='both' name='<group>"
+        + "<pubsub xmlns='http://jabber.org/protocol/pubsub'><items node='<publish node='urn:xmpp:avatar:metadata'>"
+        + "<event xmlns='http://jabber.org/protocol/pubsub#event'><x xmlns='jabber:x:data' type='submit'><field var='FORM_TYPE' type='hidden'><value>"
+        + "<x xmlns='http://jabber.org/protocol/muc#user'><item affiliation='member' role='participant'/></x><x xmlns='http://jabber.org/protocol/muc'/>"
+        + "<c xmlns='http://jabber.org/protocol/caps' hash='sha-1' node='' ver='<delay xmlns='urn:xmpp:delay' from=' stamp='"
+        + "<forwarded xmlns='urn:xmpp:forward:0'><result xmlns='urn:xmpp:mam:2' queryid='<received xmlns='urn:xmpp:carbons:2'>"
+        + "<sent xmlns='urn:xmpp:carbons:2'><stanza-id xmlns='urn:xmpp:sid:0' by=' id='<origin-id xmlns='urn:xmpp:sid:0' id='"
+        + "<active xmlns='http://jabber.org/protocol/chatstates'/><composing xmlns='http://jabber.org/protocol/chatstates'/>"
+        + "<request xmlns='urn:xmpp:receipts'/><markable xmlns='urn:xmpp:chat-markers:0'/><ping xmlns='urn:xmpp:ping'/>"
+        + "<?xml version='1.0' encoding='UTF-8'?><stream:stream xmlns:stream='http://etherx.jabber.org/streams' xmlns='jabber:client' "
+        + "xmlns='jabber:server' xmlns:db='jabber:server:dialback' version='1.0' xml:lang='en'></stream:stream>"
+        + "<presence><priority>0</priority><show>away</show><status></status></presence><presence type='unavailable'/>"
+        + "<iq type='result' id='<iq type='get' id='<iq type='set' id='<iq type='error' id='"
+        + "<message type='chat' id='<message type='groupchat' id='<body></body></message> to=' from=' xmlns='jabber:client'";
+
+    static final byte[] BYTES = TEXT.getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * The Adler-32 checksum of the dictionary, which is how zlib streams identify the dictionary they were compressed
+     * with.
+     */
+    static final int ID;
+
+    static {
+        final Adler32 adler = new Adler32();
+        adler.update(BYTES, 0, BYTES.length);
+        ID = (int) adler.getValue();
+    }
+
+    private XmppDictionary() {}
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies how the {@link AsyncLogWriter} applies its {@link OverflowPolicy} when its queue is full. The writer is not
+ * started, so that queued entries remain in the queue.
+ */
+public class AsyncLogWriterTest
+{
+    private final ConnectionInfo connection = new ConnectionInfo(1, "C2S-STARTTLS", "192.0.2.1", "test");
+    private final LoggingStatistics statistics = new LoggingStatistics();
+
+    private CaptureEntry entry(final ByteBuf content)
+    {
+        return CaptureEntry.ofBytes(connection, System.currentTimeMillis(), "RECV", content).statistics(statistics);
+    }
+
+    private static ByteBuf content(final String text)
+    {
+        return Unpooled.copiedBuffer(text, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Fills the queue of a writer with entries of which the payloads are returned.
+     */
+    private List<ByteBuf> fill(final AsyncLogWriter writer)
+    {
+        final List<ByteBuf> contents = new ArrayList<>();
+        for (int i = 0; i < writer.getQueueCapacity(); i++) {
+            final ByteBuf content = content("<presence id='" + i + "'/>");
+            contents.add(content);
+            assertTrue(writer.submit(entry(content), OverflowPolicy.DROP_NEWEST, Duration.ZERO));
+        }
+        return contents;
+    }
+
+    @Test
+    public void testDropNewest()
+    {
+        final AsyncLogWriter writer = new AsyncLogWriter(4);
+        final List<ByteBuf> queued = fill(writer);
+        final ByteBuf newest = content("<presence id='new'/>");
+
+        assertFalse(writer.submit(entry(newest), OverflowPolicy.DROP_NEWEST, Duration.ZERO));
+        assertEquals(0, newest.refCnt());
+        assertTrue(queued.stream().allMatch(content -> content.refCnt() == 1));
+        assertEquals(4, writer.getQueueSize());
+        assertEquals(1, writer.getDroppedCount());
+        assertEquals(1, statistics.getDroppedCount());
+    }
+
+    @Test
+    public void testDropOldest()
+    {
+        final AsyncLogWriter writer = new AsyncLogWriter(4);
+        final List<ByteBuf> queued = fill(writer);
+        final ByteBuf newest = content("<presence id='new'/>");
+
+        assertTrue(writer.submit(entry(newest), OverflowPolicy.DROP_OLDEST, Duration.ZERO));
+        assertEquals(1, newest.refCnt());
+        assertEquals(0, queued.get(0).refCnt());
+        assertTrue(queued.subList(1, queued.size()).stream().allMatch(content -> content.refCnt() == 1));
+        assertEquals(4, writer.getQueueSize());
+        assertEquals(1, writer.getDroppedCount());
+    }
+
+    @Test
+    public void testBlockDoesNotWaitForStoppedWriter()
+    {
+        final AsyncLogWriter writer = new AsyncLogWriter(4);
+        fill(writer);
+        final ByteBuf newest = content("<presence id='new'/>");
+
+        // Nothing would ever make room in the queue.
+        final long start = System.nanoTime();
+        assertFalse(writer.submit(entry(newest), OverflowPolicy.BLOCK, Duration.ofSeconds(10)));
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(5).toNanos());
+        assertEquals(0, newest.refCnt());
+        assertEquals(1, writer.getDroppedCount());
+    }
+
+    @Test
+    public void testDroppedPayloadMarksRedactionGap()
+    {
+        final AsyncLogWriter writer = new AsyncLogWriter(4);
+        fill(writer);
+
+        writer.submit(entry(content("<auth>secret</auth>")), OverflowPolicy.DROP_NEWEST, Duration.ZERO);
+        assertTrue(connection.takeRedactionGap(true));
+        assertFalse(connection.takeRedactionGap(false));
+    }
+}
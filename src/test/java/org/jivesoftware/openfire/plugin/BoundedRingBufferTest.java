@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies the lock-free queue between the threads that observe traffic and the log writer.
+ */
+public class BoundedRingBufferTest
+{
+    @Test
+    public void testCapacityIsRoundedUpToPowerOfTwo()
+    {
+        assertEquals(2, new BoundedRingBuffer<>(2).capacity());
+        assertEquals(16, new BoundedRingBuffer<>(16).capacity());
+        assertEquals(32, new BoundedRingBuffer<>(17).capacity());
+    }
+
+    @Test
+    public void testRejectsTooSmallCapacity()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new BoundedRingBuffer<>(1));
+    }
+
+    @Test
+    public void testFirstInFirstOut()
+    {
+        final BoundedRingBuffer<Integer> queue = new BoundedRingBuffer<>(4);
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+
+        for (int i = 0; i < 10; i++) {
+            // Wraps around the ring several times.
+            assertTrue(queue.offer(i));
+            assertTrue(queue.offer(i + 100));
+            assertEquals(2, queue.size());
+            assertEquals(i, queue.poll());
+            assertEquals(i + 100, queue.poll());
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testOfferFailsWhenFull()
+    {
+        final BoundedRingBuffer<Integer> queue = new BoundedRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(4));
+        assertEquals(4, queue.size());
+
+        assertEquals(0, queue.poll());
+        assertTrue(queue.offer(4));
+        assertFalse(queue.offer(5));
+    }
+
+    @Test
+    public void testDrainToHonoursMaximum()
+    {
+        final BoundedRingBuffer<Integer> queue = new BoundedRingBuffer<>(8);
+        for (int i = 0; i < 5; i++) {
+            queue.offer(i);
+        }
+        final List<Integer> target = new ArrayList<>();
+        assertEquals(3, queue.drainTo(target, 3));
+        assertEquals(List.of(0, 1, 2), target);
+        assertEquals(2, queue.drainTo(target, 3));
+        assertEquals(List.of(0, 1, 2, 3, 4), target);
+        assertEquals(0, queue.drainTo(target, 3));
+    }
+
+    @Test
+    public void testConcurrentProducersAndConsumer() throws Exception
+    {
+        final int producers = 4;
+        final int perProducer = 10_000;
+        final BoundedRingBuffer<Integer> queue = new BoundedRingBuffer<>(64);
+        final ExecutorService executor = Executors.newFixedThreadPool(producers);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                final int producer = p;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perProducer; i++) {
+                        while (!queue.offer(producer * perProducer + i)) {
+                            Thread.yield(); // Lets the consumer run, even on a single processor.
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+
+            // Every element is received exactly once, and the elements of each producer are received in order.
+            final boolean[] seen = new boolean[producers * perProducer];
+            final int[] last = new int[producers];
+            Arrays.fill(last, -1);
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            int received = 0;
+            while (received < seen.length && System.nanoTime() - deadline < 0) {
+                final Integer element = queue.poll();
+                if (element == null) {
+                    Thread.yield();
+                    continue;
+                }
+                assertFalse(seen[element]);
+                seen[element] = true;
+                final int producer = element / perProducer;
+                assertTrue(element % perProducer > last[producer]);
+                last[producer] = element % perProducer;
+                received++;
+            }
+            for (final Future<?> future : futures) {
+                future.get(1, TimeUnit.SECONDS);
+            }
+            assertEquals(seen.length, received);
+            assertTrue(queue.isEmpty());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
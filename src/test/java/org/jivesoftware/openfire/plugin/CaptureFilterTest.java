@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+import org.xmpp.packet.JID;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies how a {@link CaptureFilter} evaluates connections as more becomes known about them.
+ */
+public class CaptureFilterTest
+{
+    private static ConnectionInfo connection(final String portType, final String remoteAddress)
+    {
+        return new ConnectionInfo(1, portType, remoteAddress, "test");
+    }
+
+    /**
+     * Creates a connection of which the remote IP address is known, as it is for connections on a channel.
+     */
+    private static ConnectionInfo connectionFrom(final String remoteAddress)
+    {
+        final EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter()) {
+            @Override
+            protected SocketAddress remoteAddress0()
+            {
+                return new InetSocketAddress(remoteAddress, 5222);
+            }
+        };
+        try {
+            return ConnectionInfo.of(channel.pipeline().firstContext(), "C2S-STARTTLS");
+        } finally {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    @Test
+    public void testEmptyFilterMatchesEverything()
+    {
+        final CaptureFilter filter = CaptureFilter.compile("", " ", null, "");
+        assertTrue(filter.isEmpty());
+        assertFalse(filter.needsStreamIds());
+        assertEquals(CaptureFilter.MATCH, filter.evaluate(connection("C2S-STARTTLS", "192.0.2.1")));
+    }
+
+    @Test
+    public void testSplit()
+    {
+        assertEquals(List.of("a", "b", "c"), CaptureFilter.split(" a, b\nc ,"));
+        assertTrue(CaptureFilter.split(null).isEmpty());
+    }
+
+    @Test
+    public void testConnectionTypeIsCaseInsensitive()
+    {
+        final CaptureFilter filter = CaptureFilter.compile("c2s-starttls, S2S-STARTTLS", "", "", "");
+        assertFalse(filter.isEmpty());
+        assertEquals(CaptureFilter.MATCH, filter.evaluate(connection("C2S-STARTTLS", "192.0.2.1")));
+        assertEquals(CaptureFilter.MATCH, filter.evaluate(connection("s2s-starttls", "192.0.2.1")));
+        assertEquals(CaptureFilter.NO_MATCH, filter.evaluate(connection("C2S-DIRECTTLS", "192.0.2.1")));
+    }
+
+    @Test
+    public void testAddresses()
+    {
+        final CaptureFilter filter = CaptureFilter.compile("", "192.0.2.0/24, not-an-address", "", "");
+        assertEquals(CaptureFilter.MATCH, filter.evaluate(connectionFrom("192.0.2.1")));
+        assertEquals(CaptureFilter.NO_MATCH, filter.evaluate(connectionFrom("198.51.100.1")));
+        // Without a known IP address, such as for connections read from a capture file, an address cannot match.
+        assertEquals(CaptureFilter.NO_MATCH, filter.evaluate(connection("C2S-STARTTLS", "192.0.2.1")));
+    }
+
+    @Test
+    public void testJidIsPendingUntilBound()
+    {
+        final CaptureFilter filter = CaptureFilter.compile("", "", "Juliet@Example.org", "");
+        assertTrue(filter.needsStreamIds());
+        final ConnectionInfo connection = connection("C2S-STARTTLS", "192.0.2.1");
+        assertEquals(CaptureFilter.PENDING, filter.evaluate(connection));
+
+        connection.setBoundJid(new JID("juliet@example.org/balcony"));
+        assertEquals(CaptureFilter.MATCH, filter.evaluate(connection));
+
+        connection.setBoundJid(new JID("romeo@example.org/garden"));
+        assertEquals(CaptureFilter.NO_MATCH, filter.evaluate(connection));
+    }
+
+    @Test
+    public void testJidMatchesDomain()
+    {
+        final CaptureFilter filter = CaptureFilter.compile("", "", "example.org", "");
+        final ConnectionInfo connection = connection("S2S-STARTTLS", "192.0.2.1");
+        connection.setBoundJid(new JID("example.org"));
+        assertEquals(CaptureFilter.MATCH, filter.evaluate(connection));
+
+        final ConnectionInfo client = connection("C2S-STARTTLS", "192.0.2.2");
+        client.setBoundJid(new JID("juliet@example.org/balcony"));
+        assertEquals(CaptureFilter.MATCH, filter.evaluate(client));
+    }
+
+    @Test
+    public void testStreamIdIsPendingUntilBound()
+    {
+        final CaptureFilter filter = CaptureFilter.compile("", "", "", "abc123");
+        final ConnectionInfo connection = connection("C2S-STARTTLS", "192.0.2.1");
+        assertEquals(CaptureFilter.PENDING, filter.evaluate(connection));
+
+        // Client connections restart their stream after authentication, so a stream ID that does not match is no
+        // reason to exclude a connection, until its session is bound.
+        connection.addStreamId("other");
+        assertEquals(CaptureFilter.PENDING, filter.evaluate(connection));
+        connection.setBoundJid(new JID("juliet@example.org/balcony"));
+        assertEquals(CaptureFilter.NO_MATCH, filter.evaluate(connection));
+
+        connection.addStreamId("abc123");
+        assertEquals(CaptureFilter.MATCH, filter.evaluate(connection));
+    }
+
+    @Test
+    public void testAllCriteriaMustMatch()
+    {
+        final CaptureFilter filter = CaptureFilter.compile("C2S-STARTTLS", "192.0.2.0/24", "example.org", "");
+        final ConnectionInfo connection = connectionFrom("198.51.100.1");
+        connection.setBoundJid(new JID("juliet@example.org/balcony"));
+        assertEquals(CaptureFilter.NO_MATCH, filter.evaluate(connection));
+
+        final ConnectionInfo other = connectionFrom("192.0.2.1");
+        other.setBoundJid(new JID("juliet@example.org/balcony"));
+        assertEquals(CaptureFilter.MATCH, filter.evaluate(other));
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Verifies that records written by the {@link CaptureRecordEncoder} are read back by the {@link CaptureFileFormat} and
+ * the {@link CaptureFileReader}, and that torn records are reported as corrupt rather than read beyond their end.
+ */
+public class CaptureRecordTest
+{
+    private static final String STANZA = "<message to='juliet@example.org'><body>Wherefore art thou?</body></message>";
+
+    private final ConnectionInfo connection = new ConnectionInfo(42, "C2S-STARTTLS", "192.0.2.1", "test");
+    private final CaptureRecordEncoder encoder = new CaptureRecordEncoder();
+
+    /**
+     * Encodes a RECV entry with the stanza as its payload, truncated to the specified length.
+     */
+    private void encode(final ByteBuffer target, final long sequence, final int payloadLength)
+    {
+        final CaptureEntry entry = CaptureEntry.ofBytes(connection, 1000 + sequence, "RECV", Unpooled.copiedBuffer(STANZA, StandardCharsets.UTF_8)).sequence(sequence);
+        try {
+            encoder.prepare(entry);
+            encoder.write(target, Math.min(payloadLength, encoder.getPayloadLength()));
+        } finally {
+            entry.release();
+        }
+    }
+
+    private ByteBuffer segment(final int records)
+    {
+        final ByteBuffer buffer = ByteBuffer.allocate(4096);
+        CaptureFileFormat.writeSegmentHeader(buffer, 0);
+        for (int i = 1; i <= records; i++) {
+            encode(buffer, i, Integer.MAX_VALUE);
+        }
+        return buffer;
+    }
+
+    @Test
+    public void testRoundTrip()
+    {
+        final ByteBuffer buffer = segment(2);
+        buffer.flip();
+
+        final short version = CaptureFileFormat.readSegmentHeader(buffer);
+        assertEquals(CaptureFileFormat.VERSION, version);
+        for (int i = 1; i <= 2; i++) {
+            final CaptureFileFormat.Record record = CaptureFileFormat.readRecord(buffer, version);
+            assertEquals(1000 + i, record.timestamp);
+            assertEquals(42, record.connectionId);
+            assertEquals(i, record.sequence);
+            assertEquals("RECV", record.type);
+            assertEquals("C2S-STARTTLS", record.portType);
+            assertEquals("192.0.2.1", record.remoteAddress);
+            assertArrayEquals(STANZA.getBytes(StandardCharsets.UTF_8), record.payload);
+        }
+        assertNull(CaptureFileFormat.readRecord(buffer, version));
+    }
+
+    @Test
+    public void testRecordSizeMatchesWrittenBytes()
+    {
+        final ByteBuffer buffer = ByteBuffer.allocate(4096);
+        final CaptureEntry entry = CaptureEntry.ofBytes(connection, 1000, "SENT", Unpooled.copiedBuffer(STANZA, StandardCharsets.UTF_8));
+        try {
+            encoder.prepare(entry);
+            final int size = encoder.getRecordSize(encoder.getPayloadLength());
+            encoder.write(buffer, encoder.getPayloadLength());
+            assertEquals(size, buffer.position());
+        } finally {
+            entry.release();
+        }
+    }
+
+    @Test
+    public void testTruncatedPayload()
+    {
+        final ByteBuffer buffer = ByteBuffer.allocate(4096);
+        encode(buffer, 1, 8);
+        buffer.flip();
+
+        final CaptureFileFormat.Record record = CaptureFileFormat.readRecord(buffer, CaptureFileFormat.VERSION);
+        assertArrayEquals(STANZA.substring(0, 8).getBytes(StandardCharsets.UTF_8), record.payload);
+    }
+
+    @Test
+    public void testEndOfDataIsZeroLength()
+    {
+        final ByteBuffer buffer = ByteBuffer.allocate(64);
+        assertNull(CaptureFileFormat.readRecord(buffer, CaptureFileFormat.VERSION));
+    }
+
+    @Test
+    public void testRecordBeyondEndOfBuffer()
+    {
+        final ByteBuffer buffer = ByteBuffer.allocate(4096);
+        encode(buffer, 1, Integer.MAX_VALUE);
+        buffer.flip();
+        buffer.limit(buffer.limit() - 1);
+
+        assertThrows(IllegalArgumentException.class, () -> CaptureFileFormat.readRecord(buffer, CaptureFileFormat.VERSION));
+    }
+
+    @Test
+    public void testTornPortType()
+    {
+        // A record of which the length is valid, but of which the port type claims to extend beyond the record.
+        final ByteBuffer buffer = ByteBuffer.allocate(4096);
+        encode(buffer, 1, 0);
+        final int portTypeLengthPosition = 4 + 8 + 8 + 8 + 4;
+        buffer.put(portTypeLengthPosition, (byte) 0xFF);
+        buffer.flip();
+
+        assertThrows(IllegalArgumentException.class, () -> CaptureFileFormat.readRecord(buffer, CaptureFileFormat.VERSION));
+    }
+
+    @Test
+    public void testTornAddress()
+    {
+        // A record of which the length is valid, but of which the address claims to extend beyond the record.
+        final ByteBuffer buffer = ByteBuffer.allocate(4096);
+        encode(buffer, 1, 0);
+        final int addressLengthPosition = 4 + 8 + 8 + 8 + 4 + 1 + "C2S-STARTTLS".length();
+        buffer.putShort(addressLengthPosition, Short.MAX_VALUE);
+        buffer.flip();
+
+        assertThrows(IllegalArgumentException.class, () -> CaptureFileFormat.readRecord(buffer, CaptureFileFormat.VERSION));
+    }
+
+    @Test
+    public void testReaderReportsTornRecordAfterPrecedingRecords(@TempDir final Path directory) throws Exception
+    {
+        final ByteBuffer buffer = segment(2);
+        final int torn = buffer.position();
+        encode(buffer, 3, Integer.MAX_VALUE);
+        buffer.position(torn + 20); // Cut off the last record, as if the server stopped while writing it.
+        buffer.flip();
+
+        final Path file = directory.resolve(MappedCaptureSink.FILE_PREFIX + "test" + MappedCaptureSink.FILE_SUFFIX);
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            channel.write(buffer);
+        }
+
+        final CaptureFileReader reader = new CaptureFileReader();
+        reader.parseArguments(new String[] { directory.toString() });
+        final List<Long> sequences = new ArrayList<>();
+        final List<Path> invalid = new ArrayList<>();
+        reader.read(record -> sequences.add(record.sequence), (path, e) -> invalid.add(path));
+
+        assertEquals(List.of(1L, 2L), sequences);
+        assertEquals(List.of(file), invalid);
+    }
+
+    @Test
+    public void testReaderStopsWhenConsumerDeclines(@TempDir final Path directory) throws Exception
+    {
+        final ByteBuffer buffer = segment(3);
+        buffer.flip();
+        final Path file = directory.resolve(MappedCaptureSink.FILE_PREFIX + "test" + MappedCaptureSink.FILE_SUFFIX);
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            channel.write(buffer);
+        }
+
+        final CaptureFileReader reader = new CaptureFileReader();
+        reader.parseArguments(new String[] { file.toString() });
+        final List<Long> sequences = new ArrayList<>();
+        reader.read(record -> {
+            sequences.add(record.sequence);
+            return sequences.size() < 2;
+        }, (path, e) -> { throw e; });
+
+        assertEquals(List.of(1L, 2L), sequences);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies the matching of IPv4 and IPv6 addresses against CIDR ranges by {@link CidrMatcher}.
+ */
+public class CidrMatcherTest
+{
+    private static InetAddress address(final String literal) throws Exception
+    {
+        return InetAddress.getByName(literal);
+    }
+
+    @Test
+    public void testEmpty() throws Exception
+    {
+        final CidrMatcher matcher = new CidrMatcher();
+        assertTrue(matcher.isEmpty());
+        assertFalse(matcher.matches(address("192.0.2.1")));
+    }
+
+    @Test
+    public void testIpv4Range() throws Exception
+    {
+        final CidrMatcher matcher = new CidrMatcher();
+        matcher.add("192.0.2.0/24");
+        assertFalse(matcher.isEmpty());
+        assertTrue(matcher.matches(address("192.0.2.0")));
+        assertTrue(matcher.matches(address("192.0.2.255")));
+        assertFalse(matcher.matches(address("192.0.3.0")));
+        assertFalse(matcher.matches(address("192.0.1.255")));
+    }
+
+    @Test
+    public void testPrefixNotOnByteBoundary() throws Exception
+    {
+        final CidrMatcher matcher = new CidrMatcher();
+        matcher.add("198.51.100.64/26");
+        assertTrue(matcher.matches(address("198.51.100.64")));
+        assertTrue(matcher.matches(address("198.51.100.127")));
+        assertFalse(matcher.matches(address("198.51.100.63")));
+        assertFalse(matcher.matches(address("198.51.100.128")));
+    }
+
+    @Test
+    public void testSingleAddress() throws Exception
+    {
+        final CidrMatcher matcher = new CidrMatcher();
+        matcher.add("203.0.113.7");
+        assertTrue(matcher.matches(address("203.0.113.7")));
+        assertFalse(matcher.matches(address("203.0.113.6")));
+        assertFalse(matcher.matches(address("203.0.113.8")));
+    }
+
+    @Test
+    public void testZeroPrefixMatchesAllOfItsFamily() throws Exception
+    {
+        final CidrMatcher matcher = new CidrMatcher();
+        matcher.add("0.0.0.0/0");
+        assertTrue(matcher.matches(address("192.0.2.1")));
+        assertTrue(matcher.matches(address("255.255.255.255")));
+        assertFalse(matcher.matches(address("2001:db8::1")));
+    }
+
+    @Test
+    public void testIpv6Range() throws Exception
+    {
+        final CidrMatcher matcher = new CidrMatcher();
+        matcher.add("2001:db8::/32");
+        assertTrue(matcher.matches(address("2001:db8::1")));
+        assertTrue(matcher.matches(address("2001:db8:ffff:ffff:ffff:ffff:ffff:ffff")));
+        assertFalse(matcher.matches(address("2001:db9::1")));
+        assertFalse(matcher.matches(address("192.0.2.1")));
+    }
+
+    @Test
+    public void testNestedRanges() throws Exception
+    {
+        // A wider range that is added after a narrower one covers it, and a narrower one added after a wider one is
+        // redundant.
+        final CidrMatcher matcher = new CidrMatcher();
+        matcher.add("10.1.2.0/24");
+        matcher.add("10.0.0.0/8");
+        matcher.add("10.1.0.0/16");
+        assertTrue(matcher.matches(address("10.1.2.3")));
+        assertTrue(matcher.matches(address("10.200.0.1")));
+        assertFalse(matcher.matches(address("11.0.0.1")));
+    }
+
+    @Test
+    public void testMultipleRanges() throws Exception
+    {
+        final CidrMatcher matcher = new CidrMatcher();
+        matcher.add("192.0.2.0/24");
+        matcher.add("2001:db8::/32");
+        assertTrue(matcher.matches(address("192.0.2.10")));
+        assertTrue(matcher.matches(address("2001:db8::10")));
+        assertFalse(matcher.matches(address("198.51.100.10")));
+    }
+
+    @Test
+    public void testInvalidValues()
+    {
+        final CidrMatcher matcher = new CidrMatcher();
+        assertThrows(IllegalArgumentException.class, () -> matcher.add("example.org"));
+        assertThrows(IllegalArgumentException.class, () -> matcher.add("192.0.2.0/33"));
+        assertThrows(IllegalArgumentException.class, () -> matcher.add("2001:db8::/129"));
+        assertThrows(IllegalArgumentException.class, () -> matcher.add("192.0.2.0/-1"));
+        assertThrows(IllegalArgumentException.class, () -> matcher.add("192.0.2.0/abc"));
+        assertThrows(IllegalArgumentException.class, () -> matcher.add("192.0.2.256"));
+        assertTrue(matcher.isEmpty());
+    }
+}
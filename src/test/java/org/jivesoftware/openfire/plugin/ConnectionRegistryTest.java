@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.jivesoftware.openfire.StreamID;
+import org.jivesoftware.openfire.session.IncomingServerSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.xmpp.packet.JID;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that the {@link ConnectionRegistry} associates connections with the sessions that are established over them,
+ * so that a {@link CaptureFilter} on JIDs can be applied.
+ */
+public class ConnectionRegistryTest
+{
+    private final EmbeddedChannel channel = new EmbeddedChannel();
+    private final ConnectionRegistry registry = new ConnectionRegistry();
+
+    @AfterEach
+    public void tearDown()
+    {
+        channel.finishAndReleaseAll();
+    }
+
+    private static ByteBuf streamHeader(final String streamId)
+    {
+        return Unpooled.copiedBuffer("<?xml version='1.0' encoding='UTF-8'?><stream:stream xmlns:stream='http://etherx.jabber.org/streams' xmlns='jabber:server' from='example.com' id='" + streamId + "' version='1.0'>", StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates an incoming server session that has a stream ID, that has validated a remote domain, and of which the
+     * address is the local domain.
+     */
+    private static IncomingServerSession incomingServerSession(final String streamId, final String remoteDomain)
+    {
+        final StreamID id = () -> streamId;
+        return (IncomingServerSession) Proxy.newProxyInstance(ConnectionRegistryTest.class.getClassLoader(), new Class<?>[] { IncomingServerSession.class }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getStreamID":
+                    return id;
+                case "getValidatedDomains":
+                    return List.of(remoteDomain);
+                case "getAddress":
+                    return new JID("example.com");
+                case "isClosed":
+                    return false;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    @Test
+    public void testFilteredIncomingServerConnectionIsIdentified()
+    {
+        registry.setFilter(CaptureFilter.compile("", "", "example.org", ""));
+        final ConnectionInfo connection = new ConnectionInfo(1, "S2S-STARTTLS", "192.0.2.1", "test");
+        registry.register(channel, connection);
+        assertEquals(CaptureFilter.PENDING, connection.getCaptureState());
+
+        final ByteBuf header = streamHeader("s2s-stream");
+        registry.inspectSent(connection, header);
+        header.release();
+        assertSame(connection, registry.getByStreamId("s2s-stream"));
+
+        registry.sessionCreated(incomingServerSession("s2s-stream", "example.org"));
+        assertEquals(new JID("example.org"), connection.getBoundJid());
+        assertTrue(registry.isCaptured(connection));
+    }
+
+    @Test
+    public void testIncomingServerConnectionOfOtherDomainIsNotCaptured()
+    {
+        registry.setFilter(CaptureFilter.compile("", "", "example.org", ""));
+        final ConnectionInfo connection = new ConnectionInfo(1, "S2S-STARTTLS", "192.0.2.1", "test");
+        registry.register(channel, connection);
+
+        final ByteBuf header = streamHeader("s2s-stream");
+        registry.inspectSent(connection, header);
+        header.release();
+        registry.sessionCreated(incomingServerSession("s2s-stream", "example.net"));
+
+        assertEquals(new JID("example.net"), connection.getBoundJid());
+        assertFalse(registry.isCaptured(connection));
+    }
+
+    @Test
+    public void testConnectionExcludedByEarlierFilterIsIdentifiedAfterFilterChange()
+    {
+        registry.setFilter(CaptureFilter.compile("C2S-STARTTLS", "", "", ""));
+        final ConnectionInfo connection = new ConnectionInfo(1, "S2S-STARTTLS", "192.0.2.1", "test");
+        registry.register(channel, connection);
+        assertEquals(CaptureFilter.NO_MATCH, connection.getCaptureState());
+
+        final ByteBuf header = streamHeader("s2s-stream");
+        registry.inspectSent(connection, header);
+        header.release();
+        registry.sessionCreated(incomingServerSession("s2s-stream", "example.org"));
+
+        registry.setFilter(CaptureFilter.compile("", "", "example.org", ""));
+        assertEquals(CaptureFilter.MATCH, connection.getCaptureState());
+    }
+
+    @Test
+    public void testRegistrationIsRemovedWhenChannelCloses()
+    {
+        final ConnectionInfo connection = new ConnectionInfo(1, "S2S-STARTTLS", "192.0.2.1", "test");
+        registry.register(channel, connection);
+        final ByteBuf header = streamHeader("s2s-stream");
+        registry.inspectSent(connection, header);
+        header.release();
+
+        channel.close();
+        assertTrue(registry.getConnections().isEmpty());
+        assertNull(registry.getByStreamId("s2s-stream"));
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import org.jivesoftware.openfire.interceptor.InterceptorManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.xmpp.packet.IQ;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that {@link IqResponseCorrelator} matches responses to pending requests, and evicts requests that are
+ * answered, cancelled or timed out.
+ */
+public class IqResponseCorrelatorTest
+{
+    private static final Duration TIMEOUT = Duration.ofMinutes(1);
+
+    private final IqResponseCorrelator correlator = new IqResponseCorrelator();
+
+    @AfterEach
+    public void tearDown()
+    {
+        correlator.shutdown();
+    }
+
+    private static IQ request(final String id, final String to)
+    {
+        final IQ request = new IQ(IQ.Type.get);
+        request.setID(id);
+        if (to != null) {
+            request.setTo(to);
+        }
+        return request;
+    }
+
+    private void respond(final String id, final String from)
+    {
+        final IQ response = new IQ(IQ.Type.result);
+        response.setID(id);
+        response.setFrom(from);
+        correlator.interceptPacket(response, null, true, false);
+    }
+
+    private boolean isRegistered()
+    {
+        return InterceptorManager.getInstance().getInterceptors().contains(correlator);
+    }
+
+    @Test
+    public void testResponseCompletesRequest() throws Exception
+    {
+        final CompletableFuture<IQ> future = correlator.register(request("1", "juliet@example.org/balcony"), TIMEOUT);
+        assertEquals(1, correlator.getPendingCount());
+        assertTrue(isRegistered());
+
+        respond("1", "juliet@example.org/balcony");
+        assertEquals("1", future.get(0, TimeUnit.SECONDS).getID());
+        assertEquals(0, correlator.getPendingCount());
+        assertFalse(isRegistered());
+    }
+
+    @Test
+    public void testResponseFromOtherAddressIsIgnored()
+    {
+        final CompletableFuture<IQ> future = correlator.register(request("1", "juliet@example.org/balcony"), TIMEOUT);
+        respond("1", "romeo@example.org/garden");
+        respond("2", "juliet@example.org/balcony");
+        assertFalse(future.isDone());
+        assertEquals(1, correlator.getPendingCount());
+    }
+
+    @Test
+    public void testRequestWithoutRecipientIsMatchedById() throws Exception
+    {
+        final CompletableFuture<IQ> future = correlator.register(request("1", null), TIMEOUT);
+        respond("1", "example.org");
+        assertTrue(future.isDone());
+        assertEquals("1", future.get().getID());
+        assertEquals(0, correlator.getPendingCount());
+    }
+
+    @Test
+    public void testSharedRequestCompletesAllCallers() throws Exception
+    {
+        final CompletableFuture<IQ> first = correlator.register(request("1", "juliet@example.org/balcony"), TIMEOUT);
+        final CompletableFuture<IQ> second = correlator.register(request("1", "juliet@example.org/balcony"), TIMEOUT);
+        assertEquals(1, correlator.getPendingCount());
+
+        respond("1", "juliet@example.org/balcony");
+        assertEquals("1", first.get().getID());
+        assertEquals("1", second.get().getID());
+        assertEquals(0, correlator.getPendingCount());
+    }
+
+    @Test
+    public void testCancelOfOneCallerKeepsOthersWaiting() throws Exception
+    {
+        final CompletableFuture<IQ> first = correlator.register(request("1", "juliet@example.org/balcony"), TIMEOUT);
+        final CompletableFuture<IQ> second = correlator.register(request("1", "juliet@example.org/balcony"), TIMEOUT);
+
+        first.cancel(false);
+        assertFalse(second.isDone());
+        assertEquals(1, correlator.getPendingCount());
+
+        respond("1", "juliet@example.org/balcony");
+        assertEquals("1", second.get().getID());
+    }
+
+    @Test
+    public void testCancelOfLastCallerEvictsRequest()
+    {
+        final CompletableFuture<IQ> first = correlator.register(request("1", "juliet@example.org/balcony"), TIMEOUT);
+        final CompletableFuture<IQ> second = correlator.register(request("1", "juliet@example.org/balcony"), TIMEOUT);
+
+        first.cancel(false);
+        second.cancel(false);
+        assertEquals(0, correlator.getPendingCount());
+        assertFalse(isRegistered());
+
+        // A new request with the same ID and recipient is not affected by the earlier cancellations.
+        final CompletableFuture<IQ> third = correlator.register(request("1", "juliet@example.org/balcony"), TIMEOUT);
+        assertFalse(third.isDone());
+        assertEquals(1, correlator.getPendingCount());
+    }
+
+    @Test
+    public void testTimeoutEvictsRequest() throws Exception
+    {
+        final CompletableFuture<IQ> future = correlator.register(request("1", "juliet@example.org/balcony"), Duration.ofMillis(50));
+        final ExecutionException exception = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+        assertTrue(IqResponseCorrelator.isTimeout(exception.getCause()));
+
+        // The caller is notified of the timeout before the request is evicted, on the thread that times it out.
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (correlator.getPendingCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, correlator.getPendingCount());
+    }
+
+    @Test
+    public void testIsTimeoutUnwrapsDependentStages()
+    {
+        final CompletableFuture<IQ> future = correlator.register(request("1", "juliet@example.org/balcony"), Duration.ofMillis(50));
+        final Throwable failure = future.thenApply(IQ::getID).handle((id, f) -> f).join();
+        assertTrue(IqResponseCorrelator.isTimeout(failure));
+        assertFalse(IqResponseCorrelator.isTimeout(null));
+        assertFalse(IqResponseCorrelator.isTimeout(new CancellationException()));
+    }
+
+    @Test
+    public void testShutdownCancelsAllRequests()
+    {
+        final CompletableFuture<IQ> first = correlator.register(request("1", "juliet@example.org/balcony"), TIMEOUT);
+        final CompletableFuture<IQ> second = correlator.register(request("2", null), TIMEOUT);
+
+        correlator.shutdown();
+        assertThrows(CancellationException.class, first::get);
+        assertThrows(CancellationException.class, second::get);
+        assertEquals(0, correlator.getPendingCount());
+        assertFalse(isRegistered());
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies the bucket bounds of {@link LatencyHistogram}, and the percentiles that are reported from them.
+ */
+public class LatencyHistogramTest
+{
+    private static final long MAX_VALUE = (1L << 36) - 1;
+
+    /**
+     * Returns the upper bound of the bucket that a value is counted in. A higher value is recorded as well, so that the
+     * reported percentile is not capped by the maximum.
+     */
+    private static long upperBoundOf(final long value)
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(value);
+        histogram.record(MAX_VALUE);
+        return histogram.getPercentile(50);
+    }
+
+    /**
+     * Returns values around every power of two, up to the highest value that is distinguished.
+     */
+    private static List<Long> values()
+    {
+        final List<Long> values = new ArrayList<>();
+        for (long value = 0; value <= 4096; value++) {
+            values.add(value);
+        }
+        for (int bit = 13; bit < 36; bit++) {
+            values.add((1L << bit) - 1);
+            values.add(1L << bit);
+            values.add((1L << bit) + 1);
+            values.add((3L << (bit - 1)) + 1);
+        }
+        values.add(MAX_VALUE);
+        return values;
+    }
+
+    @Test
+    public void testSmallValuesAreExact()
+    {
+        for (long value = 0; value < 32; value++) {
+            assertEquals(value, upperBoundOf(value));
+        }
+    }
+
+    @Test
+    public void testRelativeErrorIsBounded()
+    {
+        for (final long value : values()) {
+            final long bound = upperBoundOf(value);
+            assertTrue(bound >= value, "value " + value);
+            assertTrue(bound - value <= value / 32, "value " + value + " bound " + bound);
+        }
+    }
+
+    @Test
+    public void testBucketsAreContiguous()
+    {
+        // The upper bound of a bucket is counted in that bucket, and the value after it in the next one.
+        for (final long value : values()) {
+            final long bound = upperBoundOf(value);
+            assertEquals(bound, upperBoundOf(bound), "value " + value);
+            if (bound < MAX_VALUE) {
+                assertTrue(upperBoundOf(bound + 1) > bound, "value " + value);
+            }
+        }
+    }
+
+    @Test
+    public void testOutOfRangeValuesAreClamped()
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals(MAX_VALUE, histogram.getPercentile(100));
+        assertEquals(MAX_VALUE, histogram.getMax());
+    }
+
+    @Test
+    public void testPercentiles()
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(50));
+        for (int value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(50, histogram.getMean());
+        assertEquals(100, histogram.getMax());
+        assertEquals(1, histogram.getPercentile(0));
+        assertEquals(upperBoundOf(50), histogram.getPercentile(50));
+        assertEquals(upperBoundOf(90), histogram.getPercentile(90));
+        // A percentile is never reported above the maximum, even if the bucket that contains it extends beyond it.
+        assertEquals(100, histogram.getPercentile(100));
+    }
+}
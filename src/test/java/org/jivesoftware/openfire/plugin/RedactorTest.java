@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Verifies the scanner of the {@link Redactor}, which masks the character data of sensitive elements in traffic that
+ * arrives in arbitrary frames.
+ */
+public class RedactorTest
+{
+    private static final String STREAM_HEADER = "<?xml version='1.0'?><stream:stream xmlns='jabber:client' xmlns:stream='http://etherx.jabber.org/streams'>";
+
+    private final Redactor redactor = new Redactor("auth, response, password, body", 0);
+
+    /**
+     * Scans frames with one state, and returns the concatenated result.
+     */
+    private static String scan(final Redactor.State state, final String... frames)
+    {
+        final StringBuilder result = new StringBuilder();
+        for (final String frame : frames) {
+            final byte[] bytes = frame.getBytes(StandardCharsets.UTF_8);
+            Redactor.redact(state, bytes);
+            result.append(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return result.toString();
+    }
+
+    private Redactor.State synchronizedState()
+    {
+        final Redactor.State state = redactor.newState();
+        scan(state, STREAM_HEADER);
+        return state;
+    }
+
+    @Test
+    public void testMasksBody()
+    {
+        assertEquals("<message to='juliet@example.com'><body>******</body><thread>t1</thread></message>",
+            scan(synchronizedState(), "<message to='juliet@example.com'><body>secret</body><thread>t1</thread></message>"));
+    }
+
+    @Test
+    public void testMasksElementSplitAcrossFrames()
+    {
+        assertEquals("<message><body>******</body><subject>hi</subject></message>",
+            scan(synchronizedState(), "<message><bo", "dy>sec", "ret</bo", "dy><subject>hi</subject></message>"));
+    }
+
+    @Test
+    public void testMasksElementWithPrefixSplitAcrossFrames()
+    {
+        assertEquals("<auth xmlns='urn:ietf:params:xml:ns:xmpp-sasl' mechanism='PLAIN'>************</auth><x/>",
+            scan(synchronizedState(), "<au", "th xmlns='urn:ietf:params:xml:ns:xmpp-sasl' mecha", "nism='PLAIN'>AGp1bGlldAB", "y</auth><x/>"));
+        assertEquals("<sasl:auth>******</sasl:auth>", scan(synchronizedState(), "<sasl:a", "uth>secret</sasl:auth>"));
+    }
+
+    @Test
+    public void testMasksNestedElements()
+    {
+        assertEquals("<body>***<body>***</body>***</body>tail",
+            scan(synchronizedState(), "<body>abc<body>def</body>ghi</body>tail"));
+    }
+
+    @Test
+    public void testDoesNotMaskSelfClosingElement()
+    {
+        assertEquals("<message><body/>text</message>", scan(synchronizedState(), "<message><body/>text</message>"));
+    }
+
+    @Test
+    public void testMasksCdataSection()
+    {
+        // The CDATA section contains markup that must not end the masked element. The ']]' that ends the section is masked
+        // as well, as it is not recognized as the end until the '>' that follows it.
+        assertEquals("<message><body><![CDATA[***********************></body><subject>hi</subject></message>",
+            scan(synchronizedState(), "<message><body><![CDATA[<b>secret</body>x</b>]]></body><subject>hi</subject></message>"));
+    }
+
+    @Test
+    public void testMasksCdataSectionSplitAcrossFrames()
+    {
+        assertEquals("<body><![CDATA[***********></body>after",
+            scan(synchronizedState(), "<body><![CD", "ATA[a</bo", "dy>b]", "]></body>after"));
+    }
+
+    @Test
+    public void testDoesNotMaskCdataSectionOutsideSensitiveElement()
+    {
+        assertEquals("<subject><![CDATA[<body>x]]></subject>", scan(synchronizedState(), "<subject><![CDATA[<body>x]]></subject>"));
+    }
+
+    @Test
+    public void testMasksCommentContainingMarkup()
+    {
+        assertEquals("<body>*<!--********************>*</body>after",
+            scan(synchronizedState(), "<body>a<!-- </body> > secret -->b</body>after"));
+    }
+
+    @Test
+    public void testIgnoresGreaterThanInAttributeValue()
+    {
+        assertEquals("<message><body xml:lang='a>b'>******</body></message>",
+            scan(synchronizedState(), "<message><body xml:lang='a>b'>secret</body></message>"));
+        assertEquals("<message id=\"x>y\">hello</message>", scan(synchronizedState(), "<message id=\"x>y\">hello</message>"));
+        assertEquals("<message><body a='<body>' b=\"'\">******</body>after</message>",
+            scan(synchronizedState(), "<message><body a='<body>' b=\"'\">", "secret</body>after</message>"));
+    }
+
+    @Test
+    public void testMasksUntilStanzaBoundaryAfterGap()
+    {
+        final Redactor.State state = synchronizedState();
+        assertEquals("<message>hello</message>", scan(state, "<message>hello</message>"));
+
+        // The frame that contained '<message><body>sec' was not scanned.
+        state.resynchronize();
+        assertEquals("***</body><x>****</x></message> <message><body>*</body>visible</message>",
+            scan(state, "ret</body><x>more</x></message> <message><body>b</body>visible</message>"));
+    }
+
+    @Test
+    public void testMasksUntilStanzaBoundaryAfterGapInsideTag()
+    {
+        final Redactor.State state = synchronizedState();
+        scan(state, "<message><bo");
+        state.resynchronize();
+        assertEquals("*********</body></message><presence><status>away</status></presence>",
+            scan(state, "dy>secret</body></message><presence><status>away</status></presence>"));
+    }
+
+    @Test
+    public void testNewStateMasksUntilStanzaBoundary()
+    {
+        assertEquals("******</body></message><message><body>*</body>visible</message>",
+            scan(redactor.newState(), "secret</body></message><message><body>b</body>visible</message>"));
+        assertEquals("<stream:stream>text", scan(redactor.newState(), "<stream:stream>text"));
+    }
+
+    @Test
+    public void testMasksUntilStanzaBoundaryAfterDroppedFrame()
+    {
+        final ConnectionInfo connection = new ConnectionInfo(1, "C2S", "/192.0.2.1:5222", "test");
+        scan(redactor.stateFor(connection, true), STREAM_HEADER, "<message><body>");
+        connection.markRedactionGap(true);
+        assertEquals("******</body></message>", scan(redactor.stateFor(connection, true), "secret</body></message>"));
+        assertEquals("<message>hello</message>", scan(redactor.stateFor(connection, true), "<message>hello</message>"));
+    }
+
+    @Test
+    public void testGapOfOtherDirectionDoesNotResynchronize()
+    {
+        final ConnectionInfo connection = new ConnectionInfo(1, "C2S", "/192.0.2.1:5222", "test");
+        scan(redactor.stateFor(connection, true), STREAM_HEADER, "<message>");
+        connection.markRedactionGap(false);
+        assertEquals("hello</message>", scan(redactor.stateFor(connection, true), "hello</message>"));
+    }
+
+    @Test
+    public void testKeepsMaskingAcrossConfigurationChange()
+    {
+        final ConnectionInfo connection = new ConnectionInfo(1, "C2S", "/192.0.2.1:5222", "test");
+        scan(redactor.stateFor(connection, true), STREAM_HEADER, "<message><body>sec");
+
+        // The body is no longer configured to be masked, but the body that was being masked remains masked until it ends.
+        final Redactor reconfigured = new Redactor("password", 0);
+        assertEquals("***</body></message><message><body>visible</body></message>",
+            scan(reconfigured.stateFor(connection, true), "ret</body></message><message><body>visible</body></message>"));
+    }
+
+    @Test
+    public void testMasksUntilStanzaBoundaryAfterRedactionWasReenabled()
+    {
+        final ConnectionInfo connection = new ConnectionInfo(1, "C2S", "/192.0.2.1:5222", "test");
+        scan(redactor.stateFor(connection, true), STREAM_HEADER, "<message>");
+
+        // Traffic was not scanned while redaction was disabled.
+        final Redactor reenabled = new Redactor("auth, response, password, body", 1);
+        assertEquals("******</body></message><message>hello</message>",
+            scan(reenabled.stateFor(connection, true), "secret</body></message><message>hello</message>"));
+    }
+
+    @Test
+    public void testMasksCompleteText()
+    {
+        assertEquals("<message><body>******</body></message>", redactor.redact("<message><body>secret</body></message>"));
+        assertEquals(null, redactor.redact("<message><subject>hi</subject></message>"));
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import org.jivesoftware.openfire.StreamID;
+import org.jivesoftware.openfire.session.ClientSession;
+import org.jivesoftware.openfire.session.DomainPair;
+import org.jivesoftware.openfire.session.IncomingServerSession;
+import org.jivesoftware.openfire.session.Session;
+import org.junit.jupiter.api.Test;
+import org.xmpp.packet.JID;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Verifies searching the {@link SessionIndex} page by page, and that cursors remain valid while sessions come and go.
+ */
+public class SessionIndexTest
+{
+    private final List<DomainPair> outgoing = new ArrayList<>();
+    private final SessionIndex index = new SessionIndex(() -> outgoing);
+
+    /**
+     * Creates a session of which the address can be changed, as it is by resource binding.
+     */
+    private static <S extends Session> S session(final Class<S> type, final String streamId, final JID[] address)
+    {
+        final StreamID id = () -> streamId;
+        return type.cast(Proxy.newProxyInstance(SessionIndexTest.class.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getStreamID":
+                    return id;
+                case "getAddress":
+                    return address[0];
+                case "isClosed":
+                    return false;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }));
+    }
+
+    private ClientSession client(final String streamId, final String address)
+    {
+        final ClientSession session = session(ClientSession.class, streamId, new JID[] { new JID(address) });
+        index.sessionCreated(session);
+        return session;
+    }
+
+    private static List<String> values(final SessionIndex.Page page)
+    {
+        return page.getOptions().stream().map(StanzaSenderServlet.ConnectionOption::getValue).collect(Collectors.toList());
+    }
+
+    /**
+     * Collects the values of all pages of a search.
+     */
+    private List<String> searchAll(final String query, final int limit)
+    {
+        final List<String> result = new ArrayList<>();
+        String cursor = null;
+        do {
+            final SessionIndex.Page page = index.search(query, cursor, limit);
+            result.addAll(values(page));
+            cursor = page.getNext();
+        } while (cursor != null);
+        return result;
+    }
+
+    @Test
+    public void testPagesInOrderOfAddress()
+    {
+        client("s4", "romeo@example.org/garden");
+        client("s1", "juliet@example.org/balcony");
+        client("s3", "nurse@example.org/kitchen");
+        client("s2", "benvolio@example.org/square");
+
+        final SessionIndex.Page first = index.search("", null, 2);
+        assertEquals(List.of("c2s:s2", "c2s:s1"), values(first));
+        assertNotNull(first.getNext());
+
+        final SessionIndex.Page second = index.search("", first.getNext(), 2);
+        assertEquals(List.of("c2s:s3", "c2s:s4"), values(second));
+        assertNull(second.getNext());
+    }
+
+    @Test
+    public void testPageSizesDoNotAffectResults()
+    {
+        for (int i = 0; i < 7; i++) {
+            client("stream" + i, "user" + i + "@example.org/resource");
+        }
+        outgoing.add(new DomainPair("example.org", "example.net"));
+        final List<String> expected = searchAll("", 100);
+        assertEquals(8, expected.size());
+        for (int limit = 1; limit < 9; limit++) {
+            assertEquals(expected, searchAll("", limit), "limit " + limit);
+        }
+    }
+
+    @Test
+    public void testAddressMatchesBeforeStreamIdMatches()
+    {
+        client("juliet-stream", "romeo@example.org/garden");
+        client("s1", "juliet@example.org/balcony");
+        client("juliet-both", "juliet@example.org/tomb");
+        client("s2", "nurse@example.org/kitchen");
+
+        // A session that matches on both its address and its stream ID is listed once, by address.
+        assertEquals(List.of("c2s:s1", "c2s:juliet-both", "c2s:juliet-stream"), searchAll("JULIET", 1));
+        assertEquals(List.of("c2s:s2"), searchAll("nurse", 10));
+        assertEquals(List.of(), searchAll("tybalt", 10));
+    }
+
+    @Test
+    public void testOutgoingServerSessionsAreListedLast()
+    {
+        client("s1", "example.net");
+        outgoing.add(new DomainPair("example.org", "example.net"));
+        outgoing.add(new DomainPair("example.org", "example.com"));
+
+        assertEquals(List.of("c2s:s1", "s2s-out:example.org|example.net"), searchAll("example.net", 1));
+        assertEquals(List.of("s2s-out:example.org|example.com"), searchAll("example.com", 1));
+    }
+
+    @Test
+    public void testCursorSurvivesRemovalOfLastListedSession()
+    {
+        client("s1", "a@example.org/r");
+        final ClientSession second = client("s2", "b@example.org/r");
+        client("s3", "c@example.org/r");
+
+        final SessionIndex.Page first = index.search("", null, 2);
+        assertEquals(List.of("c2s:s1", "c2s:s2"), values(first));
+
+        index.sessionDestroyed(second);
+        client("s0", "0@example.org/r"); // Sorts before the cursor, and is therefore not listed on the next page.
+
+        final SessionIndex.Page next = index.search("", first.getNext(), 2);
+        assertEquals(List.of("c2s:s3"), values(next));
+        assertNull(next.getNext());
+    }
+
+    @Test
+    public void testResourceBindingReplacesAddress()
+    {
+        final JID[] address = { new JID("example.org") };
+        final ClientSession session = session(ClientSession.class, "s1", address);
+        index.sessionCreated(session);
+        address[0] = new JID("juliet@example.org/balcony");
+        index.resourceBound(session);
+
+        assertEquals(1, index.size());
+        assertEquals(List.of("c2s:s1"), searchAll("juliet", 10));
+        assertEquals(List.of(), searchAll("example.org", 10));
+    }
+
+    @Test
+    public void testResolveByStreamId()
+    {
+        final ClientSession client = client("s1", "juliet@example.org/balcony");
+        final IncomingServerSession server = session(IncomingServerSession.class, "s2", new JID[] { new JID("example.org") });
+        index.sessionCreated(server);
+
+        assertSame(client, index.resolve("c2s:s1"));
+        assertSame(server, index.resolve("s2s-in:s2"));
+        assertNull(index.resolve("s2s-in:s1")); // The prefix must match the type of the session.
+        assertNull(index.resolve("c2s:unknown"));
+
+        index.sessionDestroyed(client);
+        assertNull(index.resolve("c2s:s1"));
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Verifies that {@link StanzaFramer} reassembles frames into top-level XML units, regardless of how the bytes are split
+ * over frames.
+ */
+public class StanzaFramerTest
+{
+    private static final int MAX_PENDING = 1024;
+    private static final String STREAM_HEADER = "<?xml version='1.0'?><stream:stream xmlns='jabber:client' xmlns:stream='http://etherx.jabber.org/streams' to='example.org' version='1.0'>";
+
+    private final ByteBufAllocator allocator = UnpooledByteBufAllocator.DEFAULT;
+    private final StanzaFramer framer = new StanzaFramer();
+    private final List<ByteBuf> frames = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown()
+    {
+        framer.reset();
+        frames.forEach(ByteBuf::release);
+    }
+
+    /**
+     * Feeds frames to the framer, and returns the text of the units that were completed.
+     */
+    private List<String> feed(final int maxPending, final String... texts)
+    {
+        final List<String> units = new ArrayList<>();
+        for (final String text : texts) {
+            final ByteBuf frame = Unpooled.copiedBuffer(text, StandardCharsets.UTF_8);
+            frames.add(frame);
+            framer.feed(allocator, frame, maxPending, unit -> {
+                units.add(unit.toString(StandardCharsets.UTF_8));
+                unit.release();
+            });
+            assertEquals(0, frame.readerIndex());
+        }
+        return units;
+    }
+
+    private List<String> feed(final String... texts)
+    {
+        return feed(MAX_PENDING, texts);
+    }
+
+    @Test
+    public void testSeveralStanzasInOneFrame()
+    {
+        assertEquals(List.of("<presence/>", "<message to='juliet@example.org'><body>Hi</body></message>", "<iq type='get' id='1'><ping xmlns='urn:xmpp:ping'/></iq>"),
+            feed("<presence/><message to='juliet@example.org'><body>Hi</body></message><iq type='get' id='1'><ping xmlns='urn:xmpp:ping'/></iq>"));
+    }
+
+    @Test
+    public void testStanzaSplitOverFrames()
+    {
+        assertEquals(List.of(), feed("<message to='juliet@exa", "mple.org'><bo"));
+        assertEquals(List.of("<message to='juliet@example.org'><body>Hi</body></message>", "<presence/>"), feed("dy>Hi</body></mess", "age><presence/>"));
+    }
+
+    @Test
+    public void testSplitInsideEndTag()
+    {
+        assertEquals(List.of(), feed("<a><b/></", "a"));
+        assertEquals(List.of("<a><b/></a>"), feed(">"));
+    }
+
+    @Test
+    public void testStreamHeaderAndFooter()
+    {
+        assertEquals(List.of(STREAM_HEADER, "<stream:features><starttls xmlns='urn:ietf:params:xml:ns:xmpp-tls'/></stream:features>"),
+            feed(STREAM_HEADER + "<stream:features><starttls xmlns='urn:ietf:params:xml:ns:xmpp-tls'/></stream:features>"));
+        assertEquals(List.of("<presence/>", "</stream:stream>"), feed("<presence/></stream:stream>"));
+    }
+
+    @Test
+    public void testStreamHeaderSplitOverFrames()
+    {
+        final int split = STREAM_HEADER.indexOf("stream:stream") + 4;
+        assertEquals(List.of(), feed(STREAM_HEADER.substring(0, split)));
+        assertEquals(List.of(STREAM_HEADER), feed(STREAM_HEADER.substring(split)));
+    }
+
+    @Test
+    public void testRecoversOnNewStream()
+    {
+        // An element that is never closed, for example because the peer restarted the stream, is ended by the next
+        // stream header.
+        assertEquals(List.of(), feed("<presence><show>away</show>"));
+        assertEquals(List.of("<presence><show>away</show>" + STREAM_HEADER, "<presence/>"), feed(STREAM_HEADER + "<presence/>"));
+    }
+
+    @Test
+    public void testStartsHalfwayAStanza()
+    {
+        assertEquals(List.of("away", "</show>", "</presence>", "<presence/>"), feed("away</show></presence><presence/>"));
+    }
+
+    @Test
+    public void testWhitespaceBetweenStanzas()
+    {
+        assertEquals(List.of(" "), feed(" "));
+        assertEquals(List.of("<presence/>", "\n", "<presence/>"), feed("<presence/>\n<presence/>"));
+    }
+
+    @Test
+    public void testMarkupInAttributesCommentsAndCData()
+    {
+        final String stanza = "<message id='a>b' note=\"</message>\"><!-- <body/> --><body><![CDATA[</body></message>]]></body><?pi </message>?></message>";
+        assertEquals(List.of(stanza, "<presence/>"), feed(stanza + "<presence/>"));
+    }
+
+    @Test
+    public void testOversizedStanzaIsEmittedInParts()
+    {
+        final String first = "<message><body>" + "x".repeat(32);
+        final String second = "y".repeat(8);
+        final String third = "</body></message>";
+
+        // Once the buffered part reaches the maximum, it is emitted as a partial unit.
+        assertEquals(List.of(first), feed(16, first));
+        // Smaller parts are buffered until the unit is complete, or the maximum is reached again.
+        assertEquals(List.of(), feed(16, second));
+        assertEquals(List.of(second + third, "<presence/>"), feed(16, third + "<presence/>"));
+    }
+
+    @Test
+    public void testResetDiscardsIncompleteUnit()
+    {
+        assertEquals(List.of(), feed("<message><body>Hi"));
+        framer.reset();
+        assertEquals(List.of("<presence/>"), feed("<presence/>"));
+    }
+
+    @Test
+    public void testUnitsAreIndependentOfFrames()
+    {
+        // Every way to split the input over two frames yields the same units.
+        final String input = STREAM_HEADER + "<message><body>a &lt; b</body></message> <iq id='1' type='result'/>";
+        final List<String> expected = feed(input);
+        framer.reset();
+        for (int split = 1; split < input.length(); split++) {
+            assertEquals(expected, feed(input.substring(0, split), input.substring(split)), "split at " + split);
+            framer.reset();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2026 Ignite Realtime Foundation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.openfire.plugin;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies the rate limiting of {@link TokenBucket}. Low rates are used, so that the bucket does not noticeably refill
+ * while a test runs.
+ */
+public class TokenBucketTest
+{
+    private static final int RATE = 5;
+
+    private static void drain(final TokenBucket bucket)
+    {
+        for (int i = 0; i < RATE; i++) {
+            assertTrue(bucket.tryAcquire(RATE), "token " + i);
+        }
+    }
+
+    @Test
+    public void testUnlimited()
+    {
+        final TokenBucket bucket = new TokenBucket();
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(bucket.tryAcquire(0));
+        }
+        assertTrue(bucket.tryAcquire(-1));
+    }
+
+    @Test
+    public void testBurstOfOneSecond()
+    {
+        final TokenBucket bucket = new TokenBucket();
+        drain(bucket);
+        assertFalse(bucket.tryAcquire(RATE));
+        assertFalse(bucket.tryAcquire(RATE));
+    }
+
+    @Test
+    public void testRefill() throws Exception
+    {
+        final TokenBucket bucket = new TokenBucket();
+        drain(bucket);
+        assertFalse(bucket.tryAcquire(RATE));
+
+        Thread.sleep(1000 / RATE + 50);
+        assertTrue(bucket.tryAcquire(RATE));
+    }
+
+    @Test
+    public void testRelease()
+    {
+        final TokenBucket bucket = new TokenBucket();
+        drain(bucket);
+        assertFalse(bucket.tryAcquire(RATE));
+
+        bucket.release(RATE);
+        assertTrue(bucket.tryAcquire(RATE));
+        assertFalse(bucket.tryAcquire(RATE));
+    }
+
+    @Test
+    public void testReleaseOfUnlimitedRateHasNoEffect()
+    {
+        final TokenBucket bucket = new TokenBucket();
+        drain(bucket);
+
+        bucket.release(0);
+        assertFalse(bucket.tryAcquire(RATE));
+    }
+
+    @Test
+    public void testHigherRateAcceptsMore()
+    {
+        // At a higher rate, each event takes a smaller share of the bucket.
+        final TokenBucket bucket = new TokenBucket();
+        for (int i = 0; i < RATE * 2; i++) {
+            assertTrue(bucket.tryAcquire(RATE * 2), "token " + i);
+        }
+        assertFalse(bucket.tryAcquire(RATE * 2));
+    }
+}
@@ -11,8 +11,17 @@
 <jsp:useBean scope="request" id="cm" type="java.lang.Boolean"/>
 <jsp:useBean scope="request" id="interpreted" type="java.lang.Boolean"/>
 <jsp:useBean scope="request" id="logWhitespace" type="java.lang.Boolean"/>
+<jsp:useBean scope="request" id="removeHandlersWhenDisabled" type="java.lang.Boolean"/>
 <jsp:useBean scope="request" id="loggingToStdOut" type="java.lang.Boolean"/>
 <jsp:useBean scope="request" id="loggingToFile" type="java.lang.Boolean"/>
+<jsp:useBean scope="request" id="loggingToCaptureFile" type="java.lang.Boolean"/>
+<jsp:useBean scope="request" id="stdOutLayout" type="org.jivesoftware.openfire.plugin.LogLayout"/>
+<jsp:useBean scope="request" id="fileLayout" type="org.jivesoftware.openfire.plugin.LogLayout"/>
+<jsp:useBean scope="request" id="overflowPolicy" type="org.jivesoftware.openfire.plugin.OverflowPolicy"/>
+<jsp:useBean scope="request" id="queueSize" type="java.lang.Integer"/>
+<jsp:useBean scope="request" id="queueCapacity" type="java.lang.Integer"/>
+<jsp:useBean scope="request" id="writtenEntries" type="java.lang.Long"/>
+<jsp:useBean scope="request" id="droppedEntries" type="java.lang.Long"/>
 <jsp:useBean scope="request" id="csrf" type="java.lang.String"/>
 <!DOCTYPE html>
 <html>
@@ -82,6 +91,26 @@
                 </label>
             </td>
         </tr>
+        <tr valign="middle">
+            <td width="1%" nowrap>
+                <input id="rb09" type="checkbox" name="removeHandlersWhenDisabled" <c:if test="${removeHandlersWhenDisabled}">checked</c:if>/>
+            </td>
+            <td width="99%">
+                <label for="rb09">
+                    Remove the debugger from live connections of disabled types
+                </label>
+            </td>
+        </tr>
+        <tr valign="middle">
+            <td width="1%" nowrap>
+                <input id="rb11" type="checkbox" name="framing" <c:if test="${framing}">checked</c:if>/>
+            </td>
+            <td width="99%">
+                <label for="rb11">
+                    Log one entry per stanza, instead of one entry per network frame
+                </label>
+            </td>
+        </tr>
         <tr valign="middle">
             <td width="1%" nowrap>
                 <input id="rb05" type="checkbox" name="interpreted" <c:if test="${interpreted}">checked</c:if>/>
@@ -100,6 +129,16 @@
                 <label for="rb06">
                     Log to STDOUT
                 </label>
+                <select name="stdOutLayout" title="Layout of STDOUT">
+                    <c:forEach var="layout" items="${layouts}">
+                        <option value="<c:out value='${layout}'/>" <c:if test="${layout eq stdOutLayout}">selected</c:if>>
+                            <c:choose>
+                                <c:when test="${layout eq 'JSON'}">as JSON lines</c:when>
+                                <c:otherwise>as text</c:otherwise>
+                            </c:choose>
+                        </option>
+                    </c:forEach>
+                </select>
             </td>
         </tr>
         <tr valign="middle">
@@ -110,13 +149,297 @@
                 <label for="rb07">
                     Log to file
                 </label>
+                <select name="fileLayout" title="Layout of the log file">
+                    <c:forEach var="layout" items="${layouts}">
+                        <option value="<c:out value='${layout}'/>" <c:if test="${layout eq fileLayout}">selected</c:if>>
+                            <c:choose>
+                                <c:when test="${layout eq 'JSON'}">as JSON lines</c:when>
+                                <c:otherwise>as text</c:otherwise>
+                            </c:choose>
+                        </option>
+                    </c:forEach>
+                </select>
+            </td>
+        </tr>
+        <tr valign="middle">
+            <td width="1%" nowrap>
+                <input id="rb10" type="checkbox" name="loggingToCaptureFile" <c:if test="${loggingToCaptureFile}">checked</c:if>/>
+            </td>
+            <td width="99%">
+                <label for="rb10">
+                    Log to binary capture files
+                </label>
+            </td>
+        </tr>
+        <tr valign="middle">
+            <td width="1%" nowrap>
+                <input id="rb12" type="checkbox" name="captureFileCompressed" <c:if test="${captureFileCompressed}">checked</c:if>/>
+            </td>
+            <td width="99%">
+                <label for="rb12">
+                    Compress binary capture files
+                </label>
+            </td>
+        </tr>
+        </tbody>
+        </table>
+    </div>
+    <div class="jive-contentBoxHeader">
+        Capture filter
+    </div>
+    <div class="jive-contentBox">
+        <p>
+            Limit the debugger to specific connections. Separate multiple values with commas. Leave a field empty to not
+            filter on it. A connection is captured only when it matches all non-empty fields. Traffic that is exchanged
+            before a connection can be matched (such as the stream negotiation that precedes resource binding, when
+            filtering on JID) is not captured.
+        </p>
+        <table cellpadding="3" cellspacing="0" border="0">
+        <tbody>
+        <tr valign="middle">
+            <td width="1%" nowrap>
+                <label for="filterConnectionTypes">Connection types</label>
+            </td>
+            <td width="99%">
+                <input type="text" size="60" id="filterConnectionTypes" name="filterConnectionTypes" value="<c:out value='${filterConnectionTypes}'/>" placeholder="C2S-STARTTLS, S2S-STARTTLS"/>
+            </td>
+        </tr>
+        <tr valign="middle">
+            <td width="1%" nowrap>
+                <label for="filterAddresses">Remote addresses</label>
+            </td>
+            <td width="99%">
+                <input type="text" size="60" id="filterAddresses" name="filterAddresses" value="<c:out value='${filterAddresses}'/>" placeholder="192.0.2.0/24, 2001:db8::/32"/>
+            </td>
+        </tr>
+        <tr valign="middle">
+            <td width="1%" nowrap>
+                <label for="filterJids">JIDs or domains</label>
+            </td>
+            <td width="99%">
+                <input type="text" size="60" id="filterJids" name="filterJids" value="<c:out value='${filterJids}'/>" placeholder="john@example.org, example.com"/>
+            </td>
+        </tr>
+        <tr valign="middle">
+            <td width="1%" nowrap>
+                <label for="filterStreamIds">Stream IDs</label>
+            </td>
+            <td width="99%">
+                <input type="text" size="60" id="filterStreamIds" name="filterStreamIds" value="<c:out value='${filterStreamIds}'/>"/>
+            </td>
+        </tr>
+        <tr valign="middle">
+            <td width="1%" nowrap>Captured connections</td>
+            <td width="99%"><c:out value="${capturedConnections}"/> / <c:out value="${observedConnections}"/></td>
+        </tr>
+        </tbody>
+        </table>
+    </div>
+    <div class="jive-contentBoxHeader">
+        Redaction
+    </div>
+    <div class="jive-contentBox">
+        <p>
+            Mask the text content of sensitive elements before traffic is logged, retained or streamed. Each masked
+            character is replaced by an asterisk. Elements are identified by their name, without namespace prefix.
+        </p>
+        <table cellpadding="3" cellspacing="0" border="0">
+        <tbody>
+        <tr valign="middle">
+            <td width="1%" nowrap>
+                <input id="redactionEnabled" type="checkbox" name="redactionEnabled" <c:if test="${redactionEnabled}">checked</c:if>/>
+            </td>
+            <td width="99%">
+                <label for="redactionEnabled">
+                    Mask sensitive elements
+                </label>
+            </td>
+        </tr>
+        <tr valign="middle">
+            <td width="1%" nowrap>
+                <label for="redactionElements">Element names</label>
+            </td>
+            <td width="99%">
+                <input type="text" size="60" id="redactionElements" name="redactionElements" value="<c:out value='${redactionElements}'/>" placeholder="auth, response, password, body"/>
+            </td>
+        </tr>
+        </tbody>
+        </table>
+    </div>
+    <div class="jive-contentBoxHeader">
+        Sampling
+    </div>
+    <div class="jive-contentBox">
+        <p>
+            Reduce the amount of traffic that is logged to a representative sample. Sampling of connections applies to
+            connections that are established after the change. Frames that exceed a rate limit are not logged: the
+            amount of skipped frames is logged for each connection instead. Use 0 for no rate limit.
+        </p>
+        <table cellpadding="3" cellspacing="0" border="0">
+        <tbody>
+        <tr valign="middle">
+            <td width="1%" nowrap>
+                <label for="sampleConnectionRatio">Debug one in every ... new connections</label>
+            </td>
+            <td width="99%">
+                <input type="number" min="1" size="6" id="sampleConnectionRatio" name="sampleConnectionRatio" value="<c:out value='${sampleConnectionRatio}'/>"/>
+            </td>
+        </tr>
+        <tr valign="middle">
+            <td width="1%" nowrap>
+                <label for="maxFramesPerSecond">Maximum frames per second (all connections)</label>
+            </td>
+            <td width="99%">
+                <input type="number" min="0" size="6" id="maxFramesPerSecond" name="maxFramesPerSecond" value="<c:out value='${maxFramesPerSecond}'/>"/>
+            </td>
+        </tr>
+        <tr valign="middle">
+            <td width="1%" nowrap>
+                <label for="maxFramesPerSecondPerConnection">Maximum frames per second (per connection)</label>
+            </td>
+            <td width="99%">
+                <input type="number" min="0" size="6" id="maxFramesPerSecondPerConnection" name="maxFramesPerSecondPerConnection" value="<c:out value='${maxFramesPerSecondPerConnection}'/>"/>
+            </td>
+        </tr>
+        <tr valign="middle">
+            <td width="1%" nowrap>Connections not sampled</td>
+            <td width="99%"><c:out value="${skippedConnections}"/></td>
+        </tr>
+        <tr valign="middle">
+            <td width="1%" nowrap>Frames skipped by rate limits</td>
+            <td width="99%"><c:out value="${skippedFrames}"/></td>
+        </tr>
+        </tbody>
+        </table>
+    </div>
+    <div class="jive-contentBoxHeader">
+        Log queue
+    </div>
+    <div class="jive-contentBox">
+        <p>
+            Traffic is written to STDOUT and the log file by a background thread. When more traffic is observed than
+            can be written, the queue between the network threads and this writer fills up.
+        </p>
+        <table cellpadding="3" cellspacing="0" border="0">
+        <tbody>
+        <tr valign="middle">
+            <td width="1%" nowrap>
+                <label for="overflowPolicy">When the queue is full</label>
+            </td>
+            <td width="99%">
+                <select id="overflowPolicy" name="overflowPolicy">
+                    <c:forEach var="policy" items="${overflowPolicies}">
+                        <option value="<c:out value='${policy}'/>" <c:if test="${policy eq overflowPolicy}">selected</c:if>>
+                            <c:choose>
+                                <c:when test="${policy eq 'DROP_NEWEST'}">Discard the new entry</c:when>
+                                <c:when test="${policy eq 'DROP_OLDEST'}">Discard the oldest queued entry</c:when>
+                                <c:when test="${policy eq 'BLOCK'}">Wait for room (with timeout), then discard the new entry</c:when>
+                                <c:otherwise><c:out value="${policy}"/></c:otherwise>
+                            </c:choose>
+                        </option>
+                    </c:forEach>
+                </select>
             </td>
         </tr>
+        <tr valign="middle">
+            <td width="1%" nowrap>Queued entries</td>
+            <td width="99%"><c:out value="${queueSize}"/> / <c:out value="${queueCapacity}"/></td>
+        </tr>
+        <tr valign="middle">
+            <td width="1%" nowrap>Written entries</td>
+            <td width="99%"><c:out value="${writtenEntries}"/></td>
+        </tr>
+        <tr valign="middle">
+            <td width="1%" nowrap>Dropped entries</td>
+            <td width="99%"><c:out value="${droppedEntries}"/></td>
+        </tr>
         </tbody>
         </table>
     </div>
     <input type="submit" name="update" value="<fmt:message key="global.save_settings" />">
     <input type="submit" name="cancel" value="<fmt:message key="global.cancel" />">
 </form>
+
+<br/>
+
+<form method="post">
+    <input name="csrf" value="<c:out value="${csrf}"/>" type="hidden">
+    <div class="jive-contentBoxHeader">
+        Capture session
+    </div>
+    <div class="jive-contentBox">
+        <p>
+            A capture session bounds the amount of traffic that is logged. When its deadline passes, or when its byte or
+            entry budget has been used, all debuggers (including interpreted XML) are disabled, and the raw XML handlers
+            are removed from all connections. Use 0 for no limit. Interpreted packets only count towards the entry budget.
+        </p>
+        <table cellpadding="3" cellspacing="0" border="0">
+        <tbody>
+        <c:choose>
+            <c:when test="${captureSession.active}">
+                <tr valign="middle">
+                    <td width="1%" nowrap>Status</td>
+                    <td width="99%">Active</td>
+                </tr>
+                <tr valign="middle">
+                    <td width="1%" nowrap>Deadline</td>
+                    <td width="99%">
+                        <c:choose>
+                            <c:when test="${not empty captureSession.deadline}"><fmt:formatDate value="${captureSession.deadline}" type="both" dateStyle="short" timeStyle="medium"/></c:when>
+                            <c:otherwise>None</c:otherwise>
+                        </c:choose>
+                    </td>
+                </tr>
+                <tr valign="middle">
+                    <td width="1%" nowrap>Bytes logged</td>
+                    <td width="99%"><c:out value="${captureSession.byteCount}"/><c:if test="${captureSession.maxBytes gt 0}"> / <c:out value="${captureSession.maxBytes}"/></c:if></td>
+                </tr>
+                <tr valign="middle">
+                    <td width="1%" nowrap>Entries logged</td>
+                    <td width="99%"><c:out value="${captureSession.entryCount}"/><c:if test="${captureSession.maxEntries gt 0}"> / <c:out value="${captureSession.maxEntries}"/></c:if></td>
+                </tr>
+            </c:when>
+            <c:otherwise>
+                <tr valign="middle">
+                    <td width="1%" nowrap>Status</td>
+                    <td width="99%">
+                        No active session.
+                        <c:if test="${not empty captureSession.endReason}">The previous session ended, as <c:out value="${captureSession.endReason}"/>.</c:if>
+                    </td>
+                </tr>
+            </c:otherwise>
+        </c:choose>
+        <tr valign="middle">
+            <td width="1%" nowrap>
+                <label for="sessionMinutes">Duration (minutes)</label>
+            </td>
+            <td width="99%">
+                <input type="number" min="0" size="6" id="sessionMinutes" name="sessionMinutes" value="30"/>
+            </td>
+        </tr>
+        <tr valign="middle">
+            <td width="1%" nowrap>
+                <label for="sessionMaxMB">Byte budget (MB)</label>
+            </td>
+            <td width="99%">
+                <input type="number" min="0" size="6" id="sessionMaxMB" name="sessionMaxMB" value="100"/>
+            </td>
+        </tr>
+        <tr valign="middle">
+            <td width="1%" nowrap>
+                <label for="sessionMaxEntries">Entry budget</label>
+            </td>
+            <td width="99%">
+                <input type="number" min="0" size="10" id="sessionMaxEntries" name="sessionMaxEntries" value="0"/>
+            </td>
+        </tr>
+        </tbody>
+        </table>
+    </div>
+    <input type="submit" name="startSession" value="<c:choose><c:when test="${captureSession.active}">Restart session</c:when><c:otherwise>Start session</c:otherwise></c:choose>">
+    <c:if test="${captureSession.active}">
+        <input type="submit" name="endSession" value="End session (disables all debuggers)">
+    </c:if>
+</form>
 </body
 </html>
@@ -0,0 +1,127 @@
+<%@ page contentType="text/html; charset=UTF-8" %>
+<%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core_1_1" %>
+<%@ taglib uri="admin" prefix="admin" %>
+<jsp:useBean scope="request" id="subscriberCount" type="java.lang.Integer"/>
+<jsp:useBean scope="request" id="maxSubscribers" type="java.lang.Integer"/>
+<!DOCTYPE html>
+<html>
+<head>
+    <title>XML Debugger Live Traffic</title>
+    <meta name="pageID" content="debugger-live"/>
+</head>
+<body>
+
+<admin:FlashMessage/>
+
+<p>
+    Streams traffic to this page as it is captured, for the connection types that are enabled on the XML Debugger
+    Properties page (and that match its capture filter). Entries are filtered on the server. When this page cannot keep
+    up, entries are dropped rather than slowing down the server. At most <c:out value="${maxSubscribers}"/> pages can
+    stream traffic at the same time (currently streaming: <c:out value="${subscriberCount}"/>).
+</p>
+
+<form id="filter" onsubmit="start(); return false;">
+    <div class="jive-contentBoxHeader">
+        Filter
+    </div>
+    <div class="jive-contentBox">
+        <table cellpadding="3" cellspacing="0" border="0">
+        <tbody>
+        <tr valign="middle">
+            <td nowrap><label for="portType">Connection type</label></td>
+            <td>
+                <select id="portType" name="portType">
+                    <option value="">Any</option>
+                    <option value="C2S-STARTTLS">C2S-STARTTLS</option>
+                    <option value="C2S-DIRECTTLS">C2S-DIRECTTLS</option>
+                    <option value="S2S-STARTTLS">S2S-STARTTLS</option>
+                    <option value="ExComp-STARTTLS">ExComp-STARTTLS</option>
+                    <option value="CM-STARTTLS">CM-STARTTLS</option>
+                </select>
+            </td>
+        </tr>
+        <tr valign="middle">
+            <td nowrap><label for="direction">Direction</label></td>
+            <td>
+                <select id="direction" name="direction">
+                    <option value="">Any</option>
+                    <option value="RECV">Received</option>
+                    <option value="SENT">Sent</option>
+                </select>
+            </td>
+        </tr>
+        <tr valign="middle">
+            <td nowrap><label for="address">Remote address contains</label></td>
+            <td><input id="address" type="text" name="address" size="30"/></td>
+        </tr>
+        <tr valign="middle">
+            <td nowrap><label for="text">Entry contains</label></td>
+            <td><input id="text" type="text" name="text" size="30"/></td>
+        </tr>
+        </tbody>
+        </table>
+    </div>
+    <input type="submit" id="start" value="Start"/>
+    <input type="button" id="stop" value="Stop" onclick="stop()" disabled/>
+    <input type="button" value="Clear" onclick="document.getElementById('traffic').textContent = ''"/>
+    <span id="status">Not streaming.</span>
+</form>
+
+<br/>
+
+<div class="jive-contentBoxHeader">
+    Traffic
+</div>
+<div class="jive-contentBox">
+    <pre id="traffic" style="white-space: pre-wrap; word-break: break-all; max-height: 600px; overflow-y: auto;"></pre>
+</div>
+
+<script>
+    // Only the most recent entries are kept on the page, to keep it responsive.
+    const MAX_ENTRIES = 2000;
+    let source = null;
+
+    function setStatus(text) {
+        document.getElementById('status').textContent = text;
+    }
+
+    function append(text) {
+        const traffic = document.getElementById('traffic');
+        const atBottom = traffic.scrollTop + traffic.clientHeight >= traffic.scrollHeight - 5;
+        const line = document.createElement('div');
+        line.textContent = text;
+        traffic.appendChild(line);
+        while (traffic.childElementCount > MAX_ENTRIES) {
+            traffic.removeChild(traffic.firstElementChild);
+        }
+        if (atBottom) {
+            traffic.scrollTop = traffic.scrollHeight;
+        }
+    }
+
+    function start() {
+        stop();
+        const params = new URLSearchParams(new FormData(document.getElementById('filter')));
+        params.set('stream', 'true');
+        source = new EventSource('debugger-live.jsp?' + params.toString());
+        source.onopen = () => setStatus('Streaming.');
+        source.onmessage = event => append(event.data);
+        source.addEventListener('dropped', event => append('[' + event.data + ' entries dropped]'));
+        source.onerror = () => setStatus('Disconnected (the maximum amount of streams may have been reached). Retrying...');
+        document.getElementById('start').disabled = true;
+        document.getElementById('stop').disabled = false;
+    }
+
+    function stop() {
+        if (source !== null) {
+            source.close();
+            source = null;
+            setStatus('Not streaming.');
+        }
+        document.getElementById('start').disabled = false;
+        document.getElementById('stop').disabled = true;
+    }
+</script>
+
+</body>
+</html>
@@ -0,0 +1,187 @@
+<%@ page contentType="text/html; charset=UTF-8" %>
+<%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core_1_1" %>
+<%@ taglib uri="http://java.sun.com/jsp/jstl/fmt" prefix="fmt" %>
+<%@ taglib uri="admin" prefix="admin" %>
+<jsp:useBean scope="request" id="enabled" type="java.lang.Boolean"/>
+<jsp:useBean scope="request" id="sizeKB" type="java.lang.Integer"/>
+<jsp:useBean scope="request" id="search" type="java.lang.String"/>
+<jsp:useBean scope="request" id="connectionCount" type="java.lang.Integer"/>
+<jsp:useBean scope="request" id="parseFailuresEnabled" type="java.lang.Boolean"/>
+<jsp:useBean scope="request" id="interpretedEnabled" type="java.lang.Boolean"/>
+<jsp:useBean scope="request" id="csrf" type="java.lang.String"/>
+<!DOCTYPE html>
+<html>
+<head>
+    <title>XML Debugger Recent Traffic</title>
+    <meta name="pageID" content="debugger-recent"/>
+</head>
+<body>
+
+<admin:FlashMessage/>
+
+<p>
+    When enabled, the most recent raw traffic of every connection is retained in memory, for as long as the connection
+    exists. This applies to all connection types that are enabled on the XML Debugger Properties page, regardless of
+    whether traffic is logged to STDOUT or file.
+</p>
+
+<form method="post">
+    <input name="csrf" value="<c:out value="${csrf}"/>" type="hidden">
+    <div class="jive-contentBoxHeader">
+        Settings
+    </div>
+    <div class="jive-contentBox">
+        <table cellpadding="3" cellspacing="0" border="0">
+        <tbody>
+        <tr valign="middle">
+            <td width="1%" nowrap>
+                <input id="enabled" type="checkbox" name="enabled" <c:if test="${enabled}">checked</c:if>/>
+            </td>
+            <td width="99%">
+                <label for="enabled">
+                    Retain recent traffic
+                </label>
+            </td>
+        </tr>
+        <tr valign="middle">
+            <td width="1%" nowrap>
+                <input id="sizeKB" type="number" min="1" max="1024" name="sizeKB" value="<c:out value="${sizeKB}"/>" size="5"/>
+            </td>
+            <td width="99%">
+                <label for="sizeKB">
+                    Kilobytes retained per connection (applies to connections that start being tracked after this change)
+                </label>
+            </td>
+        </tr>
+        <tr valign="middle">
+            <td width="1%" nowrap>
+                <input id="parseFailuresEnabled" type="checkbox" name="parseFailuresEnabled" <c:if test="${parseFailuresEnabled}">checked</c:if>/>
+            </td>
+            <td width="99%">
+                <label for="parseFailuresEnabled">
+                    Detect parse failures: record an incident when a connection closes while some of its inbound stanzas
+                    were never seen as interpreted XML (requires interpreted XML to be enabled on the XML Debugger Properties page)
+                </label>
+            </td>
+        </tr>
+        </tbody>
+        </table>
+    </div>
+    <input type="submit" name="update" value="<fmt:message key="global.save_settings" />">
+    <input type="submit" name="cancel" value="<fmt:message key="global.cancel" />">
+</form>
+
+<br/>
+
+<form method="get">
+    <div class="jive-contentBoxHeader">
+        Connections (<c:out value="${connectionCount}"/>)
+    </div>
+    <div class="jive-contentBox">
+        <p>
+            <label for="search">Address or connection ID</label>
+            <input id="search" type="text" name="search" value="<c:out value="${search}"/>"/>
+            <input type="submit" value="Search"/>
+        </p>
+        <div class="jive-table">
+        <table cellpadding="0" cellspacing="0" border="0" width="100%">
+            <thead>
+            <tr>
+                <th nowrap>ID</th>
+                <th nowrap>Type</th>
+                <th nowrap>Remote address</th>
+                <th nowrap>Bytes retained</th>
+                <th nowrap>Bytes observed</th>
+                <th nowrap>Last activity</th>
+            </tr>
+            </thead>
+            <tbody>
+            <c:forEach var="connection" items="${connections}">
+                <tr>
+                    <td><a href="?connection=${connection.connectionId}&search=<c:out value="${search}"/>"><c:out value="${connection.connectionId}"/></a></td>
+                    <td><c:out value="${connection.portType}"/></td>
+                    <td><c:out value="${connection.remoteAddress}"/></td>
+                    <td><c:out value="${connection.bytesRetained}"/></td>
+                    <td><c:out value="${connection.bytesRecorded}"/></td>
+                    <td><fmt:formatDate value="${connection.lastActivityDate}" type="both" dateStyle="short" timeStyle="medium"/></td>
+                </tr>
+            </c:forEach>
+            <c:if test="${empty connections}">
+                <tr><td colspan="6">No traffic is retained for any (matching) connection.</td></tr>
+            </c:if>
+            </tbody>
+        </table>
+        </div>
+    </div>
+</form>
+
+<br/>
+
+<div class="jive-contentBoxHeader">
+    Parse failures (<c:out value="${incidentCount}"/>)
+</div>
+<div class="jive-contentBox">
+    <c:if test="${parseFailuresEnabled and not interpretedEnabled}">
+        <p>Parse failures are not detected while interpreted XML is disabled.</p>
+    </c:if>
+    <div class="jive-table">
+    <table cellpadding="0" cellspacing="0" border="0" width="100%">
+        <thead>
+        <tr>
+            <th nowrap>Incident</th>
+            <th nowrap>Date</th>
+            <th nowrap>Connection</th>
+            <th nowrap>Type</th>
+            <th nowrap>Remote address</th>
+            <th nowrap>JID</th>
+            <th nowrap>Unparsed stanzas</th>
+        </tr>
+        </thead>
+        <tbody>
+        <c:forEach var="incident" items="${incidents}">
+            <tr>
+                <td><a href="?incident=${incident.id}&search=<c:out value="${search}"/>"><c:out value="${incident.id}"/></a></td>
+                <td><fmt:formatDate value="${incident.date}" type="both" dateStyle="short" timeStyle="medium"/></td>
+                <td><c:out value="${incident.connectionId}"/></td>
+                <td><c:out value="${incident.portType}"/></td>
+                <td><c:out value="${incident.remoteAddress}"/></td>
+                <td><c:out value="${incident.jid}"/></td>
+                <td><c:out value="${incident.unparsedCount}"/> of <c:out value="${incident.receivedCount}"/></td>
+            </tr>
+        </c:forEach>
+        <c:if test="${empty incidents}">
+            <tr><td colspan="7">No parse failures were detected.</td></tr>
+        </c:if>
+        </tbody>
+    </table>
+    </div>
+</div>
+
+<c:if test="${not empty selectedIncident}">
+    <br/>
+    <div class="jive-contentBoxHeader">
+        Incident <c:out value="${selectedIncident.id}"/> of connection <c:out value="${selectedIncident.connectionId}"/> (<c:out value="${selectedIncident.remoteAddress}"/>)
+    </div>
+    <div class="jive-contentBox">
+        <p>Unparsed stanzas (truncated):</p>
+        <pre style="white-space: pre-wrap; word-break: break-all;"><c:forEach var="line" items="${selectedIncident.unparsedStanzas}"><c:out value="${line}"/>
+</c:forEach></pre>
+        <p>Most recent inbound frames:</p>
+        <pre style="white-space: pre-wrap; word-break: break-all;"><c:forEach var="line" items="${selectedIncident.recentFrames}"><c:out value="${line}"/>
+</c:forEach></pre>
+    </div>
+</c:if>
+
+<c:if test="${not empty selected}">
+    <br/>
+    <div class="jive-contentBoxHeader">
+        Traffic of connection <c:out value="${selected.connectionId}"/> (<c:out value="${selected.remoteAddress}"/>)
+    </div>
+    <div class="jive-contentBox">
+        <pre style="white-space: pre-wrap; word-break: break-all;"><c:forEach var="line" items="${lines}"><c:out value="${line}"/>
+</c:forEach></pre>
+    </div>
+</c:if>
+
+</body>
+</html>
@@ -54,11 +54,16 @@
                 </label>
             </td>
             <td width="99%">
+                <div style="margin-bottom: 0.4rem;">
+                    <input type="search" id="connection-search" size="40" placeholder="Search by JID, domain or stream ID" aria-label="Search connections">
+                    <button type="button" id="connection-more" disabled>More results</button>
+                    <span id="connection-status"></span>
+                </div>
                 <select id="connection" name="connection" style="width: 100%;">
                     <option value="router" <c:if test="${empty sessionScope.connection or sessionScope.connection eq 'router'}">selected</c:if>>Default packet router</option>
-                    <c:forEach var="connection" items="${connections}">
-                        <option value="<c:out value='${connection.value}'/>" <c:if test="${sessionScope.connection eq connection.value}">selected</c:if>><c:out value="${connection.label}"/></option>
-                    </c:forEach>
+                    <c:if test="${not empty selectedConnection}">
+                        <option value="<c:out value='${selectedConnection.value}'/>" selected><c:out value="${selectedConnection.label}"/></option>
+                    </c:if>
                 </select>
             </td>
         </tr>
@@ -113,8 +118,183 @@
         Sending stanza...
     </span>
     <input type="submit" name="cancel" value="<fmt:message key="global.cancel" />">
+
+    <br/><br/>
+
+    <admin:contentBox title="Load test">
+        <p>
+            Sends the stanza above repeatedly, at a target rate, through the selected connection. In the stanza,
+            <tt>{n}</tt> is replaced by the sequence number of the stanza, <tt>{random}</tt> by a random identifier and
+            <tt>{domain}</tt> by the XMPP domain of this server. Every IQ request is given a unique ID, and the latency of
+            its response is measured from the time at which it was scheduled to be sent. At most the configured amount of
+            IQ requests await a response: when that amount is reached, sending is delayed. Latency percentiles are
+            accurate to about 3%.
+        </p>
+        <table cellpadding="3" cellspacing="0" border="0">
+        <tbody>
+        <tr>
+            <td nowrap><label for="loadRate">Stanzas per second</label></td>
+            <td><input id="loadRate" type="number" min="1" max="100000" name="loadRate" size="7" value="<c:out value="${empty sessionScope.loadRate ? 10 : sessionScope.loadRate}"/>"></td>
+            <td nowrap><label for="loadConcurrency">Concurrent IQ requests</label></td>
+            <td><input id="loadConcurrency" type="number" min="1" max="10000" name="loadConcurrency" size="7" value="<c:out value="${empty sessionScope.loadConcurrency ? 10 : sessionScope.loadConcurrency}"/>"></td>
+        </tr>
+        <tr>
+            <td nowrap><label for="loadDuration">Duration (seconds)</label></td>
+            <td><input id="loadDuration" type="number" min="1" max="3600" name="loadDuration" size="7" value="<c:out value="${empty sessionScope.loadDuration ? 10 : sessionScope.loadDuration}"/>"></td>
+            <td nowrap><label for="loadCount">Maximum stanzas (0 for no maximum)</label></td>
+            <td><input id="loadCount" type="number" min="0" name="loadCount" size="7" value="<c:out value="${empty sessionScope.loadCount ? 0 : sessionScope.loadCount}"/>"></td>
+        </tr>
+        </tbody>
+        </table>
+        <p>
+            <input type="submit" name="startLoad" value="Start load test">
+            <input type="submit" name="stopLoad" value="Stop load test">
+        </p>
+        <div class="jive-table">
+        <table cellpadding="0" cellspacing="0" border="0" width="100%">
+            <thead>
+            <tr>
+                <th nowrap>State</th>
+                <th nowrap>Elapsed</th>
+                <th nowrap>Sent</th>
+                <th nowrap>Sent per second</th>
+                <th nowrap>Responses</th>
+                <th nowrap>Errors</th>
+                <th nowrap>Timeouts</th>
+                <th nowrap>Cancelled</th>
+                <th nowrap>Failures</th>
+                <th nowrap>In flight</th>
+                <th nowrap>Latency p50</th>
+                <th nowrap>p90</th>
+                <th nowrap>p99</th>
+                <th nowrap>p99.9</th>
+                <th nowrap>max</th>
+            </tr>
+            </thead>
+            <tbody>
+            <tr id="load-report">
+                <td colspan="15">No load test was started.</td>
+            </tr>
+            </tbody>
+        </table>
+        </div>
+    </admin:contentBox>
 </form>
 <script>
+    // Connections are searched page by page, as a server can have too many to list them all.
+    (function () {
+        var search = document.getElementById('connection-search');
+        var select = document.getElementById('connection');
+        var more = document.getElementById('connection-more');
+        var status = document.getElementById('connection-status');
+        var query = '';
+        var next = null;
+        var timer = null;
+
+        function load(append) {
+            var url = 'stanza-sender.jsp?search=' + encodeURIComponent(query) + (append && next ? '&after=' + encodeURIComponent(next) : '');
+            status.textContent = 'Searching...';
+            fetch(url, { credentials: 'same-origin' })
+                .then(function (response) { return response.json(); })
+                .then(function (page) {
+                    if (!append) {
+                        // Keep the default router and the current selection.
+                        Array.prototype.slice.call(select.options).forEach(function (option) {
+                            if (option.value !== 'router' && !option.selected) {
+                                select.removeChild(option);
+                            }
+                        });
+                    }
+                    page.connections.forEach(function (connection) {
+                        var exists = Array.prototype.some.call(select.options, function (option) { return option.value === connection.value; });
+                        if (!exists) {
+                            select.appendChild(new Option(connection.label, connection.value));
+                        }
+                    });
+                    next = page.next || null;
+                    more.disabled = next === null;
+                    status.textContent = select.options.length - 1 + ' connection(s) listed' + (next === null ? '.' : ', more available.');
+                })
+                .catch(function () {
+                    status.textContent = 'Unable to search connections.';
+                });
+        }
+
+        search.addEventListener('input', function () {
+            clearTimeout(timer);
+            timer = setTimeout(function () {
+                query = search.value.trim();
+                next = null;
+                load(false);
+            }, 300);
+        });
+        search.addEventListener('keydown', function (event) {
+            if (event.key === 'Enter') {
+                event.preventDefault(); // Do not submit the form.
+            }
+        });
+        more.addEventListener('click', function () {
+            load(true);
+        });
+        load(false);
+    })();
+
+    // The report of the most recent load test is refreshed every second while the test is running.
+    (function () {
+        var report = document.getElementById('load-report');
+
+        function milliseconds(micros) {
+            return (micros / 1000).toFixed(2) + ' ms';
+        }
+
+        function render(status) {
+            var seconds = status.elapsedMillis / 1000;
+            var cells = [
+                status.state.toLowerCase(),
+                seconds.toFixed(1) + ' s',
+                status.sent,
+                seconds > 0 ? (status.sent / seconds).toFixed(1) : '0',
+                status.responses,
+                status.errorResponses,
+                status.timeouts,
+                status.cancelled,
+                status.failures,
+                status.inFlight,
+                milliseconds(status.latency.p50),
+                milliseconds(status.latency.p90),
+                milliseconds(status.latency.p99),
+                milliseconds(status.latency.p999),
+                milliseconds(status.latency.max)
+            ];
+            while (report.firstChild) {
+                report.removeChild(report.firstChild);
+            }
+            cells.forEach(function (value) {
+                var cell = document.createElement('td');
+                cell.textContent = value;
+                report.appendChild(cell);
+            });
+        }
+
+        function refresh() {
+            fetch('stanza-sender.jsp?loadStatus=true', { credentials: 'same-origin' })
+                .then(function (response) { return response.json(); })
+                .then(function (status) {
+                    if (status.state) {
+                        render(status);
+                        if (status.state !== 'FINISHED') {
+                            setTimeout(refresh, 1000);
+                        }
+                    }
+                })
+                .catch(function () {
+                    setTimeout(refresh, 5000);
+                });
+        }
+
+        refresh();
+    })();
+
     (function () {
         var form = document.getElementById('stanza-form');
         if (!form) {
@@ -0,0 +1,145 @@
+<%@ page contentType="text/html; charset=UTF-8" %>
+<%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core_1_1" %>
+<%@ taglib uri="http://java.sun.com/jsp/jstl/fmt" prefix="fmt" %>
+<%@ taglib uri="admin" prefix="admin" %>
+<jsp:useBean scope="request" id="enabled" type="java.lang.Boolean"/>
+<jsp:useBean scope="request" id="since" type="java.util.Date"/>
+<jsp:useBean scope="request" id="limit" type="java.lang.Integer"/>
+<jsp:useBean scope="request" id="csrf" type="java.lang.String"/>
+<!DOCTYPE html>
+<html>
+<head>
+    <title>XML Debugger Traffic Metrics</title>
+    <meta name="pageID" content="debugger-metrics"/>
+</head>
+<body>
+
+<admin:FlashMessage/>
+
+<p>
+    When enabled, the frames and bytes of raw traffic are counted per direction, per connection type and per connection.
+    This applies to all connection types that are enabled on the XML Debugger Properties page (and that match its capture
+    filter), regardless of whether traffic is logged. Traffic is counted, but never captured or decoded. Frame sizes are
+    reported as the upper bound of a power-of-two range.
+</p>
+
+<form method="post">
+    <input name="csrf" value="<c:out value="${csrf}"/>" type="hidden">
+    <div class="jive-contentBoxHeader">
+        Settings
+    </div>
+    <div class="jive-contentBox">
+        <table cellpadding="3" cellspacing="0" border="0">
+        <tbody>
+        <tr valign="middle">
+            <td width="1%" nowrap>
+                <input id="enabled" type="checkbox" name="enabled" <c:if test="${enabled}">checked</c:if>/>
+            </td>
+            <td width="99%">
+                <label for="enabled">
+                    Count traffic
+                </label>
+            </td>
+        </tr>
+        </tbody>
+        </table>
+    </div>
+    <input type="submit" name="update" value="<fmt:message key="global.save_settings" />">
+    <input type="submit" name="reset" value="Reset counters">
+    <input type="submit" name="cancel" value="<fmt:message key="global.cancel" />">
+</form>
+
+<br/>
+
+<div class="jive-contentBoxHeader">
+    Connection types (since <fmt:formatDate value="${since}" type="both" dateStyle="short" timeStyle="medium"/>)
+</div>
+<div class="jive-contentBox">
+    <div class="jive-table">
+    <table cellpadding="0" cellspacing="0" border="0" width="100%">
+        <thead>
+        <tr>
+            <th nowrap>Type</th>
+            <th nowrap>Direction</th>
+            <th nowrap>Frames</th>
+            <th nowrap>Bytes</th>
+            <th nowrap>Frame size p50</th>
+            <th nowrap>p90</th>
+            <th nowrap>p99</th>
+            <th nowrap>max</th>
+        </tr>
+        </thead>
+        <tbody>
+        <c:forEach var="port" items="${ports}">
+            <c:forTokens var="direction" items="RECV,SENT" delims=",">
+                <c:set var="metrics" value="${direction eq 'RECV' ? port.received : port.sent}"/>
+                <tr>
+                    <td><c:out value="${port.portType}"/></td>
+                    <td><c:out value="${direction}"/></td>
+                    <td><c:out value="${metrics.frames}"/></td>
+                    <td><c:out value="${metrics.bytes}"/></td>
+                    <td><c:out value="${metrics.frameSizes.getPercentile(50)}"/></td>
+                    <td><c:out value="${metrics.frameSizes.getPercentile(90)}"/></td>
+                    <td><c:out value="${metrics.frameSizes.getPercentile(99)}"/></td>
+                    <td><c:out value="${metrics.frameSizes.max}"/></td>
+                </tr>
+            </c:forTokens>
+        </c:forEach>
+        <c:if test="${empty ports}">
+            <tr><td colspan="8">No traffic was counted.</td></tr>
+        </c:if>
+        </tbody>
+    </table>
+    </div>
+</div>
+
+<br/>
+
+<form method="get">
+    <div class="jive-contentBoxHeader">
+        Top talkers
+    </div>
+    <div class="jive-contentBox">
+        <p>
+            <label for="limit">Open connections that sent and received the most bytes</label>
+            <input id="limit" type="number" min="1" max="500" name="limit" value="<c:out value="${limit}"/>" size="5"/>
+            <input type="submit" value="Show"/>
+        </p>
+        <div class="jive-table">
+        <table cellpadding="0" cellspacing="0" border="0" width="100%">
+            <thead>
+            <tr>
+                <th nowrap>ID</th>
+                <th nowrap>Type</th>
+                <th nowrap>Remote address</th>
+                <th nowrap>JID</th>
+                <th nowrap>Frames received</th>
+                <th nowrap>Bytes received</th>
+                <th nowrap>Frames sent</th>
+                <th nowrap>Bytes sent</th>
+            </tr>
+            </thead>
+            <tbody>
+            <c:forEach var="talker" items="${topTalkers}">
+                <tr>
+                    <td><c:out value="${talker.connectionId}"/></td>
+                    <td><c:out value="${talker.portType}"/></td>
+                    <td><c:out value="${talker.remoteAddress}"/></td>
+                    <td><c:out value="${talker.jid}"/></td>
+                    <td><c:out value="${talker.receivedFrames}"/></td>
+                    <td><c:out value="${talker.receivedBytes}"/></td>
+                    <td><c:out value="${talker.sentFrames}"/></td>
+                    <td><c:out value="${talker.sentBytes}"/></td>
+                </tr>
+            </c:forEach>
+            <c:if test="${empty topTalkers}">
+                <tr><td colspan="8">No traffic was counted for any open connection.</td></tr>
+            </c:if>
+            </tbody>
+        </table>
+        </div>
+    </div>
+</form>
+
+</body>
+</html>
@@ -0,0 +1,258 @@
+<%@ page contentType="text/html; charset=UTF-8" %>
+<%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core_1_1" %>
+<%@ taglib uri="http://java.sun.com/jsp/jstl/fmt" prefix="fmt" %>
+<%@ taglib uri="admin" prefix="admin" %>
+<jsp:useBean scope="request" id="captureFileEnabled" type="java.lang.Boolean"/>
+<jsp:useBean scope="request" id="csrf" type="java.lang.String"/>
+<!DOCTYPE html>
+<html>
+<head>
+    <title>XML Debugger Traffic Replay</title>
+    <meta name="pageID" content="debugger-replay"/>
+</head>
+<body>
+
+<admin:FlashMessage/>
+
+<p>
+    Replays inbound traffic from capture files into the server, to reproduce performance problems. The received traffic
+    of every captured connection is reassembled into stanzas. Stream negotiation (such as authentication) and other
+    elements that are not stanzas are skipped. Stanzas are injected at their original inter-arrival times, divided by the
+    speed-up factor, through the packet router or a selected connection. Every IQ request is given a unique ID, and the
+    latency of its response is measured from the time at which it was scheduled to be injected.
+</p>
+<p>
+    Replayed stanzas are processed as real traffic. Rewrite the addresses of captured accounts to test accounts, and be
+    aware that traffic that was captured while masking was enabled contains asterisks in place of sensitive content.
+</p>
+<c:if test="${not captureFileEnabled}">
+    <p>
+        Capture files are not being written. Enable "Log to binary capture files" on the XML Debugger Properties page to
+        capture traffic that can be replayed.
+    </p>
+</c:if>
+
+<form method="post">
+    <input name="csrf" value="<c:out value="${csrf}"/>" type="hidden">
+    <div class="jive-contentBoxHeader">
+        Replay
+    </div>
+    <div class="jive-contentBox">
+        <table cellpadding="3" cellspacing="0" border="0">
+        <tbody>
+        <tr valign="top">
+            <td width="1%" nowrap><label for="file">Capture file</label></td>
+            <td width="99%">
+                <select id="file" name="file">
+                    <option value="">All capture files</option>
+                    <c:forEach var="captureFile" items="${captureFiles}">
+                        <option value="<c:out value="${captureFile}"/>" <c:if test="${sessionScope.replayFile eq captureFile}">selected</c:if>><c:out value="${captureFile}"/></option>
+                    </c:forEach>
+                </select>
+            </td>
+        </tr>
+        <tr valign="top">
+            <td width="1%" nowrap><label for="since">From</label></td>
+            <td width="99%">
+                <input id="since" type="text" name="since" size="25" placeholder="2026-05-13T09:00:00Z" value="<c:out value="${sessionScope.replaySince}"/>">
+                <label for="until">until</label>
+                <input id="until" type="text" name="until" size="25" placeholder="2026-05-13T10:00:00Z" value="<c:out value="${sessionScope.replayUntil}"/>">
+                (optional)
+            </td>
+        </tr>
+        <tr valign="top">
+            <td width="1%" nowrap><label for="speed">Speed-up factor</label></td>
+            <td width="99%">
+                <input id="speed" type="number" min="0" max="1000" step="any" name="speed" size="7" value="<c:out value="${empty sessionScope.replaySpeed ? 1 : sessionScope.replaySpeed}"/>">
+                1 replays at the original pace, 10 ten times as fast, 0 as fast as possible.
+            </td>
+        </tr>
+        <tr valign="top">
+            <td width="1%" nowrap><label for="rules">Address rewrite rules</label></td>
+            <td width="99%">
+                <textarea id="rules" name="rules" cols="60" rows="4" placeholder="alice@example.org = test1@example.org&#10;* = loadtest@example.org&#10;example.com = test.example.com"><c:out value="${sessionScope.replayRules}"/></textarea>
+                <br/>
+                One rule per line. A bare JID replaces that JID, <tt>*</tt> replaces every other address of an account,
+                and a domain moves all addresses of that domain. Resources are retained.
+            </td>
+        </tr>
+        <tr valign="top">
+            <td width="1%" nowrap><label for="connection">Inject via</label></td>
+            <td width="99%">
+                <div style="margin-bottom: 0.4rem;">
+                    <input type="search" id="connection-search" size="40" placeholder="Search by JID, domain or stream ID" aria-label="Search connections">
+                    <button type="button" id="connection-more" disabled>More results</button>
+                    <span id="connection-status"></span>
+                </div>
+                <select id="connection" name="connection" style="width: 100%;">
+                    <option value="router" <c:if test="${empty sessionScope.replayConnection or sessionScope.replayConnection eq 'router'}">selected</c:if>>Default packet router</option>
+                    <c:if test="${not empty selectedConnection}">
+                        <option value="<c:out value='${selectedConnection.value}'/>" selected><c:out value="${selectedConnection.label}"/></option>
+                    </c:if>
+                </select>
+            </td>
+        </tr>
+        </tbody>
+        </table>
+    </div>
+    <input type="submit" name="start" value="Start replay">
+    <input type="submit" name="stop" value="Stop replay">
+    <input type="submit" name="cancel" value="<fmt:message key="global.cancel" />">
+</form>
+
+<br/>
+
+<div class="jive-contentBoxHeader">
+    Progress
+</div>
+<div class="jive-contentBox">
+    <div class="jive-table">
+    <table cellpadding="0" cellspacing="0" border="0" width="100%">
+        <thead>
+        <tr>
+            <th nowrap>State</th>
+            <th nowrap>Elapsed</th>
+            <th nowrap>Captured time replayed</th>
+            <th nowrap>Max lag</th>
+            <th nowrap>Records</th>
+            <th nowrap>Stanzas</th>
+            <th nowrap>Stanzas per second</th>
+            <th nowrap>Skipped</th>
+            <th nowrap>Responses</th>
+            <th nowrap>Errors</th>
+            <th nowrap>Timeouts</th>
+            <th nowrap>Cancelled</th>
+            <th nowrap>Failures</th>
+            <th nowrap>Latency p50</th>
+            <th nowrap>p90</th>
+            <th nowrap>p99</th>
+            <th nowrap>max</th>
+        </tr>
+        </thead>
+        <tbody>
+        <tr id="replay-report">
+            <td colspan="17">No replay was started.</td>
+        </tr>
+        </tbody>
+    </table>
+    </div>
+</div>
+
+<script>
+    // Connections are searched page by page, as a server can have too many to list them all.
+    (function () {
+        var search = document.getElementById('connection-search');
+        var select = document.getElementById('connection');
+        var more = document.getElementById('connection-more');
+        var status = document.getElementById('connection-status');
+        var query = '';
+        var next = null;
+        var timer = null;
+
+        function load(append) {
+            var url = 'stanza-sender.jsp?search=' + encodeURIComponent(query) + (append && next ? '&after=' + encodeURIComponent(next) : '');
+            status.textContent = 'Searching...';
+            fetch(url, { credentials: 'same-origin' })
+                .then(function (response) { return response.json(); })
+                .then(function (page) {
+                    if (!append) {
+                        Array.prototype.slice.call(select.options).forEach(function (option) {
+                            if (option.value !== 'router' && !option.selected) {
+                                select.removeChild(option);
+                            }
+                        });
+                    }
+                    page.connections.forEach(function (connection) {
+                        var exists = Array.prototype.some.call(select.options, function (option) { return option.value === connection.value; });
+                        if (!exists) {
+                            select.appendChild(new Option(connection.label, connection.value));
+                        }
+                    });
+                    next = page.next || null;
+                    more.disabled = next === null;
+                    status.textContent = select.options.length - 1 + ' connection(s) listed' + (next === null ? '.' : ', more available.');
+                })
+                .catch(function () {
+                    status.textContent = 'Unable to search connections.';
+                });
+        }
+
+        search.addEventListener('input', function () {
+            clearTimeout(timer);
+            timer = setTimeout(function () {
+                query = search.value.trim();
+                next = null;
+                load(false);
+            }, 300);
+        });
+        search.addEventListener('keydown', function (event) {
+            if (event.key === 'Enter') {
+                event.preventDefault(); // Do not submit the form.
+            }
+        });
+        more.addEventListener('click', function () {
+            load(true);
+        });
+        load(false);
+    })();
+
+    // The report of the most recent replay is refreshed every second while the replay is running.
+    (function () {
+        var report = document.getElementById('replay-report');
+
+        function milliseconds(micros) {
+            return (micros / 1000).toFixed(2) + ' ms';
+        }
+
+        function render(status) {
+            var seconds = status.elapsedMillis / 1000;
+            var cells = [
+                status.state.toLowerCase(),
+                seconds.toFixed(1) + ' s',
+                (status.capturedSpanMillis / 1000).toFixed(1) + ' s',
+                status.maxLagMillis + ' ms',
+                status.records,
+                status.sent,
+                seconds > 0 ? (status.sent / seconds).toFixed(1) : '0',
+                status.skipped,
+                status.responses,
+                status.errorResponses,
+                status.timeouts,
+                status.cancelled,
+                status.failures,
+                milliseconds(status.latency.p50),
+                milliseconds(status.latency.p90),
+                milliseconds(status.latency.p99),
+                milliseconds(status.latency.max)
+            ];
+            while (report.firstChild) {
+                report.removeChild(report.firstChild);
+            }
+            cells.forEach(function (value) {
+                var cell = document.createElement('td');
+                cell.textContent = value;
+                report.appendChild(cell);
+            });
+        }
+
+        function refresh() {
+            fetch('debugger-replay.jsp?status=true', { credentials: 'same-origin' })
+                .then(function (response) { return response.json(); })
+                .then(function (status) {
+                    if (status.state) {
+                        render(status);
+                        if (status.state !== 'FINISHED') {
+                            setTimeout(refresh, 1000);
+                        }
+                    }
+                })
+                .catch(function () {
+                    setTimeout(refresh, 5000);
+                });
+        }
+
+        refresh();
+    })();
+</script>
+</body>
+</html>